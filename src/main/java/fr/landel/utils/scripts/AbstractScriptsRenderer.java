@@ -0,0 +1,110 @@
+/*-
+ * #%L
+ * utils-scripts
+ * %%
+ * Copyright (C) 2016 - 2018 Gilles Landel
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package fr.landel.utils.scripts;
+
+/**
+ * Base of the renderers generated at compile time (see
+ * {@link ScriptsRenderers}). A renderer is a typed parameter builder (one
+ * setter per variable or flag of the script) followed by the straight-line
+ * rendering of the script, without any parsing or interpretation at runtime.
+ * The result is the same as {@link ScriptsLoader#get(ScriptsList, java.util.Map)}
+ * with the same template.
+ *
+ * <p>
+ * A renderer is not thread-safe, create one per rendering.
+ * </p>
+ *
+ * @since Oct 17, 2026
+ * @author Gilles
+ *
+ */
+public abstract class AbstractScriptsRenderer {
+
+    private final ScriptsReplacer replacer;
+
+    /**
+     * Constructor
+     * 
+     * @param template
+     *            the template used to generate the renderer
+     */
+    protected AbstractScriptsRenderer(final ScriptsTemplate template) {
+        this.replacer = new ScriptsReplacer(template);
+    }
+
+    /**
+     * @return the template
+     */
+    public ScriptsTemplate getTemplate() {
+        return this.replacer.getTemplate();
+    }
+
+    /**
+     * Render the script with the defined values and flags
+     * 
+     * @return the rendered script
+     */
+    public abstract StringBuilder render();
+
+    /**
+     * Format and check the value of a variable (like the replacements of the
+     * loader, see {@link ScriptsFormatters#DEFAULT})
+     * 
+     * @param value
+     *            the value
+     * @return the checked value
+     * @throws IllegalArgumentException
+     *             If brackets are found in value replacement. If replacement
+     *             value hasn't pairs of single quote (avoid some SQL injections
+     *             but not all, parameters have to be checked)
+     */
+    protected final String check(final Object value) {
+        return this.replacer.format(value);
+    }
+
+    /**
+     * Get the value of a flag (like a replacement with a boolean value)
+     * 
+     * @param present
+     *            true, if the flag is present
+     * @return the value or {@code null} if not present
+     */
+    protected final String flag(final boolean present) {
+        if (present) {
+            return Boolean.TRUE.toString();
+        }
+        return null;
+    }
+
+    /**
+     * Finish the rendering (remove the blank lines if required by the
+     * template)
+     * 
+     * @param builder
+     *            the rendered script
+     * @return the builder
+     */
+    protected final StringBuilder finish(final StringBuilder builder) {
+        if (this.replacer.getTemplate().isRemoveBlankLines()) {
+            ScriptsBlankLines.remove(builder);
+        }
+        return builder;
+    }
+}
@@ -0,0 +1,383 @@
+/*-
+ * #%L
+ * utils-scripts
+ * %%
+ * Copyright (C) 2016 - 2018 Gilles Landel
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package fr.landel.utils.scripts;
+
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiConsumer;
+
+/**
+ * Compiled script (immutable and thread-safe). The script is parsed once, and
+ * each rendering only walks through the tree of nodes.
+ *
+ * <p>
+ * Each variable name (in variables and in expressions) is assigned to a slot
+ * during the compilation, so values and presence flags can be provided by
+ * index (see {@link ScriptsLoader#getBySlots(ScriptsList, Object[], BitSet)}).
+ * </p>
+ *
+ * @since Oct 17, 2026
+ * @author Gilles
+ *
+ */
+public final class CompiledScript {
+
+    private final ScriptsTemplate template;
+    private final ScriptsNode root;
+    private final Map<String, Integer> slots;
+    private final String[] variables;
+    private final ConcurrentMap<Class<?>, int[]> flagSlots;
+    private final BiConsumer<StringBuilder, String[]> renderer;
+    private final BitSet rendered;
+    private volatile long fingerprint;
+
+    /**
+     * Constructor
+     * 
+     * @param template
+     *            the template used to compile the script
+     * @param root
+     *            the root node
+     * @param slots
+     *            the slot of each variable name
+     */
+    CompiledScript(final ScriptsTemplate template, final ScriptsNode root, final Map<String, Integer> slots) {
+        this.template = template;
+        this.root = root;
+        this.slots = Collections.unmodifiableMap(slots);
+        this.variables = new String[slots.size()];
+        for (Map.Entry<String, Integer> entry : slots.entrySet()) {
+            this.variables[entry.getValue()] = entry.getKey();
+        }
+        this.flagSlots = new ConcurrentHashMap<>();
+        this.renderer = null;
+        this.rendered = null;
+    }
+
+    /**
+     * Constructor of a compiled script with a generated rendering (see
+     * {@link ScriptsClassGenerator})
+     * 
+     * @param script
+     *            the compiled script
+     * @param renderer
+     *            the generated rendering (values indexed by slot,
+     *            {@code null} if not present)
+     * @param rendered
+     *            the slots whose value is rendered (the other ones are only
+     *            used as flags)
+     */
+    CompiledScript(final CompiledScript script, final BiConsumer<StringBuilder, String[]> renderer, final BitSet rendered) {
+        this.template = script.template;
+        this.root = script.root;
+        this.slots = script.slots;
+        this.variables = script.variables;
+        this.flagSlots = script.flagSlots;
+        this.renderer = renderer;
+        this.rendered = rendered;
+        this.fingerprint = script.fingerprint;
+    }
+
+    /**
+     * @return the template used to compile the script
+     */
+    public ScriptsTemplate getTemplate() {
+        return this.template;
+    }
+
+    /**
+     * @return the number of slots (distinct variable names)
+     */
+    public int getSlotCount() {
+        return this.variables.length;
+    }
+
+    /**
+     * @return true, if the rendering is done by a generated class (see
+     *         {@link ScriptsLoader#setCodeGeneration(boolean)})
+     */
+    public boolean isGenerated() {
+        return this.renderer != null;
+    }
+
+    /**
+     * Get the fingerprint of the script: 64 bits hash of the compiled script
+     * and of the template configuration, stable across JVM restarts for the
+     * same content (computed once)
+     * 
+     * @return the fingerprint
+     */
+    public long getFingerprint() {
+        long hash = this.fingerprint;
+        if (hash == 0) {
+            final long[] state = {ScriptsSource.hash(ScriptsArchive.fingerprint(this.template) + this.template.isRemoveBlankLines())};
+            try (DataOutputStream output = new DataOutputStream(new OutputStream() {
+
+                @Override
+                public void write(final int b) {
+                    state[0] = mix(state[0], b & 0xFF);
+                }
+            })) {
+                this.write(output);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            // zero is kept for "not computed"
+            hash = state[0] != 0 ? state[0] : 1;
+            this.fingerprint = hash;
+        }
+        return hash;
+    }
+
+    /**
+     * Get the fingerprint of the shape rendered for the presence signature
+     * (the taken branches only depend on the presence of the variables): the
+     * fingerprint of the script mixed with the present slots. It's computed
+     * without the rendered text, so it can key caches and metrics by shape
+     * without hashing the output (stable across JVM restarts for the same
+     * content).
+     * 
+     * @param presence
+     *            the presence of each slot
+     * @return the fingerprint
+     */
+    public long getFingerprint(final BitSet presence) {
+        long hash = this.getFingerprint();
+        if (presence != null) {
+            for (int slot = presence.nextSetBit(0); slot > -1 && slot < this.variables.length; slot = presence.nextSetBit(slot + 1)) {
+                hash = mix(hash, slot);
+            }
+        }
+        return finish(hash);
+    }
+
+    /**
+     * Mix the value into the hash (FNV-1a step)
+     * 
+     * @param hash
+     *            the hash
+     * @param value
+     *            the value
+     * @return the new hash
+     */
+    static long mix(final long hash, final long value) {
+        return (hash ^ value) * 0x100000001b3L;
+    }
+
+    /**
+     * Spread the bits of the hash (64 bits finalizer of MurmurHash3)
+     * 
+     * @param hash
+     *            the hash
+     * @return the final hash
+     */
+    static long finish(final long hash) {
+        long h = hash;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Get the slot of the variable
+     * 
+     * @param name
+     *            the variable name
+     * @return the slot or -1 if the script doesn't use this variable
+     */
+    public int getSlot(final String name) {
+        final Integer slot = this.slots.get(name);
+        if (slot != null) {
+            return slot;
+        }
+        return -1;
+    }
+
+    /**
+     * Get the variable name of the slot
+     * 
+     * @param slot
+     *            the slot
+     * @return the variable name
+     * @throws ArrayIndexOutOfBoundsException
+     *             if the slot is not between 0 and {@link #getSlotCount()}
+     *             (excluded)
+     */
+    public String getVariable(final int slot) {
+        return this.variables[slot];
+    }
+
+    /**
+     * Convert flags into a presence set, each flag name is matched with a
+     * variable name (the matching is cached per enumeration)
+     * 
+     * @param flags
+     *            the flags
+     * @param <F>
+     *            the type of flags
+     * @return the presence of each slot
+     */
+    public <F extends Enum<F>> BitSet getPresence(final Set<F> flags) {
+        final BitSet presence = new BitSet(this.variables.length);
+        if (flags != null && !flags.isEmpty()) {
+            final Class<F> type = flags.iterator().next().getDeclaringClass();
+            int[] slots = this.flagSlots.get(type);
+            if (slots == null) {
+                final F[] constants = type.getEnumConstants();
+                slots = new int[constants.length];
+                for (F constant : constants) {
+                    slots[constant.ordinal()] = this.getSlot(constant.name());
+                }
+                this.flagSlots.putIfAbsent(type, slots);
+            }
+            for (F flag : flags) {
+                if (slots[flag.ordinal()] > -1) {
+                    presence.set(slots[flag.ordinal()]);
+                }
+            }
+        }
+        return presence;
+    }
+
+    /**
+     * @return the slot of each variable name
+     */
+    Map<String, Integer> getSlots() {
+        return this.slots;
+    }
+
+    /**
+     * @return the estimated length of the rendered script (without values)
+     */
+    int getLength() {
+        return this.root.length();
+    }
+
+    /**
+     * Render the script
+     * 
+     * @param output
+     *            the output
+     * @param context
+     *            the rendering context (checked values and presence)
+     */
+    void render(final StringBuilder output, final ScriptsContext context) {
+        if (this.renderer != null && !context.isStreamed()) {
+            // the streamed values are copied by the interpreter
+            this.renderer.accept(output, context.getValues(this.rendered));
+        } else {
+            this.root.render(new ScriptsOutput.Chars(output, context), context);
+        }
+    }
+
+    /**
+     * Render the script
+     * 
+     * @param output
+     *            the output
+     * @param context
+     *            the rendering context (checked values and presence)
+     * @throws IOException
+     *             on writing failures
+     */
+    void render(final Appendable output, final ScriptsContext context) throws IOException {
+        try {
+            this.root.render(new ScriptsOutput.Chars(output, context), context);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Write the compiled script (binary archive, see {@link ScriptsArchive})
+     * 
+     * @param output
+     *            the output
+     * @throws IOException
+     *             on writing failures
+     */
+    void write(final DataOutput output) throws IOException {
+        output.writeInt(this.variables.length);
+        for (String variable : this.variables) {
+            ScriptsArchive.writeString(output, variable);
+        }
+        this.root.write(output);
+    }
+
+    /**
+     * Read a compiled script written by {@link #write(DataOutput)}
+     * 
+     * @param input
+     *            the input
+     * @param template
+     *            the template (has to be the one used to compile the script)
+     * @return the compiled script
+     * @throws IOException
+     *             on reading failures or if the data are corrupted
+     */
+    static CompiledScript read(final DataInputStream input, final ScriptsTemplate template) throws IOException {
+        final int count = ScriptsArchive.readLength(input);
+        final Map<String, Integer> slots = new LinkedHashMap<>();
+        for (int i = 0; i < count; ++i) {
+            ScriptsCompiler.slot(slots, ScriptsArchive.readString(input));
+        }
+        final ScriptsNode root = ScriptsNode.read(input, template, slots);
+        return new CompiledScript(template, root, slots);
+    }
+
+    /**
+     * Generate the Java code which renders the script (see
+     * {@link ScriptsRenderersProcessor})
+     * 
+     * @param code
+     *            the code
+     */
+    void generate(final ScriptsCode code) {
+        this.root.generate(code);
+    }
+
+    /**
+     * Resolve the shape of the script (texts and holes) for the presence
+     * signature
+     * 
+     * @param presence
+     *            the presence of each variable (indexed by slot)
+     * @return the shape
+     */
+    ScriptsShape resolve(final BitSet presence) {
+        final ScriptsShape.Recorder recorder = new ScriptsShape.Recorder();
+        this.root.render(recorder, new ScriptsContext(this, null, presence, null));
+        return recorder.toShape(this.template);
+    }
+}
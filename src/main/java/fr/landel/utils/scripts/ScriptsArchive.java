@@ -0,0 +1,344 @@
+/*-
+ * #%L
+ * utils-scripts
+ * %%
+ * Copyright (C) 2016 - 2018 Gilles Landel
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package fr.landel.utils.scripts;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import fr.landel.utils.assertor.Assertor;
+
+/**
+ * Archive of precompiled scripts, built once (at build time) from a scripts
+ * directory, and loaded by {@link ScriptsLoader} instead of compiling the
+ * sources.
+ *
+ * <p>
+ * The archive has to be named {@value #FILE_NAME} and placed in the scripts
+ * directory (the base path of the loader). A script is only taken from the
+ * archive if it has been compiled with the same template configuration and if
+ * the hash of its source is unchanged, otherwise the source is compiled (the
+ * archive is optional). A corrupted archive is ignored like an absent one.
+ * </p>
+ *
+ * <p>
+ * The archive is not built by this library: the build step has to be added
+ * to the build of the application (for example with the exec-maven-plugin, in
+ * the phase process-classes). The syntax errors of all scripts are reported
+ * at once and the archive is not written:
+ * </p>
+ *
+ * <pre>
+ * java fr.landel.utils.scripts.ScriptsArchive &lt;scripts directory&gt; &lt;archive file&gt; [SQL|JSON|template class] [charset]
+ * </pre>
+ *
+ * @since Oct 17, 2026
+ * @author Gilles
+ *
+ */
+public final class ScriptsArchive {
+
+    /**
+     * Archive file name (in the scripts directory)
+     */
+    public static final String FILE_NAME = "scripts.archive";
+
+    private static final int MAGIC = 0x53435250;
+    private static final int VERSION = 1;
+
+    private final ScriptsTemplate template;
+    private final Map<String, Item> items;
+
+    private ScriptsArchive(final ScriptsTemplate template, final Map<String, Item> items) {
+        this.template = template;
+        this.items = items;
+    }
+
+    /**
+     * Build the archive (build step)
+     * 
+     * @param args
+     *            the scripts directory, the archive file, the template (SQL,
+     *            JSON or a template class name with a default constructor,
+     *            default: SQL), the charset (default: UTF-8)
+     * @throws IOException
+     *             on reading or writing failures
+     * @throws IllegalArgumentException
+     *             if the arguments or scripts are invalid
+     * @throws ReflectiveOperationException
+     *             if the template class cannot be instantiated
+     */
+    public static void main(final String[] args) throws IOException, ReflectiveOperationException {
+        Assertor.that(args.length).isGTE(2)
+                .orElseThrow("Usage: ScriptsArchive <scripts directory> <archive file> [SQL|JSON|template class] [charset]");
+
+        final ScriptsTemplate template;
+        if (args.length < 3 || "SQL".equals(args[2])) {
+            template = ScriptsTemplate.TEMPLATE_SQL;
+        } else if ("JSON".equals(args[2])) {
+            template = ScriptsTemplate.TEMPLATE_JSON;
+        } else {
+            template = (ScriptsTemplate) Class.forName(args[2]).getDeclaredConstructor().newInstance();
+        }
+        final Charset charset = args.length > 3 ? Charset.forName(args[3]) : StandardCharsets.UTF_8;
+
+        write(Paths.get(args[0]), Paths.get(args[1]), template, charset);
+    }
+
+    /**
+     * Compile all the scripts of the directory (and sub-directories) and
+     * write the archive
+     * 
+     * @param directory
+     *            the scripts directory
+     * @param archive
+     *            the archive file
+     * @param template
+     *            the template (has to be configured like the one of the
+     *            loader)
+     * @param charset
+     *            the scripts charset
+     * @return the number of archived scripts
+     * @throws IOException
+     *             on reading or writing failures
+     * @throws IllegalArgumentException
+     *             with the errors of all the invalid scripts (the archive is
+     *             not written)
+     */
+    public static int write(final Path directory, final Path archive, final ScriptsTemplate template, final Charset charset)
+            throws IOException {
+        final List<Path> files;
+        try (Stream<Path> stream = Files.walk(directory)) {
+            files = stream.filter(Files::isRegularFile).filter(file -> !file.getFileName().toString().equals(FILE_NAME)).sorted()
+                    .collect(Collectors.toList());
+        }
+
+        final Map<String, Item> items = new LinkedHashMap<>();
+        final StringBuilder errors = new StringBuilder();
+        for (Path file : files) {
+            final String name = directory.relativize(file).toString().replace(file.getFileSystem().getSeparator(), "/");
+            final StringBuilder content = ScriptsSource.read(file, charset);
+            final long hash = ScriptsSource.hash(content);
+            try {
+                if (template.isRemoveComments()) {
+                    ScriptsComments.remove(content, template);
+                }
+                final CompiledScript script = new ScriptsCompiler(template).compile(content);
+
+                final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                try (DataOutputStream output = new DataOutputStream(bytes)) {
+                    script.write(output);
+                }
+                items.put(name, new Item(hash, bytes.toByteArray()));
+            } catch (IllegalArgumentException e) {
+                errors.append(System.lineSeparator()).append(name).append(": ").append(e.getMessage());
+            }
+        }
+
+        Assertor.that(errors.length()).isEqual(0).orElseThrow("Invalid scripts:%s", errors);
+
+        final Path parent = archive.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(archive)))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            writeString(output, fingerprint(template));
+            output.writeInt(items.size());
+            for (Map.Entry<String, Item> item : items.entrySet()) {
+                writeString(output, item.getKey());
+                output.writeLong(item.getValue().hash);
+                output.writeInt(item.getValue().data.length);
+                output.write(item.getValue().data);
+            }
+        }
+        return items.size();
+    }
+
+    /**
+     * Read the archive (the scripts are only decoded on demand). The archive
+     * is fully read in memory, so each length is checked against the
+     * remaining bytes before any allocation.
+     * 
+     * @param input
+     *            the input stream
+     * @param template
+     *            the template of the loader
+     * @return the archive or {@code null} if not an archive of this version,
+     *         if corrupted (or truncated) or if compiled with another
+     *         template configuration
+     * @throws IOException
+     *             on reading failures
+     */
+    static ScriptsArchive read(final InputStream input, final ScriptsTemplate template) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[8192];
+        try (InputStream is = new BufferedInputStream(input)) {
+            int read;
+            while ((read = is.read(buffer)) > -1) {
+                bytes.write(buffer, 0, read);
+            }
+        }
+
+        final DataInputStream data = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        try {
+            if (data.readInt() != MAGIC || data.readInt() != VERSION || !readString(data).equals(fingerprint(template))) {
+                return null;
+            }
+
+            final int count = readLength(data);
+            final Map<String, Item> items = new HashMap<>();
+            for (int i = 0; i < count; ++i) {
+                final String name = readString(data);
+                final long hash = data.readLong();
+                final byte[] item = new byte[readLength(data)];
+                data.readFully(item);
+                items.put(name, new Item(hash, item));
+            }
+            return new ScriptsArchive(template, items);
+        } catch (IOException | RuntimeException e) {
+            // corrupted or truncated, the sources are compiled
+            return null;
+        }
+    }
+
+    /**
+     * Get the precompiled script
+     * 
+     * @param name
+     *            the script name (relative to the scripts directory)
+     * @param hash
+     *            the hash of the current source
+     * @param template
+     *            the current template
+     * @return the compiled script or {@code null} if absent, stale (source or
+     *         template changed) or corrupted
+     */
+    CompiledScript get(final String name, final long hash, final ScriptsTemplate template) {
+        final Item item = this.items.get(name);
+        if (item == null || item.hash != hash || template != this.template) {
+            return null;
+        }
+
+        try {
+            return CompiledScript.read(new DataInputStream(new ByteArrayInputStream(item.data)), template);
+        } catch (IOException | RuntimeException | StackOverflowError e) {
+            // corrupted, the source is compiled
+            return null;
+        }
+    }
+
+    /**
+     * Get the configuration of the template which changes the compilation
+     * 
+     * @param template
+     *            the template
+     * @return the fingerprint
+     */
+    static String fingerprint(final ScriptsTemplate template) {
+        return String.join("\u0000", template.getExpressionOpen(), template.getExpressionClose(), template.getVariableOpen(),
+                template.getVariableClose(), template.getBlockOpen(), template.getBlockClose(), template.getOperatorThen(),
+                template.getOperatorElse(), template.getOperatorAnd(), template.getOperatorOr(), template.getOperatorNot(),
+                String.valueOf(template.isRemoveComments()), template.getOneLineCommentOperator(),
+                template.getMultiLineCommentOperatorOpen(), template.getMultiLineCommentOperatorClose(), template.getQuote(),
+                template.getQuoteEscape(), String.valueOf(template.isLegacyExpressions()));
+    }
+
+    /**
+     * Write a string (UTF-8, without length limit)
+     * 
+     * @param output
+     *            the output
+     * @param text
+     *            the text
+     * @throws IOException
+     *             on writing failures
+     */
+    static void writeString(final DataOutput output, final String text) throws IOException {
+        final byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    /**
+     * Read a string written by {@link #writeString(DataOutput, String)}
+     * 
+     * @param input
+     *            the input (in memory)
+     * @return the text
+     * @throws IOException
+     *             on reading failures or if the length is corrupted
+     */
+    static String readString(final DataInputStream input) throws IOException {
+        final byte[] bytes = new byte[readLength(input)];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Read a length (or a count of elements of at least one byte), checked
+     * against the remaining bytes
+     * 
+     * @param input
+     *            the input (in memory, all the bytes are available)
+     * @return the length
+     * @throws IOException
+     *             on reading failures or if the length is corrupted
+     */
+    static int readLength(final DataInputStream input) throws IOException {
+        final int length = input.readInt();
+        if (length < 0 || length > input.available()) {
+            throw new IOException("Corrupted archive, invalid length: " + length);
+        }
+        return length;
+    }
+
+    /**
+     * Archived script (hash of the source and compiled script data)
+     */
+    private static final class Item {
+
+        private final long hash;
+        private final byte[] data;
+
+        Item(final long hash, final byte[] data) {
+            this.hash = hash;
+            this.data = data;
+        }
+    }
+}
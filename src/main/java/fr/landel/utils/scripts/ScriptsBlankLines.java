@@ -0,0 +1,263 @@
+/*-
+ * #%L
+ * utils-scripts
+ * %%
+ * Copyright (C) 2016 - 2018 Gilles Landel
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package fr.landel.utils.scripts;
+
+import java.io.IOException;
+
+/**
+ * Appendable which removes the blank lines on the fly (linear, only the
+ * leading whitespaces of the current line are buffered). The last line
+ * separator is removed.
+ *
+ * <p>
+ * Like the previous implementation on the whole script, if the output contains
+ * both line feed and carriage return characters, all carriage returns are
+ * removed and lines are separated by line feeds, otherwise the found
+ * separator is used. If a part of the output is not known in advance
+ * (streamed values, see {@link #streaming(Appendable, boolean)}), the
+ * separator is decided on the fly.
+ * </p>
+ *
+ * @since Oct 17, 2026
+ * @author Gilles
+ *
+ */
+final class ScriptsBlankLines implements Appendable {
+
+    private static final char LF = '\n';
+    private static final char CR = '\r';
+
+    private final Appendable output;
+    private final StringBuilder blanks;
+    private char separator;
+    private boolean removeCR;
+    private boolean content;
+    private boolean pendingSeparator;
+    private StringBuilder undecided;
+
+    /**
+     * Constructor
+     * 
+     * @param output
+     *            the output
+     * @param hasLF
+     *            if the whole output contains line feed characters
+     * @param hasCR
+     *            if the whole output contains carriage return characters
+     */
+    ScriptsBlankLines(final Appendable output, final boolean hasLF, final boolean hasCR) {
+        this.output = output;
+        this.blanks = new StringBuilder();
+        this.decide(hasLF, hasCR);
+    }
+
+    /**
+     * Create the filter of an output partly unknown in advance. If the known
+     * part contains line feeds, the carriage returns are removed and the
+     * output is filtered on the fly. Otherwise, the output is filtered on the
+     * fly until the first carriage return, then kept until the first line
+     * feed (carriage returns removed) or until the end (carriage return
+     * separator).
+     * 
+     * @param output
+     *            the output
+     * @param hasLF
+     *            if the known part of the output contains line feed
+     *            characters
+     * @return the filter
+     */
+    static ScriptsBlankLines streaming(final Appendable output, final boolean hasLF) {
+        final ScriptsBlankLines filter = new ScriptsBlankLines(output, true, true);
+        if (!hasLF) {
+            filter.undecided = new StringBuilder();
+        }
+        return filter;
+    }
+
+    /**
+     * Remove the blank lines of the builder in place (linear, the builder is
+     * read and written in the same pass)
+     * 
+     * @param builder
+     *            the string builder
+     */
+    static void remove(final StringBuilder builder) {
+        boolean lf = false;
+        boolean cr = false;
+        final int length = builder.length();
+        for (int i = 0; i < length && !(lf && cr); ++i) {
+            final char c = builder.charAt(i);
+            lf |= c == LF;
+            cr |= c == CR;
+        }
+
+        final InPlace output = new InPlace(builder);
+        final ScriptsBlankLines filter = new ScriptsBlankLines(output, lf, cr);
+        try {
+            for (int i = 0; i < length; ++i) {
+                filter.append(builder.charAt(i));
+            }
+            filter.finish();
+        } catch (IOException e) {
+            // cannot occur, the builder is written in memory
+            throw new IllegalStateException(e);
+        }
+        builder.setLength(output.position);
+    }
+
+    @Override
+    public Appendable append(final CharSequence csq) throws IOException {
+        return this.append(csq, 0, csq.length());
+    }
+
+    @Override
+    public Appendable append(final CharSequence csq, final int start, final int end) throws IOException {
+        int i = start;
+        while (i < end) {
+            if (this.content && (this.undecided == null || this.undecided.length() == 0)) {
+                // the rest of a line with content is written at once
+                int stop = i;
+                while (stop < end && this.isContent(csq.charAt(stop))) {
+                    ++stop;
+                }
+                if (stop > i) {
+                    this.output.append(csq, i, stop);
+                    i = stop;
+                    continue;
+                }
+            }
+            this.append(csq.charAt(i++));
+        }
+        return this;
+    }
+
+    @Override
+    public Appendable append(final char c) throws IOException {
+        if (this.undecided != null) {
+            if (c == LF) {
+                // line feed found, the carriage returns are removed
+                this.replay(true, true);
+            } else if (c == CR || this.undecided.length() > 0) {
+                this.undecided.append(c);
+                return this;
+            }
+            // before the first carriage return, the other characters are
+            // filtered alike whatever the separator
+        }
+
+        if (c == this.separator) {
+            if (this.content) {
+                this.pendingSeparator = true;
+                this.content = false;
+            } else {
+                // blank line, removed with its separator
+                this.blanks.setLength(0);
+            }
+        } else if (this.removeCR && c == CR) {
+            return this;
+        } else if (this.content) {
+            this.output.append(c);
+        } else if (Character.isWhitespace(c)) {
+            this.blanks.append(c);
+        } else {
+            this.startLine();
+            this.output.append(c);
+            this.content = true;
+        }
+        return this;
+    }
+
+    /**
+     * Write the last line if blank (like the last separator, a blank last line
+     * is kept)
+     * 
+     * @throws IOException
+     *             on writing failures
+     */
+    void finish() throws IOException {
+        if (this.undecided != null) {
+            // no line feed found
+            this.replay(false, this.undecided.indexOf(String.valueOf(CR)) > -1);
+        }
+        if (!this.content && this.blanks.length() > 0) {
+            this.startLine();
+        }
+    }
+
+    private boolean isContent(final char c) {
+        return c != this.separator && !(this.removeCR && c == CR);
+    }
+
+    private void decide(final boolean hasLF, final boolean hasCR) {
+        this.removeCR = hasLF && hasCR;
+        this.separator = hasCR && !hasLF ? CR : LF;
+    }
+
+    private void replay(final boolean hasLF, final boolean hasCR) throws IOException {
+        final StringBuilder kept = this.undecided;
+        this.undecided = null;
+        this.decide(hasLF, hasCR);
+        this.append(kept);
+    }
+
+    private void startLine() throws IOException {
+        if (this.pendingSeparator) {
+            this.output.append(this.separator);
+            this.pendingSeparator = false;
+        }
+        if (this.blanks.length() > 0) {
+            this.output.append(this.blanks);
+            this.blanks.setLength(0);
+        }
+    }
+
+    /**
+     * Writes into the read builder, the written position is always before the
+     * read one (characters are only removed)
+     */
+    private static final class InPlace implements Appendable {
+
+        private final StringBuilder builder;
+        private int position;
+
+        InPlace(final StringBuilder builder) {
+            this.builder = builder;
+        }
+
+        @Override
+        public Appendable append(final CharSequence csq) {
+            return this.append(csq, 0, csq.length());
+        }
+
+        @Override
+        public Appendable append(final CharSequence csq, final int start, final int end) {
+            for (int i = start; i < end; ++i) {
+                this.append(csq.charAt(i));
+            }
+            return this;
+        }
+
+        @Override
+        public Appendable append(final char c) {
+            this.builder.setCharAt(this.position++, c);
+            return this;
+        }
+    }
+}
@@ -0,0 +1,203 @@
+/*-
+ * #%L
+ * utils-scripts
+ * %%
+ * Copyright (C) 2016 - 2018 Gilles Landel
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package fr.landel.utils.scripts;
+
+/**
+ * Checker of the variable values (see {@link ScriptsTemplate#getValueChecker()}).
+ * The value is checked as a {@link CharSequence}, so the checker doesn't
+ * force the creation of a {@link String}. The streamed values (like readers)
+ * are checked by chunks (see {@link #incremental()}).
+ *
+ * @since Oct 17, 2026
+ * @author Gilles
+ *
+ */
+@FunctionalInterface
+public interface ScriptsChecker {
+
+    /**
+     * Checker of the variable values in SQL scripts. If the value contains
+     * single quote alone (not by pair) an {@link IllegalArgumentException} is
+     * thrown. The value is scanned once, without allocation if valid.
+     */
+    ScriptsChecker SQL = new ScriptsChecker() {
+
+        private final char quote = ScriptsTemplate.SINGLE_QUOTE.charAt(0);
+
+        @Override
+        public void check(final CharSequence v) {
+            // Avoid some SQL injections but not all!, parameters has to be
+            // checked before
+            final int length = v.length();
+            int count = 0;
+            int group = 0;
+            boolean alone = false;
+            for (int i = 0; i < length; ++i) {
+                if (v.charAt(i) == this.quote) {
+                    ++count;
+                    ++group;
+                } else {
+                    alone |= (group & 1) != 0;
+                    group = 0;
+                }
+            }
+            alone |= (group & 1) != 0;
+
+            this.report((count & 1) != 0, alone);
+        }
+
+        @Override
+        public Incremental incremental() {
+            return new Incremental() {
+
+                private boolean odd;
+                private boolean oddGroup;
+                private boolean alone;
+
+                @Override
+                public void update(final CharSequence chunk) {
+                    final int length = chunk.length();
+                    for (int i = 0; i < length; ++i) {
+                        if (chunk.charAt(i) == quote) {
+                            this.odd = !this.odd;
+                            this.oddGroup = !this.oddGroup;
+                        } else {
+                            this.alone |= this.oddGroup;
+                            this.oddGroup = false;
+                        }
+                    }
+                }
+
+                @Override
+                public void finish() {
+                    report(this.odd, this.alone || this.oddGroup);
+                }
+            };
+        }
+
+        private void report(final boolean odd, final boolean alone) {
+            if (odd) {
+                throw new IllegalArgumentException("Replacement value has to contain only pairs of: " + ScriptsTemplate.SINGLE_QUOTE);
+            } else if (alone) {
+                throw new IllegalArgumentException(
+                        "Replacement value has to contain only group of pairs of: " + ScriptsTemplate.SINGLE_QUOTE);
+            }
+        }
+    };
+
+    /**
+     * Checker of the variable values in JSON scripts (like ElasticSearch
+     * queries). If the value contains braces an
+     * {@link IllegalArgumentException} is thrown. The value is scanned once,
+     * without allocation if valid.
+     */
+    ScriptsChecker JSON = new ScriptsChecker() {
+
+        private final char open = ScriptsTemplate.EXPRESSION_OPEN.charAt(0);
+        private final char close = ScriptsTemplate.EXPRESSION_CLOSE.charAt(0);
+
+        @Override
+        public void check(final CharSequence v) {
+            // Avoid some JSON injections but not all!, parameters has to be
+            // checked before
+            final int length = v.length();
+            for (int i = 0; i < length; ++i) {
+                final char c = v.charAt(i);
+                if (c == this.open || c == this.close) {
+                    throw new IllegalArgumentException("Replacement value hasn't to contain braces");
+                }
+            }
+        }
+
+        @Override
+        public Incremental incremental() {
+            // no state, each chunk is checked
+            return new Incremental() {
+
+                @Override
+                public void update(final CharSequence chunk) {
+                    check(chunk);
+                }
+
+                @Override
+                public void finish() {
+                    // nothing to check
+                }
+            };
+        }
+    };
+
+    /**
+     * Check the value
+     * 
+     * @param value
+     *            the value (not null)
+     * @throws IllegalArgumentException
+     *             if the value is not valid
+     */
+    void check(CharSequence value) throws IllegalArgumentException;
+
+    /**
+     * Start the check of a value read by chunks. By default, the chunks are
+     * buffered and the whole value is checked at the end, the checkers which
+     * can be run by chunks should override this method.
+     * 
+     * @return the incremental check of one value
+     */
+    default Incremental incremental() {
+        final StringBuilder buffer = new StringBuilder();
+        return new Incremental() {
+
+            @Override
+            public void update(final CharSequence chunk) {
+                buffer.append(chunk);
+            }
+
+            @Override
+            public void finish() {
+                check(buffer);
+            }
+        };
+    }
+
+    /**
+     * Incremental check of one value (see {@link ScriptsChecker#incremental()})
+     */
+    interface Incremental {
+
+        /**
+         * Check the next chunk
+         * 
+         * @param chunk
+         *            the chunk (only valid during the call)
+         * @throws IllegalArgumentException
+         *             if the value is not valid
+         */
+        void update(CharSequence chunk) throws IllegalArgumentException;
+
+        /**
+         * Check the end of the value
+         * 
+         * @throws IllegalArgumentException
+         *             if the value is not valid
+         */
+        void finish() throws IllegalArgumentException;
+    }
+}
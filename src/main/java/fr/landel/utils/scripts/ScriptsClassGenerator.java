@@ -0,0 +1,264 @@
+/*-
+ * #%L
+ * utils-scripts
+ * %%
+ * Copyright (C) 2016 - 2018 Gilles Landel
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package fr.landel.utils.scripts;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+/**
+ * Runtime code generation of the compiled scripts (see
+ * {@link ScriptsLoader#setCodeGeneration(boolean)}). The rendering code is
+ * generated like for the renderers generated at compile time (literal texts
+ * and inlined conditions on the values array), compiled in memory and
+ * defined as a hidden class (Java 15+) or in a dedicated class loader (the
+ * class only depends on the JDK, and is unloaded with the compiled script).
+ *
+ * <p>
+ * The generation requires a JDK: the source is compiled by the system Java
+ * compiler (module java.compiler), which takes some hundreds of milliseconds
+ * per script on loading, so it's disabled by default. The interpreter is
+ * kept (no generated class) if the Java compiler is not available (JRE), if
+ * the class definition is not allowed or if a legacy expression is
+ * interpreted (negated block or block followed by a text). The generated
+ * class only inlines the texts and the conditions, the values are formatted
+ * and checked before being given to it.
+ * </p>
+ *
+ * @since Oct 17, 2026
+ * @author Gilles
+ *
+ */
+final class ScriptsClassGenerator {
+
+    private static final String PACKAGE = ScriptsClassGenerator.class.getPackage().getName();
+    private static final String CLASS_PREFIX = "ScriptsGenerated";
+    private static final String VALUES = "values";
+
+    private static final AtomicLong COUNTER = new AtomicLong();
+
+    private static final Method DEFINE_HIDDEN_CLASS;
+    private static final Object HIDDEN_CLASS_OPTIONS;
+
+    static {
+        Method defineHiddenClass = null;
+        Object options = null;
+        try {
+            final Class<?> option = Class.forName("java.lang.invoke.MethodHandles$Lookup$ClassOption");
+            options = Array.newInstance(option, 0);
+            defineHiddenClass = MethodHandles.Lookup.class.getMethod("defineHiddenClass", byte[].class, boolean.class,
+                    options.getClass());
+        } catch (ReflectiveOperationException e) {
+            // before Java 15, a class loader is used
+            options = null;
+        }
+        DEFINE_HIDDEN_CLASS = defineHiddenClass;
+        HIDDEN_CLASS_OPTIONS = options;
+    }
+
+    private ScriptsClassGenerator() {
+    }
+
+    /**
+     * @return true, if the Java compiler is available (JDK)
+     */
+    static boolean isAvailable() {
+        return Compiler.INSTANCE != null;
+    }
+
+    /**
+     * Generate the rendering class of the compiled script
+     * 
+     * @param script
+     *            the compiled script
+     * @return the compiled script with its generated rendering, or the same
+     *         compiled script if the class cannot be generated
+     */
+    static CompiledScript generate(final CompiledScript script) {
+        final JavaCompiler compiler = Compiler.INSTANCE;
+        if (compiler == null) {
+            return script;
+        }
+
+        final ScriptsCode code = new ScriptsCode(2, VALUES);
+        script.generate(code);
+        if (code.getUnsupported() != null) {
+            // interpreted legacy expression
+            return script;
+        }
+
+        final String className = CLASS_PREFIX + COUNTER.incrementAndGet();
+        final byte[] bytes = compile(compiler, className, generateSource(code, className));
+        if (bytes == null) {
+            return script;
+        }
+
+        try {
+            final Class<?> type = define(PACKAGE + "." + className, bytes);
+            @SuppressWarnings("unchecked")
+            final BiConsumer<StringBuilder, String[]> renderer = (BiConsumer<StringBuilder, String[]>) type.getConstructor().newInstance();
+            return new CompiledScript(script, renderer, code.getValues());
+        } catch (ReflectiveOperationException | SecurityException | LinkageError e) {
+            // class definition not allowed, the interpreter is kept
+            return script;
+        }
+    }
+
+    /**
+     * Generate the source of the rendering class
+     * 
+     * @param script
+     *            the compiled script
+     * @param className
+     *            the class name
+     * @return the source
+     */
+    static String generateSource(final CompiledScript script, final String className) {
+        final ScriptsCode code = new ScriptsCode(2, VALUES);
+        script.generate(code);
+
+        return generateSource(code, className);
+    }
+
+    private static String generateSource(final ScriptsCode code, final String className) {
+        return new StringBuilder("package ").append(PACKAGE).append(";\n\n").append("public final class ").append(className)
+                .append(" implements java.util.function.BiConsumer<StringBuilder, String[]> {\n\n")
+                .append("    @Override\n    public void accept(final StringBuilder ").append(ScriptsCode.BUILDER)
+                .append(", final String[] ").append(VALUES).append(") {\n").append(code).append("    }\n}\n").toString();
+    }
+
+    private static byte[] compile(final JavaCompiler compiler, final String className, final String source) {
+        final JavaFileObject input = new SimpleJavaFileObject(URI.create("string:///" + className + ".java"), JavaFileObject.Kind.SOURCE) {
+
+            @Override
+            public CharSequence getCharContent(final boolean ignoreEncodingErrors) {
+                return source;
+            }
+        };
+
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // the file manager holds the opened class path (closed after each
+        // compilation)
+        try (StandardJavaFileManager standard = compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8)) {
+            final JavaFileManager manager = new ForwardingJavaFileManager<JavaFileManager>(standard) {
+
+                @Override
+                public JavaFileObject getJavaFileForOutput(final Location location, final String name, final JavaFileObject.Kind kind,
+                        final FileObject sibling) {
+                    return new SimpleJavaFileObject(URI.create("bytes:///" + name.replace('.', '/') + kind.extension), kind) {
+
+                        @Override
+                        public OutputStream openOutputStream() {
+                            return output;
+                        }
+                    };
+                }
+            };
+
+            final Boolean success = compiler.getTask(null, manager, diagnostic -> {
+                // errors are ignored, the interpreter is kept
+            }, Arrays.asList("-proc:none", "-g:none", "-nowarn"), null, Collections.singletonList(input)).call();
+
+            if (Boolean.TRUE.equals(success)) {
+                return output.toByteArray();
+            }
+        } catch (IOException | RuntimeException e) {
+            // compiler failure, the interpreter is kept
+        }
+        return null;
+    }
+
+    private static Class<?> define(final String name, final byte[] bytes) throws ReflectiveOperationException {
+        if (DEFINE_HIDDEN_CLASS != null) {
+            try {
+                final MethodHandles.Lookup lookup = (MethodHandles.Lookup) DEFINE_HIDDEN_CLASS.invoke(MethodHandles.lookup(), bytes, true,
+                        HIDDEN_CLASS_OPTIONS);
+                return lookup.lookupClass();
+            } catch (InvocationTargetException e) {
+                if (e.getCause() instanceof IllegalAccessException) {
+                    throw (IllegalAccessException) e.getCause();
+                } else if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                } else if (e.getCause() instanceof Error) {
+                    throw (Error) e.getCause();
+                }
+                throw e;
+            }
+        }
+
+        return new GeneratedClassLoader(ScriptsClassGenerator.class.getClassLoader()).define(name, bytes);
+    }
+
+    /**
+     * The system Java compiler, resolved once ({@code null} on a JRE)
+     */
+    private static final class Compiler {
+
+        private static final JavaCompiler INSTANCE;
+
+        static {
+            JavaCompiler compiler;
+            try {
+                compiler = ToolProvider.getSystemJavaCompiler();
+            } catch (LinkageError | RuntimeException e) {
+                // module java.compiler not available
+                compiler = null;
+            }
+            INSTANCE = compiler;
+        }
+
+        private Compiler() {
+        }
+    }
+
+    /**
+     * Class loader of one generated class (before Java 15)
+     */
+    private static final class GeneratedClassLoader extends ClassLoader {
+
+        GeneratedClassLoader(final ClassLoader parent) {
+            super(parent);
+        }
+
+        Class<?> define(final String name, final byte[] bytes) {
+            return this.defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+}
@@ -0,0 +1,231 @@
+/*-
+ * #%L
+ * utils-scripts
+ * %%
+ * Copyright (C) 2016 - 2018 Gilles Landel
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package fr.landel.utils.scripts;
+
+import java.util.BitSet;
+
+/**
+ * Java code of the rendering method of a generated renderer (see
+ * {@link ScriptsRenderersProcessor}). The texts are appended to a builder
+ * named {@value #BUILDER}, and the value of each slot is stored in a field
+ * (see {@link #field(int)}) or in an array, {@code null} if not present.
+ *
+ * @since Oct 17, 2026
+ * @author Gilles
+ *
+ */
+final class ScriptsCode {
+
+    /**
+     * Name of the builder variable
+     */
+    static final String BUILDER = "builder";
+
+    // the constants of the class file are limited to 65535 bytes
+    private static final int MAX_LITERAL_LENGTH = 8192;
+
+    private final StringBuilder code;
+    private final BitSet values;
+    private final String array;
+    private int indent;
+    private String unsupported;
+
+    /**
+     * Constructor, the values are read from the fields
+     * 
+     * @param indent
+     *            the initial indentation level
+     */
+    ScriptsCode(final int indent) {
+        this(indent, null);
+    }
+
+    /**
+     * Constructor
+     * 
+     * @param indent
+     *            the initial indentation level
+     * @param array
+     *            the name of the array of values (indexed by slot), or
+     *            {@code null} to read the values from the fields
+     */
+    ScriptsCode(final int indent, final String array) {
+        this.code = new StringBuilder();
+        this.values = new BitSet();
+        this.array = array;
+        this.indent = indent;
+    }
+
+    /**
+     * Get the field name of the slot
+     * 
+     * @param slot
+     *            the slot
+     * @return the field name
+     */
+    static String field(final int slot) {
+        return "s" + slot;
+    }
+
+    /**
+     * Get the access to the value of the slot
+     * 
+     * @param slot
+     *            the slot
+     * @return the field or array element
+     */
+    String get(final int slot) {
+        if (this.array != null) {
+            return this.array + "[" + slot + "]";
+        }
+        return "this." + field(slot);
+    }
+
+    /**
+     * Append a literal text
+     * 
+     * @param text
+     *            the text
+     */
+    void text(final String text) {
+        for (int start = 0; start < text.length(); start += MAX_LITERAL_LENGTH) {
+            final String part = text.substring(start, Math.min(text.length(), start + MAX_LITERAL_LENGTH));
+            this.line(BUILDER + ".append(" + literal(part) + ");");
+        }
+    }
+
+    /**
+     * Append the value of the slot, if present
+     * 
+     * @param slot
+     *            the slot
+     */
+    void value(final int slot) {
+        this.values.set(slot);
+
+        final String value = this.get(slot);
+        this.open(value + " != null");
+        this.line(BUILDER + ".append(" + value + ");");
+        this.close();
+    }
+
+    /**
+     * Open a condition
+     * 
+     * @param condition
+     *            the boolean expression
+     */
+    void open(final String condition) {
+        this.line("if (" + condition + ") {");
+        ++this.indent;
+    }
+
+    /**
+     * Open the ELSE branch of the current condition
+     */
+    void otherwise() {
+        --this.indent;
+        this.line("} else {");
+        ++this.indent;
+    }
+
+    /**
+     * Close the current condition
+     */
+    void close() {
+        --this.indent;
+        this.line("}");
+    }
+
+    /**
+     * Append a line
+     * 
+     * @param line
+     *            the line (without indentation)
+     */
+    void line(final String line) {
+        for (int i = 0; i < this.indent; ++i) {
+            this.code.append("    ");
+        }
+        this.code.append(line).append('\n');
+    }
+
+    /**
+     * @return the slots whose value is rendered (the other ones are only
+     *         used in conditions, as flags)
+     */
+    BitSet getValues() {
+        return this.values;
+    }
+
+    /**
+     * Record an expression which cannot be generated (interpreted legacy
+     * expression), the code is incomplete
+     * 
+     * @param expression
+     *            the expression
+     */
+    void unsupported(final String expression) {
+        if (this.unsupported == null) {
+            this.unsupported = expression;
+        }
+    }
+
+    /**
+     * @return the first expression which cannot be generated, or
+     *         {@code null} if the code is complete
+     */
+    String getUnsupported() {
+        return this.unsupported;
+    }
+
+    @Override
+    public String toString() {
+        return this.code.toString();
+    }
+
+    /**
+     * Get the Java string literal of the text
+     * 
+     * @param text
+     *            the text
+     * @return the literal (with quotes)
+     */
+    static String literal(final String text) {
+        final StringBuilder literal = new StringBuilder(text.length() + 2).append('"');
+        for (int i = 0; i < text.length(); ++i) {
+            final char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                literal.append('\\').append(c);
+            } else if (c == '\n') {
+                literal.append("\\n");
+            } else if (c == '\r') {
+                literal.append("\\r");
+            } else if (c == '\t') {
+                literal.append("\\t");
+            } else if (c < ' ' || c > '~') {
+                literal.append(String.format("\\u%04x", (int) c));
+            } else {
+                literal.append(c);
+            }
+        }
+        return literal.append('"').toString();
+    }
+}
@@ -0,0 +1,399 @@
+/*-
+ * #%L
+ * utils-scripts
+ * %%
+ * Copyright (C) 2016 - 2018 Gilles Landel
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package fr.landel.utils.scripts;
+
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.util.Collection;
+import java.util.List;
+
+import fr.landel.utils.assertor.Assertor;
+
+/**
+ * Value expanded as a delimited list (like the content of a SQL IN clause).
+ * The values of type {@link Collection} or array (primitive arrays included)
+ * are expanded with the default options: elements separated by a comma and a
+ * space, not quoted.
+ *
+ * <p>
+ * Each element is formatted straight into the output (see
+ * {@link ScriptsFormatters}) and checked, the quoted elements are escaped and
+ * only checked against the template tokens (the template checker is not
+ * applied, the element being escaped). The huge lists can be split into
+ * groups (for databases limiting the size of IN clauses):
+ * </p>
+ *
+ * <pre>
+ * // script: select * from users where {ids??id IN ({ids})}
+ * replacements.put("ids", ScriptsCollection.of(ids).withGroups(1000, ") OR id IN ("));
+ * // result: select * from users where id IN (1, 2, ..., 1000) OR id IN (1001, ...)
+ * </pre>
+ *
+ * @since Oct 17, 2026
+ * @author Gilles
+ *
+ */
+public final class ScriptsCollection {
+
+    /**
+     * The default separator of the elements
+     */
+    public static final String SEPARATOR = ", ";
+
+    private static final char NO_QUOTE = 0;
+
+    private static final int CHUNK_SIZE = 4096;
+
+    private final Object values;
+    private final String separator;
+    private final char quote;
+    private final char escape;
+    private final int groupSize;
+    private final String groupSeparator;
+
+    private ScriptsCollection(final Object values, final String separator, final char quote, final char escape, final int groupSize,
+            final String groupSeparator) {
+        this.values = values;
+        this.separator = separator;
+        this.quote = quote;
+        this.escape = escape;
+        this.groupSize = groupSize;
+        this.groupSeparator = groupSeparator;
+    }
+
+    /**
+     * Create a list from a collection
+     * 
+     * @param values
+     *            the collection
+     * @return the list
+     * @throws IllegalArgumentException
+     *             if values are null
+     */
+    public static ScriptsCollection of(final Collection<?> values) {
+        Assertor.that(values).isNotNull().orElseThrow("The collection cannot be null");
+
+        return new ScriptsCollection(values, SEPARATOR, NO_QUOTE, NO_QUOTE, 0, null);
+    }
+
+    /**
+     * Create a list from an array (primitive arrays are expanded without
+     * boxing)
+     * 
+     * @param array
+     *            the array
+     * @return the list
+     * @throws IllegalArgumentException
+     *             if array is null or is not an array
+     */
+    public static ScriptsCollection ofArray(final Object array) {
+        Assertor.that(array).isNotNull().orElseThrow("The array cannot be null");
+        Assertor.that(array.getClass().isArray()).isTrue().orElseThrow("The value is not an array");
+
+        return new ScriptsCollection(array, SEPARATOR, NO_QUOTE, NO_QUOTE, 0, null);
+    }
+
+    /**
+     * Check if the value is expanded as a list
+     * 
+     * @param value
+     *            the value
+     * @return true, if the value is a list, a collection or an array
+     */
+    static boolean isExpanded(final Object value) {
+        return value instanceof ScriptsCollection || value instanceof Collection || (value != null && value.getClass().isArray());
+    }
+
+    /**
+     * Get the list of the value
+     * 
+     * @param value
+     *            the list, the collection or the array
+     * @return the list
+     */
+    static ScriptsCollection of(final Object value) {
+        if (value instanceof ScriptsCollection) {
+            return (ScriptsCollection) value;
+        } else if (value instanceof Collection) {
+            return of((Collection<?>) value);
+        }
+        return ofArray(value);
+    }
+
+    /**
+     * @param separator
+     *            the separator of the elements (default: ", ")
+     * @return a new list with the separator
+     * @throws IllegalArgumentException
+     *             if separator is null
+     */
+    public ScriptsCollection withSeparator(final String separator) {
+        Assertor.that(separator).isNotNull().orElseThrow("The separator cannot be null");
+
+        return new ScriptsCollection(this.values, separator, this.quote, this.escape, this.groupSize, this.groupSeparator);
+    }
+
+    /**
+     * Quote the elements like SQL strings (single quotes, doubled in the
+     * elements)
+     * 
+     * @return a new list with quoted elements
+     */
+    public ScriptsCollection withQuotes() {
+        return this.withQuotes('\'', '\'');
+    }
+
+    /**
+     * Quote the elements
+     * 
+     * @param quote
+     *            the quote character
+     * @param escape
+     *            the character inserted before each quote and escape
+     *            character of the elements (ex: {@code '\\'} for JSON strings
+     *            quoted with {@code '"'}, or the quote itself to double it)
+     * @return a new list with quoted elements
+     */
+    public ScriptsCollection withQuotes(final char quote, final char escape) {
+        return new ScriptsCollection(this.values, this.separator, quote, escape, this.groupSize, this.groupSeparator);
+    }
+
+    /**
+     * Split the list into groups
+     * 
+     * @param size
+     *            the maximum number of elements in a group
+     * @param separator
+     *            the separator of the groups, which replaces the separator of
+     *            the elements (ex: ") OR id IN (")
+     * @return a new list split into groups
+     * @throws IllegalArgumentException
+     *             if size is lower than 1 or if separator is null
+     */
+    public ScriptsCollection withGroups(final int size, final String separator) {
+        Assertor.that(size).isGT(0).orElseThrow("The size of the groups has to be greater than 0");
+        Assertor.that(separator).isNotNull().orElseThrow("The separator of the groups cannot be null");
+
+        return new ScriptsCollection(this.values, this.separator, this.quote, this.escape, size, separator);
+    }
+
+    /**
+     * Expand the list into the output
+     * 
+     * @param output
+     *            the output
+     * @param replacer
+     *            the replacer used to format and check each element
+     * @param window
+     *            the view used to check the elements
+     * @throws IllegalArgumentException
+     *             if an element is not valid
+     */
+    void expand(final StringBuilder output, final ScriptsReplacer replacer, final ScriptsContext.Window window)
+            throws IllegalArgumentException {
+        try {
+            this.expand(output, null, replacer, window);
+        } catch (IOException e) {
+            // cannot occur, the builder is written in memory
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Expand the list into the output, the elements are formatted into a
+     * small buffer which is written into the output by chunks (the whole list
+     * is never joined)
+     * 
+     * @param output
+     *            the output
+     * @param replacer
+     *            the replacer used to format and check each element
+     * @param window
+     *            the view used to check the elements
+     * @throws IOException
+     *             on writing failures
+     * @throws IllegalArgumentException
+     *             if an element is not valid
+     */
+    void expand(final Appendable output, final ScriptsReplacer replacer, final ScriptsContext.Window window)
+            throws IOException, IllegalArgumentException {
+        if (output instanceof StringBuilder) {
+            this.expand((StringBuilder) output, replacer, window);
+        } else {
+            final StringBuilder buffer = new StringBuilder(CHUNK_SIZE * 2);
+            this.expand(buffer, output, replacer, window);
+            output.append(buffer);
+        }
+    }
+
+    private void expand(final StringBuilder output, final Appendable sink, final ScriptsReplacer replacer,
+            final ScriptsContext.Window window) throws IOException {
+        // the quoted elements are formatted apart, and escaped while appended
+        final StringBuilder buffer = this.quote != NO_QUOTE ? new StringBuilder() : null;
+        int index = 0;
+        if (this.values instanceof Collection) {
+            for (Object element : (Collection<?>) this.values) {
+                this.separate(output, index++);
+                this.append(element, output, buffer, replacer, window);
+                flush(output, sink);
+            }
+        } else if (this.values instanceof Object[]) {
+            for (Object element : (Object[]) this.values) {
+                this.separate(output, index++);
+                this.append(element, output, buffer, replacer, window);
+                flush(output, sink);
+            }
+        } else if (this.values instanceof int[]) {
+            for (int element : (int[]) this.values) {
+                this.separate(output, index++);
+                output.append(element);
+                flush(output, sink);
+            }
+        } else if (this.values instanceof long[]) {
+            for (long element : (long[]) this.values) {
+                this.separate(output, index++);
+                output.append(element);
+                flush(output, sink);
+            }
+        } else if (this.values instanceof double[]) {
+            for (double element : (double[]) this.values) {
+                this.separate(output, index++);
+                output.append(element);
+                flush(output, sink);
+            }
+        } else if (this.values instanceof float[]) {
+            for (float element : (float[]) this.values) {
+                this.separate(output, index++);
+                output.append(element);
+                flush(output, sink);
+            }
+        } else if (this.values instanceof short[]) {
+            for (short element : (short[]) this.values) {
+                this.separate(output, index++);
+                output.append(element);
+                flush(output, sink);
+            }
+        } else if (this.values instanceof byte[]) {
+            for (byte element : (byte[]) this.values) {
+                this.separate(output, index++);
+                output.append(element);
+                flush(output, sink);
+            }
+        } else if (this.values instanceof boolean[]) {
+            for (boolean element : (boolean[]) this.values) {
+                this.separate(output, index++);
+                output.append(element);
+                flush(output, sink);
+            }
+        } else {
+            for (char element : (char[]) this.values) {
+                this.separate(output, index++);
+                this.append(element, output, buffer, replacer, window);
+                flush(output, sink);
+            }
+        }
+    }
+
+    /**
+     * Write the buffer into the sink if full (nothing is done without sink,
+     * the elements are formatted straight into the output)
+     */
+    private static void flush(final StringBuilder buffer, final Appendable sink) throws IOException {
+        if (sink != null && buffer.length() >= CHUNK_SIZE) {
+            sink.append(buffer);
+            buffer.setLength(0);
+        }
+    }
+
+    /**
+     * Expand the list into placeholders (one per element, with the separators
+     * and the groups of the list, the quotes are ignored) and add the
+     * elements to the bound values (see
+     * {@link ScriptsLoader#getStatement(ScriptsList, java.util.Map)})
+     * 
+     * @param output
+     *            the output
+     * @param placeholder
+     *            the placeholder
+     * @param values
+     *            the bound values
+     */
+    void bind(final StringBuilder output, final String placeholder, final List<Object> values) {
+        int index = 0;
+        if (this.values instanceof Collection) {
+            for (Object element : (Collection<?>) this.values) {
+                this.separate(output, index++);
+                output.append(placeholder);
+                values.add(element);
+            }
+        } else {
+            final int length = Array.getLength(this.values);
+            for (; index < length; ++index) {
+                this.separate(output, index);
+                output.append(placeholder);
+                values.add(Array.get(this.values, index));
+            }
+        }
+    }
+
+    /**
+     * @return the hash of the options which change the placeholders (see
+     *         {@link #bind(StringBuilder, String, List)}): the separators and
+     *         the size of the groups
+     */
+    long fingerprint() {
+        long hash = CompiledScript.mix(ScriptsSource.hash(this.separator), this.groupSize);
+        if (this.groupSeparator != null) {
+            hash = CompiledScript.mix(hash, ScriptsSource.hash(this.groupSeparator));
+        }
+        return hash;
+    }
+
+    private void separate(final StringBuilder output, final int index) {
+        if (index > 0) {
+            if (this.groupSize > 0 && index % this.groupSize == 0) {
+                output.append(this.groupSeparator);
+            } else {
+                output.append(this.separator);
+            }
+        }
+    }
+
+    private void append(final Object element, final StringBuilder output, final StringBuilder buffer, final ScriptsReplacer replacer,
+            final ScriptsContext.Window window) {
+        if (this.quote == NO_QUOTE || element == null) {
+            replacer.format(element, output, window);
+        } else {
+            buffer.setLength(0);
+            replacer.formatEscaped(element, buffer, window);
+
+            // escape the quote and escape characters of the element
+            output.append(this.quote);
+            for (int i = 0; i < buffer.length(); ++i) {
+                final char c = buffer.charAt(i);
+                if (c == this.quote || c == this.escape) {
+                    output.append(this.escape);
+                }
+                output.append(c);
+            }
+            output.append(this.quote);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+/*-
+ * #%L
+ * utils-scripts
+ * %%
+ * Copyright (C) 2016 - 2018 Gilles Landel
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package fr.landel.utils.scripts;
+
+/**
+ * Comments remover, a lexer driven by the comment operators and the quote of
+ * the template. The script is read once and the comments are removed in place
+ * (the builder is never enlarged).
+ *
+ * <p>
+ * Comment operators within quoted texts are kept, so SQL strings like
+ * {@code 'a--b'} or JSON URLs like {@code "http://host"} are not altered (see
+ * {@link ScriptsTemplate#getQuote()}). The quote is escaped as defined by the
+ * template: doubled in SQL strings, after a backslash in JSON strings (see
+ * {@link ScriptsTemplate#getQuoteEscape()}). Quotes within comments are
+ * ignored, and the first found comment operator wins (a multi-line open
+ * operator in a one-line comment is part of the comment).
+ * </p>
+ *
+ * <p>
+ * A one-line comment is removed until the next line separator (the separator
+ * is kept), an unclosed multi-line comment is removed until the end.
+ * </p>
+ *
+ * @since Oct 17, 2026
+ * @author Gilles
+ *
+ */
+final class ScriptsComments {
+
+    private static final char LF = '\n';
+    private static final char CR = '\r';
+
+    private ScriptsComments() {
+    }
+
+    /**
+     * Remove the comments of the builder in place (linear)
+     * 
+     * @param builder
+     *            the string builder
+     * @param template
+     *            the template (comment operators and quote, {@code null} or
+     *            empty operators are ignored)
+     */
+    static void remove(final StringBuilder builder, final ScriptsTemplate template) {
+        final String oneLine = emptyToNull(template.getOneLineCommentOperator());
+        final String multiLineOpen = emptyToNull(template.getMultiLineCommentOperatorOpen());
+        final String multiLineClose = emptyToNull(template.getMultiLineCommentOperatorClose());
+        final String quote = emptyToNull(template.getQuote());
+        final String escape = emptyToNull(template.getQuoteEscape());
+
+        final int length = builder.length();
+        int position = 0;
+        int index = 0;
+
+        while (index < length) {
+            if (quote != null && ScriptsCompiler.startsWith(builder, quote, index)) {
+                // quoted text, copied until the closing quote
+                final int closed = indexAfterQuoted(builder, index + quote.length(), quote, escape);
+                final int end = closed > -1 ? closed : length;
+                while (index < end) {
+                    builder.setCharAt(position++, builder.charAt(index++));
+                }
+            } else if (multiLineOpen != null && ScriptsCompiler.startsWith(builder, multiLineOpen, index)) {
+                index = indexOf(builder, multiLineClose, index + multiLineOpen.length(), length);
+            } else if (oneLine != null && ScriptsCompiler.startsWith(builder, oneLine, index)) {
+                index += oneLine.length();
+                while (index < length && builder.charAt(index) != LF && builder.charAt(index) != CR) {
+                    ++index;
+                }
+            } else {
+                builder.setCharAt(position++, builder.charAt(index++));
+            }
+        }
+
+        builder.setLength(position);
+    }
+
+    /**
+     * Find the end of a quoted text
+     * 
+     * @param text
+     *            the text
+     * @param from
+     *            the index after the opening quote
+     * @param quote
+     *            the quote
+     * @param escape
+     *            the quote escape (the quote itself to double it, or the
+     *            prefix of the escaped character), may be {@code null}
+     * @return the index after the closing quote, or -1 if not closed
+     */
+    static int indexAfterQuoted(final CharSequence text, final int from, final String quote, final String escape) {
+        final int length = text.length();
+        final boolean doubled = quote.equals(escape);
+        int index = from;
+        while (index < length) {
+            if (escape != null && !doubled && ScriptsCompiler.startsWith(text, escape, index)) {
+                // the escape and the escaped character
+                index += escape.length() + 1;
+            } else if (ScriptsCompiler.startsWith(text, quote, index)) {
+                index += quote.length();
+                if (!doubled || !ScriptsCompiler.startsWith(text, quote, index)) {
+                    return index;
+                }
+                index += quote.length();
+            } else {
+                ++index;
+            }
+        }
+        return -1;
+    }
+
+    private static String emptyToNull(final String operator) {
+        if (operator == null || operator.isEmpty()) {
+            return null;
+        }
+        return operator;
+    }
+
+    /**
+     * @return the index after the close operator or the length if not found
+     */
+    private static int indexOf(final StringBuilder builder, final String close, final int from, final int length) {
+        if (close == null) {
+            return length;
+        }
+        final int found = builder.indexOf(close, from);
+        if (found > -1) {
+            return found + close.length();
+        }
+        return length;
+    }
+}
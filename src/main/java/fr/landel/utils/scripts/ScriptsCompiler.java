@@ -0,0 +1,377 @@
+/*-
+ * #%L
+ * utils-scripts
+ * %%
+ * Copyright (C) 2016 - 2018 Gilles Landel
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package fr.landel.utils.scripts;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import fr.landel.utils.assertor.Assertor;
+
+/**
+ * Scripts compiler (parse the script once into an immutable tree of nodes:
+ * texts, variables and conditions).
+ *
+ * <p>
+ * The open and close tags are matched with a stack in a single pass, each
+ * close tag is associated to the last unclosed open tag (the same result as
+ * resolving the deepest condition first). Unmatched tags are kept as text.
+ * </p>
+ *
+ * @since Oct 17, 2026
+ * @author Gilles
+ *
+ */
+final class ScriptsCompiler {
+
+    private final ScriptsTemplate template;
+
+    /**
+     * Constructor
+     * 
+     * @param template
+     *            the template
+     */
+    ScriptsCompiler(final ScriptsTemplate template) {
+        this.template = template;
+    }
+
+    /**
+     * Compile the script content (comments have to be removed before). A
+     * {@link StringBuilder} content is read directly (not copied and not
+     * modified).
+     * 
+     * @param content
+     *            the script content
+     * @return the compiled script
+     * @throws IllegalArgumentException
+     *             If the content is empty or if the number of brackets open
+     *             and close doesn't match
+     */
+    CompiledScript compile(final CharSequence content) throws IllegalArgumentException {
+        final StringBuilder text = this.checkInput(content);
+
+        final Cursor variableClose = new Cursor(text, this.template.getVariableClose());
+        final Cursor then = new Cursor(text, this.template.getOperatorThen());
+        final Cursor otherwise = new Cursor(text, this.template.getOperatorElse());
+
+        final String variableOpen = this.template.getVariableOpen();
+        final String expressionOpen = this.template.getExpressionOpen();
+        final String expressionClose = this.template.getExpressionClose();
+        final int variableOpenLen = variableOpen.length();
+        final int variableCloseLen = this.template.getVariableClose().length();
+
+        final Map<String, Integer> slots = new LinkedHashMap<>();
+        final Deque<Frame> stack = new ArrayDeque<>();
+        Frame current = new Frame(text, 0);
+
+        final int length = text.length();
+        int index = 0;
+        while (index < length) {
+            if (startsWith(text, variableOpen, index)) {
+                final int start = index + variableOpenLen;
+                final int stop = variableClose.next(start);
+
+                // a variable doesn't contain any operator
+                if (stop > -1 && !then.within(start, stop) && !otherwise.within(start, stop)) {
+                    final String name = text.substring(start, stop).trim();
+                    current.add(new ScriptsNode.Variable(name, slot(slots, name)));
+                    index = stop + variableCloseLen;
+                    continue;
+                }
+            }
+
+            if (startsWith(text, expressionOpen, index)) {
+                stack.push(current);
+                current = new Frame(text, index);
+                index += expressionOpen.length();
+            } else if (!stack.isEmpty() && startsWith(text, expressionClose, index)) {
+                final ScriptsNode condition = this.buildCondition(current, slots);
+                current = stack.pop();
+                current.add(condition);
+                index += expressionClose.length();
+            } else {
+                current.append(index, ++index);
+            }
+        }
+
+        // unclosed expressions are kept as text (the open tag is just before
+        // the content of the expression)
+        while (!stack.isEmpty()) {
+            final Frame unclosed = current;
+            current = stack.pop();
+            current.append(unclosed.open, unclosed.open + expressionOpen.length());
+            current.addAll(unclosed);
+        }
+
+        return new CompiledScript(this.template, current.toNode(0, 0, current.size(), 0), slots);
+    }
+
+    /**
+     * Get the slot of the variable name, a new slot is assigned if the name is
+     * unknown
+     * 
+     * @param slots
+     *            the slots of the script being compiled
+     * @param name
+     *            the variable name
+     * @return the slot
+     */
+    static int slot(final Map<String, Integer> slots, final String name) {
+        Integer slot = slots.get(name);
+        if (slot == null) {
+            slot = slots.size();
+            slots.put(name, slot);
+        }
+        return slot;
+    }
+
+    /**
+     * Check if the text contains the searched string at the index
+     * 
+     * @param text
+     *            the text
+     * @param searched
+     *            the searched string
+     * @param index
+     *            the index in text
+     * @return true, if found at the index
+     */
+    static boolean startsWith(final CharSequence text, final String searched, final int index) {
+        final int length = searched.length();
+        if (index + length > text.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; ++i) {
+            if (text.charAt(index + i) != searched.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private StringBuilder checkInput(final CharSequence content) throws IllegalArgumentException {
+        Assertor.that(content).isNotEmpty().orElseThrow("Input cannot be empty or null");
+
+        final StringBuilder text;
+        if (content instanceof StringBuilder) {
+            text = (StringBuilder) content;
+        } else {
+            text = new StringBuilder(content);
+        }
+
+        // each open tag has to be followed by a close tag, so only the last
+        // one need to be checked
+        final int lastOpen = text.lastIndexOf(this.template.getExpressionOpen());
+        final boolean valid = lastOpen == -1 || text.indexOf(this.template.getExpressionClose(), lastOpen) > -1;
+
+        Assertor.that(valid).isTrue().orElseThrow("The count of %s doesn't match the count of %s, input: %s",
+                this.template.getExpressionOpen(), this.template.getExpressionClose(), text);
+
+        return text;
+    }
+
+    private ScriptsNode buildCondition(final Frame frame, final Map<String, Integer> slots) {
+        final int thenLen = this.template.getOperatorThen().length();
+        final int elseLen = this.template.getOperatorElse().length();
+
+        final int[] then = frame.find(this.template.getOperatorThen(), 0, 0);
+        final int[] otherwise;
+        if (then != null) {
+            otherwise = frame.find(this.template.getOperatorElse(), then[0], then[1] + thenLen);
+        } else {
+            otherwise = frame.find(this.template.getOperatorElse(), 0, 0);
+        }
+
+        if (then == null && otherwise == null) {
+            return ScriptsNode.EMPTY;
+        }
+
+        final int[] end = then != null ? then : otherwise;
+        final ScriptsExpression expression = new ScriptsExpression(this.template, frame.text(0, 0, end[0], end[1]), slots);
+
+        ScriptsNode thenNode = null;
+        ScriptsNode elseNode = null;
+        if (then != null && otherwise != null) {
+            thenNode = frame.toNode(then[0], then[1] + thenLen, otherwise[0], otherwise[1]);
+        } else if (then != null) {
+            thenNode = frame.toNode(then[0], then[1] + thenLen, frame.size(), 0);
+        }
+        if (otherwise != null) {
+            elseNode = frame.toNode(otherwise[0], otherwise[1] + elseLen, frame.size(), 0);
+        }
+
+        return new ScriptsNode.Condition(expression, thenNode, elseNode);
+    }
+
+    /**
+     * Search forward cursor (the search start never decreases, so the whole
+     * text is read only once)
+     */
+    private static final class Cursor {
+
+        private final StringBuilder text;
+        private final String searched;
+        private int position = -2;
+
+        Cursor(final StringBuilder text, final String searched) {
+            this.text = text;
+            this.searched = searched;
+        }
+
+        int next(final int from) {
+            if (this.position != -1 && this.position < from) {
+                this.position = this.text.indexOf(this.searched, from);
+            }
+            return this.position;
+        }
+
+        boolean within(final int start, final int stop) {
+            final int found = this.next(start);
+            return found > -1 && found + this.searched.length() <= stop;
+        }
+    }
+
+    /**
+     * Content of an expression (or of the whole script), parts are texts
+     * ({@link Range} of the source, not copied) or nodes ({@link ScriptsNode}).
+     * The texts are only copied once, by the nodes.
+     */
+    private static final class Frame {
+
+        private final StringBuilder source;
+        private final int open;
+        private final List<Object> parts = new ArrayList<>();
+        private Range last;
+
+        Frame(final StringBuilder source, final int open) {
+            this.source = source;
+            this.open = open;
+        }
+
+        void append(final int start, final int end) {
+            if (this.last != null && this.last.end == start) {
+                this.last.end = end;
+            } else {
+                this.last = new Range(start, end);
+                this.parts.add(this.last);
+            }
+        }
+
+        void add(final ScriptsNode node) {
+            this.parts.add(node);
+            this.last = null;
+        }
+
+        void addAll(final Frame frame) {
+            for (Object part : frame.parts) {
+                if (part instanceof Range) {
+                    this.append(((Range) part).start, ((Range) part).end);
+                } else {
+                    this.add((ScriptsNode) part);
+                }
+            }
+        }
+
+        int size() {
+            return this.parts.size();
+        }
+
+        /**
+         * Find the operator in texts (not in sub-nodes)
+         * 
+         * @return the position {part index, offset in part} or {@code null}
+         */
+        int[] find(final String operator, final int fromPart, final int fromOffset) {
+            int offset = fromOffset;
+            for (int i = fromPart; i < this.parts.size(); ++i) {
+                final Object part = this.parts.get(i);
+                if (part instanceof Range) {
+                    final Range range = (Range) part;
+                    for (int index = range.start + offset; index + operator.length() <= range.end; ++index) {
+                        if (startsWith(this.source, operator, index)) {
+                            return new int[] {i, index - range.start};
+                        }
+                    }
+                }
+                offset = 0;
+            }
+            return null;
+        }
+
+        /**
+         * @return the texts between the two positions (sub-nodes are ignored)
+         */
+        String text(final int fromPart, final int fromOffset, final int toPart, final int toOffset) {
+            final StringBuilder builder = new StringBuilder();
+            for (int i = fromPart; i <= toPart && i < this.parts.size(); ++i) {
+                final Object part = this.parts.get(i);
+                if (part instanceof Range) {
+                    final Range range = (Range) part;
+                    builder.append(this.source, range.start + (i == fromPart ? fromOffset : 0),
+                            i == toPart ? range.start + toOffset : range.end);
+                }
+            }
+            return builder.toString();
+        }
+
+        /**
+         * @return the node of the parts between the two positions
+         */
+        ScriptsNode toNode(final int fromPart, final int fromOffset, final int toPart, final int toOffset) {
+            final List<ScriptsNode> nodes = new ArrayList<>();
+            for (int i = fromPart; i <= toPart && i < this.parts.size(); ++i) {
+                final Object part = this.parts.get(i);
+                if (part instanceof Range) {
+                    final Range range = (Range) part;
+                    final int start = range.start + (i == fromPart ? fromOffset : 0);
+                    final int stop = i == toPart ? range.start + toOffset : range.end;
+                    if (stop > start) {
+                        nodes.add(new ScriptsNode.Text(this.source.substring(start, stop)));
+                    }
+                } else if (i < toPart) {
+                    nodes.add((ScriptsNode) part);
+                }
+            }
+
+            if (nodes.size() == 1) {
+                return nodes.get(0);
+            }
+            return new ScriptsNode.Sequence(nodes.toArray(new ScriptsNode[nodes.size()]));
+        }
+    }
+
+    /**
+     * Text of a frame: range [start, end) of the source
+     */
+    private static final class Range {
+
+        private final int start;
+        private int end;
+
+        Range(final int start, final int end) {
+            this.start = start;
+            this.end = end;
+        }
+    }
+}
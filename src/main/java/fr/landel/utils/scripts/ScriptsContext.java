@@ -0,0 +1,393 @@
+/*-
+ * #%L
+ * utils-scripts
+ * %%
+ * Copyright (C) 2016 - 2018 Gilles Landel
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package fr.landel.utils.scripts;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.AbstractSet;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import fr.landel.utils.assertor.Assertor;
+
+/**
+ * Rendering context of a compiled script: the values and the presence of each
+ * variable, indexed by their slot in the compiled script. The values are
+ * formatted and checked when rendered (see {@link ScriptsFormatters}), the
+ * streamed values are copied by chunks (see
+ * {@link ScriptsReplacer#isStreamed(Object)}). The values which are not
+ * rendered are checked after the rendering (see {@link #checkUnrendered()}).
+ *
+ * @since Oct 17, 2026
+ * @author Gilles
+ *
+ */
+final class ScriptsContext {
+
+    private final CompiledScript script;
+    private final Object[] values;
+    private final BitSet presence;
+    private final ScriptsReplacer replacer;
+    private final boolean streamed;
+    private BitSet consumed;
+    private BitSet checked;
+    private String[] formatted;
+    private Window window;
+    private Set<String> keys;
+
+    /**
+     * Constructor
+     * 
+     * @param script
+     *            the compiled script
+     * @param values
+     *            the values (indexed by slot), may be {@code null} if only
+     *            the presence is needed
+     * @param presence
+     *            the presence of each variable (indexed by slot)
+     * @param replacer
+     *            the replacer used to format and check the values, may be
+     *            {@code null} if only the presence is needed
+     */
+    ScriptsContext(final CompiledScript script, final Object[] values, final BitSet presence, final ScriptsReplacer replacer) {
+        this.script = script;
+        this.values = values;
+        this.presence = presence;
+        this.replacer = replacer;
+
+        boolean stream = false;
+        if (values != null) {
+            for (int slot = presence.nextSetBit(0); !stream && slot > -1 && slot < values.length; slot = presence.nextSetBit(slot + 1)) {
+                stream = ScriptsReplacer.isStreamed(values[slot]);
+            }
+        }
+        this.streamed = stream;
+    }
+
+    /**
+     * @return true, if at least one present value is streamed (see
+     *         {@link ScriptsReplacer#isStreamed(Object)})
+     */
+    boolean isStreamed() {
+        return this.streamed;
+    }
+
+    /**
+     * @param slot
+     *            the variable slot
+     * @return true, if the variable is present
+     */
+    boolean isPresent(final int slot) {
+        return this.presence.get(slot);
+    }
+
+    /**
+     * Format and check the values of the present variables (only the
+     * rendered ones are formatted, the flags are set to "true")
+     * 
+     * @param rendered
+     *            the slots whose value is rendered
+     * @return the checked values (indexed by slot, {@code null} if not
+     *         present)
+     * @throws IllegalArgumentException
+     *             if a rendered value is not valid
+     */
+    String[] getValues(final BitSet rendered) throws IllegalArgumentException {
+        for (int slot = this.presence.nextSetBit(0); slot > -1 && slot < this.values.length; slot = this.presence.nextSetBit(slot + 1)) {
+            if (rendered.get(slot)) {
+                this.getValue(slot);
+            } else {
+                this.getFormatted()[slot] = Boolean.TRUE.toString();
+            }
+        }
+        return this.getFormatted();
+    }
+
+    /**
+     * @return the presence of each variable (indexed by slot)
+     */
+    BitSet getPresence() {
+        return this.presence;
+    }
+
+    /**
+     * Get the value as provided (not formatted, not checked)
+     * 
+     * @param slot
+     *            the variable slot
+     * @return the value or {@code null} if not present
+     */
+    Object getObject(final int slot) {
+        if (this.presence.get(slot) && slot < this.values.length) {
+            return this.values[slot];
+        }
+        return null;
+    }
+
+    /**
+     * Get the formatted value (formatted and checked once)
+     * 
+     * @param slot
+     *            the variable slot
+     * @return the value or {@code null} if not present
+     * @throws IllegalArgumentException
+     *             if the value is not valid
+     */
+    String getValue(final int slot) throws IllegalArgumentException {
+        if (this.presence.get(slot)) {
+            final String[] checked = this.getFormatted();
+            if (checked[slot] == null) {
+                if (ScriptsReplacer.isStreamed(this.values[slot])) {
+                    // only if the whole value is needed
+                    final StringBuilder builder = new StringBuilder();
+                    this.streamUnchecked(slot, builder);
+                    checked[slot] = builder.toString();
+                } else {
+                    checked[slot] = this.replacer.format(this.values[slot]);
+                    this.setChecked(slot);
+                }
+            }
+            return checked[slot];
+        }
+        return null;
+    }
+
+    /**
+     * Format the value straight into the output (if not already formatted
+     * by {@link #getValue(int)}) and check it
+     * 
+     * @param slot
+     *            the slot of a present variable
+     * @param output
+     *            the output
+     * @throws IllegalArgumentException
+     *             if the value is not valid
+     */
+    void appendValue(final int slot, final StringBuilder output) throws IllegalArgumentException {
+        if (this.formatted != null && this.formatted[slot] != null) {
+            output.append(this.formatted[slot]);
+        } else if (ScriptsReplacer.isStreamed(this.values[slot])) {
+            this.streamUnchecked(slot, output);
+        } else {
+            if (this.window == null) {
+                this.window = new Window();
+            }
+            this.replacer.format(this.values[slot], output, this.window);
+            this.setChecked(slot);
+        }
+    }
+
+    /**
+     * Check the values of the present variables which have not been
+     * rendered (not taken branches or variables only used in conditions),
+     * the rendered values being checked while formatted into the output. Like
+     * the rendered ones, they have to be valid (kept for compatibility, all
+     * the given values were checked before the rendering).
+     * 
+     * @throws IllegalArgumentException
+     *             if a value is not valid
+     */
+    void checkUnrendered() throws IllegalArgumentException {
+        StringBuilder buffer = null;
+        for (int slot = this.presence.nextSetBit(0); slot > -1 && slot < this.values.length; slot = this.presence.nextSetBit(slot + 1)) {
+            if (this.checked == null || !this.checked.get(slot)) {
+                if (buffer == null) {
+                    buffer = new StringBuilder();
+                }
+                this.replacer.check(this.values[slot], buffer);
+            }
+        }
+    }
+
+    private void setChecked(final int slot) {
+        if (this.checked == null) {
+            this.checked = new BitSet(this.values.length);
+        }
+        this.checked.set(slot);
+    }
+
+    /**
+     * Format the value straight into the output (if not already formatted
+     * by {@link #getValue(int)}) and check it, the streamed values are copied
+     * by chunks and the lists are expanded element by element (see
+     * {@link ScriptsReplacer#format(Object, Appendable, Window)})
+     * 
+     * @param slot
+     *            the slot of a present variable
+     * @param output
+     *            the output
+     * @throws IOException
+     *             on reading or writing failures
+     * @throws IllegalArgumentException
+     *             if the value is not valid
+     */
+    void appendValue(final int slot, final Appendable output) throws IOException, IllegalArgumentException {
+        if (this.formatted != null && this.formatted[slot] != null) {
+            output.append(this.formatted[slot]);
+        } else if (ScriptsReplacer.isStreamed(this.values[slot])) {
+            this.stream(slot, output);
+        } else {
+            if (this.window == null) {
+                this.window = new Window();
+            }
+            this.replacer.format(this.values[slot], output, this.window);
+            this.setChecked(slot);
+        }
+    }
+
+    private void streamUnchecked(final int slot, final StringBuilder output) {
+        try {
+            this.stream(slot, output);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void stream(final int slot, final Appendable output) throws IOException {
+        if (this.consumed == null) {
+            this.consumed = new BitSet(this.values.length);
+        } else if (this.consumed.get(slot)) {
+            Assertor.that(this.values[slot] instanceof Reader).isFalse().orElseThrow(
+                    "The reader of the variable '%s' can only be rendered once (use a supplier)", this.script.getVariable(slot));
+        }
+        this.consumed.set(slot);
+
+        this.replacer.stream(this.values[slot], output);
+        this.setChecked(slot);
+    }
+
+    private String[] getFormatted() {
+        if (this.formatted == null) {
+            this.formatted = new String[this.values.length];
+        }
+        return this.formatted;
+    }
+
+    /**
+     * @param name
+     *            the variable name
+     * @return the slot or -1 if the script doesn't use this variable
+     */
+    int getSlot(final String name) {
+        return this.script.getSlot(name);
+    }
+
+    /**
+     * @return the set of present variable names (only used by legacy
+     *         expressions)
+     */
+    Set<String> getKeys() {
+        if (this.keys == null) {
+            this.keys = new Keys();
+        }
+        return this.keys;
+    }
+
+    /**
+     * Read only view of the present variable names
+     */
+    private final class Keys extends AbstractSet<String> {
+
+        @Override
+        public boolean contains(final Object o) {
+            final Integer slot = ScriptsContext.this.script.getSlots().get(o);
+            return slot != null && ScriptsContext.this.presence.get(slot);
+        }
+
+        @Override
+        public int size() {
+            return ScriptsContext.this.presence.get(0, ScriptsContext.this.script.getSlots().size()).cardinality();
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            final BitSet present = ScriptsContext.this.presence.get(0, ScriptsContext.this.script.getSlots().size());
+            return new Iterator<String>() {
+
+                private int slot = present.nextSetBit(0);
+
+                @Override
+                public boolean hasNext() {
+                    return this.slot > -1;
+                }
+
+                @Override
+                public String next() {
+                    if (this.slot < 0) {
+                        throw new NoSuchElementException();
+                    }
+                    final String name = ScriptsContext.this.script.getVariable(this.slot);
+                    this.slot = present.nextSetBit(this.slot + 1);
+                    return name;
+                }
+            };
+        }
+    }
+
+    /**
+     * Reusable view of the characters appended into a string builder (the
+     * check of a value formatted into the output doesn't create a string)
+     */
+    static final class Window implements CharSequence {
+
+        private StringBuilder builder;
+        private int start;
+        private int end;
+
+        /**
+         * Define the view
+         * 
+         * @param builder
+         *            the string builder
+         * @param start
+         *            the start index (the end is the current length)
+         * @return the view
+         */
+        Window of(final StringBuilder builder, final int start) {
+            this.builder = builder;
+            this.start = start;
+            this.end = builder.length();
+            return this;
+        }
+
+        @Override
+        public int length() {
+            return this.end - this.start;
+        }
+
+        @Override
+        public char charAt(final int index) {
+            return this.builder.charAt(this.start + index);
+        }
+
+        @Override
+        public CharSequence subSequence(final int start, final int end) {
+            return this.builder.subSequence(this.start + start, this.start + end);
+        }
+
+        @Override
+        public String toString() {
+            return this.builder.substring(this.start, this.end);
+        }
+    }
+}
@@ -0,0 +1,516 @@
+/*-
+ * #%L
+ * utils-scripts
+ * %%
+ * Copyright (C) 2016 - 2018 Gilles Landel
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package fr.landel.utils.scripts;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang3.tuple.MutablePair;
+import org.apache.commons.lang3.tuple.Pair;
+
+/**
+ * Condition expression (the part before the THEN or ELSE operator), compiled
+ * once into a predicate and evaluated against the presence of the variables.
+ *
+ * <p>
+ * By default (legacy expressions, see
+ * {@link ScriptsTemplate#isLegacyExpressions()}), the expression is evaluated
+ * from left to right without precedence, the deepest blocks first (the
+ * behavior of versions prior to 1.0.5). This evaluation is compiled into a
+ * predicate, except for the unusual expressions (a negated block or a block
+ * followed by a text) which are still interpreted.
+ * </p>
+ *
+ * <p>
+ * If the template disables the legacy expressions, the NOT operator has the
+ * highest precedence, followed by AND, then OR, and blocks are evaluated
+ * first. AND and OR stop on the first operand which determines the result.
+ * </p>
+ *
+ * @since Oct 17, 2026
+ * @author Gilles
+ *
+ */
+final class ScriptsExpression {
+
+    private final ScriptsTemplate template;
+    private final String expression;
+    private final ScriptsPredicate predicate;
+    private final int[] variables;
+
+    /**
+     * Constructor
+     * 
+     * @param template
+     *            the template (operators)
+     * @param expression
+     *            the expression text
+     * @param slots
+     *            the slots of the compiled script (new variable names are
+     *            added)
+     */
+    ScriptsExpression(final ScriptsTemplate template, final String expression, final Map<String, Integer> slots) {
+        this.template = template;
+        this.expression = expression;
+
+        final List<Integer> variables = new ArrayList<>();
+        final ScriptsPredicate predicate = new Parser(slots, variables).parse();
+        if (template.isLegacyExpressions()) {
+            variables.clear();
+            this.predicate = new LegacyParser(slots, variables).parse();
+        } else {
+            this.predicate = predicate;
+        }
+
+        this.variables = new int[variables.size()];
+        for (int i = 0; i < this.variables.length; ++i) {
+            this.variables[i] = variables.get(i);
+        }
+    }
+
+    /**
+     * @return the expression text
+     */
+    String getExpression() {
+        return this.expression;
+    }
+
+    /**
+     * Evaluate the expression
+     * 
+     * @param context
+     *            the rendering context
+     * @return the result
+     */
+    boolean evaluate(final ScriptsContext context) {
+        if (this.predicate == null) {
+            return this.evaluateLegacy(context.getKeys(), new ArrayList<String>());
+        }
+        return this.predicate.test(context.getPresence());
+    }
+
+    /**
+     * Render the values of the present variables (not negated, in the
+     * evaluation order), used if the condition has no THEN branch
+     * 
+     * @param output
+     *            the output
+     * @param context
+     *            the rendering context
+     */
+    void renderVariables(final ScriptsOutput output, final ScriptsContext context) {
+        if (this.predicate == null) {
+            final List<String> variables = new ArrayList<>();
+            this.evaluateLegacy(context.getKeys(), variables);
+            for (String variable : variables) {
+                if (variable.indexOf(this.template.getOperatorNot()) == -1) {
+                    output.appendValue(context.getSlot(variable));
+                }
+            }
+        } else {
+            for (int slot : this.variables) {
+                if (context.isPresent(slot)) {
+                    output.appendValue(slot);
+                }
+            }
+        }
+    }
+
+    /**
+     * Generate the Java code of the expression (not available for the
+     * interpreted legacy expressions, see {@link ScriptsCode#unsupported})
+     * 
+     * @param code
+     *            the generated code (access to the values)
+     * @return the boolean expression
+     */
+    String generate(final ScriptsCode code) {
+        if (this.predicate == null) {
+            code.unsupported(this.expression);
+            return Boolean.FALSE.toString();
+        }
+        final StringBuilder expression = new StringBuilder();
+        this.predicate.generate(expression, code);
+        return expression.toString();
+    }
+
+    /**
+     * Generate the Java code which renders the values of the present
+     * variables (see {@link #renderVariables(ScriptsOutput, ScriptsContext)})
+     * 
+     * @param code
+     *            the code
+     */
+    void generateVariables(final ScriptsCode code) {
+        for (int slot : this.variables) {
+            code.value(slot);
+        }
+    }
+
+    private boolean evaluateLegacy(final Set<String> keys, final List<String> variables) {
+        Pair<Integer, Integer> bounds;
+        StringBuilder sb = new StringBuilder(this.expression);
+        String condition;
+        boolean isOk = false;
+
+        for (bounds = findDeepestCondition(sb, this.template.getBlockOpen(), this.template.getBlockClose()); bounds != null; bounds = findDeepestCondition(
+                sb, this.template.getBlockOpen(), this.template.getBlockClose())) {
+
+            condition = sb.substring(bounds.getLeft(), bounds.getRight());
+
+            isOk = this.checkVariables(keys, variables, condition, isOk);
+
+            sb.replace(bounds.getLeft() - 1, bounds.getRight() + 1, Boolean.toString(isOk));
+        }
+
+        return this.checkVariables(keys, variables, sb.toString(), isOk);
+    }
+
+    /**
+     * Find the deepest block (the first closed one)
+     * 
+     * @param sb
+     *            the string builder
+     * @param inStr
+     *            the open tag
+     * @param outStr
+     *            the close tag
+     * @return the bounds of the block content or {@code null}
+     */
+    static Pair<Integer, Integer> findDeepestCondition(final StringBuilder sb, final String inStr, final String outStr) {
+        Pair<Integer, Integer> bounds = null;
+
+        final int inStrLen = inStr.length();
+
+        // get first
+        int index = sb.indexOf(inStr);
+        int indexStop = sb.indexOf(outStr, index + inStrLen);
+
+        if (index > -1 && indexStop > -1) {
+            for (; index > -1 && index < indexStop;) {
+                bounds = new MutablePair<Integer, Integer>(index + inStrLen, indexStop);
+
+                // get next
+                index = sb.indexOf(inStr, index + inStrLen);
+            }
+        }
+
+        return bounds;
+    }
+
+    private boolean checkVariables(final Set<String> keys, final List<String> variables, final String condition, final boolean isOk) {
+        boolean isOkVar = isOk;
+        boolean previousOr = true;
+        boolean currentOr = false;
+        int previousIndex = 0;
+        String variable = null;
+        int indexAnd;
+        int indexOr;
+
+        final int opAndLen = this.template.getOperatorAnd().length();
+        final int opOrLen = this.template.getOperatorOr().length();
+
+        indexAnd = condition.indexOf(this.template.getOperatorAnd());
+        indexOr = condition.indexOf(this.template.getOperatorOr());
+        if (indexAnd > -1 || indexOr > -1) {
+            for (; indexAnd > -1 || indexOr > -1;) {
+
+                if (this.checkOperators(indexAnd, indexOr)) {
+                    variable = condition.substring(previousIndex, indexAnd).trim();
+                    previousIndex = indexAnd + opAndLen;
+                    currentOr = false;
+                } else if (this.checkOperators(indexOr, indexAnd)) {
+                    variable = condition.substring(previousIndex, indexOr).trim();
+                    previousIndex = indexOr + opOrLen;
+                    currentOr = true;
+                }
+
+                isOkVar = this.add(keys, variable, isOkVar, previousOr, variables);
+
+                indexAnd = condition.indexOf(this.template.getOperatorAnd(), previousIndex);
+                indexOr = condition.indexOf(this.template.getOperatorOr(), previousIndex);
+                previousOr = currentOr;
+            }
+            isOkVar = this.add(keys, condition.substring(previousIndex).trim(), isOkVar, previousOr, variables);
+        } else {
+            isOkVar = this.add(keys, condition.trim(), isOkVar, previousOr, variables);
+        }
+
+        return isOkVar;
+    }
+
+    private boolean checkOperators(final int indexOperator1, final int indexOperator2) {
+        return indexOperator1 > -1 && (indexOperator2 == -1 || indexOperator1 < indexOperator2);
+    }
+
+    private boolean add(final Set<String> keys, final String variable, final boolean isOk, final boolean previousOr,
+            final List<String> variables) {
+        boolean is = false;
+
+        if (variable != null) {
+            if (Boolean.TRUE.toString().equals(variable)) {
+                is = true;
+            } else if (!Boolean.FALSE.toString().equals(variable)) {
+                boolean isNot = variable.indexOf(this.template.getOperatorNot()) == 0;
+                if (!isNot && keys.contains(variable)) {
+                    variables.add(variable);
+                    is = true;
+                } else if (isNot) {
+                    is = !keys.contains(variable.substring(this.template.getOperatorNot().length()).trim());
+                }
+            }
+        }
+
+        if (previousOr) {
+            return isOk || is;
+        }
+        return isOk && is;
+    }
+
+    /**
+     * Legacy expression parser, reproduces the interpreted evaluation
+     * ({@link #evaluateLegacy(Set, List)}) with predicates: each deepest block
+     * is replaced by a placeholder of its result and the operands are
+     * combined from left to right, starting with the result of the previous
+     * block.
+     */
+    private final class LegacyParser {
+
+        // not a character, kept by trim()
+        private static final char PLACEHOLDER = '\uFFFF';
+
+        private final Map<String, Integer> slots;
+        private final List<Integer> variables;
+        private final List<ScriptsPredicate> blocks;
+
+        LegacyParser(final Map<String, Integer> slots, final List<Integer> variables) {
+            this.slots = slots;
+            this.variables = variables;
+            this.blocks = new ArrayList<>();
+        }
+
+        /**
+         * @return the predicate, or {@code null} if the expression has to be
+         *         interpreted
+         */
+        ScriptsPredicate parse() {
+            final ScriptsTemplate template = ScriptsExpression.this.template;
+            final StringBuilder sb = new StringBuilder(ScriptsExpression.this.expression);
+            if (sb.indexOf(String.valueOf(PLACEHOLDER)) > -1) {
+                return null;
+            }
+
+            ScriptsPredicate isOk = ScriptsPredicate.FALSE;
+            Pair<Integer, Integer> bounds;
+            while (isOk != null && (bounds = findDeepestCondition(sb, template.getBlockOpen(), template.getBlockClose())) != null) {
+                isOk = this.combine(sb.substring(bounds.getLeft(), bounds.getRight()), isOk);
+
+                this.blocks.add(isOk);
+                sb.replace(bounds.getLeft() - 1, bounds.getRight() + 1, PLACEHOLDER + String.valueOf(this.blocks.size() - 1) + PLACEHOLDER);
+            }
+
+            if (isOk == null) {
+                return null;
+            }
+            return this.combine(sb.toString(), isOk);
+        }
+
+        private ScriptsPredicate combine(final String condition, final ScriptsPredicate isOk) {
+            final String operatorAnd = ScriptsExpression.this.template.getOperatorAnd();
+            final String operatorOr = ScriptsExpression.this.template.getOperatorOr();
+
+            ScriptsPredicate predicate = isOk;
+            boolean previousOr = true;
+            int previousIndex = 0;
+            while (predicate != null) {
+                final int indexAnd = condition.indexOf(operatorAnd, previousIndex);
+                final int indexOr = condition.indexOf(operatorOr, previousIndex);
+                if (indexAnd == -1 && indexOr == -1) {
+                    final ScriptsPredicate operand = this.operand(condition.substring(previousIndex).trim());
+                    return operand != null ? ScriptsPredicate.combine(predicate, previousOr, operand) : null;
+                } else if (indexAnd == indexOr) {
+                    // ambiguous operators
+                    return null;
+                }
+
+                final boolean currentOr = indexAnd == -1 || (indexOr > -1 && indexOr < indexAnd);
+                final int index = currentOr ? indexOr : indexAnd;
+                final ScriptsPredicate operand = this.operand(condition.substring(previousIndex, index).trim());
+                predicate = operand != null ? ScriptsPredicate.combine(predicate, previousOr, operand) : null;
+
+                previousIndex = index + (currentOr ? operatorOr : operatorAnd).length();
+                previousOr = currentOr;
+            }
+            return null;
+        }
+
+        private ScriptsPredicate operand(final String name) {
+            final int placeholder = name.indexOf(PLACEHOLDER);
+            if (placeholder == 0 && name.indexOf(PLACEHOLDER, 1) == name.length() - 1) {
+                return this.blocks.get(Integer.parseInt(name.substring(1, name.length() - 1)));
+            } else if (placeholder > -1) {
+                // block negated or followed by a text, interpreted
+                return null;
+            } else if (Boolean.TRUE.toString().equals(name)) {
+                return ScriptsPredicate.TRUE;
+            } else if (Boolean.FALSE.toString().equals(name)) {
+                return ScriptsPredicate.FALSE;
+            }
+
+            final String operatorNot = ScriptsExpression.this.template.getOperatorNot();
+            if (name.startsWith(operatorNot)) {
+                final String negated = name.substring(operatorNot.length()).trim();
+                if (Boolean.TRUE.toString().equals(negated) || Boolean.FALSE.toString().equals(negated)) {
+                    // negated literal, interpreted as a variable name
+                    return null;
+                }
+                return new ScriptsPredicate.Not(new ScriptsPredicate.Key(negated, ScriptsCompiler.slot(this.slots, negated)));
+            }
+
+            final int slot = ScriptsCompiler.slot(this.slots, name);
+            if (name.indexOf(operatorNot) == -1) {
+                this.variables.add(slot);
+            }
+            return new ScriptsPredicate.Key(name, slot);
+        }
+    }
+
+    /**
+     * Expression parser (recursive descent, one pass)
+     */
+    private final class Parser {
+
+        private final String text;
+        private final int length;
+        private final int lastBlockClose;
+        private final Map<String, Integer> slots;
+        private final List<Integer> variables;
+        private List<Integer> current;
+        private int index;
+        private int depth;
+
+        Parser(final Map<String, Integer> slots, final List<Integer> variables) {
+            this.text = ScriptsExpression.this.expression;
+            this.length = this.text.length();
+            this.lastBlockClose = this.text.lastIndexOf(ScriptsExpression.this.template.getBlockClose());
+            this.slots = slots;
+            this.variables = variables;
+            this.current = new ArrayList<>();
+        }
+
+        ScriptsPredicate parse() {
+            final ScriptsPredicate predicate = this.parseOr();
+            this.variables.addAll(this.current);
+            return predicate;
+        }
+
+        private ScriptsPredicate parseOr() {
+            final List<ScriptsPredicate> operands = new ArrayList<>();
+            operands.add(this.parseAnd());
+            while (this.consume(ScriptsExpression.this.template.getOperatorOr())) {
+                operands.add(this.parseAnd());
+            }
+            if (operands.size() == 1) {
+                return operands.get(0);
+            }
+            return new ScriptsPredicate.Or(operands.toArray(new ScriptsPredicate[operands.size()]));
+        }
+
+        private ScriptsPredicate parseAnd() {
+            final List<ScriptsPredicate> operands = new ArrayList<>();
+            operands.add(this.parseUnary(false));
+            while (this.consume(ScriptsExpression.this.template.getOperatorAnd())) {
+                operands.add(this.parseUnary(false));
+            }
+            if (operands.size() == 1) {
+                return operands.get(0);
+            }
+            return new ScriptsPredicate.And(operands.toArray(new ScriptsPredicate[operands.size()]));
+        }
+
+        private ScriptsPredicate parseUnary(final boolean negated) {
+            if (this.consume(ScriptsExpression.this.template.getOperatorNot())) {
+                return new ScriptsPredicate.Not(this.parseUnary(true));
+            }
+
+            final String blockOpen = ScriptsExpression.this.template.getBlockOpen();
+            // a block is only opened if it's closed after
+            if (this.text.startsWith(blockOpen, this.index) && this.index + blockOpen.length() <= this.lastBlockClose) {
+                this.index += blockOpen.length();
+
+                final List<Integer> parent = this.current;
+                this.current = new ArrayList<>();
+                ++this.depth;
+
+                final ScriptsPredicate predicate = this.parseOr();
+                this.consume(ScriptsExpression.this.template.getBlockClose());
+
+                --this.depth;
+                this.variables.addAll(this.current);
+                this.current = parent;
+
+                // ignore text between the block and the next operator
+                this.readName();
+
+                return predicate;
+            }
+
+            final String name = this.readName().trim();
+            if (Boolean.TRUE.toString().equals(name)) {
+                return ScriptsPredicate.TRUE;
+            } else if (Boolean.FALSE.toString().equals(name)) {
+                return ScriptsPredicate.FALSE;
+            }
+
+            final int slot = ScriptsCompiler.slot(this.slots, name);
+            if (!negated && name.indexOf(ScriptsExpression.this.template.getOperatorNot()) == -1) {
+                this.current.add(slot);
+            }
+            return new ScriptsPredicate.Key(name, slot);
+        }
+
+        private String readName() {
+            final int start = this.index;
+            while (this.index < this.length && !this.isOperator()) {
+                ++this.index;
+            }
+            return this.text.substring(start, this.index);
+        }
+
+        private boolean isOperator() {
+            final ScriptsTemplate template = ScriptsExpression.this.template;
+            return this.text.startsWith(template.getOperatorAnd(), this.index) || this.text.startsWith(template.getOperatorOr(), this.index)
+                    || (this.depth > 0 && this.text.startsWith(template.getBlockClose(), this.index));
+        }
+
+        private boolean consume(final String operator) {
+            while (this.index < this.length && this.text.charAt(this.index) <= ' ') {
+                ++this.index;
+            }
+            if (this.text.startsWith(operator, this.index)) {
+                this.index += operator.length();
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+/*-
+ * #%L
+ * utils-scripts
+ * %%
+ * Copyright (C) 2016 - 2018 Gilles Landel
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package fr.landel.utils.scripts;
+
+/**
+ * Formatter of the variable values (see {@link ScriptsFormatters}). The
+ * value is appended straight into the output when the variable is rendered,
+ * the appended characters are then checked like any value (template tokens
+ * and template checker).
+ *
+ * @param <T>
+ *            the type of the values
+ *
+ * @since Oct 17, 2026
+ * @author Gilles
+ *
+ */
+@FunctionalInterface
+public interface ScriptsFormatter<T> {
+
+    /**
+     * Append the formatted value
+     * 
+     * @param value
+     *            the value (not null)
+     * @param output
+     *            the output
+     */
+    void format(T value, StringBuilder output);
+}
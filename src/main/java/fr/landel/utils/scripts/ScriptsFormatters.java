@@ -0,0 +1,220 @@
+/*-
+ * #%L
+ * utils-scripts
+ * %%
+ * Copyright (C) 2016 - 2018 Gilles Landel
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package fr.landel.utils.scripts;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.OffsetTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAccessor;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import fr.landel.utils.assertor.Assertor;
+
+/**
+ * Immutable set of value formatters, selected by the type of the value (see
+ * {@link ScriptsReplacer#setFormatters(ScriptsFormatters)}). The formatter of
+ * the nearest registered type is used: the class of the value, then its super
+ * classes, then its interfaces. The resolved formatters are cached by class.
+ *
+ * <p>
+ * Built-in formatters ({@link #DEFAULT}):
+ * </p>
+ * <ul>
+ * <li>{@link CharSequence}: appended as is,</li>
+ * <li>{@link Number}: integers and decimals are appended without
+ * intermediate string, other numbers with their {@code toString},</li>
+ * <li>{@link Boolean}: true or false,</li>
+ * <li>{@link Enum}: the constant name,</li>
+ * <li>{@link Date}: ISO local date time in the default time zone (ex:
+ * 2016-12-21T10:15:30),</li>
+ * <li>{@link LocalDate}, {@link LocalTime}, {@link LocalDateTime},
+ * {@link OffsetTime}, {@link OffsetDateTime}, {@link ZonedDateTime} and
+ * {@link Instant}: the matching ISO formatter,</li>
+ * <li>any other object: its {@code toString} (and null: "null").</li>
+ * </ul>
+ *
+ * <p>
+ * The collections and the arrays are not formatted as a whole but expanded,
+ * each element being formatted (see {@link ScriptsCollection}).
+ * </p>
+ *
+ * @since Oct 17, 2026
+ * @author Gilles
+ *
+ */
+public final class ScriptsFormatters {
+
+    private static final ScriptsFormatter<Object> TO_STRING = (value, output) -> output.append(value);
+
+    private static final ScriptsFormatter<CharSequence> CHARS = (value, output) -> output.append(value);
+
+    private static final ScriptsFormatter<Number> NUMBER = (value, output) -> {
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            output.append(value.longValue());
+        } else if (value instanceof Double) {
+            output.append(value.doubleValue());
+        } else if (value instanceof Float) {
+            output.append(value.floatValue());
+        } else {
+            output.append(value);
+        }
+    };
+
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ISO_LOCAL_DATE_TIME.withZone(ZoneId.systemDefault());
+
+    /**
+     * The built-in formatters
+     */
+    public static final ScriptsFormatters DEFAULT = new ScriptsFormatters(Collections.<Class<?>, ScriptsFormatter<?>> emptyMap())
+            .with(Object.class, TO_STRING).with(CharSequence.class, CHARS)
+            .with(Number.class, NUMBER).with(Boolean.class, (value, output) -> output.append(value.booleanValue()))
+            .with(Enum.class, (value, output) -> output.append(value.name()))
+            .with(Date.class, (value, output) -> DATE_FORMATTER.formatTo(Instant.ofEpochMilli(value.getTime()), output))
+            .with(LocalDate.class, temporal(DateTimeFormatter.ISO_LOCAL_DATE))
+            .with(LocalTime.class, temporal(DateTimeFormatter.ISO_LOCAL_TIME))
+            .with(LocalDateTime.class, temporal(DateTimeFormatter.ISO_LOCAL_DATE_TIME))
+            .with(OffsetTime.class, temporal(DateTimeFormatter.ISO_OFFSET_TIME))
+            .with(OffsetDateTime.class, temporal(DateTimeFormatter.ISO_OFFSET_DATE_TIME))
+            .with(ZonedDateTime.class, temporal(DateTimeFormatter.ISO_ZONED_DATE_TIME))
+            .with(Instant.class, temporal(DateTimeFormatter.ISO_INSTANT));
+
+    private final Map<Class<?>, ScriptsFormatter<?>> formatters;
+    private final ConcurrentMap<Class<?>, ScriptsFormatter<Object>> resolved = new ConcurrentHashMap<>();
+
+    private ScriptsFormatters(final Map<Class<?>, ScriptsFormatter<?>> formatters) {
+        this.formatters = formatters;
+    }
+
+    private static <T extends TemporalAccessor> ScriptsFormatter<T> temporal(final DateTimeFormatter formatter) {
+        return (value, output) -> formatter.formatTo(value, output);
+    }
+
+    /**
+     * Add or replace the formatter of a type
+     * 
+     * @param type
+     *            the type of the values (the formatter is also used for the
+     *            sub types without their own formatter)
+     * @param formatter
+     *            the formatter
+     * @param <T>
+     *            the type of the values
+     * @return a new set of formatters
+     * @throws IllegalArgumentException
+     *             if the type or the formatter is null
+     */
+    public <T> ScriptsFormatters with(final Class<T> type, final ScriptsFormatter<? super T> formatter) {
+        Assertor.that(type).isNotNull().orElseThrow("The formatted type cannot be null");
+        Assertor.that(formatter).isNotNull().orElseThrow("The formatter cannot be null");
+
+        final Map<Class<?>, ScriptsFormatter<?>> formatters = new HashMap<>(this.formatters);
+        formatters.put(type, formatter);
+        return new ScriptsFormatters(formatters);
+    }
+
+    /**
+     * Append the formatted value
+     * 
+     * @param value
+     *            the value (may be null)
+     * @param output
+     *            the output
+     */
+    public void format(final Object value, final StringBuilder output) {
+        if (value == null) {
+            output.append((Object) null);
+        } else {
+            this.get(value.getClass()).format(value, output);
+        }
+    }
+
+    /**
+     * Check if the value is appended as is (character sequence with the
+     * built-in formatter), so it can be checked without copy
+     * 
+     * @param value
+     *            the value
+     * @return true, if appended as is
+     */
+    boolean isVerbatim(final Object value) {
+        return value instanceof CharSequence && this.get(value.getClass()) == (Object) CHARS;
+    }
+
+    private ScriptsFormatter<Object> get(final Class<?> type) {
+        ScriptsFormatter<Object> formatter = this.resolved.get(type);
+        if (formatter == null) {
+            formatter = this.resolve(type);
+            this.resolved.putIfAbsent(type, formatter);
+        }
+        return formatter;
+    }
+
+    @SuppressWarnings("unchecked")
+    private ScriptsFormatter<Object> resolve(final Class<?> type) {
+        // the class and its super classes, Object excluded
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            final ScriptsFormatter<?> formatter = this.formatters.get(current);
+            if (formatter != null) {
+                return (ScriptsFormatter<Object>) formatter;
+            }
+        }
+
+        // then the interfaces (the ones of the class before the inherited)
+        for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+            final ScriptsFormatter<?> formatter = this.resolveInterfaces(current.getInterfaces());
+            if (formatter != null) {
+                return (ScriptsFormatter<Object>) formatter;
+            }
+        }
+
+        final ScriptsFormatter<?> formatter = this.formatters.get(Object.class);
+        if (formatter != null) {
+            return (ScriptsFormatter<Object>) formatter;
+        }
+        return TO_STRING;
+    }
+
+    private ScriptsFormatter<?> resolveInterfaces(final Class<?>[] interfaces) {
+        for (Class<?> type : interfaces) {
+            final ScriptsFormatter<?> formatter = this.formatters.get(type);
+            if (formatter != null) {
+                return formatter;
+            }
+        }
+        for (Class<?> type : interfaces) {
+            final ScriptsFormatter<?> formatter = this.resolveInterfaces(type.getInterfaces());
+            if (formatter != null) {
+                return formatter;
+            }
+        }
+        return null;
+    }
+}
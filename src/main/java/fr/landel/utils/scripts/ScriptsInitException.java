@@ -0,0 +1,75 @@
+/*-
+ * #%L
+ * utils-scripts
+ * %%
+ * Copyright (C) 2016 - 2018 Gilles Landel
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package fr.landel.utils.scripts;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Exception thrown by the initialization of the scripts loader (see
+ * {@link ScriptsLoader#init(ClassLoader, ScriptsList...)}), with all the
+ * failures (each failure is also added as suppressed exception, the first one
+ * is the cause). The other scripts are published.
+ *
+ * @since Oct 17, 2026
+ * @author Gilles
+ *
+ */
+public class ScriptsInitException extends IOException {
+
+    /**
+     * serialVersionUID
+     */
+    private static final long serialVersionUID = 6170473627745581943L;
+
+    private final transient Map<ScriptsList<?>, Exception> failures;
+
+    /**
+     * Constructor
+     * 
+     * @param failures
+     *            the failure of each script (not empty)
+     */
+    public ScriptsInitException(final Map<ScriptsList<?>, Exception> failures) {
+        super(buildMessage(failures), failures.values().iterator().next());
+
+        this.failures = Collections.unmodifiableMap(new LinkedHashMap<>(failures));
+        for (Exception failure : failures.values()) {
+            this.addSuppressed(failure);
+        }
+    }
+
+    /**
+     * @return the failure of each script (unmodifiable, in the loading order)
+     */
+    public Map<ScriptsList<?>, Exception> getFailures() {
+        return this.failures;
+    }
+
+    private static String buildMessage(final Map<ScriptsList<?>, Exception> failures) {
+        final StringBuilder message = new StringBuilder("Cannot load ").append(failures.size()).append(" script(s):");
+        for (Map.Entry<ScriptsList<?>, Exception> failure : failures.entrySet()) {
+            message.append(' ').append(failure.getKey().getName()).append(" (").append(failure.getValue().getMessage()).append(')');
+        }
+        return message.toString();
+    }
+}
@@ -1,334 +1,1181 @@
-/*
- * #%L
- * utils-scripts
- * %%
- * Copyright (C) 2016 - 2018 Gilles Landel
- * %%
- * Licensed under the Apache License, Version 2.0 (the "License");
- * you may not use this file except in compliance with the License.
- * You may obtain a copy of the License at
- * 
- *      http://www.apache.org/licenses/LICENSE-2.0
- * 
- * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS,
- * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- * See the License for the specific language governing permissions and
- * limitations under the License.
- * #L%
- */
-package fr.landel.utils.scripts;
-
-import java.io.IOException;
-import java.io.InputStream;
-import java.nio.charset.Charset;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.Map;
-
-import fr.landel.utils.assertor.Assertor;
-import fr.landel.utils.commons.EnumChar;
-import fr.landel.utils.commons.StringUtils;
-import fr.landel.utils.io.FileUtils;
-import fr.landel.utils.io.IOStreamUtils;
-import fr.landel.utils.io.SystemProperties;
-
-/**
- * Scripts loader (load scripts from classpath, and remove comments and blank
- * lines)
- *
- * @since Dec 1, 2015
- * @author Gilles
- *
- */
-public class ScriptsLoader {
-
-    /**
-     * Scripts path
-     */
-    private static final String DEFAULT_PATH = "scripts/";
-
-    private static final String NEW_LINE = EnumChar.LF.getUnicode();
-    private static final String LINE_RETURN = EnumChar.CR.getUnicode();
-
-    private final Map<ScriptsList<?>, StringBuilder> scripts;
-    private final ScriptsReplacer replacer;
-
-    private String path;
-
-    /**
-     * Constructor (default path: "scripts/", default template: SQL)
-     */
-    public ScriptsLoader() {
-        this(DEFAULT_PATH);
-    }
-
-    /**
-     * Constructor (default template: SQL)
-     * 
-     * @param path
-     *            The base path for all scripts
-     */
-    public ScriptsLoader(final String path) {
-        this(path, ScriptsTemplate.TEMPLATE_SQL);
-    }
-
-    /**
-     * Constructor
-     * 
-     * @param path
-     *            The base path for all scripts
-     * @param template
-     *            The template
-     */
-    public ScriptsLoader(final String path, final ScriptsTemplate template) {
-        super();
-
-        this.scripts = new HashMap<>();
-        this.replacer = new ScriptsReplacer();
-        this.replacer.setTemplate(template);
-        this.setPath(path);
-    }
-
-    /**
-     * @return the replacer
-     */
-    public ScriptsReplacer getReplacer() {
-        return this.replacer;
-    }
-
-    /**
-     * @param path
-     *            The base path (default path: scripts/)
-     */
-    public void setPath(final String path) {
-        Assertor.that(path).isNotEmpty().orElseThrow("Scripts path cannot be null or empty");
-
-        String suffix = SystemProperties.FILE_SEPARATOR.getValue();
-        if (path.endsWith(suffix)) {
-            suffix = "";
-        }
-        this.path = path + suffix;
-    }
-
-    /**
-     * Load all scripts from classpath if {@code loader} is not {@code null},
-     * otherwise from system folder. All scripts are loaded from the defined
-     * directory (by default 'scripts', can be override by:
-     * {@link #setPath(String)}).
-     * 
-     * @param loader
-     *            The current class loader (may be {@code null})
-     * @param scriptsList
-     *            The scripts list
-     * @throws IOException
-     *             On loading file failures
-     */
-    public void init(final ClassLoader loader, final ScriptsList<?>... scriptsList) throws IOException {
-        for (ScriptsList<?> value : scriptsList) {
-            if (StringUtils.isNotBlank(value.getName())) {
-                final StringBuilder sb = new StringBuilder();
-                this.scripts.put(value, sb);
-
-                final String path = new StringBuilder(this.path).append(value.getName()).toString();
-                try (final InputStream is = loader != null ? loader.getResourceAsStream(path)
-                        : IOStreamUtils.createBufferedInputStream(path)) {
-                    sb.append(FileUtils.getFileContent(is, value.getCharset()));
-                }
-            }
-        }
-    }
-
-    /**
-     * Load all scripts from classpath. All scripts are loaded from the defined
-     * directory (by default 'scripts', can be override by:
-     * {@link #setPath(String)}).
-     * 
-     * @param scriptsList
-     *            The scripts list
-     * @throws IOException
-     *             On loading file failures
-     */
-    public void init(final ScriptsList<?>... scriptsList) throws IOException {
-        this.init(ScriptsLoader.class.getClassLoader(), scriptsList);
-    }
-
-    /**
-     * Load a single script from classpath. The script is loaded from the
-     * defined directory (by default 'scripts', can be override by:
-     * {@link #setPath(String)}).
-     * 
-     * @param name
-     *            The script name
-     * @param charset
-     *            The script charset
-     * @return The script identifier
-     * @throws IOException
-     *             On loading file failures
-     */
-    public ScriptsList<?> init(final String name, final Charset charset) throws IOException {
-        return this.init(ScriptsLoader.class.getClassLoader(), name, charset);
-    }
-
-    /**
-     * Load a single script from classpath if {@code loader} is not
-     * {@code null}, otherwise from system folder. The script is loaded from the
-     * defined directory (by default 'scripts', can be override by:
-     * {@link #setPath(String)}).
-     * 
-     * @param loader
-     *            The current class loader (may be {@code null})
-     * @param name
-     *            The script name
-     * @param charset
-     *            The script charset
-     * @return The script identifier
-     * @throws IOException
-     *             On loading file failures
-     */
-    public ScriptsList<?> init(final ClassLoader loader, final String name, final Charset charset) throws IOException {
-        final ScriptsList<?> script = new SingleScriptsList(name, charset);
-        this.init(loader, script);
-        return script;
-    }
-
-    /**
-     * Get the scripts file
-     * 
-     * @param path
-     *            The scripts path
-     * @param <E>
-     *            The type of script list
-     * @return The StringBuilder
-     */
-    public <E extends ScriptsList<E>> StringBuilder get(final ScriptsList<E> path) {
-        return this.get(path, new HashMap<String, String>());
-    }
-
-    /**
-     * Get the scripts file
-     * 
-     * @param path
-     *            The scripts path
-     * @param key
-     *            The key to replace
-     * @param value
-     *            The replacement value
-     * @param <E>
-     *            The type of script list
-     * @param <V>
-     *            The type of replacement value
-     * @return The StringBuilder
-     */
-    public <E extends ScriptsList<E>, V> StringBuilder get(final ScriptsList<E> path, final String key, final V value) {
-        if (key != null) {
-            return this.get(path, Collections.singletonMap(key, value));
-        }
-        return null;
-    }
-
-    /**
-     * Get the scripts file
-     * 
-     * @param path
-     *            The scripts path
-     * @param replacements
-     *            The entries (keys to replace, replacement values)
-     * @param <E>
-     *            The type of script list
-     * @param <V>
-     *            The type of replacement values
-     * @return The StringBuilder
-     */
-    public <E extends ScriptsList<E>, V> StringBuilder get(final ScriptsList<E> path, final Map<String, V> replacements) {
-        if (this.scripts.containsKey(path)) {
-            final StringBuilder builder = new StringBuilder(this.scripts.get(path));
-
-            if (this.replacer.getTemplate().isRemoveComments()) {
-                this.removeComments(builder);
-            }
-
-            this.replacer.replace(builder, replacements);
-
-            if (this.replacer.getTemplate().isRemoveBlankLines()) {
-                this.removeBlankLines(builder);
-            }
-
-            return builder;
-        }
-        return null;
-    }
-
-    private void removeComments(final StringBuilder builder) {
-        int startComments = 0;
-        int endComments = 0;
-
-        // removes multi-lines comments
-        while ((startComments = builder.indexOf(this.replacer.getTemplate().getMultiLineCommentOperatorOpen())) > -1) {
-            endComments = builder.indexOf(this.replacer.getTemplate().getMultiLineCommentOperatorClose(), startComments);
-            if (endComments > startComments) {
-                builder.delete(startComments, endComments + 2);
-            } else {
-                builder.delete(startComments, builder.length());
-            }
-        }
-
-        // removes line comments
-        while ((startComments = builder.indexOf(this.replacer.getTemplate().getOneLineCommentOperator())) > -1) {
-            // For Windows / Mac / Unix
-            int cr = builder.indexOf(NEW_LINE, startComments);
-            int lf = builder.indexOf(LINE_RETURN, startComments);
-            if (cr > -1 && lf > -1) {
-                endComments = Math.min(cr, lf);
-            } else if (cr > -1) {
-                endComments = cr;
-            } else if (lf > -1) {
-                endComments = lf;
-            } else {
-                endComments = builder.length();
-            }
-            if (endComments > startComments) {
-                builder.delete(startComments, endComments);
-            }
-        }
-    }
-
-    private void removeBlankLines(final StringBuilder builder) {
-        int lineSeparator = 0;
-        int startLine = 0;
-        int endLine = 0;
-
-        final String newLine;
-
-        boolean hasNewLine = builder.indexOf(NEW_LINE) > -1;
-        boolean hasLineReturn = builder.indexOf(LINE_RETURN) > -1;
-
-        if (hasNewLine && hasLineReturn) {
-            newLine = NEW_LINE;
-
-            // removes return character to simplify the remove of blank lines
-            while ((lineSeparator = builder.indexOf(LINE_RETURN)) > -1) {
-                builder.delete(lineSeparator, lineSeparator + 1);
-            }
-        } else if (hasLineReturn) {
-            newLine = LINE_RETURN;
-        } else {
-            newLine = NEW_LINE;
-        }
-
-        // removes blank lines
-        while ((endLine = builder.indexOf(newLine, startLine)) > -1) {
-            if (endLine >= startLine && StringUtils.isBlank(builder.substring(startLine, endLine))) {
-                builder.delete(startLine, endLine + 1);
-            } else {
-                startLine = endLine + 1;
-            }
-        }
-
-        // remove the last new line character
-        int length = builder.length();
-        if (length > 0 && builder.lastIndexOf(newLine) == length - 1) {
-            builder.delete(length - 1, length);
-        }
-    }
-}
+/*
+ * #%L
+ * utils-scripts
+ * %%
+ * Copyright (C) 2016 - 2018 Gilles Landel
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package fr.landel.utils.scripts;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import fr.landel.utils.assertor.Assertor;
+import fr.landel.utils.commons.StringUtils;
+import fr.landel.utils.io.FileUtils;
+import fr.landel.utils.io.SystemProperties;
+
+/**
+ * Scripts loader (load scripts from classpath, remove comments and compile
+ * them once, and remove blank lines on each rendering)
+ *
+ * <p>
+ * The loader is thread-safe and can be shared (singleton): the registry of
+ * scripts is an immutable snapshot, read without any lock, and replaced
+ * atomically by {@link #setPath(String)} and each call to init (scripts can be
+ * loaded while others are read).
+ * </p>
+ *
+ * @since Dec 1, 2015
+ * @author Gilles
+ *
+ */
+public class ScriptsLoader {
+
+    /**
+     * Scripts path
+     */
+    private static final String DEFAULT_PATH = "scripts/";
+
+    private final AtomicReference<ScriptsRegistry> registry;
+    private final ScriptsReplacer replacer;
+    private final ScriptsShapeCache shapes;
+
+    /**
+     * Constructor (default path: "scripts/", default template: SQL)
+     */
+    public ScriptsLoader() {
+        this(DEFAULT_PATH);
+    }
+
+    /**
+     * Constructor (default template: SQL)
+     * 
+     * @param path
+     *            The base path for all scripts
+     */
+    public ScriptsLoader(final String path) {
+        this(path, ScriptsTemplate.TEMPLATE_SQL);
+    }
+
+    /**
+     * Constructor
+     * 
+     * @param path
+     *            The base path for all scripts
+     * @param template
+     *            The template
+     */
+    public ScriptsLoader(final String path, final ScriptsTemplate template) {
+        super();
+
+        this.replacer = new ScriptsReplacer(template);
+        this.registry = new AtomicReference<>(ScriptsRegistry.EMPTY.withReplacer(this.replacer.copy()));
+        this.shapes = new ScriptsShapeCache(ScriptsShapeCache.DEFAULT_SIZE);
+        this.replacer.setListener(this::publishReplacer);
+        this.setPath(path);
+    }
+
+    /**
+     * Get the replacer, each change of its template or of its formatters is
+     * published at once with the scripts (the loaded scripts are compiled
+     * again with the new template by the change, the files are read again)
+     * 
+     * @return the replacer
+     */
+    public ScriptsReplacer getReplacer() {
+        return this.replacer;
+    }
+
+    /**
+     * @param path
+     *            The base path (default path: scripts/), only used by the
+     *            next calls to init
+     */
+    public void setPath(final String path) {
+        Assertor.that(path).isNotEmpty().orElseThrow("Scripts path cannot be null or empty");
+
+        String suffix = SystemProperties.FILE_SEPARATOR.getValue();
+        if (path.endsWith(suffix)) {
+            suffix = "";
+        }
+        final String basePath = path + suffix;
+        this.registry.updateAndGet(registry -> registry.withPath(basePath));
+    }
+
+    /**
+     * Define the executor used by the next calls to init to load and compile
+     * the scripts in parallel (a {@link java.util.concurrent.ForkJoinPool} or
+     * any other executor).
+     * 
+     * @param executor
+     *            The executor ({@code null} to load the scripts one by one
+     *            in the calling thread, the default)
+     */
+    public void setExecutor(final Executor executor) {
+        this.registry.updateAndGet(registry -> registry.withExecutor(executor));
+    }
+
+    /**
+     * Define the loading mode used by the next calls to init. In lazy mode,
+     * init only registers the scripts, each script is loaded and compiled on
+     * first use (exactly once, only the threads which need the same script
+     * wait for it). A loading failure is thrown by the getter (an
+     * {@link UncheckedIOException} for reading failures), and the script is
+     * loaded again by the next call.
+     * 
+     * @param lazy
+     *            true, to load the scripts on first use (default: false)
+     */
+    public void setLazy(final boolean lazy) {
+        this.registry.updateAndGet(registry -> registry.withLazy(lazy));
+    }
+
+    /**
+     * Define if a class is generated at runtime for the rendering of each
+     * script compiled from now (loaded, reloaded or compiled again after a
+     * template change). The literal texts and the conditions of the script
+     * are compiled into Java code, so rendering (see
+     * {@link #get(ScriptsList, Map)}) doesn't walk through the tree of the
+     * compiled script.
+     * 
+     * <p>
+     * The generation requires a JDK (the system Java compiler, see
+     * {@link #isCodeGenerationAvailable()}) and takes some hundreds of
+     * milliseconds per script on loading, so it's disabled by default. The
+     * interpreter is kept if the class cannot be generated (see
+     * {@link CompiledScript#isGenerated()}): no Java compiler (JRE), class
+     * definition not allowed or interpreted legacy expressions.
+     * </p>
+     * 
+     * @param codeGeneration
+     *            true, to generate the classes (default: false)
+     */
+    public void setCodeGeneration(final boolean codeGeneration) {
+        this.registry.updateAndGet(registry -> registry.withCodeGeneration(codeGeneration));
+    }
+
+    /**
+     * @return true, if the rendering classes can be generated at runtime (the
+     *         Java compiler is available, see
+     *         {@link #setCodeGeneration(boolean)})
+     */
+    public static boolean isCodeGenerationAvailable() {
+        try {
+            return ScriptsClassGenerator.isAvailable();
+        } catch (LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * Load and compile all scripts from classpath if {@code loader} is not
+     * {@code null}, otherwise from system folder. All scripts are loaded from
+     * the defined directory (by default 'scripts', can be override by:
+     * {@link #setPath(String)}).
+     * 
+     * <p>
+     * The loader can be initialized while scripts are read by other threads:
+     * all scripts of the list are loaded and compiled first, and then the
+     * valid ones are published at once. A script which cannot be loaded
+     * (missing file) or compiled (empty script, unbalanced brackets...)
+     * doesn't prevent the other ones to be published, all the failures are
+     * reported at the end.
+     * </p>
+     * 
+     * @param loader
+     *            The current class loader (may be {@code null})
+     * @param scriptsList
+     *            The scripts list
+     * @throws ScriptsInitException
+     *             With the failure of each script which cannot be loaded or
+     *             compiled (the other ones are published)
+     * @throws IOException
+     *             On reading failure of the archive
+     */
+    public void init(final ClassLoader loader, final ScriptsList<?>... scriptsList) throws IOException {
+        final ScriptsRegistry snapshot = this.registry.get();
+        final ScriptsTemplate template = snapshot.getTemplate();
+
+        final ScriptsArchive archive = this.readArchive(loader, snapshot.getPath(), template);
+
+        final Map<ScriptsList<?>, Exception> failures = new LinkedHashMap<>();
+        final Map<ScriptsList<?>, ScriptsRegistry.Entry> entries;
+        if (snapshot.isLazy()) {
+            entries = new HashMap<>();
+            for (ScriptsList<?> value : scriptsList) {
+                if (StringUtils.isNotBlank(value.getName())) {
+                    // the template is the one published on first use
+                    final String basePath = snapshot.getPath();
+                    entries.put(value, new ScriptsRegistry.Entry(() -> this.load(loader, basePath, value,
+                            this.registry.get().getTemplate(), archive)));
+                }
+            }
+        } else if (snapshot.getExecutor() != null) {
+            entries = this.loadAll(snapshot.getExecutor(), loader, snapshot.getPath(), template, archive, failures, scriptsList);
+        } else {
+            entries = new HashMap<>();
+            for (ScriptsList<?> value : scriptsList) {
+                if (StringUtils.isNotBlank(value.getName())) {
+                    try {
+                        entries.put(value, this.load(loader, snapshot.getPath(), value, template, archive));
+                    } catch (IOException | RuntimeException e) {
+                        failures.put(value, e);
+                    }
+                }
+            }
+        }
+
+        if (!entries.isEmpty()) {
+            this.publish(template, null, entries);
+        }
+        if (!failures.isEmpty()) {
+            throw new ScriptsInitException(failures);
+        }
+    }
+
+    /**
+     * Load all scripts from classpath. All scripts are loaded from the defined
+     * directory (by default 'scripts', can be override by:
+     * {@link #setPath(String)}).
+     * 
+     * @param scriptsList
+     *            The scripts list
+     * @throws IOException
+     *             On loading file failures ({@link ScriptsInitException} with
+     *             the failure of each script, the other ones are published)
+     */
+    public void init(final ScriptsList<?>... scriptsList) throws IOException {
+        this.init(ScriptsLoader.class.getClassLoader(), scriptsList);
+    }
+
+    /**
+     * Load a single script from classpath. The script is loaded from the
+     * defined directory (by default 'scripts', can be override by:
+     * {@link #setPath(String)}).
+     * 
+     * @param name
+     *            The script name
+     * @param charset
+     *            The script charset
+     * @return The script identifier
+     * @throws IOException
+     *             On loading file failures
+     */
+    public ScriptsList<?> init(final String name, final Charset charset) throws IOException {
+        return this.init(ScriptsLoader.class.getClassLoader(), name, charset);
+    }
+
+    /**
+     * Load a single script from classpath if {@code loader} is not
+     * {@code null}, otherwise from system folder. The script is loaded from the
+     * defined directory (by default 'scripts', can be override by:
+     * {@link #setPath(String)}).
+     * 
+     * @param loader
+     *            The current class loader (may be {@code null})
+     * @param name
+     *            The script name
+     * @param charset
+     *            The script charset
+     * @return The script identifier
+     * @throws IOException
+     *             On loading file failures
+     * @throws IllegalArgumentException
+     *             If the script is empty or if the number of brackets open
+     *             and close doesn't match
+     */
+    public ScriptsList<?> init(final ClassLoader loader, final String name, final Charset charset) throws IOException {
+        final ScriptsList<?> script = new SingleScriptsList(name, charset);
+        try {
+            this.init(loader, script);
+        } catch (ScriptsInitException e) {
+            // single script, its own failure is thrown
+            final Exception failure = e.getFailures().get(script);
+            if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            }
+            throw (IOException) failure;
+        }
+        return script;
+    }
+
+    /**
+     * Get the scripts file
+     * 
+     * @param path
+     *            The scripts path
+     * @param <E>
+     *            The type of script list
+     * @return The StringBuilder
+     */
+    public <E extends ScriptsList<E>> StringBuilder get(final ScriptsList<E> path) {
+        return this.get(path, new HashMap<String, String>());
+    }
+
+    /**
+     * Get the scripts file
+     * 
+     * @param path
+     *            The scripts path
+     * @param key
+     *            The key to replace
+     * @param value
+     *            The replacement value
+     * @param <E>
+     *            The type of script list
+     * @param <V>
+     *            The type of replacement value
+     * @return The StringBuilder
+     */
+    public <E extends ScriptsList<E>, V> StringBuilder get(final ScriptsList<E> path, final String key, final V value) {
+        if (key != null) {
+            return this.get(path, Collections.singletonMap(key, value));
+        }
+        return null;
+    }
+
+    /**
+     * Get the scripts file
+     * 
+     * @param path
+     *            The scripts path
+     * @param replacements
+     *            The entries (keys to replace, replacement values)
+     * @param <E>
+     *            The type of script list
+     * @param <V>
+     *            The type of replacement values
+     * @return The StringBuilder
+     */
+    public <E extends ScriptsList<E>, V> StringBuilder get(final ScriptsList<E> path, final Map<String, V> replacements) {
+        final ScriptsRegistry snapshot = this.registry.get();
+        final CompiledScript script = this.getCompiled(snapshot, path);
+        if (script != null) {
+            return this.render(script, snapshot.getReplacer().createContext(script, replacements));
+        }
+        return null;
+    }
+
+    /**
+     * Get the scripts file, values and presence are indexed by slot (see
+     * {@link #getCompiledScript(ScriptsList)} and
+     * {@link CompiledScript#getSlot(String)}). A present slot without value is
+     * considered as a flag. The value array and the presence set can be
+     * reused between calls (they are not modified).
+     * 
+     * @param path
+     *            The scripts path
+     * @param values
+     *            The values indexed by slot (may be {@code null} or shorter
+     *            than the slot count)
+     * @param presence
+     *            The presence of each slot
+     * @param <E>
+     *            The type of script list
+     * @return The StringBuilder
+     */
+    public <E extends ScriptsList<E>> StringBuilder getBySlots(final ScriptsList<E> path, final Object[] values, final BitSet presence) {
+        final ScriptsRegistry snapshot = this.registry.get();
+        final CompiledScript script = this.getCompiled(snapshot, path);
+        if (script != null) {
+            return this.render(script, snapshot.getReplacer().createContext(script, values, presence != null ? presence : new BitSet()));
+        }
+        return null;
+    }
+
+    /**
+     * Get the scripts file, each flag name matches a variable name used in
+     * conditions (like a replacement with a boolean value)
+     * 
+     * @param path
+     *            The scripts path
+     * @param flags
+     *            The present flags
+     * @param <E>
+     *            The type of script list
+     * @param <F>
+     *            The type of flags
+     * @return The StringBuilder
+     */
+    public <E extends ScriptsList<E>, F extends Enum<F>> StringBuilder getByFlags(final ScriptsList<E> path, final Set<F> flags) {
+        final ScriptsRegistry snapshot = this.registry.get();
+        final CompiledScript script = this.getCompiled(snapshot, path);
+        if (script != null) {
+            return this.render(script, snapshot.getReplacer().createContext(script, null, script.getPresence(flags)));
+        }
+        return null;
+    }
+
+    /**
+     * Render the scripts file directly into the output (no intermediate
+     * buffer of the whole script)
+     * 
+     * @param path
+     *            The scripts path
+     * @param replacements
+     *            The entries (keys to replace, replacement values)
+     * @param output
+     *            The output (writer, string builder...)
+     * @param <E>
+     *            The type of script list
+     * @param <V>
+     *            The type of replacement values
+     * @param <A>
+     *            The type of output
+     * @return The output or {@code null} if the script is not loaded
+     * @throws IOException
+     *             On writing failures
+     * @throws IllegalArgumentException
+     *             If a value is not valid (the output may be partly written,
+     *             the values are checked while rendered)
+     */
+    public <E extends ScriptsList<E>, V, A extends Appendable> A render(final ScriptsList<E> path, final Map<String, V> replacements,
+            final A output) throws IOException {
+        final ScriptsRegistry snapshot = this.registry.get();
+        final CompiledScript script = this.getCompiled(snapshot, path);
+        if (script != null) {
+            this.render(script, snapshot.getReplacer().createContext(script, replacements), output);
+            return output;
+        }
+        return null;
+    }
+
+    /**
+     * Render the scripts file directly into the output (no intermediate
+     * buffer of the whole script), values and presence are indexed by slot
+     * (see {@link #getBySlots(ScriptsList, Object[], BitSet)})
+     * 
+     * @param path
+     *            The scripts path
+     * @param values
+     *            The values indexed by slot (may be {@code null} or shorter
+     *            than the slot count)
+     * @param presence
+     *            The presence of each slot
+     * @param output
+     *            The output (writer, string builder...)
+     * @param <E>
+     *            The type of script list
+     * @param <A>
+     *            The type of output
+     * @return The output or {@code null} if the script is not loaded
+     * @throws IOException
+     *             On writing failures
+     * @throws IllegalArgumentException
+     *             If a value is not valid (the output may be partly written,
+     *             the values are checked while rendered)
+     */
+    public <E extends ScriptsList<E>, A extends Appendable> A renderBySlots(final ScriptsList<E> path, final Object[] values,
+            final BitSet presence, final A output) throws IOException {
+        final ScriptsRegistry snapshot = this.registry.get();
+        final CompiledScript script = this.getCompiled(snapshot, path);
+        if (script != null) {
+            this.render(script, snapshot.getReplacer().createContext(script, values, presence != null ? presence : new BitSet()), output);
+            return output;
+        }
+        return null;
+    }
+
+    /**
+     * Get the scripts file and the fingerprint of the rendered shape, computed
+     * while rendering (see {@link ScriptsRendered#getFingerprint()})
+     * 
+     * @param path
+     *            The scripts path
+     * @param replacements
+     *            The entries (keys to replace, replacement values)
+     * @param <E>
+     *            The type of script list
+     * @param <V>
+     *            The type of replacement values
+     * @return The rendered script or {@code null} if the script is not loaded
+     */
+    public <E extends ScriptsList<E>, V> ScriptsRendered<StringBuilder> getRendered(final ScriptsList<E> path,
+            final Map<String, V> replacements) {
+        final ScriptsRegistry snapshot = this.registry.get();
+        final CompiledScript script = this.getCompiled(snapshot, path);
+        if (script != null) {
+            final ScriptsContext context = snapshot.getReplacer().createContext(script, replacements);
+            return new ScriptsRendered<>(this.render(script, context), script.getFingerprint(context.getPresence()));
+        }
+        return null;
+    }
+
+    /**
+     * Get the scripts file and the fingerprint of the rendered shape, values
+     * and presence are indexed by slot (see
+     * {@link #getBySlots(ScriptsList, Object[], BitSet)})
+     * 
+     * @param path
+     *            The scripts path
+     * @param values
+     *            The values indexed by slot (may be {@code null} or shorter
+     *            than the slot count)
+     * @param presence
+     *            The presence of each slot
+     * @param <E>
+     *            The type of script list
+     * @return The rendered script or {@code null} if the script is not loaded
+     */
+    public <E extends ScriptsList<E>> ScriptsRendered<StringBuilder> getRenderedBySlots(final ScriptsList<E> path, final Object[] values,
+            final BitSet presence) {
+        final ScriptsRegistry snapshot = this.registry.get();
+        final CompiledScript script = this.getCompiled(snapshot, path);
+        if (script != null) {
+            final ScriptsContext context = snapshot.getReplacer().createContext(script, values, presence != null ? presence : new BitSet());
+            return new ScriptsRendered<>(this.render(script, context), script.getFingerprint(context.getPresence()));
+        }
+        return null;
+    }
+
+    /**
+     * Render the scripts file directly into the output (see
+     * {@link #render(ScriptsList, Map, Appendable)}) and get the fingerprint
+     * of the rendered shape
+     * 
+     * @param path
+     *            The scripts path
+     * @param replacements
+     *            The entries (keys to replace, replacement values)
+     * @param output
+     *            The output (writer, string builder...)
+     * @param <E>
+     *            The type of script list
+     * @param <V>
+     *            The type of replacement values
+     * @param <A>
+     *            The type of output
+     * @return The rendered script or {@code null} if the script is not loaded
+     * @throws IOException
+     *             On writing failures
+     * @throws IllegalArgumentException
+     *             If a value is not valid (the output may be partly written,
+     *             the values are checked while rendered)
+     */
+    public <E extends ScriptsList<E>, V, A extends Appendable> ScriptsRendered<A> renderWithFingerprint(final ScriptsList<E> path,
+            final Map<String, V> replacements, final A output) throws IOException {
+        final ScriptsRegistry snapshot = this.registry.get();
+        final CompiledScript script = this.getCompiled(snapshot, path);
+        if (script != null) {
+            final ScriptsContext context = snapshot.getReplacer().createContext(script, replacements);
+            this.render(script, context, output);
+            return new ScriptsRendered<>(output, script.getFingerprint(context.getPresence()));
+        }
+        return null;
+    }
+
+    /**
+     * Get the scripts file with positional parameters ("?") instead of
+     * values, and the values to bind in the same order (binding mode, for
+     * prepared statements). The text only depends on the presence of the
+     * variables, so it's built once per shape (see
+     * {@link #setShapeCacheSize(int)}). The values are bound as provided, they
+     * are not formatted and not checked (the keys are checked), the
+     * collections and the arrays are expanded into one placeholder per
+     * element (see {@link ScriptsCollection}).
+     * 
+     * @param path
+     *            The scripts path
+     * @param replacements
+     *            The entries (keys to replace, values to bind)
+     * @param <E>
+     *            The type of script list
+     * @param <V>
+     *            The type of values
+     * @return The statement or {@code null} if the script is not loaded
+     * @throws IllegalArgumentException
+     *             If a key is not valid. If a rendered variable is in a quoted
+     *             text of the template (ex: '{name}' is a literal, not a
+     *             parameter)
+     */
+    public <E extends ScriptsList<E>, V> ScriptsStatement getStatement(final ScriptsList<E> path, final Map<String, V> replacements) {
+        return this.getStatement(path, replacements, false);
+    }
+
+    /**
+     * Get the scripts file with parameters instead of values, and the values
+     * to bind in the same order (see {@link #getStatement(ScriptsList, Map)})
+     * 
+     * @param path
+     *            The scripts path
+     * @param replacements
+     *            The entries (keys to replace, values to bind)
+     * @param named
+     *            true, for named parameters (":" followed by the variable
+     *            name, the collections are bound as one value), false for
+     *            positional parameters ("?")
+     * @param <E>
+     *            The type of script list
+     * @param <V>
+     *            The type of values
+     * @return The statement or {@code null} if the script is not loaded
+     * @throws IllegalArgumentException
+     *             If a key is not valid. If a rendered variable is in a quoted
+     *             text of the template (ex: '{name}' is a literal, not a
+     *             parameter)
+     */
+    public <E extends ScriptsList<E>, V> ScriptsStatement getStatement(final ScriptsList<E> path, final Map<String, V> replacements,
+            final boolean named) {
+        final ScriptsRegistry snapshot = this.registry.get();
+        final CompiledScript script = this.getCompiled(snapshot, path);
+        if (script != null) {
+            return this.bind(script, snapshot.getReplacer().createBindingContext(script, replacements), named);
+        }
+        return null;
+    }
+
+    /**
+     * Get the scripts file with positional parameters ("?") instead of
+     * values, and the values to bind in the same order (see
+     * {@link #getStatement(ScriptsList, Map)}), values and presence are
+     * indexed by slot (see {@link #getBySlots(ScriptsList, Object[], BitSet)})
+     * 
+     * @param path
+     *            The scripts path
+     * @param values
+     *            The values indexed by slot (may be {@code null} or shorter
+     *            than the slot count)
+     * @param presence
+     *            The presence of each slot
+     * @param <E>
+     *            The type of script list
+     * @return The statement or {@code null} if the script is not loaded
+     * @throws IllegalArgumentException
+     *             If a key is not valid. If a rendered variable is in a quoted
+     *             text of the template (ex: '{name}' is a literal, not a
+     *             parameter)
+     */
+    public <E extends ScriptsList<E>> ScriptsStatement getStatementBySlots(final ScriptsList<E> path, final Object[] values,
+            final BitSet presence) {
+        final ScriptsRegistry snapshot = this.registry.get();
+        final CompiledScript script = this.getCompiled(snapshot, path);
+        if (script != null) {
+            final BitSet slots = presence != null ? presence : new BitSet();
+            return this.bind(script, snapshot.getReplacer().createBindingContext(script, values, slots), false);
+        }
+        return null;
+    }
+
+    /**
+     * Get the compiled script (to get the slot of each variable)
+     * 
+     * @param path
+     *            The scripts path
+     * @param <E>
+     *            The type of script list
+     * @return The compiled script or {@code null} if not loaded
+     */
+    public <E extends ScriptsList<E>> CompiledScript getCompiledScript(final ScriptsList<E> path) {
+        return this.getCompiled(this.registry.get(), path);
+    }
+
+    /**
+     * Get the fingerprint of the shape rendered for the replacements (see
+     * {@link CompiledScript#getFingerprint(BitSet)}) without rendering: only
+     * the presence of the keys is used, the values are not rendered (for the
+     * presence indexed by slot, see {@link #getCompiledScript(ScriptsList)}).
+     * To get it with the rendered script, see
+     * {@link #getRendered(ScriptsList, Map)}.
+     * 
+     * @param path
+     *            The scripts path
+     * @param replacements
+     *            The entries (keys to replace, replacement values)
+     * @param <E>
+     *            The type of script list
+     * @param <V>
+     *            The type of replacement values
+     * @return The fingerprint or 0 if the script is not loaded
+     */
+    public <E extends ScriptsList<E>, V> long getFingerprint(final ScriptsList<E> path, final Map<String, V> replacements) {
+        final ScriptsRegistry snapshot = this.registry.get();
+        final CompiledScript script = this.getCompiled(snapshot, path);
+        if (script != null) {
+            final BitSet presence = new BitSet(script.getSlotCount());
+            for (String key : replacements.keySet()) {
+                final int slot = script.getSlot(key);
+                if (slot > -1) {
+                    presence.set(slot);
+                }
+            }
+            return script.getFingerprint(presence);
+        }
+        return 0;
+    }
+
+    /**
+     * @return The loaded scripts
+     */
+    public Set<ScriptsList<?>> getLoadedScripts() {
+        return this.getScripts(true);
+    }
+
+    /**
+     * @return The registered scripts never used since the initialization in
+     *         lazy mode (not loaded yet)
+     */
+    public Set<ScriptsList<?>> getUnloadedScripts() {
+        return this.getScripts(false);
+    }
+
+    private Set<ScriptsList<?>> getScripts(final boolean loaded) {
+        final Set<ScriptsList<?>> scripts = new HashSet<>();
+        for (Map.Entry<ScriptsList<?>, ScriptsRegistry.Entry> entry : this.registry.get().getEntries().entrySet()) {
+            if (entry.getValue().isLoaded() == loaded) {
+                scripts.add(entry.getKey());
+            }
+        }
+        return scripts;
+    }
+
+    /**
+     * Watch the directories of the scripts loaded from the file system (init
+     * with a {@code null} class loader) and reload the modified scripts. The
+     * changes are debounced (the reload starts when no change has been
+     * detected during the delay), only the scripts whose content has changed
+     * are compiled again, and they are swapped atomically without blocking
+     * the readers. If a script cannot be read or compiled, the previous
+     * version is kept (see {@link ScriptsWatcher#getLastError()}).
+     * 
+     * <p>
+     * The watched directories are the ones of the scripts loaded when this
+     * method is called (and the base path if it's a directory), scripts
+     * loaded later in these directories are also reloaded.
+     * </p>
+     * 
+     * @param debounce
+     *            The debounce delay
+     * @param unit
+     *            The unit of the delay
+     * @return The watcher (to close to stop watching)
+     * @throws IOException
+     *             On watch service failures
+     * @throws IllegalArgumentException
+     *             If the delay is negative or if there is no directory to
+     *             watch
+     */
+    public ScriptsWatcher watch(final long debounce, final TimeUnit unit) throws IOException {
+        Assertor.that(debounce).isGTE(0L).orElseThrow("The debounce delay cannot be negative");
+        Assertor.that(unit).isNotNull().orElseThrow("The unit of the debounce delay cannot be null");
+
+        final ScriptsRegistry snapshot = this.registry.get();
+        final Set<Path> directories = new HashSet<>();
+        for (ScriptsRegistry.Entry entry : snapshot.getEntries().values()) {
+            if (entry.getFile() != null) {
+                directories.add(entry.getFile().getParent());
+            }
+        }
+        final Path base = Paths.get(snapshot.getPath()).toAbsolutePath().normalize();
+        if (Files.isDirectory(base)) {
+            directories.add(base);
+        }
+
+        Assertor.that(directories.isEmpty()).isFalse()
+                .orElseThrow("No script directory to watch, scripts have to be loaded from the file system");
+
+        return new ScriptsWatcher(this, directories, unit.toMillis(debounce));
+    }
+
+    /**
+     * Reload the scripts loaded from the changed files, only the scripts with
+     * a new content are compiled, and they are swapped at once (unless
+     * replaced in the meantime)
+     * 
+     * @param files
+     *            The changed files or directories (all the scripts of the
+     *            directory are checked), absolute and normalized
+     * @param errors
+     *            The list where the failures are added (the scripts are kept)
+     * @return The number of reloaded scripts
+     */
+    int reload(final Set<Path> files, final List<Exception> errors) {
+        final ScriptsTemplate template = this.registry.get().getTemplate();
+
+        final Map<ScriptsList<?>, ScriptsRegistry.Entry> previous = new HashMap<>();
+        final Map<ScriptsList<?>, ScriptsRegistry.Entry> reloaded = new HashMap<>();
+        for (Map.Entry<ScriptsList<?>, ScriptsRegistry.Entry> loaded : this.registry.get().getEntries().entrySet()) {
+            final ScriptsRegistry.Entry entry = loaded.getValue();
+            final Path file = entry.getFile();
+            if (file != null && (files.contains(file) || files.contains(file.getParent()))) {
+                try {
+                    final StringBuilder content = ScriptsSource.read(file, loaded.getKey().getCharset());
+                    final long hash = ScriptsSource.hash(content);
+                    if (hash != entry.getHash()) {
+                        previous.put(loaded.getKey(), entry);
+                        reloaded.put(loaded.getKey(), new ScriptsRegistry.Entry(null, hash, this.compile(content, template), file));
+                    }
+                } catch (IOException | RuntimeException e) {
+                    errors.add(e);
+                }
+            }
+        }
+
+        if (!reloaded.isEmpty()) {
+            this.publish(template, previous, reloaded);
+        }
+        return reloaded.size();
+    }
+
+    /**
+     * Define the maximum number of cached shapes. The taken branches of a
+     * script only depend on the presence of the variables, so the resolved
+     * shape (texts and holes to fill with values) is cached per script and
+     * per presence signature (default size: 256, the least recently used
+     * shapes are removed first).
+     * 
+     * @param size
+     *            The maximum number of cached shapes (0 to disable the cache)
+     */
+    public void setShapeCacheSize(final int size) {
+        Assertor.that(size).isGTE(0).orElseThrow("The shape cache size cannot be negative");
+
+        this.shapes.setSize(size);
+    }
+
+    /**
+     * @return The maximum number of cached shapes
+     */
+    public int getShapeCacheSize() {
+        return this.shapes.getSize();
+    }
+
+    /**
+     * @return The number of renderings with a cached shape
+     */
+    public long getShapeCacheHits() {
+        return this.shapes.getHits();
+    }
+
+    /**
+     * @return The number of renderings without cached shape (not counted if
+     *         the cache is disabled)
+     */
+    public long getShapeCacheMisses() {
+        return this.shapes.getMisses();
+    }
+
+    private void render(final CompiledScript script, final ScriptsContext context, final Appendable output) throws IOException {
+        ScriptsShape shape = this.shapes.get(script, context.getPresence());
+
+        if (script.getTemplate().isRemoveBlankLines()) {
+            // the line separators of the values are found while written (the
+            // values are not formatted in advance)
+            if (shape == null) {
+                shape = script.resolve(context.getPresence());
+            }
+            shape.renderWithoutBlankLines(output, context);
+        } else if (shape != null) {
+            shape.render(output, context);
+        } else {
+            script.render(output, context);
+        }
+        context.checkUnrendered();
+    }
+
+    private StringBuilder render(final CompiledScript script, final ScriptsContext context) {
+        // the generated class doesn't need the resolved shape
+        final ScriptsShape shape = script.isGenerated() ? null : this.shapes.get(script, context.getPresence());
+
+        final StringBuilder builder;
+        if (shape != null) {
+            builder = new StringBuilder(shape.getLength());
+            shape.render(builder, context);
+        } else {
+            builder = new StringBuilder(script.getLength());
+            script.render(builder, context);
+        }
+        context.checkUnrendered();
+
+        if (script.getTemplate().isRemoveBlankLines()) {
+            ScriptsBlankLines.remove(builder);
+        }
+        return builder;
+    }
+
+    private ScriptsStatement bind(final CompiledScript script, final ScriptsContext context, final boolean named) {
+        ScriptsShape shape = this.shapes.get(script, context.getPresence());
+        if (shape == null) {
+            shape = script.resolve(context.getPresence());
+        }
+        return shape.bind(script, context, named);
+    }
+
+    /**
+     * Publish a copy of the replacer (synchronized, so the copies are
+     * published in the order of the changes), with the loaded scripts
+     * compiled again if the template is changed (the rendering never reads
+     * the files)
+     */
+    private synchronized void publishReplacer() {
+        final ScriptsReplacer copy = this.replacer.copy();
+        for (;;) {
+            final ScriptsRegistry snapshot = this.registry.get();
+            final Map<ScriptsList<?>, ScriptsRegistry.Entry> compiled = this.recompile(snapshot.getEntries(), copy.getTemplate());
+            if (this.registry.compareAndSet(snapshot, snapshot.withReplacer(copy).withEntries(compiled))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Publish the entries compiled with the template (replace the previous
+     * entries, or only the expected ones if {@code previous} is defined). If
+     * the published template has been changed in the meantime, the entries
+     * are compiled again before, so a snapshot only holds scripts compiled
+     * with its template.
+     */
+    private void publish(final ScriptsTemplate template, final Map<ScriptsList<?>, ScriptsRegistry.Entry> previous,
+            final Map<ScriptsList<?>, ScriptsRegistry.Entry> entries) {
+        final Map<ScriptsList<?>, ScriptsRegistry.Entry> compiled = new HashMap<>(entries);
+        ScriptsTemplate current = template;
+        for (;;) {
+            final ScriptsRegistry snapshot = this.registry.get();
+            if (snapshot.getTemplate() != current) {
+                current = snapshot.getTemplate();
+                compiled.putAll(this.recompile(compiled, current));
+            }
+
+            ScriptsRegistry updated = snapshot;
+            if (previous == null) {
+                updated = updated.withEntries(compiled);
+            } else {
+                for (Map.Entry<ScriptsList<?>, ScriptsRegistry.Entry> entry : compiled.entrySet()) {
+                    updated = updated.withEntry(entry.getKey(), previous.get(entry.getKey()), entry.getValue());
+                }
+            }
+            if (this.registry.compareAndSet(snapshot, updated)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Compile again the loaded scripts compiled with another template, from
+     * the kept source or from the file (the source of files is not kept). A
+     * script which cannot be read or compiled anymore is loaded again on
+     * first use (as in lazy mode, the failure is thrown by the getter).
+     */
+    private Map<ScriptsList<?>, ScriptsRegistry.Entry> recompile(final Map<ScriptsList<?>, ScriptsRegistry.Entry> entries,
+            final ScriptsTemplate template) {
+        final Map<ScriptsList<?>, ScriptsRegistry.Entry> compiled = new HashMap<>();
+        for (Map.Entry<ScriptsList<?>, ScriptsRegistry.Entry> loaded : entries.entrySet()) {
+            final ScriptsList<?> path = loaded.getKey();
+            final ScriptsRegistry.Entry entry = loaded.getValue();
+            if (!entry.isLoaded() || entry.getScript().getTemplate() == template) {
+                continue;
+            }
+
+            try {
+                compiled.put(path, this.compile(path, entry, template));
+            } catch (IOException | RuntimeException e) {
+                // loaded again on first use, the failure is thrown by the getter
+                compiled.put(path, new ScriptsRegistry.Entry(() -> this.compile(path, entry, this.registry.get().getTemplate())));
+            }
+        }
+        return compiled;
+    }
+
+    /**
+     * Compile the loaded script with the template, from the kept source or
+     * from the file
+     */
+    private ScriptsRegistry.Entry compile(final ScriptsList<?> path, final ScriptsRegistry.Entry entry, final ScriptsTemplate template)
+            throws IOException {
+        if (entry.getSource() != null) {
+            final StringBuilder content = new StringBuilder(entry.getSource());
+            return new ScriptsRegistry.Entry(entry.getSource(), entry.getHash(), this.compile(content, template), null);
+        }
+        return this.load(path, entry.getFile(), template, null);
+    }
+
+    /**
+     * Get the script of the snapshot (compiled with the template of the same
+     * snapshot)
+     */
+    private CompiledScript getCompiled(final ScriptsRegistry snapshot, final ScriptsList<?> path) {
+        ScriptsRegistry.Entry entry = snapshot.get(path);
+        if (entry == null) {
+            return null;
+        } else if (!entry.isLoaded()) {
+            entry = this.load(path, entry);
+        }
+        return entry.getScript();
+    }
+
+    /**
+     * Load the registered script (lazy mode) and publish it
+     */
+    private ScriptsRegistry.Entry load(final ScriptsList<?> path, final ScriptsRegistry.Entry registered) {
+        try {
+            final ScriptsRegistry.Entry loaded = registered.load();
+            this.publish(loaded.getScript().getTemplate(), Collections.singletonMap(path, registered),
+                    Collections.singletonMap(path, loaded));
+            return loaded;
+        } catch (IOException | RuntimeException e) {
+            // the next call will try again
+            this.registry.updateAndGet(registry -> registry.withEntry(path, registered, registered.retry()));
+            if (e instanceof IOException) {
+                throw new UncheckedIOException((IOException) e);
+            }
+            throw (RuntimeException) e;
+        }
+    }
+
+    /**
+     * Load and compile the scripts with the executor, the failures are
+     * collected (the loaded scripts are returned)
+     */
+    private Map<ScriptsList<?>, ScriptsRegistry.Entry> loadAll(final Executor executor, final ClassLoader loader, final String basePath,
+            final ScriptsTemplate template, final ScriptsArchive archive, final Map<ScriptsList<?>, Exception> failures,
+            final ScriptsList<?>... scriptsList) throws IOException {
+        final Map<ScriptsList<?>, FutureTask<ScriptsRegistry.Entry>> tasks = new LinkedHashMap<>();
+        for (ScriptsList<?> value : scriptsList) {
+            if (StringUtils.isNotBlank(value.getName()) && !tasks.containsKey(value)) {
+                final FutureTask<ScriptsRegistry.Entry> task = new FutureTask<>(() -> this.load(loader, basePath, value, template, archive));
+                tasks.put(value, task);
+                executor.execute(task);
+            }
+        }
+
+        final Map<ScriptsList<?>, ScriptsRegistry.Entry> entries = new HashMap<>();
+        for (Map.Entry<ScriptsList<?>, FutureTask<ScriptsRegistry.Entry>> task : tasks.entrySet()) {
+            try {
+                entries.put(task.getKey(), task.getValue().get());
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof Error) {
+                    throw (Error) e.getCause();
+                }
+                failures.put(task.getKey(), (Exception) e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while loading the scripts");
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Read the archive of precompiled scripts from classpath if
+     * {@code loader} is not {@code null}, otherwise from system folder (only
+     * used with this template)
+     */
+    private ScriptsArchive readArchive(final ClassLoader loader, final String basePath, final ScriptsTemplate template)
+            throws IOException {
+        final String path = new StringBuilder(basePath).append(ScriptsArchive.FILE_NAME).toString();
+        if (loader != null) {
+            try (final InputStream is = loader.getResourceAsStream(path)) {
+                return is != null ? ScriptsArchive.read(is, template) : null;
+            }
+        }
+
+        final Path file = Paths.get(path);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (final InputStream is = Files.newInputStream(file)) {
+            return ScriptsArchive.read(is, template);
+        }
+    }
+
+    /**
+     * Load and compile the script from classpath if {@code loader} is not
+     * {@code null}, otherwise from system folder (the compiled script is taken
+     * from the archive if up to date)
+     */
+    private ScriptsRegistry.Entry load(final ClassLoader loader, final String basePath, final ScriptsList<?> value,
+            final ScriptsTemplate template, final ScriptsArchive archive) throws IOException {
+        final String path = new StringBuilder(basePath).append(value.getName()).toString();
+        if (loader != null) {
+            try (final InputStream is = loader.getResourceAsStream(path)) {
+                final StringBuilder content = FileUtils.getFileContent(is, value.getCharset());
+                final String source = content.toString();
+                final long hash = ScriptsSource.hash(content);
+
+                return new ScriptsRegistry.Entry(source, hash, this.compile(value, content, hash, template, archive), null);
+            }
+        }
+        return this.load(value, Paths.get(path).toAbsolutePath().normalize(), template, archive);
+    }
+
+    /**
+     * Load and compile the script file, the file is read (or mapped in memory,
+     * if large) and decoded directly into the builder given to the compiler
+     * (the source is not kept, only its hash)
+     */
+    private ScriptsRegistry.Entry load(final ScriptsList<?> value, final Path file, final ScriptsTemplate template,
+            final ScriptsArchive archive) throws IOException {
+        final StringBuilder content = ScriptsSource.read(file, value.getCharset());
+        final long hash = ScriptsSource.hash(content);
+
+        return new ScriptsRegistry.Entry(null, hash, this.compile(value, content, hash, template, archive), file);
+    }
+
+    /**
+     * Get the precompiled script from the archive (if defined and up to
+     * date), otherwise compile the content
+     */
+    private CompiledScript compile(final ScriptsList<?> value, final StringBuilder content, final long hash,
+            final ScriptsTemplate template, final ScriptsArchive archive) {
+        if (archive != null) {
+            final CompiledScript script = archive.get(value.getName(), hash, template);
+            if (script != null) {
+                return this.generate(script);
+            }
+        }
+        return this.compile(content, template);
+    }
+
+    /**
+     * Compile the content, the comments are removed in place
+     */
+    private CompiledScript compile(final StringBuilder content, final ScriptsTemplate template) {
+        if (template.isRemoveComments()) {
+            ScriptsComments.remove(content, template);
+        }
+
+        return this.generate(new ScriptsCompiler(template).compile(content));
+    }
+
+    /**
+     * Generate the rendering class of the compiled script if the code
+     * generation is enabled
+     */
+    private CompiledScript generate(final CompiledScript script) {
+        if (this.registry.get().isCodeGeneration() && isCodeGenerationAvailable()) {
+            return ScriptsClassGenerator.generate(script);
+        }
+        return script;
+    }
+}
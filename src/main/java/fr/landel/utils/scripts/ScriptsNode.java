@@ -0,0 +1,348 @@
+/*-
+ * #%L
+ * utils-scripts
+ * %%
+ * Copyright (C) 2016 - 2018 Gilles Landel
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package fr.landel.utils.scripts;
+
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Node of a compiled script (immutable, so can be shared between threads)
+ *
+ * @since Oct 17, 2026
+ * @author Gilles
+ *
+ */
+abstract class ScriptsNode {
+
+    /**
+     * Empty node (unknown variable or expression without operator)
+     */
+    static final ScriptsNode EMPTY = new Sequence(new ScriptsNode[0]);
+
+    private static final byte TYPE_TEXT = 1;
+    private static final byte TYPE_VARIABLE = 2;
+    private static final byte TYPE_CONDITION = 3;
+    private static final byte TYPE_SEQUENCE = 4;
+
+    /**
+     * Render the node
+     * 
+     * @param output
+     *            the output (texts and values)
+     * @param context
+     *            the rendering context (presence)
+     */
+    abstract void render(ScriptsOutput output, ScriptsContext context);
+
+    /**
+     * @return the length of the text parts
+     */
+    abstract int length();
+
+    /**
+     * Write the node (binary archive, see {@link ScriptsArchive})
+     * 
+     * @param output
+     *            the output
+     * @throws IOException
+     *             on writing failures
+     */
+    abstract void write(DataOutput output) throws IOException;
+
+    /**
+     * Generate the Java code which renders the node (see
+     * {@link ScriptsRenderersProcessor})
+     * 
+     * @param code
+     *            the code
+     */
+    abstract void generate(ScriptsCode code);
+
+    /**
+     * Read a node written by {@link #write(DataOutput)}
+     * 
+     * @param input
+     *            the input
+     * @param template
+     *            the template (operators of expressions)
+     * @param slots
+     *            the slots of the compiled script
+     * @return the node
+     * @throws IOException
+     *             on reading failures or if the data are corrupted
+     */
+    static ScriptsNode read(final DataInputStream input, final ScriptsTemplate template, final Map<String, Integer> slots)
+            throws IOException {
+        final byte type = input.readByte();
+        switch (type) {
+        case TYPE_TEXT:
+            return new Text(ScriptsArchive.readString(input));
+        case TYPE_VARIABLE:
+            final String name = ScriptsArchive.readString(input);
+            return new Variable(name, ScriptsCompiler.slot(slots, name));
+        case TYPE_CONDITION:
+            // the expressions are short, they are parsed again
+            final ScriptsExpression expression = new ScriptsExpression(template, ScriptsArchive.readString(input), slots);
+            final ScriptsNode then = input.readBoolean() ? read(input, template, slots) : null;
+            final ScriptsNode otherwise = input.readBoolean() ? read(input, template, slots) : null;
+            return new Condition(expression, then, otherwise);
+        case TYPE_SEQUENCE:
+            final ScriptsNode[] nodes = new ScriptsNode[ScriptsArchive.readLength(input)];
+            if (nodes.length == 0) {
+                return EMPTY;
+            }
+            for (int i = 0; i < nodes.length; ++i) {
+                nodes[i] = read(input, template, slots);
+            }
+            return new Sequence(nodes);
+        default:
+            throw new IOException("Unknown node type: " + type);
+        }
+    }
+
+    /**
+     * Literal text
+     */
+    static final class Text extends ScriptsNode {
+
+        private final String text;
+
+        /**
+         * Constructor
+         * 
+         * @param text
+         *            the literal text
+         */
+        Text(final String text) {
+            this.text = text;
+        }
+
+        /**
+         * @return the text
+         */
+        String getText() {
+            return this.text;
+        }
+
+        @Override
+        void render(final ScriptsOutput output, final ScriptsContext context) {
+            output.appendText(this.text);
+        }
+
+        @Override
+        int length() {
+            return this.text.length();
+        }
+
+        @Override
+        void write(final DataOutput output) throws IOException {
+            output.writeByte(TYPE_TEXT);
+            ScriptsArchive.writeString(output, this.text);
+        }
+
+        @Override
+        void generate(final ScriptsCode code) {
+            code.text(this.text);
+        }
+    }
+
+    /**
+     * Variable, replaced by its value or by an empty string if unknown
+     */
+    static final class Variable extends ScriptsNode {
+
+        private final String name;
+        private final int slot;
+
+        /**
+         * Constructor
+         * 
+         * @param name
+         *            the variable name (trimmed)
+         * @param slot
+         *            the variable slot
+         */
+        Variable(final String name, final int slot) {
+            this.name = name;
+            this.slot = slot;
+        }
+
+        /**
+         * @return the name
+         */
+        String getName() {
+            return this.name;
+        }
+
+        @Override
+        void render(final ScriptsOutput output, final ScriptsContext context) {
+            if (context.isPresent(this.slot)) {
+                output.appendValue(this.slot);
+            }
+        }
+
+        @Override
+        int length() {
+            return 0;
+        }
+
+        @Override
+        void write(final DataOutput output) throws IOException {
+            output.writeByte(TYPE_VARIABLE);
+            ScriptsArchive.writeString(output, this.name);
+        }
+
+        @Override
+        void generate(final ScriptsCode code) {
+            code.value(this.slot);
+        }
+    }
+
+    /**
+     * Condition with its THEN and ELSE branches
+     */
+    static final class Condition extends ScriptsNode {
+
+        private final ScriptsExpression expression;
+        private final ScriptsNode then;
+        private final ScriptsNode otherwise;
+        private final int length;
+
+        /**
+         * Constructor
+         * 
+         * @param expression
+         *            the expression
+         * @param then
+         *            the THEN branch (may be {@code null}, in this case the
+         *            values of the found variables are rendered)
+         * @param otherwise
+         *            the ELSE branch (may be {@code null})
+         */
+        Condition(final ScriptsExpression expression, final ScriptsNode then, final ScriptsNode otherwise) {
+            this.expression = expression;
+            this.then = then;
+            this.otherwise = otherwise;
+            this.length = Math.max(then != null ? then.length() : 0, otherwise != null ? otherwise.length() : 0);
+        }
+
+        @Override
+        void render(final ScriptsOutput output, final ScriptsContext context) {
+            if (this.expression.evaluate(context)) {
+                if (this.then != null) {
+                    this.then.render(output, context);
+                } else {
+                    this.expression.renderVariables(output, context);
+                }
+            } else if (this.otherwise != null) {
+                this.otherwise.render(output, context);
+            }
+        }
+
+        @Override
+        int length() {
+            return this.length;
+        }
+
+        @Override
+        void write(final DataOutput output) throws IOException {
+            output.writeByte(TYPE_CONDITION);
+            ScriptsArchive.writeString(output, this.expression.getExpression());
+            output.writeBoolean(this.then != null);
+            if (this.then != null) {
+                this.then.write(output);
+            }
+            output.writeBoolean(this.otherwise != null);
+            if (this.otherwise != null) {
+                this.otherwise.write(output);
+            }
+        }
+
+        @Override
+        void generate(final ScriptsCode code) {
+            code.open(this.expression.generate(code));
+            if (this.then != null) {
+                this.then.generate(code);
+            } else {
+                this.expression.generateVariables(code);
+            }
+            if (this.otherwise != null) {
+                code.otherwise();
+                this.otherwise.generate(code);
+            }
+            code.close();
+        }
+    }
+
+    /**
+     * Sequence of nodes
+     */
+    static final class Sequence extends ScriptsNode {
+
+        private final ScriptsNode[] nodes;
+        private final int length;
+
+        /**
+         * Constructor
+         * 
+         * @param nodes
+         *            the nodes
+         */
+        Sequence(final ScriptsNode[] nodes) {
+            this.nodes = nodes;
+
+            int len = 0;
+            for (ScriptsNode node : nodes) {
+                len += node.length();
+            }
+            this.length = len;
+        }
+
+        @Override
+        void render(final ScriptsOutput output, final ScriptsContext context) {
+            for (ScriptsNode node : this.nodes) {
+                node.render(output, context);
+            }
+        }
+
+        @Override
+        int length() {
+            return this.length;
+        }
+
+        @Override
+        void write(final DataOutput output) throws IOException {
+            output.writeByte(TYPE_SEQUENCE);
+            output.writeInt(this.nodes.length);
+            for (ScriptsNode node : this.nodes) {
+                node.write(output);
+            }
+        }
+
+        @Override
+        void generate(final ScriptsCode code) {
+            for (ScriptsNode node : this.nodes) {
+                node.generate(code);
+            }
+        }
+    }
+}
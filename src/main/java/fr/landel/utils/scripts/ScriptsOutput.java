@@ -0,0 +1,99 @@
+/*-
+ * #%L
+ * utils-scripts
+ * %%
+ * Copyright (C) 2016 - 2018 Gilles Landel
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package fr.landel.utils.scripts;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Output of the rendering: literal texts and values (identified by their
+ * slot). The values are written directly or recorded as holes to be filled
+ * later (see {@link ScriptsShape}).
+ *
+ * @since Oct 17, 2026
+ * @author Gilles
+ *
+ */
+abstract class ScriptsOutput {
+
+    /**
+     * Append a literal text
+     * 
+     * @param text
+     *            the text
+     */
+    abstract void appendText(String text);
+
+    /**
+     * Append the value of a present variable
+     * 
+     * @param slot
+     *            the variable slot
+     */
+    abstract void appendValue(int slot);
+
+    /**
+     * Output into an appendable, values are read from the context (writing
+     * failures are wrapped into {@link UncheckedIOException})
+     */
+    static final class Chars extends ScriptsOutput {
+
+        private final Appendable output;
+        private final StringBuilder builder;
+        private final ScriptsContext context;
+
+        /**
+         * Constructor
+         * 
+         * @param output
+         *            the appendable (string builder, writer...)
+         * @param context
+         *            the rendering context (checked values)
+         */
+        Chars(final Appendable output, final ScriptsContext context) {
+            this.output = output;
+            this.builder = output instanceof StringBuilder ? (StringBuilder) output : null;
+            this.context = context;
+        }
+
+        @Override
+        void appendText(final String text) {
+            try {
+                this.output.append(text);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        void appendValue(final int slot) {
+            if (this.builder != null) {
+                // formatted straight into the builder
+                this.context.appendValue(slot, this.builder);
+            } else {
+                try {
+                    this.context.appendValue(slot, this.output);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,276 @@
+/*-
+ * #%L
+ * utils-scripts
+ * %%
+ * Copyright (C) 2016 - 2018 Gilles Landel
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package fr.landel.utils.scripts;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Compiled predicate of a condition expression (immutable), evaluated against
+ * the presence of each variable slot without any string allocation.
+ *
+ * @since Oct 17, 2026
+ * @author Gilles
+ *
+ */
+abstract class ScriptsPredicate {
+
+    /**
+     * Always true (literal "true")
+     */
+    static final ScriptsPredicate TRUE = new Constant(true);
+
+    /**
+     * Always false (literal "false")
+     */
+    static final ScriptsPredicate FALSE = new Constant(false);
+
+    /**
+     * Test the predicate
+     * 
+     * @param presence
+     *            the presence of each variable (indexed by slot)
+     * @return the result
+     */
+    abstract boolean test(BitSet presence);
+
+    /**
+     * Generate the Java code of the predicate (see
+     * {@link ScriptsRenderersProcessor})
+     * 
+     * @param expression
+     *            the code where the boolean expression is appended
+     * @param code
+     *            the generated code (access to the values)
+     */
+    abstract void generate(StringBuilder expression, ScriptsCode code);
+
+    /**
+     * Combine the accumulated predicate with the next operand, as the legacy
+     * expressions do from left to right (the constants and the repeated
+     * operands are simplified, the predicates have no side effect)
+     * 
+     * @param predicate
+     *            the accumulated predicate
+     * @param or
+     *            true for the OR operator, false for AND
+     * @param operand
+     *            the operand
+     * @return the combined predicate
+     */
+    static ScriptsPredicate combine(final ScriptsPredicate predicate, final boolean or, final ScriptsPredicate operand) {
+        final ScriptsPredicate absorbing = or ? TRUE : FALSE;
+        final ScriptsPredicate neutral = or ? FALSE : TRUE;
+        if (predicate == absorbing || operand == absorbing) {
+            return absorbing;
+        } else if (predicate == neutral) {
+            return operand;
+        } else if (operand == neutral || operand == predicate) {
+            return predicate;
+        }
+
+        final ScriptsPredicate[] operands;
+        if (or && predicate instanceof Or) {
+            operands = ((Or) predicate).predicates;
+        } else if (!or && predicate instanceof And) {
+            operands = ((And) predicate).predicates;
+        } else {
+            operands = new ScriptsPredicate[] {predicate};
+        }
+        for (ScriptsPredicate current : operands) {
+            if (current == operand) {
+                return predicate;
+            }
+        }
+
+        final ScriptsPredicate[] predicates = Arrays.copyOf(operands, operands.length + 1);
+        predicates[operands.length] = operand;
+        return or ? new Or(predicates) : new And(predicates);
+    }
+
+    /**
+     * Constant
+     */
+    static final class Constant extends ScriptsPredicate {
+
+        private final boolean value;
+
+        private Constant(final boolean value) {
+            this.value = value;
+        }
+
+        @Override
+        boolean test(final BitSet presence) {
+            return this.value;
+        }
+
+        @Override
+        void generate(final StringBuilder expression, final ScriptsCode code) {
+            expression.append(this.value);
+        }
+    }
+
+    /**
+     * Variable, true if the key is available
+     */
+    static final class Key extends ScriptsPredicate {
+
+        private final String name;
+        private final int slot;
+
+        /**
+         * Constructor
+         * 
+         * @param name
+         *            the variable name (trimmed)
+         * @param slot
+         *            the variable slot
+         */
+        Key(final String name, final int slot) {
+            this.name = name;
+            this.slot = slot;
+        }
+
+        /**
+         * @return the name
+         */
+        String getName() {
+            return this.name;
+        }
+
+        @Override
+        boolean test(final BitSet presence) {
+            return presence.get(this.slot);
+        }
+
+        @Override
+        void generate(final StringBuilder expression, final ScriptsCode code) {
+            expression.append(code.get(this.slot)).append(" != null");
+        }
+    }
+
+    /**
+     * NOT operator
+     */
+    static final class Not extends ScriptsPredicate {
+
+        private final ScriptsPredicate predicate;
+
+        /**
+         * Constructor
+         * 
+         * @param predicate
+         *            the negated predicate
+         */
+        Not(final ScriptsPredicate predicate) {
+            this.predicate = predicate;
+        }
+
+        @Override
+        boolean test(final BitSet presence) {
+            return !this.predicate.test(presence);
+        }
+
+        @Override
+        void generate(final StringBuilder expression, final ScriptsCode code) {
+            expression.append("!(");
+            this.predicate.generate(expression, code);
+            expression.append(')');
+        }
+    }
+
+    /**
+     * AND operator (stops on the first false operand)
+     */
+    static final class And extends ScriptsPredicate {
+
+        private final ScriptsPredicate[] predicates;
+
+        /**
+         * Constructor
+         * 
+         * @param predicates
+         *            the operands
+         */
+        And(final ScriptsPredicate[] predicates) {
+            this.predicates = predicates;
+        }
+
+        @Override
+        boolean test(final BitSet presence) {
+            for (ScriptsPredicate predicate : this.predicates) {
+                if (!predicate.test(presence)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        void generate(final StringBuilder expression, final ScriptsCode code) {
+            join(expression, code, this.predicates, " && ");
+        }
+    }
+
+    /**
+     * OR operator (stops on the first true operand)
+     */
+    static final class Or extends ScriptsPredicate {
+
+        private final ScriptsPredicate[] predicates;
+
+        /**
+         * Constructor
+         * 
+         * @param predicates
+         *            the operands
+         */
+        Or(final ScriptsPredicate[] predicates) {
+            this.predicates = predicates;
+        }
+
+        @Override
+        boolean test(final BitSet presence) {
+            for (ScriptsPredicate predicate : this.predicates) {
+                if (predicate.test(presence)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        void generate(final StringBuilder expression, final ScriptsCode code) {
+            join(expression, code, this.predicates, " || ");
+        }
+    }
+
+    private static void join(final StringBuilder expression, final ScriptsCode code, final ScriptsPredicate[] predicates,
+            final String operator) {
+        expression.append('(');
+        for (int i = 0; i < predicates.length; ++i) {
+            if (i > 0) {
+                expression.append(operator);
+            }
+            predicates[i].generate(expression, code);
+        }
+        expression.append(')');
+    }
+}
@@ -0,0 +1,334 @@
+/*-
+ * #%L
+ * utils-scripts
+ * %%
+ * Copyright (C) 2016 - 2018 Gilles Landel
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package fr.landel.utils.scripts;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Immutable snapshot of the loader registry (base path, loading mode,
+ * replacer, sources and compiled scripts). Each modification builds a new
+ * snapshot, which is published at once by the loader, so readers never see a
+ * partially loaded registry. The replacer of the snapshot is a copy of the
+ * replacer of the loader (never modified), so a reader renders the scripts of
+ * a snapshot with the template of the same snapshot.
+ *
+ * @since Oct 17, 2026
+ * @author Gilles
+ *
+ */
+final class ScriptsRegistry {
+
+    /**
+     * Empty registry
+     */
+    static final ScriptsRegistry EMPTY = new ScriptsRegistry(null, null, false, false, null,
+            Collections.<ScriptsList<?>, Entry> emptyMap());
+
+    private final String path;
+    private final Executor executor;
+    private final boolean lazy;
+    private final boolean codeGeneration;
+    private final ScriptsReplacer replacer;
+    private final Map<ScriptsList<?>, Entry> entries;
+
+    private ScriptsRegistry(final String path, final Executor executor, final boolean lazy, final boolean codeGeneration,
+            final ScriptsReplacer replacer, final Map<ScriptsList<?>, Entry> entries) {
+        this.path = path;
+        this.executor = executor;
+        this.lazy = lazy;
+        this.codeGeneration = codeGeneration;
+        this.replacer = replacer;
+        this.entries = entries;
+    }
+
+    /**
+     * @return the base path
+     */
+    String getPath() {
+        return this.path;
+    }
+
+    /**
+     * @return the executor used to load the scripts in parallel or
+     *         {@code null}
+     */
+    Executor getExecutor() {
+        return this.executor;
+    }
+
+    /**
+     * @return true, if the scripts are loaded on first use
+     */
+    boolean isLazy() {
+        return this.lazy;
+    }
+
+    /**
+     * @return true, if a class is generated for the rendering of each
+     *         compiled script
+     */
+    boolean isCodeGeneration() {
+        return this.codeGeneration;
+    }
+
+    /**
+     * @return the replacer (template and formatters) used to render the
+     *         scripts, not modified
+     */
+    ScriptsReplacer getReplacer() {
+        return this.replacer;
+    }
+
+    /**
+     * @return the template of the replacer
+     */
+    ScriptsTemplate getTemplate() {
+        return this.replacer.getTemplate();
+    }
+
+    /**
+     * @param key
+     *            the script identifier
+     * @return the entry or {@code null} if not loaded
+     */
+    Entry get(final ScriptsList<?> key) {
+        return this.entries.get(key);
+    }
+
+    /**
+     * @param path
+     *            the base path
+     * @return a new snapshot with the path
+     */
+    ScriptsRegistry withPath(final String path) {
+        return new ScriptsRegistry(path, this.executor, this.lazy, this.codeGeneration, this.replacer, this.entries);
+    }
+
+    /**
+     * @param executor
+     *            the executor used to load the scripts in parallel (may be
+     *            {@code null})
+     * @return a new snapshot with the executor
+     */
+    ScriptsRegistry withExecutor(final Executor executor) {
+        return new ScriptsRegistry(this.path, executor, this.lazy, this.codeGeneration, this.replacer, this.entries);
+    }
+
+    /**
+     * @param lazy
+     *            true, to load the scripts on first use
+     * @return a new snapshot with the loading mode
+     */
+    ScriptsRegistry withLazy(final boolean lazy) {
+        return new ScriptsRegistry(this.path, this.executor, lazy, this.codeGeneration, this.replacer, this.entries);
+    }
+
+    /**
+     * @param codeGeneration
+     *            true, to generate a class for the rendering of each
+     *            compiled script
+     * @return a new snapshot with the code generation mode
+     */
+    ScriptsRegistry withCodeGeneration(final boolean codeGeneration) {
+        return new ScriptsRegistry(this.path, this.executor, this.lazy, codeGeneration, this.replacer, this.entries);
+    }
+
+    /**
+     * @param replacer
+     *            the replacer used to render the scripts (a copy, not
+     *            modified after the publication)
+     * @return a new snapshot with the replacer (the scripts compiled with
+     *         another template have to be compiled again, see
+     *         {@link ScriptsLoader})
+     */
+    ScriptsRegistry withReplacer(final ScriptsReplacer replacer) {
+        return new ScriptsRegistry(this.path, this.executor, this.lazy, this.codeGeneration, replacer, this.entries);
+    }
+
+    /**
+     * @param entries
+     *            the loaded entries (replace the previous ones with the same
+     *            identifier)
+     * @return a new snapshot with the entries
+     */
+    ScriptsRegistry withEntries(final Map<ScriptsList<?>, Entry> entries) {
+        final Map<ScriptsList<?>, Entry> map = new HashMap<>(this.entries);
+        map.putAll(entries);
+        return new ScriptsRegistry(this.path, this.executor, this.lazy, this.codeGeneration, this.replacer,
+                Collections.unmodifiableMap(map));
+    }
+
+    /**
+     * Replace the entry, only if the current one is still the previous entry
+     * (a concurrent load wins)
+     * 
+     * @param key
+     *            the script identifier
+     * @param previous
+     *            the expected current entry
+     * @param entry
+     *            the new entry
+     * @return a new snapshot with the entry or this one if the current entry
+     *         has changed
+     */
+    ScriptsRegistry withEntry(final ScriptsList<?> key, final Entry previous, final Entry entry) {
+        if (this.entries.get(key) != previous) {
+            return this;
+        }
+        return this.withEntries(Collections.<ScriptsList<?>, Entry> singletonMap(key, entry));
+    }
+
+    /**
+     * @return the loaded entries (unmodifiable)
+     */
+    Map<ScriptsList<?>, Entry> getEntries() {
+        return this.entries;
+    }
+
+    /**
+     * Loaded script (source and compiled script), or registered script to
+     * load on first use (lazy mode)
+     */
+    static final class Entry {
+
+        private final String source;
+        private final long hash;
+        private final CompiledScript script;
+        private final Path file;
+        private final Callable<Entry> loading;
+        private final FutureTask<Entry> task;
+
+        /**
+         * Constructor
+         * 
+         * @param source
+         *            the script source, {@code null} if loaded from a file
+         *            (read again if the template is changed)
+         * @param hash
+         *            the hash of the source
+         * @param script
+         *            the compiled script
+         * @param file
+         *            the absolute file path, {@code null} if loaded from
+         *            classpath
+         */
+        Entry(final String source, final long hash, final CompiledScript script, final Path file) {
+            this.source = source;
+            this.hash = hash;
+            this.script = script;
+            this.file = file;
+            this.loading = null;
+            this.task = null;
+        }
+
+        /**
+         * Constructor of a script to load on first use
+         * 
+         * @param loading
+         *            the loading of the script
+         */
+        Entry(final Callable<Entry> loading) {
+            this.source = null;
+            this.hash = 0;
+            this.script = null;
+            this.file = null;
+            this.loading = loading;
+            this.task = new FutureTask<>(loading);
+        }
+
+        /**
+         * @return true, if the script is loaded (false in lazy mode until the
+         *         first use)
+         */
+        boolean isLoaded() {
+            return this.task == null;
+        }
+
+        /**
+         * Load the script, only the first caller loads it, the others wait
+         * for the result
+         * 
+         * @return the loaded entry
+         * @throws IOException
+         *             on loading failures
+         */
+        Entry load() throws IOException {
+            this.task.run();
+            try {
+                return this.task.get();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                } else if (e.getCause() instanceof Error) {
+                    throw (Error) e.getCause();
+                }
+                throw (RuntimeException) e.getCause();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while loading the script");
+            }
+        }
+
+        /**
+         * @return a new entry to load the script again (after a failure)
+         */
+        Entry retry() {
+            return new Entry(this.loading);
+        }
+
+        /**
+         * @return the script source, {@code null} if loaded from a file
+         */
+        String getSource() {
+            return this.source;
+        }
+
+        /**
+         * @return the hash of the source
+         */
+        long getHash() {
+            return this.hash;
+        }
+
+        /**
+         * @return the compiled script
+         */
+        CompiledScript getScript() {
+            return this.script;
+        }
+
+        /**
+         * @return the absolute file path, {@code null} if loaded from
+         *         classpath
+         */
+        Path getFile() {
+            return this.file;
+        }
+    }
+}
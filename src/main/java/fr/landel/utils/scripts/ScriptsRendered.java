@@ -0,0 +1,75 @@
+/*-
+ * #%L
+ * utils-scripts
+ * %%
+ * Copyright (C) 2016 - 2018 Gilles Landel
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package fr.landel.utils.scripts;
+
+/**
+ * Rendered script and the fingerprint of its shape, computed while rendering
+ * (see {@link ScriptsLoader#getRendered(ScriptsList, java.util.Map)}), so the
+ * caches and the metrics can be keyed by shape without hashing the output.
+ *
+ * @param <A>
+ *            the type of output
+ *
+ * @since Oct 17, 2026
+ * @author Gilles
+ *
+ */
+public final class ScriptsRendered<A extends Appendable> {
+
+    private final A output;
+    private final long fingerprint;
+
+    /**
+     * Constructor
+     * 
+     * @param output
+     *            the output
+     * @param fingerprint
+     *            the fingerprint of the rendered shape
+     */
+    ScriptsRendered(final A output, final long fingerprint) {
+        this.output = output;
+        this.fingerprint = fingerprint;
+    }
+
+    /**
+     * @return the output (the string builder or the given appendable)
+     */
+    public A getOutput() {
+        return this.output;
+    }
+
+    /**
+     * Get the fingerprint of the rendered shape (script, template
+     * configuration and taken branches, see
+     * {@link CompiledScript#getFingerprint(java.util.BitSet)}), stable across
+     * JVM restarts for the same content
+     * 
+     * @return the fingerprint
+     */
+    public long getFingerprint() {
+        return this.fingerprint;
+    }
+
+    @Override
+    public String toString() {
+        return this.output.toString();
+    }
+}
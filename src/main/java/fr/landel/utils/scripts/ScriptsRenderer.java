@@ -0,0 +1,55 @@
+/*-
+ * #%L
+ * utils-scripts
+ * %%
+ * Copyright (C) 2016 - 2018 Gilles Landel
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package fr.landel.utils.scripts;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Constant of a {@link ScriptsList} enumeration annotated with
+ * {@link ScriptsRenderers} for which a renderer is generated. The script name
+ * is repeated, because the arguments of the enumeration constructor are not
+ * available to annotation processors.
+ *
+ * @since Oct 17, 2026
+ * @author Gilles
+ *
+ */
+@Documented
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.FIELD)
+public @interface ScriptsRenderer {
+
+    /**
+     * @return the script name (relative to the path of
+     *         {@link ScriptsRenderers})
+     */
+    String value();
+
+    /**
+     * @return the template if different from the one of
+     *         {@link ScriptsRenderers} (SQL, JSON or the name of a template
+     *         class)
+     */
+    String template() default "";
+}
@@ -0,0 +1,79 @@
+/*-
+ * #%L
+ * utils-scripts
+ * %%
+ * Copyright (C) 2016 - 2018 Gilles Landel
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package fr.landel.utils.scripts;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Generate at compile time a renderer for each constant of the
+ * {@link ScriptsList} enumeration annotated with {@link ScriptsRenderer} (see
+ * {@link AbstractScriptsRenderer}). The renderer of the constant
+ * {@code PATIENTS_SEARCH} of {@code EnumScripts} is named
+ * {@code EnumScriptsPatientsSearchRenderer} (in the same package).
+ *
+ * <p>
+ * The scripts are read from the class output directory, so they have to be
+ * resources of the compiled module (copied before the compilation, like with
+ * Maven). The processor {@link ScriptsRenderersProcessor} is registered as
+ * service.
+ * </p>
+ *
+ * <pre>
+ * &#64;ScriptsRenderers(path = "scripts/")
+ * public enum EnumScripts implements ScriptsList&lt;EnumScripts&gt; {
+ *
+ *     &#64;ScriptsRenderer("patientsSearch.sql")
+ *     PATIENTS_SEARCH("patientsSearch.sql");
+ *     ...
+ * }
+ *
+ * String query = new EnumScriptsPatientsSearchRenderer().unit(12).render().toString();
+ * </pre>
+ *
+ * @since Oct 17, 2026
+ * @author Gilles
+ *
+ */
+@Documented
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface ScriptsRenderers {
+
+    /**
+     * @return the base path of the scripts in the resources (like the
+     *         loader, default: scripts/)
+     */
+    String path() default "scripts/";
+
+    /**
+     * @return the template: SQL, JSON or the name of a template class with a
+     *         default constructor (has to be already compiled, default: SQL)
+     */
+    String template() default "SQL";
+
+    /**
+     * @return the charset of the scripts (default: UTF-8)
+     */
+    String charset() default "UTF-8";
+}
@@ -0,0 +1,290 @@
+/*-
+ * #%L
+ * utils-scripts
+ * %%
+ * Copyright (C) 2016 - 2018 Gilles Landel
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package fr.landel.utils.scripts;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+import fr.landel.utils.io.FileUtils;
+
+/**
+ * Annotation processor which generates the renderers of the enumerations
+ * annotated with {@link ScriptsRenderers} (see
+ * {@link AbstractScriptsRenderer}). Each script is compiled like by the
+ * loader, then the tree of the compiled script is converted into Java code:
+ * texts are appended as literals, conditions are converted into boolean
+ * expressions on the presence of the variables.
+ *
+ * <p>
+ * A variable rendered somewhere in the script gets a setter with an
+ * {@link Object} value, a variable only used in conditions gets a setter
+ * with a {@code boolean} presence (flag). The setter name is the variable
+ * name in camel case. The interpreted legacy expressions (negated block or
+ * block followed by a text) are not supported.
+ * </p>
+ *
+ * @since Oct 17, 2026
+ * @author Gilles
+ *
+ */
+@SupportedAnnotationTypes("fr.landel.utils.scripts.ScriptsRenderers")
+public class ScriptsRenderersProcessor extends AbstractProcessor {
+
+    private static final String SUFFIX = "Renderer";
+
+    private static final String TEMPLATE_SQL = "SQL";
+    private static final String TEMPLATE_JSON = "JSON";
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(final Set<? extends TypeElement> annotations, final RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(ScriptsRenderers.class)) {
+            if (element.getKind() != ElementKind.ENUM) {
+                this.error(element, "@ScriptsRenderers can only be used on an enumeration of scripts");
+                continue;
+            }
+
+            final TypeElement type = (TypeElement) element;
+            final ScriptsRenderers renderers = type.getAnnotation(ScriptsRenderers.class);
+            for (Element constant : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+                final ScriptsRenderer renderer = constant.getAnnotation(ScriptsRenderer.class);
+                if (constant.getKind() == ElementKind.ENUM_CONSTANT && renderer != null) {
+                    this.generate(type, constant, renderers, renderer);
+                }
+            }
+        }
+        return true;
+    }
+
+    private void generate(final TypeElement type, final Element constant, final ScriptsRenderers renderers,
+            final ScriptsRenderer renderer) {
+        final String templateName = renderer.template().isEmpty() ? renderers.template() : renderer.template();
+        final ScriptsTemplate template = this.getTemplate(constant, templateName);
+        if (template == null) {
+            return;
+        }
+
+        final String path = new StringBuilder(renderers.path()).append(renderer.value()).toString();
+        final CompiledScript script;
+        try {
+            final FileObject file = this.processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", path);
+            final StringBuilder content;
+            try (InputStream is = file.openInputStream()) {
+                content = FileUtils.getFileContent(is, Charset.forName(renderers.charset()));
+            }
+            if (template.isRemoveComments()) {
+                ScriptsComments.remove(content, template);
+            }
+            script = new ScriptsCompiler(template).compile(content);
+        } catch (IOException e) {
+            this.error(constant, "Cannot read the script " + path + ": " + e.getMessage());
+            return;
+        } catch (IllegalArgumentException e) {
+            this.error(constant, "Invalid script " + path + ": " + e.getMessage());
+            return;
+        }
+
+        final String packageName = this.processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        final String className = type.getSimpleName() + camelCase(constant.getSimpleName().toString(), true) + SUFFIX;
+
+        final String source = this.generate(constant, script, templateName, packageName, className,
+                "{@link " + type.getQualifiedName() + "#" + constant.getSimpleName() + "} (" + javadoc(path) + ")");
+        if (source == null) {
+            return;
+        }
+
+        final String qualifiedName = packageName.isEmpty() ? className : packageName + "." + className;
+        try (Writer writer = this.processingEnv.getFiler().createSourceFile(qualifiedName, type).openWriter()) {
+            writer.write(source);
+        } catch (IOException e) {
+            this.error(constant, "Cannot write the renderer " + qualifiedName + ": " + e.getMessage());
+        }
+    }
+
+    private String generate(final Element constant, final CompiledScript script, final String templateName, final String packageName,
+            final String className, final String description) {
+        final ScriptsCode render = new ScriptsCode(2);
+        render.line("final StringBuilder " + ScriptsCode.BUILDER + " = new StringBuilder(" + script.getLength() + ");");
+        script.generate(render);
+        if (render.getUnsupported() != null) {
+            this.error(constant, "The legacy expression '" + render.getUnsupported()
+                    + "' cannot be generated (negated block or block followed by a text), disable the legacy expressions of the template");
+            return null;
+        }
+        render.line("return this.finish(" + ScriptsCode.BUILDER + ");");
+
+        final ScriptsCode code = new ScriptsCode(0);
+        if (!packageName.isEmpty()) {
+            code.line("package " + packageName + ";");
+            code.line("");
+        }
+        code.line("/**");
+        code.line(" * Renderer of " + description + ", generated by");
+        code.line(" * {@link " + ScriptsRenderersProcessor.class.getName() + "} (don't modify)");
+        code.line(" */");
+        code.line("public final class " + className + " extends " + AbstractScriptsRenderer.class.getName() + " {");
+        code.line("");
+        for (int slot = 0; slot < script.getSlotCount(); ++slot) {
+            code.line("    private String " + ScriptsCode.field(slot) + ";");
+        }
+        if (script.getSlotCount() > 0) {
+            code.line("");
+        }
+        code.line("    /**");
+        code.line("     * Constructor");
+        code.line("     */");
+        code.line("    public " + className + "() {");
+        code.line("        super(" + templateCode(templateName) + ");");
+        code.line("    }");
+
+        final BitSet values = render.getValues();
+        final Set<String> setters = new HashSet<>();
+        setters.add("render");
+        setters.add("getTemplate");
+        for (int slot = 0; slot < script.getSlotCount(); ++slot) {
+            final String variable = script.getVariable(slot);
+            final String setter = camelCase(variable, false);
+            if (setter.isEmpty()) {
+                // empty expression, cannot be defined
+                continue;
+            } else if (SourceVersion.isKeyword(setter) || !setters.add(setter)) {
+                this.error(constant, "Cannot generate the setter of the variable '" + variable + "', the name '" + setter
+                        + "' is reserved or already used");
+                return null;
+            }
+
+            code.line("");
+            code.line("    /**");
+            if (values.get(slot)) {
+                code.line("     * @param value");
+                code.line("     *            the value of the variable " + javadoc(variable));
+                code.line("     * @return this renderer");
+                code.line("     * @throws IllegalArgumentException");
+                code.line("     *             if the value is rejected by the template checker");
+                code.line("     */");
+                code.line("    public " + className + " " + setter + "(final Object value) {");
+                code.line("        this." + ScriptsCode.field(slot) + " = this.check(value);");
+            } else {
+                code.line("     * @param present");
+                code.line("     *            the presence of the flag " + javadoc(variable));
+                code.line("     * @return this renderer");
+                code.line("     */");
+                code.line("    public " + className + " " + setter + "(final boolean present) {");
+                code.line("        this." + ScriptsCode.field(slot) + " = this.flag(present);");
+            }
+            code.line("        return this;");
+            code.line("    }");
+        }
+
+        code.line("");
+        code.line("    @Override");
+        code.line("    public StringBuilder render() {");
+        return code.toString() + render.toString() + "    }\n}\n";
+    }
+
+    private ScriptsTemplate getTemplate(final Element constant, final String name) {
+        if (TEMPLATE_SQL.equals(name)) {
+            return ScriptsTemplate.TEMPLATE_SQL;
+        } else if (TEMPLATE_JSON.equals(name)) {
+            return ScriptsTemplate.TEMPLATE_JSON;
+        }
+
+        final ScriptsTemplate template;
+        try {
+            template = (ScriptsTemplate) Class.forName(name, true, this.getClass().getClassLoader()).getDeclaredConstructor()
+                    .newInstance();
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            this.error(constant, "Cannot instantiate the template " + name + " (has to be compiled before): " + e);
+            return null;
+        }
+        return template;
+    }
+
+    private void error(final Element element, final String message) {
+        this.processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    private static String templateCode(final String name) {
+        if (TEMPLATE_SQL.equals(name)) {
+            return ScriptsTemplate.class.getName() + ".TEMPLATE_SQL";
+        } else if (TEMPLATE_JSON.equals(name)) {
+            return ScriptsTemplate.class.getName() + ".TEMPLATE_JSON";
+        }
+        return "new " + name.replace('$', '.') + "()";
+    }
+
+    /**
+     * Convert the name into a Java identifier in camel case (the characters
+     * which cannot be part of an identifier are separators)
+     * 
+     * @param name
+     *            the name
+     * @param upper
+     *            true, to start with an upper case
+     * @return the identifier (empty if the name has no valid character)
+     */
+    static String camelCase(final String name, final boolean upper) {
+        final StringBuilder identifier = new StringBuilder(name.length());
+        boolean separator = upper;
+        for (int i = 0; i < name.length(); ++i) {
+            final char c = name.charAt(i);
+            if (c == '_' || !Character.isJavaIdentifierPart(c)) {
+                separator = identifier.length() > 0 || upper;
+            } else if (separator) {
+                identifier.append(Character.toUpperCase(c));
+                separator = false;
+            } else if (upper) {
+                identifier.append(Character.toLowerCase(c));
+            } else {
+                identifier.append(c);
+            }
+        }
+        if (identifier.length() > 0 && !Character.isJavaIdentifierStart(identifier.charAt(0))) {
+            identifier.insert(0, '_');
+        }
+        return identifier.toString();
+    }
+
+    private static String javadoc(final String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("*/", "*&#47;").replace("@", "&#64;")
+                .replace("{", "&#123;").replace("}", "&#125;");
+    }
+}
@@ -1,485 +1,645 @@
-/*
- * #%L
- * utils-scripts
- * %%
- * Copyright (C) 2016 - 2018 Gilles Landel
- * %%
- * Licensed under the Apache License, Version 2.0 (the "License");
- * you may not use this file except in compliance with the License.
- * You may obtain a copy of the License at
- * 
- *      http://www.apache.org/licenses/LICENSE-2.0
- * 
- * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS,
- * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- * See the License for the specific language governing permissions and
- * limitations under the License.
- * #L%
- */
-package fr.landel.utils.scripts;
-
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
-import java.util.Set;
-
-import org.apache.commons.lang3.tuple.MutablePair;
-import org.apache.commons.lang3.tuple.Pair;
-
-import fr.landel.utils.assertor.Assertor;
-import fr.landel.utils.assertor.AssertorStepCharSequence;
-
-/**
- * Scripts replacer (parse, execute and replace all scripts). Default
- * expressions and operator are configured for scripts like SQL.
- *
- * @since Dec 1, 2015
- * @author Gilles
- *
- */
-public class ScriptsReplacer {
-
-    private ScriptsTemplate template;
-
-    /**
-     * Constructor
-     */
-    public ScriptsReplacer() {
-        super();
-
-        this.template = ScriptsTemplate.TEMPLATE_SQL;
-    }
-
-    /**
-     * Constructor
-     * 
-     * @param template
-     *            the template to set
-     */
-    public ScriptsReplacer(final ScriptsTemplate template) {
-        super();
-
-        this.template = template;
-    }
-
-    /**
-     * @return the template
-     */
-    public ScriptsTemplate getTemplate() {
-        return this.template;
-    }
-
-    /**
-     * @param template
-     *            the template to set
-     */
-    public void setTemplate(final ScriptsTemplate template) {
-        this.template = template;
-    }
-
-    /**
-     * Replace all keys by their values in the input string.<br>
-     * <br>
-     * Supported operators: or=||, and=&amp;&amp;, not=!<br>
-     * Parenthesis are supported in condition<br>
-     * Sub-conditions can be added in value and default<br>
-     * <br>
-     * Supported format (with replacements: key1=var.name, value1=data,
-     * key2=var2, value2=vx):
-     * 
-     * <pre>
-     * - {var.name} will be replaced by "data" without quotes
-     * - {var.name??value} will be replaced by "value" without quotes
-     * - {var.name::default} will be replaced by "data" without quotes
-     * - {var.name&amp;&amp;var2::default} will be replaced by "datavx" without quotes
-     * - {var2 &amp;&amp; var.name::default} will be replaced by "vxdata" without quotes
-     * - {var2 || !var.name::default} will be replaced by "vx" without quotes
-     * - {unknown.var} will be replaced by an empty string
-     * - {unknown.var::default} will be replaced by "default" without quotes
-     * - {var.name??var='{var.name}'} will be replaced by "var='data'" without quotes
-     * - {unknown.var??var='{var.name}'} will be replaced en empty string
-     * - {unknown.var??var='{var.name}'::default} will be replaced by "default" without quotes
-     * </pre>
-     * 
-     * @param content
-     *            The content to replace
-     * @param replacements
-     *            the replacements (entry: key=value)
-     * @param <V>
-     *            The type of values
-     * @return the content replaced
-     * @throws IllegalArgumentException
-     *             If number of brackets open and close doesn't match. If
-     *             brackets are found in key replacement or in value
-     *             replacement. If replacement value hasn't pairs of single
-     *             quote (avoid some SQL injections but not all, parameters have
-     *             to be checked)
-     */
-    public <V> String replace(final String content, final Map<String, V> replacements) throws IllegalArgumentException {
-        final StringBuilder builder = new StringBuilder(content);
-        this.replace(builder, replacements);
-        return builder.toString();
-    }
-
-    /**
-     * Replace all keys by their values in the input string builder.<br>
-     * <br>
-     * Supported operators: or=||, and=&amp;&amp;, not=!<br>
-     * Parenthesis are supported in condition<br>
-     * Sub-conditions can be added in value and default<br>
-     * <br>
-     * Supported format (with replacements: key1=var.name, value1=data,
-     * key2=var2, value2=vx):
-     * 
-     * <pre>
-     * - {var.name} will be replaced by "data" without quotes
-     * - {var.name??value} will be replaced by "value" without quotes
-     * - {var.name::default} will be replaced by "data" without quotes
-     * - {var.name&amp;&amp;var2::default} will be replaced by "datavx" without quotes
-     * - {var2 &amp;&amp; var.name::default} will be replaced by "vxdata" without quotes
-     * - {var2 || !var.name::default} will be replaced by "vx" without quotes
-     * - {unknown.var} will be replaced by an empty string
-     * - {unknown.var::default} will be replaced by "default" without quotes
-     * - {var.name??var='{var.name}'} will be replaced by "var='data'" without quotes
-     * - {unknown.var??var='{var.name}'} will be replaced en empty string
-     * - {unknown.var??var='{var.name}'::default} will be replaced by "default" without quotes
-     * </pre>
-     * 
-     * @param sb
-     *            The string builder
-     * @param replacements
-     *            the replacements (entry: key=value)
-     * @param <V>
-     *            The type of values
-     * @throws IllegalArgumentException
-     *             If number of brackets open and close doesn't match. If
-     *             brackets are found in key replacement or in value
-     *             replacement. If replacement value hasn't pairs of single
-     *             quote (avoid some SQL injections but not all, parameters have
-     *             to be checked)
-     */
-    public <V> void replace(final StringBuilder sb, final Map<String, V> replacements) throws IllegalArgumentException {
-        // first check if the input is valid
-        this.checkInput(sb);
-
-        final Map<String, String> replacementsSTR = new HashMap<>();
-        for (Entry<String, V> entry : replacements.entrySet()) {
-            replacementsSTR.put(entry.getKey(), String.valueOf(entry.getValue()));
-        }
-
-        // check if replacements ar valid
-        this.checkReplacements(replacementsSTR);
-
-        // replace all keys with their variables
-        for (Entry<String, String> entry : replacementsSTR.entrySet()) {
-            this.replaceSimples(sb, entry.getKey(), entry.getValue());
-        }
-
-        // clear all unknown variables
-        this.clearUnknownSimples(sb);
-
-        // replace conditions
-        this.replaceConditions(sb, replacementsSTR);
-    }
-
-    private void checkInput(final StringBuilder sb) throws IllegalArgumentException {
-        Assertor.that(sb).isNotEmpty().orElseThrow("Input cannot be empty or null");
-
-        int countBracketOpen = 0;
-        int countBracketClose = 0;
-
-        // get first
-        int index = sb.indexOf(this.template.getExpressionOpen());
-        int indexStop;
-
-        for (; index > -1;) {
-
-            indexStop = sb.indexOf(this.template.getExpressionClose(), index);
-            if (indexStop > -1) {
-                countBracketClose++;
-            }
-
-            // get next
-            index = sb.indexOf(this.template.getExpressionOpen(), index + 1);
-            if (index > -1) {
-                indexStop = sb.indexOf(this.template.getExpressionClose(), index);
-            }
-
-            countBracketOpen++;
-        }
-
-        Assertor.that(countBracketOpen).isEqual(countBracketClose).orElseThrow("The count of %s doesn't match the count of %s, input: %s",
-                this.template.getExpressionOpen(), this.template.getExpressionClose(), sb);
-    }
-
-    private void checkReplacements(final Map<String, String> replacements) throws IllegalArgumentException {
-        for (Entry<String, String> entry : replacements.entrySet()) {
-            final String key = Assertor.that(entry.getKey()).isNotNull().orElseThrow("Replacement key cannot be null");
-            final String value = Assertor.that(entry.getValue()).isNotNull().orElseThrow("Replacement value cannot be null");
-
-            final String errorKey = "Replacement key cannot contains: %s";
-            AssertorStepCharSequence<String> assertorNot = Assertor.that(key).not();
-            assertorNot.contains(this.template.getExpressionOpen()).orElseThrow(errorKey, this.template.getExpressionOpen());
-            assertorNot.contains(this.template.getExpressionClose()).orElseThrow(errorKey, this.template.getExpressionClose());
-            assertorNot.contains(this.template.getVariableOpen()).orElseThrow(errorKey, this.template.getVariableOpen());
-            assertorNot.contains(this.template.getVariableClose()).orElseThrow(errorKey, this.template.getVariableClose());
-            assertorNot.contains(this.template.getOperatorThen()).orElseThrow(errorKey, this.template.getOperatorThen());
-            assertorNot.contains(this.template.getOperatorElse()).orElseThrow(errorKey, this.template.getOperatorElse());
-
-            final String errorValue = "Replacement value cannot contains: ";
-            assertorNot = Assertor.that(value).not();
-            assertorNot.contains(this.template.getExpressionOpen()).orElseThrow(errorValue, this.template.getExpressionOpen());
-            assertorNot.contains(this.template.getExpressionClose()).orElseThrow(errorValue, this.template.getExpressionClose());
-            assertorNot.contains(this.template.getVariableOpen()).orElseThrow(errorValue, this.template.getVariableOpen());
-            assertorNot.contains(this.template.getVariableClose()).orElseThrow(errorValue, this.template.getVariableClose());
-            assertorNot.contains(this.template.getOperatorThen()).orElseThrow(errorValue, this.template.getOperatorThen());
-            assertorNot.contains(this.template.getOperatorElse()).orElseThrow(errorValue, this.template.getOperatorElse());
-
-            if (this.template.getChecker() != null) {
-                this.template.getChecker().acceptThrows(value);
-            }
-        }
-    }
-
-    private void replaceSimples(final StringBuilder sb, final String key, final String value) {
-        String simple;
-
-        final int valueLen = value.length();
-        final int startLen = this.template.getVariableOpen().length();
-        final int stopLen = this.template.getVariableClose().length();
-
-        // get first
-        int index = sb.indexOf(this.template.getVariableOpen());
-        int indexStop = sb.indexOf(this.template.getVariableClose(), index + startLen);
-
-        for (; index > -1 && indexStop > -1;) {
-            simple = sb.substring(index + startLen, indexStop);
-
-            if (key.equals(simple.trim())) {
-                sb.replace(index, indexStop + stopLen, value);
-                index += valueLen;
-            }
-
-            // get next
-            index = sb.indexOf(this.template.getVariableOpen(), index + startLen);
-            if (index > -1) {
-                indexStop = sb.indexOf(this.template.getVariableClose(), index + startLen);
-            }
-        }
-    }
-
-    private void clearUnknownSimples(final StringBuilder sb) {
-        String simple;
-        int indexValid;
-        int indexDefault;
-
-        final int startLen = this.template.getVariableOpen().length();
-        final int stopLen = this.template.getVariableClose().length();
-
-        // get first
-        int index = sb.indexOf(this.template.getVariableOpen());
-        int indexStop = sb.indexOf(this.template.getVariableClose(), index + startLen);
-
-        for (; index > -1 && indexStop > -1;) {
-            simple = sb.substring(index + startLen, indexStop);
-
-            indexValid = simple.indexOf(this.template.getOperatorThen());
-            indexDefault = simple.indexOf(this.template.getOperatorElse());
-
-            if (indexValid == -1 && indexDefault == -1) {
-                sb.replace(index, indexStop + stopLen, "");
-            }
-
-            // get next
-            index = sb.indexOf(this.template.getVariableOpen(), index + 1);
-            if (index > -1) {
-                indexStop = sb.indexOf(this.template.getVariableClose(), index + startLen);
-            }
-        }
-    }
-
-    private void replaceConditions(final StringBuilder sb, final Map<String, String> replacements) {
-        Pair<Integer, Integer> bounds;
-        String condition;
-        int indexValid;
-        int indexDefault;
-        String expression;
-        String value;
-        String defaultValue;
-
-        final int stopLen = this.template.getExpressionClose().length();
-        final int operatorLen = this.template.getOperatorThen().length();
-        final int elseLen = this.template.getOperatorElse().length();
-
-        for (bounds = this.findDeepestCondition(sb, this.template.getExpressionOpen(),
-                this.template.getExpressionClose()); bounds != null; bounds = this.findDeepestCondition(sb,
-                        this.template.getExpressionOpen(), this.template.getExpressionClose())) {
-
-            condition = sb.substring(bounds.getLeft(), bounds.getRight());
-
-            indexValid = condition.indexOf(this.template.getOperatorThen());
-            indexDefault = condition.indexOf(this.template.getOperatorElse(), indexValid);
-
-            expression = null;
-            value = null;
-            defaultValue = null;
-            if (indexValid > -1) {
-                expression = condition.substring(0, indexValid);
-                if (indexDefault > -1) {
-                    value = condition.substring(indexValid + operatorLen, indexDefault);
-                    defaultValue = condition.substring(indexDefault + elseLen);
-                } else {
-                    value = condition.substring(indexValid + operatorLen);
-                }
-            } else if (indexDefault > -1) {
-                expression = condition.substring(0, indexDefault);
-                defaultValue = condition.substring(indexDefault + elseLen);
-            }
-
-            if (expression != null) {
-                sb.replace(bounds.getLeft() - 1, bounds.getRight() + stopLen,
-                        this.replaceCondition(replacements, expression, value, defaultValue));
-            } else {
-                sb.replace(bounds.getLeft() - 1, bounds.getRight() + stopLen, "");
-            }
-        }
-    }
-
-    private Pair<Integer, Integer> findDeepestCondition(final StringBuilder sb, final String inStr, final String outStr) {
-        Pair<Integer, Integer> bounds = null;
-
-        final int inStrLen = inStr.length();
-
-        // get first
-        int index = sb.indexOf(inStr);
-        int indexStop = sb.indexOf(outStr, index + inStrLen);
-
-        if (index > -1 && indexStop > -1) {
-            for (; index > -1 && index < indexStop;) {
-                bounds = new MutablePair<Integer, Integer>(index + inStrLen, indexStop);
-
-                // get next
-                index = sb.indexOf(inStr, index + inStrLen);
-            }
-        }
-
-        return bounds;
-    }
-
-    private String replaceCondition(final Map<String, String> replacements, final String expression, final String value,
-            final String defaultValue) {
-
-        final List<String> varChecker = new ArrayList<>();
-        final Set<String> keys = replacements.keySet();
-
-        StringBuilder result = new StringBuilder();
-
-        if (this.checkExpression(expression, keys, varChecker)) {
-            if (value != null) {
-                result.append(value);
-            } else {
-                for (String variable : varChecker) {
-                    if (variable.indexOf(this.template.getOperatorNot()) == -1) {
-                        result.append(replacements.get(variable));
-                    }
-                }
-            }
-        } else if (defaultValue != null) {
-            result.append(defaultValue);
-        }
-
-        return result.toString();
-    }
-
-    private boolean checkExpression(final String expression, final Set<String> keys, final List<String> variables) {
-        Pair<Integer, Integer> bounds;
-        StringBuilder sb = new StringBuilder(expression);
-        String condition;
-        boolean isOk = false;
-
-        for (bounds = this.findDeepestCondition(sb, this.template.getBlockOpen(),
-                this.template.getBlockClose()); bounds != null; bounds = this.findDeepestCondition(sb, this.template.getBlockOpen(),
-                        this.template.getBlockClose())) {
-
-            condition = sb.substring(bounds.getLeft(), bounds.getRight());
-
-            isOk = this.checkVariables(keys, variables, condition, isOk);
-
-            sb.replace(bounds.getLeft() - 1, bounds.getRight() + 1, Boolean.toString(isOk));
-        }
-
-        return this.checkVariables(keys, variables, sb.toString(), isOk);
-    }
-
-    private boolean checkVariables(final Set<String> keys, final List<String> variables, final String condition, final boolean isOk) {
-        boolean isOkVar = isOk;
-        boolean previousOr = true;
-        boolean currentOr = false;
-        int previousIndex = 0;
-        String variable = null;
-        int indexAnd;
-        int indexOr;
-
-        final int opAndLen = this.template.getOperatorAnd().length();
-        final int opOrLen = this.template.getOperatorOr().length();
-
-        indexAnd = condition.indexOf(this.template.getOperatorAnd());
-        indexOr = condition.indexOf(this.template.getOperatorOr());
-        if (indexAnd > -1 || indexOr > -1) {
-            for (; indexAnd > -1 || indexOr > -1;) {
-
-                if (this.checkOperators(indexAnd, indexOr)) {
-                    variable = condition.substring(previousIndex, indexAnd).trim();
-                    previousIndex = indexAnd + opAndLen;
-                    currentOr = false;
-                } else if (this.checkOperators(indexOr, indexAnd)) {
-                    variable = condition.substring(previousIndex, indexOr).trim();
-                    previousIndex = indexOr + opOrLen;
-                    currentOr = true;
-                }
-
-                isOkVar = this.add(keys, variable, isOkVar, previousOr, variables);
-
-                indexAnd = condition.indexOf(this.template.getOperatorAnd(), previousIndex);
-                indexOr = condition.indexOf(this.template.getOperatorOr(), previousIndex);
-                previousOr = currentOr;
-            }
-            isOkVar = this.add(keys, condition.substring(previousIndex).trim(), isOkVar, previousOr, variables);
-        } else {
-            isOkVar = this.add(keys, condition.trim(), isOkVar, previousOr, variables);
-        }
-
-        return isOkVar;
-    }
-
-    private boolean checkOperators(final int indexOperator1, final int indexOperator2) {
-        return indexOperator1 > -1 && (indexOperator2 == -1 || indexOperator1 < indexOperator2);
-    }
-
-    private boolean add(final Set<String> keys, final String variable, final boolean isOk, final boolean previousOr,
-            final List<String> variables) {
-        boolean is = false;
-
-        if (variable != null) {
-            if (Boolean.TRUE.toString().equals(variable)) {
-                is = true;
-            } else if (!Boolean.FALSE.toString().equals(variable)) {
-                boolean isNot = variable.indexOf(this.template.getOperatorNot()) == 0;
-                if (!isNot && keys.contains(variable)) {
-                    variables.add(variable);
-                    is = true;
-                } else if (isNot) {
-                    is = !keys.contains(variable.substring(this.template.getOperatorNot().length()).trim());
-                }
-            }
-        }
-
-        if (previousOr) {
-            return isOk || is;
-        }
-        return isOk && is;
-    }
-}
+/*
+ * #%L
+ * utils-scripts
+ * %%
+ * Copyright (C) 2016 - 2018 Gilles Landel
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package fr.landel.utils.scripts;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.function.Supplier;
+
+import fr.landel.utils.assertor.Assertor;
+import fr.landel.utils.assertor.AssertorStepCharSequence;
+
+/**
+ * Scripts replacer (parse, execute and replace all scripts). Default
+ * expressions and operator are configured for scripts like SQL.
+ *
+ * @since Dec 1, 2015
+ * @author Gilles
+ *
+ */
+public class ScriptsReplacer {
+
+    private static final int CHUNK_SIZE = 4096;
+
+    private volatile ScriptsTemplate template;
+    private volatile ScriptsTokenMatcher matcher;
+    private volatile ScriptsFormatters formatters = ScriptsFormatters.DEFAULT;
+    private volatile Runnable listener;
+
+    /**
+     * Constructor
+     */
+    public ScriptsReplacer() {
+        super();
+
+        this.template = ScriptsTemplate.TEMPLATE_SQL;
+        this.matcher = ScriptsTokenMatcher.of(this.template);
+    }
+
+    /**
+     * Constructor
+     * 
+     * @param template
+     *            the template to set
+     */
+    public ScriptsReplacer(final ScriptsTemplate template) {
+        super();
+
+        this.template = template;
+        this.matcher = ScriptsTokenMatcher.of(template);
+    }
+
+    /**
+     * @return the template
+     */
+    public ScriptsTemplate getTemplate() {
+        return this.template;
+    }
+
+    /**
+     * @param template
+     *            the template to set
+     */
+    public void setTemplate(final ScriptsTemplate template) {
+        this.matcher = ScriptsTokenMatcher.of(template);
+        this.template = template;
+        this.changed();
+    }
+
+    /**
+     * @return the value formatters
+     */
+    public ScriptsFormatters getFormatters() {
+        return this.formatters;
+    }
+
+    /**
+     * @param formatters
+     *            the value formatters to set (default:
+     *            {@link ScriptsFormatters#DEFAULT})
+     * @throws IllegalArgumentException
+     *             if formatters are null
+     */
+    public void setFormatters(final ScriptsFormatters formatters) {
+        Assertor.that(formatters).isNotNull().orElseThrow("The formatters cannot be null");
+
+        this.formatters = formatters;
+        this.changed();
+    }
+
+    /**
+     * @return a copy of the replacer (same template and formatters, without
+     *         listener)
+     */
+    ScriptsReplacer copy() {
+        final ScriptsReplacer copy = new ScriptsReplacer(this.template);
+        copy.formatters = this.formatters;
+        return copy;
+    }
+
+    /**
+     * @param listener
+     *            the listener called after each change of the template or of
+     *            the formatters (used by the loader to publish a copy)
+     */
+    void setListener(final Runnable listener) {
+        this.listener = listener;
+    }
+
+    private void changed() {
+        final Runnable current = this.listener;
+        if (current != null) {
+            current.run();
+        }
+    }
+
+    /**
+     * Replace all keys by their values in the input string.<br>
+     * <br>
+     * Supported operators: or=||, and=&amp;&amp;, not=!<br>
+     * Parenthesis are supported in condition<br>
+     * Sub-conditions can be added in value and default<br>
+     * <br>
+     * Supported format (with replacements: key1=var.name, value1=data,
+     * key2=var2, value2=vx):
+     * 
+     * <pre>
+     * - {var.name} will be replaced by "data" without quotes
+     * - {var.name??value} will be replaced by "value" without quotes
+     * - {var.name::default} will be replaced by "data" without quotes
+     * - {var.name&amp;&amp;var2::default} will be replaced by "datavx" without quotes
+     * - {var2 &amp;&amp; var.name::default} will be replaced by "vxdata" without quotes
+     * - {var2 || !var.name::default} will be replaced by "vx" without quotes
+     * - {unknown.var} will be replaced by an empty string
+     * - {unknown.var::default} will be replaced by "default" without quotes
+     * - {var.name??var='{var.name}'} will be replaced by "var='data'" without quotes
+     * - {unknown.var??var='{var.name}'} will be replaced en empty string
+     * - {unknown.var??var='{var.name}'::default} will be replaced by "default" without quotes
+     * </pre>
+     * 
+     * @param content
+     *            The content to replace
+     * @param replacements
+     *            the replacements (entry: key=value)
+     * @param <V>
+     *            The type of values
+     * @return the content replaced
+     * @throws IllegalArgumentException
+     *             If number of brackets open and close doesn't match. If
+     *             brackets are found in key replacement or in value
+     *             replacement. If replacement value hasn't pairs of single
+     *             quote (avoid some SQL injections but not all, parameters have
+     *             to be checked)
+     */
+    public <V> String replace(final String content, final Map<String, V> replacements) throws IllegalArgumentException {
+        final StringBuilder builder = new StringBuilder(content);
+        this.replace(builder, replacements);
+        return builder.toString();
+    }
+
+    /**
+     * Replace all keys by their values in the input string builder.<br>
+     * <br>
+     * Supported operators: or=||, and=&amp;&amp;, not=!<br>
+     * Parenthesis are supported in condition<br>
+     * Sub-conditions can be added in value and default<br>
+     * <br>
+     * Supported format (with replacements: key1=var.name, value1=data,
+     * key2=var2, value2=vx):
+     * 
+     * <pre>
+     * - {var.name} will be replaced by "data" without quotes
+     * - {var.name??value} will be replaced by "value" without quotes
+     * - {var.name::default} will be replaced by "data" without quotes
+     * - {var.name&amp;&amp;var2::default} will be replaced by "datavx" without quotes
+     * - {var2 &amp;&amp; var.name::default} will be replaced by "vxdata" without quotes
+     * - {var2 || !var.name::default} will be replaced by "vx" without quotes
+     * - {unknown.var} will be replaced by an empty string
+     * - {unknown.var::default} will be replaced by "default" without quotes
+     * - {var.name??var='{var.name}'} will be replaced by "var='data'" without quotes
+     * - {unknown.var??var='{var.name}'} will be replaced en empty string
+     * - {unknown.var??var='{var.name}'::default} will be replaced by "default" without quotes
+     * </pre>
+     * 
+     * @param sb
+     *            The string builder
+     * @param replacements
+     *            the replacements (entry: key=value)
+     * @param <V>
+     *            The type of values
+     * @throws IllegalArgumentException
+     *             If number of brackets open and close doesn't match. If
+     *             brackets are found in key replacement or in value
+     *             replacement. If replacement value hasn't pairs of single
+     *             quote (avoid some SQL injections but not all, parameters have
+     *             to be checked). The string builder is left unchanged.
+     */
+    public <V> void replace(final StringBuilder sb, final Map<String, V> replacements) throws IllegalArgumentException {
+        // first check if the input is valid and compile it (open and close
+        // tags are matched in one pass)
+        final CompiledScript script = new ScriptsCompiler(this.template).compile(sb);
+
+        // check if replacement keys are valid
+        final ScriptsContext context = this.createContext(script, replacements);
+
+        // replace variables and conditions (the rendered values are checked
+        // while formatted), the input is only replaced on success
+        final StringBuilder output = new StringBuilder(sb.length());
+        script.render(output, context);
+        context.checkUnrendered();
+
+        sb.setLength(0);
+        sb.append(output);
+    }
+
+    /**
+     * Check the replacements and create the rendering context of the compiled
+     * script. Only the values of the variables used by the script are kept,
+     * they are formatted and checked straight into the output when rendered
+     * (the values which are not rendered are checked after, see
+     * {@link ScriptsContext#checkUnrendered()}). The streamed values (readers
+     * and suppliers) are only checked when rendered (see
+     * {@link #isStreamed(Object)}).
+     * 
+     * @param script
+     *            The compiled script
+     * @param replacements
+     *            the replacements (entry: key=value)
+     * @param <V>
+     *            The type of values
+     * @return the rendering context
+     * @throws IllegalArgumentException
+     *             If brackets are found in key replacement or in value
+     *             replacement. If replacement value hasn't pairs of single
+     *             quote (avoid some SQL injections but not all, parameters have
+     *             to be checked)
+     */
+    <V> ScriptsContext createContext(final CompiledScript script, final Map<String, V> replacements) throws IllegalArgumentException {
+        return this.createContext(script, replacements, true);
+    }
+
+    /**
+     * Check the replacement keys and create the binding context of the
+     * compiled script (the values are bound, not rendered, so they are not
+     * checked, see {@link ScriptsLoader#getStatement(ScriptsList, Map)})
+     * 
+     * @param script
+     *            The compiled script
+     * @param replacements
+     *            the replacements (entry: key=value)
+     * @param <V>
+     *            The type of values
+     * @return the binding context
+     * @throws IllegalArgumentException
+     *             If brackets are found in key replacement
+     */
+    <V> ScriptsContext createBindingContext(final CompiledScript script, final Map<String, V> replacements) throws IllegalArgumentException {
+        return this.createContext(script, replacements, false);
+    }
+
+    private <V> ScriptsContext createContext(final CompiledScript script, final Map<String, V> replacements, final boolean checkValues)
+            throws IllegalArgumentException {
+        final ScriptsTokenMatcher tokenMatcher = this.matcher;
+        StringBuilder buffer = null;
+
+        final int count = script.getSlotCount();
+        final Object[] values = new Object[count];
+        final BitSet presence = new BitSet(count);
+
+        for (Entry<String, V> entry : replacements.entrySet()) {
+            final String key = entry.getKey();
+            if (key == null || tokenMatcher.matches(key)) {
+                this.checkKey(key);
+            }
+
+            final int slot = script.getSlot(key);
+            if (slot > -1) {
+                values[slot] = entry.getValue();
+                presence.set(slot);
+            } else if (checkValues) {
+                // the values of the keys not used by the script are never
+                // rendered, they are still checked for compatibility (invalid
+                // values were always rejected, used or not)
+                if (buffer == null) {
+                    buffer = new StringBuilder();
+                }
+                this.check(entry.getValue(), buffer);
+            }
+        }
+
+        return new ScriptsContext(script, values, presence, this);
+    }
+
+    /**
+     * Create the rendering context of the compiled script, values and
+     * presence are indexed by slot (see {@link CompiledScript#getSlot(String)}).
+     * A present slot without value is considered as a flag (rendered as
+     * "true"). The values are formatted and checked straight into the output
+     * when rendered (the values which are not rendered are checked after, see
+     * {@link ScriptsContext#checkUnrendered()}).
+     * 
+     * @param script
+     *            The compiled script
+     * @param values
+     *            the values indexed by slot (may be {@code null} or shorter
+     *            than the slot count)
+     * @param presence
+     *            the presence of each slot
+     * @return the rendering context
+     * @throws IllegalArgumentException
+     *             If brackets are found in value replacement. If replacement
+     *             value hasn't pairs of single quote (avoid some SQL injections
+     *             but not all, parameters have to be checked)
+     */
+    ScriptsContext createContext(final CompiledScript script, final Object[] values, final BitSet presence) throws IllegalArgumentException {
+        final int count = script.getSlotCount();
+        final Object[] present = new Object[count];
+
+        for (int slot = presence.nextSetBit(0); slot > -1 && slot < count; slot = presence.nextSetBit(slot + 1)) {
+            Object value = null;
+            if (values != null && slot < values.length) {
+                value = values[slot];
+            }
+            present[slot] = value != null ? value : Boolean.TRUE;
+        }
+
+        return new ScriptsContext(script, present, presence, this);
+    }
+
+    /**
+     * Create the binding context of the compiled script, values and presence
+     * are indexed by slot (the values are bound as provided, {@code null}
+     * included, see
+     * {@link ScriptsLoader#getStatementBySlots(ScriptsList, Object[], BitSet)})
+     * 
+     * @param script
+     *            The compiled script
+     * @param values
+     *            the values indexed by slot (may be {@code null} or shorter
+     *            than the slot count)
+     * @param presence
+     *            the presence of each slot
+     * @return the binding context
+     */
+    ScriptsContext createBindingContext(final CompiledScript script, final Object[] values, final BitSet presence) {
+        return new ScriptsContext(script, values != null ? values : new Object[0], presence, this);
+    }
+
+    /**
+     * Format the value into the buffer and check it (the streamed values are
+     * checked when copied)
+     * 
+     * @param value
+     *            the value
+     * @param buffer
+     *            the reused buffer
+     * @throws IllegalArgumentException
+     *             If the value is not valid
+     */
+    void check(final Object value, final StringBuilder buffer) throws IllegalArgumentException {
+        if (ScriptsCollection.isExpanded(value)) {
+            buffer.setLength(0);
+            ScriptsCollection.of(value).expand(buffer, this, new ScriptsContext.Window());
+        } else if (this.formatters.isVerbatim(value)) {
+            this.checkValue((CharSequence) value);
+        } else if (!isStreamed(value)) {
+            buffer.setLength(0);
+            this.formatters.format(value, buffer);
+            this.checkValue(buffer);
+        }
+    }
+
+    /**
+     * Check if the value is streamed: a {@link Reader} or a {@link Supplier}
+     * (of {@link Reader}, of {@link CharSequence} or of any formatted value).
+     * A streamed value is copied by chunks into the output and checked while
+     * copied, a reader can only be rendered once (a supplier is called on each
+     * rendering, the supplied readers are closed).
+     * 
+     * @param value
+     *            the value
+     * @return true, if streamed
+     */
+    static boolean isStreamed(final Object value) {
+        return value instanceof Reader || value instanceof Supplier;
+    }
+
+    /**
+     * Copy the streamed value into the output and check it by chunks
+     * 
+     * @param value
+     *            the streamed value (see {@link #isStreamed(Object)})
+     * @param output
+     *            the output
+     * @throws IOException
+     *             on reading or writing failures
+     * @throws IllegalArgumentException
+     *             If brackets are found in value replacement. If replacement
+     *             value hasn't pairs of single quote (avoid some SQL injections
+     *             but not all, parameters have to be checked)
+     */
+    void stream(final Object value, final Appendable output) throws IOException, IllegalArgumentException {
+        if (value instanceof Reader) {
+            this.copy((Reader) value, output);
+        } else {
+            final Object supplied = ((Supplier<?>) value).get();
+            if (supplied instanceof Reader) {
+                try (Reader reader = (Reader) supplied) {
+                    this.copy(reader, output);
+                }
+            } else {
+                this.format(supplied, output, new ScriptsContext.Window());
+            }
+        }
+    }
+
+    private void copy(final Reader reader, final Appendable output) throws IOException, IllegalArgumentException {
+        final ScriptsTokenMatcher tokenMatcher = this.matcher;
+        final ScriptsChecker checker = this.template.getValueChecker();
+        final ScriptsChecker.Incremental incremental = checker != null ? checker.incremental() : null;
+
+        final char[] buffer = new char[CHUNK_SIZE];
+        final CharBuffer chunk = CharBuffer.wrap(buffer);
+
+        // the end of the previous chunk followed by the start of the current
+        // one (to find the tokens across two chunks)
+        final int overlap = Math.max(0, tokenMatcher.getMaxLength() - 1);
+        final StringBuilder junction = new StringBuilder(overlap * 2);
+
+        int read;
+        while ((read = reader.read(buffer)) > -1) {
+            chunk.clear();
+            chunk.limit(read);
+
+            junction.append(buffer, 0, Math.min(overlap, read));
+            if (tokenMatcher.matches(junction) || tokenMatcher.matches(chunk)) {
+                this.checkTokens(junction.toString() + chunk.toString());
+            }
+            if (incremental != null) {
+                incremental.update(chunk);
+            }
+
+            if (output instanceof Writer) {
+                ((Writer) output).write(buffer, 0, read);
+            } else {
+                output.append(chunk);
+            }
+
+            if (read >= overlap) {
+                junction.setLength(0);
+                junction.append(buffer, read - overlap, overlap);
+            } else {
+                junction.delete(0, Math.max(0, junction.length() - overlap));
+            }
+        }
+
+        if (incremental != null) {
+            incremental.finish();
+        }
+    }
+
+    /**
+     * Format and check the value
+     * 
+     * @param value
+     *            the value (may be null)
+     * @return the formatted value
+     * @throws IllegalArgumentException
+     *             If brackets are found in value replacement. If replacement
+     *             value hasn't pairs of single quote (avoid some SQL injections
+     *             but not all, parameters have to be checked)
+     */
+    String format(final Object value) throws IllegalArgumentException {
+        final StringBuilder builder = new StringBuilder();
+        if (ScriptsCollection.isExpanded(value)) {
+            ScriptsCollection.of(value).expand(builder, this, new ScriptsContext.Window());
+        } else {
+            this.formatters.format(value, builder);
+            this.checkValue(builder);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Format the value straight into the output and check the appended
+     * characters (the collections, the arrays and the
+     * {@link ScriptsCollection} are expanded, each element being checked)
+     * 
+     * @param value
+     *            the value (may be null)
+     * @param output
+     *            the output
+     * @param window
+     *            the view used to check the appended characters
+     * @throws IllegalArgumentException
+     *             If brackets are found in value replacement. If replacement
+     *             value hasn't pairs of single quote (avoid some SQL injections
+     *             but not all, parameters have to be checked)
+     */
+    void format(final Object value, final StringBuilder output, final ScriptsContext.Window window) throws IllegalArgumentException {
+        if (ScriptsCollection.isExpanded(value)) {
+            ScriptsCollection.of(value).expand(output, this, window);
+        } else {
+            final int start = output.length();
+            this.formatters.format(value, output);
+            this.checkValue(window.of(output, start));
+        }
+    }
+
+    /**
+     * Format the value straight into the output and check it: the character
+     * sequences are checked and appended as is, the collections, the arrays
+     * and the {@link ScriptsCollection} are expanded element by element, the
+     * other values are formatted into a small buffer (the formatters append
+     * into a string builder), checked and appended
+     * 
+     * @param value
+     *            the value (may be null)
+     * @param output
+     *            the output
+     * @param window
+     *            the view used to check the formatted characters
+     * @throws IOException
+     *             on writing failures
+     * @throws IllegalArgumentException
+     *             If brackets are found in value replacement. If replacement
+     *             value hasn't pairs of single quote (avoid some SQL injections
+     *             but not all, parameters have to be checked)
+     */
+    void format(final Object value, final Appendable output, final ScriptsContext.Window window)
+            throws IOException, IllegalArgumentException {
+        if (output instanceof StringBuilder) {
+            this.format(value, (StringBuilder) output, window);
+        } else if (ScriptsCollection.isExpanded(value)) {
+            ScriptsCollection.of(value).expand(output, this, window);
+        } else if (this.formatters.isVerbatim(value)) {
+            this.checkValue((CharSequence) value);
+            output.append((CharSequence) value);
+        } else {
+            final StringBuilder buffer = new StringBuilder();
+            this.format(value, buffer, window);
+            output.append(buffer);
+        }
+    }
+
+    /**
+     * Format the element of a quoted list straight into the output and only
+     * check the template tokens (the element is escaped by the list, so the
+     * template checker is not applied)
+     * 
+     * @param element
+     *            the element (not null)
+     * @param output
+     *            the output
+     * @param window
+     *            the view used to check the appended characters
+     * @throws IllegalArgumentException
+     *             If brackets are found in the element
+     */
+    void formatEscaped(final Object element, final StringBuilder output, final ScriptsContext.Window window)
+            throws IllegalArgumentException {
+        final int start = output.length();
+        this.formatters.format(element, output);
+        if (this.matcher.matches(window.of(output, start))) {
+            this.checkTokens(output.substring(start));
+        }
+    }
+
+    /**
+     * Check the key and throw the error of the first forbidden template
+     * characters found (only called if the matcher has found a token)
+     * 
+     * @param key
+     *            the key
+     * @throws IllegalArgumentException
+     *             If key is null or if brackets are found in key replacement
+     */
+    private void checkKey(final String key) throws IllegalArgumentException {
+        Assertor.that(key).isNotNull().orElseThrow("Replacement key cannot be null");
+
+        final String errorKey = "Replacement key cannot contains: %s";
+        final AssertorStepCharSequence<String> assertorNot = Assertor.that(key).not();
+        assertorNot.contains(this.template.getExpressionOpen()).orElseThrow(errorKey, this.template.getExpressionOpen());
+        assertorNot.contains(this.template.getExpressionClose()).orElseThrow(errorKey, this.template.getExpressionClose());
+        assertorNot.contains(this.template.getVariableOpen()).orElseThrow(errorKey, this.template.getVariableOpen());
+        assertorNot.contains(this.template.getVariableClose()).orElseThrow(errorKey, this.template.getVariableClose());
+        assertorNot.contains(this.template.getOperatorThen()).orElseThrow(errorKey, this.template.getOperatorThen());
+        assertorNot.contains(this.template.getOperatorElse()).orElseThrow(errorKey, this.template.getOperatorElse());
+    }
+
+    /**
+     * Check the value (template characters and template checker)
+     * 
+     * @param value
+     *            the value
+     * @throws IllegalArgumentException
+     *             If brackets are found in value replacement. If replacement
+     *             value hasn't pairs of single quote (avoid some SQL injections
+     *             but not all, parameters have to be checked)
+     */
+    void checkValue(final CharSequence value) throws IllegalArgumentException {
+        // the template characters are searched in one pass, the detailed
+        // checks are only done to report the error
+        if (this.matcher.matches(value)) {
+            this.checkTokens(value.toString());
+        }
+
+        final ScriptsChecker checker = this.template.getValueChecker();
+        if (checker != null) {
+            checker.check(value);
+        }
+    }
+
+    private void checkTokens(final String value) throws IllegalArgumentException {
+        final String errorValue = "Replacement value cannot contains: ";
+        final AssertorStepCharSequence<String> assertorNot = Assertor.that(value).not();
+        assertorNot.contains(this.template.getExpressionOpen()).orElseThrow(errorValue, this.template.getExpressionOpen());
+        assertorNot.contains(this.template.getExpressionClose()).orElseThrow(errorValue, this.template.getExpressionClose());
+        assertorNot.contains(this.template.getVariableOpen()).orElseThrow(errorValue, this.template.getVariableOpen());
+        assertorNot.contains(this.template.getVariableClose()).orElseThrow(errorValue, this.template.getVariableClose());
+        assertorNot.contains(this.template.getOperatorThen()).orElseThrow(errorValue, this.template.getOperatorThen());
+        assertorNot.contains(this.template.getOperatorElse()).orElseThrow(errorValue, this.template.getOperatorElse());
+    }
+}
@@ -0,0 +1,280 @@
+/*-
+ * #%L
+ * utils-scripts
+ * %%
+ * Copyright (C) 2016 - 2018 Gilles Landel
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package fr.landel.utils.scripts;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Resolved skeleton of a compiled script for a presence signature (the taken
+ * branches only depend on the presence of the variables): the literal texts
+ * and the holes to be filled with values (immutable).
+ *
+ * @since Oct 17, 2026
+ * @author Gilles
+ *
+ */
+final class ScriptsShape {
+
+    private static final char LF = '\n';
+
+    private final String[] texts;
+    private final int[] holes;
+    private final int length;
+    private final boolean hasLF;
+    private final int quoted;
+    private volatile String positional;
+    private volatile String named;
+
+    private ScriptsShape(final String[] texts, final int[] holes, final ScriptsTemplate template) {
+        this.texts = texts;
+        this.holes = holes;
+        this.quoted = findQuoted(texts, template);
+
+        int len = 0;
+        boolean lf = false;
+        for (String text : texts) {
+            len += text.length();
+            lf |= text.indexOf(LF) > -1;
+        }
+        this.length = len;
+        this.hasLF = lf;
+    }
+
+    /**
+     * Find the first hole in a quoted text of the template (the quotes are
+     * searched in the texts, the holes being empty)
+     * 
+     * @param texts
+     *            the texts
+     * @param template
+     *            the template (quote and escape)
+     * @return the index of the hole or -1 if none
+     */
+    private static int findQuoted(final String[] texts, final ScriptsTemplate template) {
+        final String quote = template.getQuote();
+        if (quote == null || quote.isEmpty()) {
+            return -1;
+        }
+        final String escape = template.getQuoteEscape();
+
+        boolean inQuote = false;
+        for (int i = 0; i < texts.length - 1; ++i) {
+            final String text = texts[i];
+            int index = 0;
+            while (index > -1) {
+                if (inQuote) {
+                    index = ScriptsComments.indexAfterQuoted(text, index, quote, escape);
+                    inQuote = index < 0;
+                } else {
+                    index = text.indexOf(quote, index);
+                    if (index > -1) {
+                        index += quote.length();
+                        inQuote = true;
+                    }
+                }
+            }
+            if (inQuote) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the length of the texts
+     */
+    int getLength() {
+        return this.length;
+    }
+
+    /**
+     * Fill the holes with the values
+     * 
+     * @param output
+     *            the output
+     * @param context
+     *            the rendering context (checked values)
+     */
+    void render(final StringBuilder output, final ScriptsContext context) {
+        for (int i = 0; i < this.holes.length; ++i) {
+            output.append(this.texts[i]);
+            context.appendValue(this.holes[i], output);
+        }
+        output.append(this.texts[this.holes.length]);
+    }
+
+    /**
+     * Fill the holes with the values
+     * 
+     * @param output
+     *            the output
+     * @param context
+     *            the rendering context (checked values)
+     * @throws IOException
+     *             on writing failures
+     */
+    void render(final Appendable output, final ScriptsContext context) throws IOException {
+        for (int i = 0; i < this.holes.length; ++i) {
+            output.append(this.texts[i]);
+            context.appendValue(this.holes[i], output);
+        }
+        output.append(this.texts[this.holes.length]);
+    }
+
+    /**
+     * Fill the holes with the values and remove blank lines on the fly (the
+     * values are not formatted in advance, the line separators of the values
+     * are found while written, see
+     * {@link ScriptsBlankLines#streaming(Appendable, boolean)})
+     * 
+     * @param output
+     *            the output
+     * @param context
+     *            the rendering context (checked values)
+     * @throws IOException
+     *             on writing failures
+     */
+    void renderWithoutBlankLines(final Appendable output, final ScriptsContext context) throws IOException {
+        final ScriptsBlankLines filter = ScriptsBlankLines.streaming(output, this.hasLF);
+        this.render(filter, context);
+        filter.finish();
+    }
+
+    /**
+     * Fill the holes with placeholders and collect the values to bind (the
+     * text is built once per kind of placeholders, unless a collection is
+     * expanded)
+     * 
+     * @param script
+     *            the compiled script of the shape
+     * @param context
+     *            the binding context (values not checked)
+     * @param named
+     *            true, to use named parameters (":" followed by the variable
+     *            name), false for positional parameters ("?")
+     * @return the statement
+     * @throws IllegalArgumentException
+     *             if a hole is in a quoted text of the template (a placeholder
+     *             in a literal is not a parameter)
+     */
+    ScriptsStatement bind(final CompiledScript script, final ScriptsContext context, final boolean named)
+            throws IllegalArgumentException {
+        if (this.quoted > -1) {
+            throw new IllegalArgumentException(
+                    String.format("The variable '%s' is in a quoted text, it cannot be bound", script.getVariable(this.holes[this.quoted])));
+        }
+
+        final List<Object> values = new ArrayList<>(this.holes.length);
+        final List<String> names = new ArrayList<>(this.holes.length);
+        long fingerprint = CompiledScript.mix(script.getFingerprint(context.getPresence()), named ? 1 : 0);
+
+        boolean expanded = false;
+        for (int i = 0; i < this.holes.length && !named && !expanded; ++i) {
+            expanded = ScriptsCollection.isExpanded(context.getObject(this.holes[i]));
+        }
+
+        String text = named ? this.named : this.positional;
+        if (text == null || expanded) {
+            final StringBuilder builder = new StringBuilder(this.length + this.holes.length * 2);
+            for (int i = 0; i < this.holes.length; ++i) {
+                builder.append(this.texts[i]);
+
+                final Object value = context.getObject(this.holes[i]);
+                final String name = script.getVariable(this.holes[i]);
+                if (named) {
+                    builder.append(ScriptsStatement.NAMED_PREFIX).append(name);
+                    values.add(value);
+                } else if (ScriptsCollection.isExpanded(value)) {
+                    final ScriptsCollection list = ScriptsCollection.of(value);
+                    final int size = values.size();
+                    list.bind(builder, ScriptsStatement.PLACEHOLDER, values);
+                    fingerprint = CompiledScript.mix(CompiledScript.mix(fingerprint, i), values.size() - size);
+                    fingerprint = CompiledScript.mix(fingerprint, list.fingerprint());
+                } else {
+                    builder.append(ScriptsStatement.PLACEHOLDER);
+                    values.add(value);
+                }
+                while (names.size() < values.size()) {
+                    names.add(name);
+                }
+            }
+            builder.append(this.texts[this.holes.length]);
+
+            if (script.getTemplate().isRemoveBlankLines()) {
+                ScriptsBlankLines.remove(builder);
+            }
+            text = builder.toString();
+
+            if (named) {
+                this.named = text;
+            } else if (!expanded) {
+                this.positional = text;
+            }
+        } else {
+            for (int slot : this.holes) {
+                values.add(context.getObject(slot));
+                names.add(script.getVariable(slot));
+            }
+        }
+
+        return new ScriptsStatement(text, values, names, CompiledScript.finish(fingerprint));
+    }
+
+    /**
+     * Output which records the shape (consecutive texts are merged)
+     */
+    static final class Recorder extends ScriptsOutput {
+
+        private final List<String> texts = new ArrayList<>();
+        private final List<Integer> holes = new ArrayList<>();
+        private final StringBuilder text = new StringBuilder();
+
+        @Override
+        void appendText(final String text) {
+            this.text.append(text);
+        }
+
+        @Override
+        void appendValue(final int slot) {
+            this.texts.add(this.text.toString());
+            this.holes.add(slot);
+            this.text.setLength(0);
+        }
+
+        /**
+         * @param template
+         *            the template of the script (quote of the texts)
+         * @return the recorded shape
+         */
+        ScriptsShape toShape(final ScriptsTemplate template) {
+            final String[] texts = this.texts.toArray(new String[this.texts.size() + 1]);
+            texts[this.texts.size()] = this.text.toString();
+
+            final int[] holes = new int[this.holes.size()];
+            for (int i = 0; i < holes.length; ++i) {
+                holes[i] = this.holes.get(i);
+            }
+
+            return new ScriptsShape(texts, holes, template);
+        }
+    }
+}
@@ -0,0 +1,207 @@
+/*-
+ * #%L
+ * utils-scripts
+ * %%
+ * Copyright (C) 2016 - 2018 Gilles Landel
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package fr.landel.utils.scripts;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of the resolved shapes, keyed by compiled script and presence
+ * signature, with a bounded LRU eviction.
+ *
+ * <p>
+ * Cached shapes are read without any lock (only the last access is stamped),
+ * the lock is only taken to add a resolved shape. When the cache is full, the
+ * least recently used shapes are removed by batch (1/16 of the size), so the
+ * scan of the accesses is amortized.
+ * </p>
+ *
+ * @since Oct 17, 2026
+ * @author Gilles
+ *
+ */
+final class ScriptsShapeCache {
+
+    /**
+     * Default maximum number of cached shapes
+     */
+    static final int DEFAULT_SIZE = 256;
+
+    private final ConcurrentMap<Key, Entry> shapes;
+    private final AtomicLong clock;
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+    private volatile int size;
+
+    /**
+     * Constructor
+     * 
+     * @param size
+     *            the maximum number of cached shapes (0 to disable the cache)
+     */
+    ScriptsShapeCache(final int size) {
+        this.size = size;
+        this.clock = new AtomicLong();
+        this.hits = new AtomicLong();
+        this.misses = new AtomicLong();
+        this.shapes = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * @return the maximum number of cached shapes
+     */
+    int getSize() {
+        return this.size;
+    }
+
+    /**
+     * @param size
+     *            the maximum number of cached shapes (0 to disable the cache)
+     */
+    void setSize(final int size) {
+        synchronized (this.shapes) {
+            this.size = size;
+            this.shapes.clear();
+        }
+    }
+
+    /**
+     * @return the number of shapes found in cache
+     */
+    long getHits() {
+        return this.hits.get();
+    }
+
+    /**
+     * @return the number of shapes resolved (not found in cache)
+     */
+    long getMisses() {
+        return this.misses.get();
+    }
+
+    /**
+     * Get the shape from cache or resolve it
+     * 
+     * @param script
+     *            the compiled script
+     * @param presence
+     *            the presence of each variable (indexed by slot)
+     * @return the shape or {@code null} if the cache is disabled
+     */
+    ScriptsShape get(final CompiledScript script, final BitSet presence) {
+        if (this.size == 0) {
+            return null;
+        }
+
+        final Key key = new Key(script, presence.get(0, script.getSlotCount()));
+
+        final Entry entry = this.shapes.get(key);
+        if (entry != null) {
+            this.hits.incrementAndGet();
+            entry.lastAccess = this.clock.incrementAndGet();
+            return entry.shape;
+        }
+
+        this.misses.incrementAndGet();
+
+        final ScriptsShape shape = script.resolve(key.presence);
+        synchronized (this.shapes) {
+            final int max = this.size;
+            if (max > 0) {
+                this.shapes.put(key, new Entry(shape, this.clock.incrementAndGet()));
+                if (this.shapes.size() > max) {
+                    this.evict(this.shapes.size() - max + (max >> 4));
+                }
+            }
+        }
+
+        return shape;
+    }
+
+    /**
+     * Remove the least recently used shapes (the lock has to be held). The
+     * accesses are read once, a shape accessed during the eviction is kept.
+     * 
+     * @param count
+     *            the number of shapes to remove
+     */
+    private void evict(final int count) {
+        final long[] accesses = new long[this.shapes.size()];
+        int index = 0;
+        for (Entry entry : this.shapes.values()) {
+            if (index < accesses.length) {
+                accesses[index++] = entry.lastAccess;
+            }
+        }
+        Arrays.sort(accesses, 0, index);
+
+        final long threshold = accesses[Math.min(count, index) - 1];
+        this.shapes.values().removeIf(entry -> entry.lastAccess <= threshold);
+    }
+
+    /**
+     * Cached shape and its last access
+     */
+    private static final class Entry {
+
+        private final ScriptsShape shape;
+        private volatile long lastAccess;
+
+        Entry(final ScriptsShape shape, final long lastAccess) {
+            this.shape = shape;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+    /**
+     * Cache key (script instance and presence signature)
+     */
+    private static final class Key {
+
+        private final CompiledScript script;
+        private final BitSet presence;
+        private final int hashCode;
+
+        Key(final CompiledScript script, final BitSet presence) {
+            this.script = script;
+            this.presence = presence;
+            this.hashCode = 31 * System.identityHashCode(script) + presence.hashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hashCode;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            } else if (obj == null || !(obj instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) obj;
+            return this.script == other.script && this.presence.equals(other.presence);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/*-
+ * #%L
+ * utils-scripts
+ * %%
+ * Copyright (C) 2016 - 2018 Gilles Landel
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package fr.landel.utils.scripts;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import fr.landel.utils.assertor.Assertor;
+
+/**
+ * Script source reader for files, the file is read (or mapped in memory, if
+ * large) and decoded by chunk directly into the builder given to the compiler
+ * (no stream buffer and no intermediate string of the whole content).
+ *
+ * <p>
+ * Only the files larger than {@value #MAP_THRESHOLD} bytes are mapped: a
+ * mapping is only released by the garbage collector (until then, the file is
+ * locked on Windows and cannot be replaced), the small files are read with
+ * the channel and not locked after reading.
+ * </p>
+ *
+ * @since Oct 17, 2026
+ * @author Gilles
+ *
+ */
+final class ScriptsSource {
+
+    /**
+     * Minimum size of the mapped files (1 MB)
+     */
+    static final int MAP_THRESHOLD = 1024 * 1024;
+
+    private static final int CHUNK_SIZE = 8192;
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private ScriptsSource() {
+    }
+
+    /**
+     * Read the file (malformed and unmappable characters are replaced, like
+     * with a reader)
+     * 
+     * @param file
+     *            the file path
+     * @param charset
+     *            the file charset
+     * @return the decoded content
+     * @throws IOException
+     *             on reading failures
+     * @throws IllegalArgumentException
+     *             if the file is larger than 2GB
+     */
+    static StringBuilder read(final Path file, final Charset charset) throws IOException {
+        try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            Assertor.that(size).isLTE(Integer.MAX_VALUE).orElseThrow("The script file is too large: %s", file);
+
+            final ByteBuffer bytes;
+            if (size >= MAP_THRESHOLD) {
+                bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            } else {
+                bytes = ByteBuffer.allocate((int) size);
+                while (bytes.hasRemaining() && channel.read(bytes) > -1) {
+                    // read until the end of the file
+                }
+                bytes.flip();
+            }
+
+            final CharsetDecoder decoder = charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+            final double capacity = size * (double) decoder.averageCharsPerByte();
+            final StringBuilder builder = new StringBuilder((int) Math.min(Integer.MAX_VALUE - 8, capacity));
+            final CharBuffer chars = CharBuffer.allocate(CHUNK_SIZE);
+
+            CoderResult result;
+            do {
+                result = decoder.decode(bytes, chars, true);
+                drain(chars, builder, result);
+            } while (result.isOverflow());
+            do {
+                result = decoder.flush(chars);
+                drain(chars, builder, result);
+            } while (result.isOverflow());
+
+            return builder;
+        }
+    }
+
+    /**
+     * Hash of the content (64 bits FNV-1a of the characters), used to detect
+     * the changes of the scripts without keeping their source
+     * 
+     * @param content
+     *            the content
+     * @return the hash
+     */
+    static long hash(final CharSequence content) {
+        long hash = FNV_OFFSET;
+        final int length = content.length();
+        for (int i = 0; i < length; ++i) {
+            hash = (hash ^ content.charAt(i)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    private static void drain(final CharBuffer chars, final StringBuilder builder, final CoderResult result)
+            throws CharacterCodingException {
+        chars.flip();
+        builder.append(chars.array(), chars.arrayOffset() + chars.position(), chars.remaining());
+        chars.clear();
+
+        if (result.isError()) {
+            result.throwException();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*-
+ * #%L
+ * utils-scripts
+ * %%
+ * Copyright (C) 2016 - 2018 Gilles Landel
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package fr.landel.utils.scripts;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Script rendered with placeholders instead of values (like a SQL prepared
+ * statement) and the values to bind in the order of the placeholders (see
+ * {@link ScriptsLoader#getStatement(ScriptsList, java.util.Map)}).
+ *
+ * <p>
+ * The text only depends on the presence of the variables (the taken
+ * branches), so the statements prepared by the database can be reused. With
+ * positional parameters, the collections and the arrays are expanded into
+ * one placeholder per element (see {@link ScriptsCollection}), so the text
+ * also depends on their sizes. With named parameters, they are bound as one
+ * value.
+ * </p>
+ *
+ * @since Oct 17, 2026
+ * @author Gilles
+ *
+ */
+public final class ScriptsStatement {
+
+    /**
+     * The placeholder of the positional parameters
+     */
+    public static final String PLACEHOLDER = "?";
+
+    /**
+     * The prefix of the named parameters (followed by the variable name)
+     */
+    public static final String NAMED_PREFIX = ":";
+
+    private final String text;
+    private final List<Object> values;
+    private final List<String> names;
+    private final long fingerprint;
+
+    /**
+     * Constructor
+     * 
+     * @param text
+     *            the text with placeholders
+     * @param values
+     *            the values in the order of the placeholders
+     * @param names
+     *            the variable name of each value
+     * @param fingerprint
+     *            the fingerprint of the text
+     */
+    ScriptsStatement(final String text, final List<Object> values, final List<String> names, final long fingerprint) {
+        this.text = text;
+        this.values = Collections.unmodifiableList(values);
+        this.names = Collections.unmodifiableList(names);
+        this.fingerprint = fingerprint;
+    }
+
+    /**
+     * @return the text with placeholders
+     */
+    public String getText() {
+        return this.text;
+    }
+
+    /**
+     * @return the values in the order of the placeholders, as provided (not
+     *         formatted, {@code null} included)
+     */
+    public List<Object> getValues() {
+        return this.values;
+    }
+
+    /**
+     * @return the variable name of each value (in the order of the
+     *         placeholders)
+     */
+    public List<String> getNames() {
+        return this.names;
+    }
+
+    /**
+     * Get the fingerprint of the text: the fingerprint of the shape (see
+     * {@link CompiledScript#getFingerprint(java.util.BitSet)}) mixed with the
+     * kind of parameters and with the sizes of the expanded collections. Two
+     * statements with the same fingerprint have the same text, so it can key
+     * the caches of prepared statements without hashing the text.
+     * 
+     * @return the fingerprint
+     */
+    public long getFingerprint() {
+        return this.fingerprint;
+    }
+
+    @Override
+    public String toString() {
+        return this.text;
+    }
+}
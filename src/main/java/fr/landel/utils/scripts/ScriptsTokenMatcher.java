@@ -0,0 +1,140 @@
+/*-
+ * #%L
+ * utils-scripts
+ * %%
+ * Copyright (C) 2016 - 2018 Gilles Landel
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package fr.landel.utils.scripts;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Matcher of the template tokens forbidden in the replacement keys and values
+ * (expression and variable delimiters, then and else operators). The tokens
+ * are compiled once in a table of their first characters, so a key or a value
+ * is checked in one pass without allocation (only the candidate tokens are
+ * compared at the positions of their first character).
+ *
+ * @since Oct 17, 2026
+ * @author Gilles
+ *
+ */
+final class ScriptsTokenMatcher {
+
+    private static final int ASCII = 128;
+
+    private static final ScriptsTokenMatcher MATCHER_SQL = new ScriptsTokenMatcher(ScriptsTemplate.TEMPLATE_SQL);
+    private static final ScriptsTokenMatcher MATCHER_JSON = new ScriptsTokenMatcher(ScriptsTemplate.TEMPLATE_JSON);
+
+    private final String[] tokens;
+    private final long[] firstAscii = new long[ASCII / Long.SIZE];
+    private final String firstOthers;
+    private final int maxLength;
+
+    private ScriptsTokenMatcher(final ScriptsTemplate template) {
+        final Set<String> set = new LinkedHashSet<>();
+        add(set, template.getExpressionOpen());
+        add(set, template.getExpressionClose());
+        add(set, template.getVariableOpen());
+        add(set, template.getVariableClose());
+        add(set, template.getOperatorThen());
+        add(set, template.getOperatorElse());
+
+        this.tokens = set.toArray(new String[set.size()]);
+
+        int max = 0;
+        final StringBuilder others = new StringBuilder();
+        for (String token : this.tokens) {
+            max = Math.max(max, token.length());
+            final char first = token.charAt(0);
+            if (first < ASCII) {
+                this.firstAscii[first / Long.SIZE] |= 1L << first;
+            } else if (others.indexOf(String.valueOf(first)) < 0) {
+                others.append(first);
+            }
+        }
+        this.firstOthers = others.toString();
+        this.maxLength = max;
+    }
+
+    /**
+     * Get the matcher of the template (the matchers of the predefined
+     * templates are shared)
+     * 
+     * @param template
+     *            the template
+     * @return the matcher
+     */
+    static ScriptsTokenMatcher of(final ScriptsTemplate template) {
+        if (template == ScriptsTemplate.TEMPLATE_SQL) {
+            return MATCHER_SQL;
+        } else if (template == ScriptsTemplate.TEMPLATE_JSON) {
+            return MATCHER_JSON;
+        }
+        return new ScriptsTokenMatcher(template);
+    }
+
+    /**
+     * @return the length of the longest token (a token found across two
+     *         chunks starts in the last {@code maxLength - 1} characters of
+     *         the first one)
+     */
+    int getMaxLength() {
+        return this.maxLength;
+    }
+
+    private static void add(final Set<String> set, final String token) {
+        if (token != null && !token.isEmpty()) {
+            set.add(token);
+        }
+    }
+
+    /**
+     * Check if the input contains at least one of the tokens
+     * 
+     * @param input
+     *            the input (not null)
+     * @return true, if a token is found
+     */
+    boolean matches(final CharSequence input) {
+        final int length = input.length();
+        for (int i = 0; i < length; ++i) {
+            final char c = input.charAt(i);
+            if (c < ASCII ? (this.firstAscii[c / Long.SIZE] & (1L << c)) != 0 : this.firstOthers.indexOf(c) > -1) {
+                for (String token : this.tokens) {
+                    if (regionMatches(input, i, token)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean regionMatches(final CharSequence input, final int offset, final String token) {
+        final int length = token.length();
+        if (offset + length > input.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; ++i) {
+            if (input.charAt(offset + i) != token.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,155 @@
+/*-
+ * #%L
+ * utils-scripts
+ * %%
+ * Copyright (C) 2016 - 2018 Gilles Landel
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package fr.landel.utils.scripts;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Watcher of the scripts directories (hot reload), created by
+ * {@link ScriptsLoader#watch(long, TimeUnit)}. The changes are collected by a
+ * daemon thread until no change is detected during the debounce delay, then
+ * the changed scripts are reloaded.
+ *
+ * @since Oct 17, 2026
+ * @author Gilles
+ *
+ */
+public final class ScriptsWatcher implements Closeable {
+
+    private final ScriptsLoader loader;
+    private final WatchService service;
+    private final long debounce;
+    private final AtomicLong reloads;
+    private volatile Exception lastError;
+
+    /**
+     * Constructor (start watching)
+     * 
+     * @param loader
+     *            the loader
+     * @param directories
+     *            the directories to watch
+     * @param debounce
+     *            the debounce delay in milliseconds
+     * @throws IOException
+     *             on watch service failures
+     */
+    ScriptsWatcher(final ScriptsLoader loader, final Set<Path> directories, final long debounce) throws IOException {
+        this.loader = loader;
+        this.debounce = debounce;
+        this.reloads = new AtomicLong();
+
+        this.service = FileSystems.getDefault().newWatchService();
+        try {
+            for (Path directory : directories) {
+                directory.register(this.service, ENTRY_CREATE, ENTRY_MODIFY);
+            }
+        } catch (IOException e) {
+            this.service.close();
+            throw e;
+        }
+
+        final Thread thread = new Thread(this::watch, "scripts-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * @return the number of reloaded scripts
+     */
+    public long getReloadCount() {
+        return this.reloads.get();
+    }
+
+    /**
+     * @return the last failure (a script that cannot be read or compiled, the
+     *         previous version is kept) or {@code null}
+     */
+    public Exception getLastError() {
+        return this.lastError;
+    }
+
+    /**
+     * Stop watching
+     * 
+     * @throws IOException
+     *             on watch service failures
+     */
+    @Override
+    public void close() throws IOException {
+        this.service.close();
+    }
+
+    private void watch() {
+        final Set<Path> changes = new HashSet<>();
+        try {
+            for (;;) {
+                this.collect(this.service.take(), changes);
+
+                // debounce, wait until no more change
+                WatchKey key;
+                while ((key = this.service.poll(this.debounce, TimeUnit.MILLISECONDS)) != null) {
+                    this.collect(key, changes);
+                }
+
+                final List<Exception> errors = new ArrayList<>();
+                this.reloads.addAndGet(this.loader.reload(changes, errors));
+                if (!errors.isEmpty()) {
+                    this.lastError = errors.get(errors.size() - 1);
+                }
+                changes.clear();
+            }
+        } catch (ClosedWatchServiceException e) {
+            // closed
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void collect(final WatchKey key, final Set<Path> changes) {
+        final Path directory = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                // events lost, the whole directory is checked
+                changes.add(directory);
+            } else {
+                changes.add(directory.resolve((Path) event.context()).toAbsolutePath().normalize());
+            }
+        }
+        key.reset();
+    }
+}
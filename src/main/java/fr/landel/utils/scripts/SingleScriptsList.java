@@ -1,64 +1,64 @@
-/*-
- * #%L
- * utils-scripts
- * %%
- * Copyright (C) 2016 - 2018 Gilles Landel
- * %%
- * Licensed under the Apache License, Version 2.0 (the "License");
- * you may not use this file except in compliance with the License.
- * You may obtain a copy of the License at
- * 
- *      http://www.apache.org/licenses/LICENSE-2.0
- * 
- * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS,
- * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- * See the License for the specific language governing permissions and
- * limitations under the License.
- * #L%
- */
-package fr.landel.utils.scripts;
-
-import java.nio.charset.Charset;
-
-/**
- * This class allows to load a single script without creating an enumeration of
- * scripts.
- *
- * @since Feb 27, 2017
- * @author Gilles
- *
- */
-public class SingleScriptsList implements ScriptsList<SingleScriptsList> {
-
-    private final String name;
-    private final Charset charset;
-
-    /**
-     * Constructor
-     *
-     * @param name
-     *            the script name
-     * @param charset
-     *            the file charset
-     */
-    public SingleScriptsList(final String name, final Charset charset) {
-        this.name = name;
-        this.charset = charset;
-    }
-
-    @Override
-    public SingleScriptsList[] getValues() {
-        return new SingleScriptsList[] {this};
-    }
-
-    @Override
-    public String getName() {
-        return this.name;
-    }
-
-    @Override
-    public Charset getCharset() {
-        return this.charset;
-    }
-}
+/*-
+ * #%L
+ * utils-scripts
+ * %%
+ * Copyright (C) 2016 - 2018 Gilles Landel
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package fr.landel.utils.scripts;
+
+import java.nio.charset.Charset;
+
+/**
+ * This class allows to load a single script without creating an enumeration of
+ * scripts.
+ *
+ * @since Feb 27, 2017
+ * @author Gilles
+ *
+ */
+public class SingleScriptsList implements ScriptsList<SingleScriptsList> {
+
+    private final String name;
+    private final Charset charset;
+
+    /**
+     * Constructor
+     *
+     * @param name
+     *            the script name
+     * @param charset
+     *            the file charset
+     */
+    public SingleScriptsList(final String name, final Charset charset) {
+        this.name = name;
+        this.charset = charset;
+    }
+
+    @Override
+    public SingleScriptsList[] getValues() {
+        return new SingleScriptsList[] {this};
+    }
+
+    @Override
+    public String getName() {
+        return this.name;
+    }
+
+    @Override
+    public Charset getCharset() {
+        return this.charset;
+    }
+}
@@ -0,0 +1,310 @@
+/*-
+ * #%L
+ * utils-scripts
+ * %%
+ * Copyright (C) 2016 - 2018 Gilles Landel
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package fr.landel.utils.scripts.jdbc;
+
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import fr.landel.utils.assertor.Assertor;
+import fr.landel.utils.scripts.ScriptsList;
+import fr.landel.utils.scripts.ScriptsLoader;
+import fr.landel.utils.scripts.ScriptsStatement;
+
+/**
+ * Cache of the prepared statements of one connection, keyed by the shape of
+ * the scripts (see {@link ScriptsStatement#getFingerprint()}). The scripts
+ * are rendered in binding mode (see
+ * {@link ScriptsLoader#getStatement(ScriptsList, Map)}), so the text is only
+ * built once per shape, and it's only prepared once per connection while
+ * cached. The values are bound in the order of the placeholders on each
+ * call.
+ *
+ * <p>
+ * The cache is bounded, the least recently used statement is closed and
+ * removed when a new one is added to a full cache. Like the connection, the
+ * cache is not thread-safe. The returned statements are owned by the cache
+ * (they are closed by {@link #close()}, the connection is not closed).
+ * </p>
+ *
+ * <pre>
+ * try (ScriptsStatementCache statements = new ScriptsStatementCache(scriptsLoader, connection)) {
+ *     final PreparedStatement ps = statements.prepare(EnumScripts.LIST_USERS, replacements);
+ *     try (ResultSet rs = ps.executeQuery()) {
+ *         ...
+ *     }
+ * }
+ * </pre>
+ *
+ * @since Oct 17, 2026
+ * @author Gilles
+ *
+ */
+public class ScriptsStatementCache implements AutoCloseable {
+
+    /**
+     * Default maximum number of cached statements
+     */
+    public static final int DEFAULT_SIZE = 64;
+
+    private final ScriptsLoader loader;
+    private final Connection connection;
+    private final int size;
+    private final Map<Long, Entry> statements;
+    private long hits;
+    private long misses;
+
+    /**
+     * Constructor (default size: 64)
+     * 
+     * @param loader
+     *            The scripts loader
+     * @param connection
+     *            The connection
+     * @throws IllegalArgumentException
+     *             If the loader or the connection is null
+     */
+    public ScriptsStatementCache(final ScriptsLoader loader, final Connection connection) {
+        this(loader, connection, DEFAULT_SIZE);
+    }
+
+    /**
+     * Constructor
+     * 
+     * @param loader
+     *            The scripts loader
+     * @param connection
+     *            The connection
+     * @param size
+     *            The maximum number of cached statements
+     * @throws IllegalArgumentException
+     *             If the loader or the connection is null, or if the size is
+     *             lower than 1
+     */
+    public ScriptsStatementCache(final ScriptsLoader loader, final Connection connection, final int size) {
+        Assertor.that(loader).isNotNull().orElseThrow("The scripts loader cannot be null");
+        Assertor.that(connection).isNotNull().orElseThrow("The connection cannot be null");
+        Assertor.that(size).isGT(0).orElseThrow("The size of the statement cache has to be greater than 0");
+
+        this.loader = loader;
+        this.connection = connection;
+        this.size = size;
+        this.statements = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Get the prepared statement of the script (from cache or prepared) and
+     * bind the values
+     * 
+     * @param path
+     *            The scripts path
+     * @param replacements
+     *            The entries (keys to replace, values to bind)
+     * @param <E>
+     *            The type of script list
+     * @param <V>
+     *            The type of values
+     * @return The prepared statement with the bound values (owned by the
+     *         cache)
+     * @throws SQLException
+     *             On preparation or binding failures
+     * @throws IllegalArgumentException
+     *             If the script is not loaded, if a key is not valid or if a
+     *             rendered variable is in a quoted text
+     */
+    public <E extends ScriptsList<E>, V> PreparedStatement prepare(final ScriptsList<E> path, final Map<String, V> replacements)
+            throws SQLException {
+        return this.prepare(path, this.loader.getStatement(path, replacements));
+    }
+
+    /**
+     * Get the prepared statement of the script (from cache or prepared) and
+     * bind the values, values and presence are indexed by slot (see
+     * {@link ScriptsLoader#getStatementBySlots(ScriptsList, Object[], BitSet)})
+     * 
+     * @param path
+     *            The scripts path
+     * @param values
+     *            The values indexed by slot (may be {@code null} or shorter
+     *            than the slot count)
+     * @param presence
+     *            The presence of each slot
+     * @param <E>
+     *            The type of script list
+     * @return The prepared statement with the bound values (owned by the
+     *         cache)
+     * @throws SQLException
+     *             On preparation or binding failures
+     * @throws IllegalArgumentException
+     *             If the script is not loaded
+     */
+    public <E extends ScriptsList<E>> PreparedStatement prepareBySlots(final ScriptsList<E> path, final Object[] values,
+            final BitSet presence) throws SQLException {
+        return this.prepare(path, this.loader.getStatementBySlots(path, values, presence));
+    }
+
+    private PreparedStatement prepare(final ScriptsList<?> path, final ScriptsStatement statement) throws SQLException {
+        Assertor.that(statement).isNotNull().orElseThrow("The script is not loaded: %s", path != null ? path.getName() : null);
+
+        final Long key = statement.getFingerprint();
+        Entry entry = this.statements.get(key);
+
+        // the text is compared in case of fingerprint collision (usually the
+        // same instance, built once per shape)
+        if (entry != null && entry.text.equals(statement.getText()) && !entry.statement.isClosed()) {
+            ++this.hits;
+            entry.statement.clearParameters();
+        } else {
+            ++this.misses;
+            if (entry != null) {
+                this.statements.remove(key);
+                entry.statement.close();
+            } else if (this.statements.size() >= this.size) {
+                final Iterator<Entry> eldest = this.statements.values().iterator();
+                final Entry evicted = eldest.next();
+                eldest.remove();
+                evicted.statement.close();
+            }
+
+            entry = new Entry(statement.getText(), this.connection.prepareStatement(statement.getText()));
+            this.statements.put(key, entry);
+        }
+
+        bind(entry.statement, statement.getValues());
+        return entry.statement;
+    }
+
+    /**
+     * Bind the values in order, the values are converted like in the
+     * rendering: readers as character streams, suppliers by their supplied
+     * value, enumerations by name, dates as timestamps and other character
+     * sequences as strings
+     * 
+     * @param statement
+     *            The prepared statement
+     * @param values
+     *            The values in the order of the placeholders
+     * @throws SQLException
+     *             On binding failures
+     */
+    public static void bind(final PreparedStatement statement, final List<Object> values) throws SQLException {
+        for (int i = 0; i < values.size(); ++i) {
+            bind(statement, i + 1, values.get(i));
+        }
+    }
+
+    private static void bind(final PreparedStatement statement, final int index, final Object value) throws SQLException {
+        if (value == null) {
+            statement.setNull(index, Types.NULL);
+        } else if (value instanceof Supplier) {
+            bind(statement, index, ((Supplier<?>) value).get());
+        } else if (value instanceof Reader) {
+            statement.setCharacterStream(index, (Reader) value);
+        } else if (value instanceof Enum) {
+            statement.setString(index, ((Enum<?>) value).name());
+        } else if (value instanceof java.util.Date && !(value instanceof java.sql.Date || value instanceof java.sql.Time)) {
+            statement.setTimestamp(index, new Timestamp(((java.util.Date) value).getTime()));
+        } else if (value instanceof CharSequence && !(value instanceof String)) {
+            statement.setString(index, value.toString());
+        } else {
+            statement.setObject(index, value);
+        }
+    }
+
+    /**
+     * @return The maximum number of cached statements
+     */
+    public int getSize() {
+        return this.size;
+    }
+
+    /**
+     * @return The number of cached statements
+     */
+    public int getCount() {
+        return this.statements.size();
+    }
+
+    /**
+     * @return The number of statements found in cache
+     */
+    public long getHits() {
+        return this.hits;
+    }
+
+    /**
+     * @return The number of statements prepared
+     */
+    public long getMisses() {
+        return this.misses;
+    }
+
+    /**
+     * Close all the cached statements (the connection is not closed). All the
+     * statements are closed even if one fails, the first failure is thrown
+     * (the next ones are suppressed).
+     * 
+     * @throws SQLException
+     *             On closing failures
+     */
+    @Override
+    public void close() throws SQLException {
+        SQLException exception = null;
+        for (Entry entry : this.statements.values()) {
+            try {
+                entry.statement.close();
+            } catch (SQLException e) {
+                if (exception == null) {
+                    exception = e;
+                } else {
+                    exception.addSuppressed(e);
+                }
+            }
+        }
+        this.statements.clear();
+
+        if (exception != null) {
+            throw exception;
+        }
+    }
+
+    /**
+     * Cached statement and its text
+     */
+    private static final class Entry {
+
+        private final String text;
+        private final PreparedStatement statement;
+
+        Entry(final String text, final PreparedStatement statement) {
+            this.text = text;
+            this.statement = statement;
+        }
+    }
+}
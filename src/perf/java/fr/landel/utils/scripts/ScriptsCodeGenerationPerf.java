@@ -0,0 +1,110 @@
+/*
+ * #%L
+ * utils-scripts
+ * %%
+ * Copyright (C) 2016 - 2018 Gilles Landel
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package fr.landel.utils.scripts;
+
+import static org.junit.Assert.assertNotNull;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.RunnerException;
+
+import fr.landel.utils.microbenchmark.AbstractMicrobenchmark;
+
+/**
+ * Compare the rendering of {@link ScriptsLoader} by the interpreter and by
+ * the classes generated at runtime (see
+ * {@link ScriptsLoader#setCodeGeneration(boolean)}), on patientsSearch.sql
+ * and index.elastic
+ *
+ * @since Oct 17, 2026
+ * @author Gilles
+ *
+ */
+@State(Scope.Benchmark)
+public class ScriptsCodeGenerationPerf extends AbstractMicrobenchmark {
+
+    @Param({"false", "true"})
+    private boolean codeGeneration;
+
+    private ScriptsLoader sqlLoader;
+    private ScriptsLoader jsonLoader;
+    private Map<String, Object> sqlReplacements;
+    private Map<String, Object> jsonReplacements;
+
+    @Setup
+    public void setUp() throws IOException {
+        this.sqlLoader = new ScriptsLoader("my_scripts");
+        this.sqlLoader.setCodeGeneration(this.codeGeneration);
+        this.sqlLoader.init(EnumScripts.PATIENTS_SEARCH);
+
+        this.jsonLoader = new ScriptsLoader("my_scripts", ScriptsTemplate.TEMPLATE_JSON);
+        this.jsonLoader.setCodeGeneration(this.codeGeneration);
+        this.jsonLoader.init(EnumScripts.INDEX_AGGS);
+
+        this.sqlReplacements = new HashMap<>();
+        this.sqlReplacements.put("statusNormal", "ok");
+        this.sqlReplacements.put("vacation", "yes");
+        this.sqlReplacements.put("birthday", "now");
+        this.sqlReplacements.put("name", "PAT");
+        this.sqlReplacements.put("orderBy", "name ASC");
+
+        this.jsonReplacements = new HashMap<>();
+        this.jsonReplacements.put("apps", "my_app_id");
+        this.jsonReplacements.put("start", 0);
+        this.jsonReplacements.put("end", 1000);
+        this.jsonReplacements.put("first_group_by_os", true);
+        this.jsonReplacements.put("apps_first_group_ios", "ios_app_id");
+        this.jsonReplacements.put("interval", "day");
+    }
+
+    @Override
+    protected double getExpectedMinNbOpsPerSeconds() {
+        return 500d;
+    }
+
+    /**
+     * Render patientsSearch.sql
+     */
+    @Benchmark
+    public StringBuilder perfPatientsSearch() {
+        return this.sqlLoader.get(EnumScripts.PATIENTS_SEARCH, this.sqlReplacements);
+    }
+
+    /**
+     * Render index.elastic
+     */
+    @Benchmark
+    public StringBuilder perfIndex() {
+        return this.jsonLoader.get(EnumScripts.INDEX_AGGS, this.jsonReplacements);
+    }
+
+    @Test
+    public void testPerf() throws IOException, RunnerException {
+        assertNotNull(super.run());
+    }
+}
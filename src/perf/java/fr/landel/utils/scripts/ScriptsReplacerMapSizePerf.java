@@ -0,0 +1,92 @@
+/*-
+ * #%L
+ * utils-scripts
+ * %%
+ * Copyright (C) 2016 - 2018 Gilles Landel
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package fr.landel.utils.scripts;
+
+import static org.junit.Assert.assertNotNull;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.RunnerException;
+
+import fr.landel.utils.microbenchmark.AbstractMicrobenchmark;
+
+/**
+ * Check {@link ScriptsReplacer} performance according to the size of the
+ * replacements map (the script always uses the same 20 variables, other keys
+ * are unused, the cost should not grow with the map size)
+ *
+ * @since Oct 17, 2026
+ * @author Gilles
+ *
+ */
+@State(Scope.Benchmark)
+public class ScriptsReplacerMapSizePerf extends AbstractMicrobenchmark {
+
+    private static final int VARIABLES = 20;
+
+    @Param({"20", "200", "2000"})
+    private int mapSize;
+
+    private ScriptsReplacer replacer;
+    private String content;
+    private Map<String, Object> replacements;
+
+    @Setup
+    public void setUp() {
+        this.replacer = new ScriptsReplacer();
+
+        final StringBuilder builder = new StringBuilder("SELECT * FROM table WHERE 1 = 1\n");
+        for (int i = 0; i < VARIABLES; ++i) {
+            builder.append("AND column").append(i).append(" = '{key").append(i).append("}'\n");
+        }
+        this.content = builder.toString();
+
+        this.replacements = new HashMap<>();
+        for (int i = 0; i < this.mapSize; ++i) {
+            this.replacements.put("key" + i, "value" + i);
+        }
+    }
+
+    @Override
+    protected double getExpectedMinNbOpsPerSeconds() {
+        return 500d;
+    }
+
+    /**
+     * Test class for {@link ScriptsReplacer}.
+     */
+    @Benchmark
+    public String perfReplacer() {
+        return this.replacer.replace(this.content, this.replacements);
+    }
+
+    @Test
+    public void testPerf() throws IOException, RunnerException {
+        assertNotNull(super.run());
+    }
+}
@@ -1,466 +1,1544 @@
-/*
- * #%L
- * utils-scripts
- * %%
- * Copyright (C) 2016 - 2018 Gilles Landel
- * %%
- * Licensed under the Apache License, Version 2.0 (the "License");
- * you may not use this file except in compliance with the License.
- * You may obtain a copy of the License at
- * 
- *      http://www.apache.org/licenses/LICENSE-2.0
- * 
- * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS,
- * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- * See the License for the specific language governing permissions and
- * limitations under the License.
- * #L%
- */
-package fr.landel.utils.scripts;
-
-import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertNotNull;
-import static org.junit.Assert.assertNull;
-import static org.junit.Assert.assertTrue;
-import static org.junit.Assert.fail;
-
-import java.io.File;
-import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Map.Entry;
-import java.util.regex.Pattern;
-
-import org.junit.Before;
-import org.junit.Test;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
-import fr.landel.utils.assertor.Assertor;
-import fr.landel.utils.commons.StringUtils;
-import fr.landel.utils.io.FileSystemUtils;
-import fr.landel.utils.io.FileUtils;
-import fr.landel.utils.io.SystemProperties;
-import fr.landel.utils.scripts.PatientSearch.Attendance;
-import fr.landel.utils.scripts.PatientSearch.Distance;
-import fr.landel.utils.scripts.PatientSearch.Health;
-import fr.landel.utils.scripts.PatientSearch.Status;
-
-/**
- * Check scripts loader
- *
- * @since Dec 1, 2015
- * @author Gilles
- *
- */
-public class ScriptsLoaderTest {
-
-    private static final Logger LOGGER = LoggerFactory.getLogger(ScriptsLoaderTest.class);
-
-    private static final String PARAM_STATUS = "status";
-    private static final String PARAM_ATTENDANCE = "attendance";
-    private static final String PARAM_SECTOR = "sectorId";
-    private static final String PARAM_DOCTOR = "doctorId";
-    private static final String PARAM_UNIT = "unitId";
-    private static final String PARAM_RECORD_NUMBER = "recordNumber";
-    private static final String PARAM_NAME = "name";
-    private static final String PARAM_FIRSTNAME = "firstName";
-    private static final String PARAM_BIRTHDAY = "birthday";
-    private static final String PARAM_GENDER = "gender";
-
-    /**
-     * Template for scripts
-     */
-    private static final ScriptsTemplate TEMPLATE = new AbstractScriptsTemplate() {
-        @Override
-        protected void init() {
-            this.setExpressionOpen(EXPRESSION_OPEN);
-            this.setExpressionClose(EXPRESSION_CLOSE);
-            this.setVariableOpen(EXPRESSION_OPEN);
-            this.setVariableClose(EXPRESSION_CLOSE);
-            this.setBlockOpen(BLOCK_OPEN);
-            this.setBlockClose(BLOCK_CLOSE);
-            this.setOperatorThen(OPERATOR_THEN);
-            this.setOperatorElse(OPERATOR_ELSE);
-            this.setOperatorAnd(OPERATOR_AND);
-            this.setOperatorOr(OPERATOR_OR);
-            this.setOperatorNot(OPERATOR_NOT);
-
-            this.setRemoveComments(Boolean.FALSE);
-            this.setRemoveBlankLines(Boolean.FALSE);
-
-            this.setOneLineCommentOperator(COMMENT_SQL);
-            this.setMultiLineCommentOperators(COMMENT_OPEN, COMMENT_CLOSE);
-
-            this.setChecker(null);
-        }
-    };
-
-    private static final Pattern PATTERN_COLUMN = Pattern.compile("\\w+");
-
-    private static final String PATH = "src/test/resources/my_scripts/";
-
-    private ScriptsLoader scriptsLoader;
-
-    /**
-     * initialize the loader with scripts list
-     * 
-     * @throws IOException
-     *             On failures
-     */
-    @Before
-    public void init() throws IOException {
-        this.scriptsLoader = new ScriptsLoader();
-
-        this.scriptsLoader.setPath("my_scripts");
-        this.scriptsLoader.init(EnumScripts.values());
-
-        assertNotNull(this.scriptsLoader.getReplacer());
-    }
-
-    /**
-     * Test single script loader
-     * 
-     * @throws IOException
-     *             On error
-     */
-    @Test
-    public void testSingleScript() throws IOException {
-        ScriptsLoader loader = new ScriptsLoader("my_scripts");
-        loader = new ScriptsLoader("my_scripts" + SystemProperties.FILE_SEPARATOR.getValue());
-
-        ScriptsList<?> script = loader.init("test.sql", StandardCharsets.UTF_8);
-        StringBuilder builder = loader.get(script, "app.id", "my_best_app");
-
-        assertEquals("select * from test where id = 'my_best_app'", builder.toString());
-        assertEquals(1, script.getValues().length);
-
-    }
-
-    /**
-     * Test single script loader in specific context
-     * 
-     * @throws IOException
-     *             On error
-     */
-    @Test
-    public void testSingleScriptSpecific() throws IOException {
-        ScriptsLoader loader = new ScriptsLoader("my_scripts");
-
-        // null script
-
-        ScriptsList<?> script2 = loader.init("", StandardCharsets.UTF_8);
-        assertNull(loader.get(script2));
-
-        // BLANK LINE \r
-
-        File dir = new File("target/my_scripts2");
-        assertTrue(dir.isDirectory() || FileSystemUtils.createDirectory(dir));
-        File file = new File(dir, "test.sql");
-        loader = new ScriptsLoader(dir.getPath());
-
-        FileUtils.writeFileContent(new StringBuilder("test {test}\r\rtoto"), file, StandardCharsets.UTF_8);
-        ScriptsList<?> script = loader.init(null, file.getName(), StandardCharsets.UTF_8);
-        StringBuilder builder = loader.get(script, "test", "my_best_app");
-        assertEquals("test my_best_app\rtoto", builder.toString());
-
-        // BLANK LINE \n
-
-        FileUtils.writeFileContent(new StringBuilder("test {test}\n\ntoto"), file, StandardCharsets.UTF_8);
-        script = loader.init(null, file.getName(), StandardCharsets.UTF_8);
-        builder = loader.get(script, "test", "my_best_app");
-        assertEquals("test my_best_app\ntoto", builder.toString());
-
-        // REMOVE COMMENT \r
-
-        FileUtils.writeFileContent(new StringBuilder("test {test}\r--test\rtoto"), file, StandardCharsets.UTF_8);
-        script = loader.init(null, file.getName(), StandardCharsets.UTF_8);
-        builder = loader.get(script, "test", "my_best_app");
-        assertEquals("test my_best_app\rtoto", builder.toString());
-
-        // REMOVE COMMENT \n
-
-        FileUtils.writeFileContent(new StringBuilder("test {test}\n--test\ntoto"), file, StandardCharsets.UTF_8);
-        script = loader.init(null, file.getName(), StandardCharsets.UTF_8);
-        builder = loader.get(script, "test", "my_best_app");
-        assertEquals("test my_best_app\ntoto", builder.toString());
-
-        // NULL VARIABLE
-
-        FileUtils.writeFileContent(new StringBuilder("test {test ??titi::toto}\n--test\ntoto"), file, StandardCharsets.UTF_8);
-        script = loader.init(null, file.getName(), StandardCharsets.UTF_8);
-        builder = loader.get(script, "test", null);
-        assertEquals("test titi\ntoto", builder.toString());
-
-        // NULL EXPRESSION
-
-        FileUtils.writeFileContent(new StringBuilder("test {? ?titi::toto}{??titi: :toto}{? ?titi: :toto}\n--test\ntoto"), file,
-                StandardCharsets.UTF_8);
-        script = loader.init(null, file.getName(), StandardCharsets.UTF_8);
-        builder = loader.get(script, "test", null);
-        assertEquals("test toto\ntoto", builder.toString());
-
-        // NULL FILE
-
-        script = loader.init("", StandardCharsets.UTF_8);
-        assertNull(loader.get(script, "test", null));
-    }
-
-    /**
-     * Test single script loader with script without comments and blank lines
-     * 
-     * @throws IOException
-     *             On error
-     */
-    @Test
-    public void testSingleScriptWithoutDataToRemove() throws IOException {
-        File dir = new File("target/my_scripts2");
-        assertTrue(dir.isDirectory() || FileSystemUtils.createDirectory(dir));
-        File file = new File(dir, "test.sql");
-        FileUtils.writeFileContent(new StringBuilder("test {test}"), file, StandardCharsets.UTF_8);
-
-        ScriptsLoader loader = new ScriptsLoader(dir.getPath());
-        ScriptsList<?> script = loader.init(null, file.getName(), StandardCharsets.UTF_8);
-        StringBuilder builder = loader.get(script, "test", "my_best_app");
-        assertEquals("test my_best_app", builder.toString());
-    }
-
-    /**
-     * Test single script loader with custom template that don't remove comments
-     * and blank lines
-     * 
-     * @throws IOException
-     *             On error
-     */
-    @Test
-    public void testSingleScriptKeepAll() throws IOException {
-        ScriptsLoader loader = new ScriptsLoader("my_scripts");
-        ScriptsList<?> script = loader.init("test.sql", StandardCharsets.UTF_8);
-        StringBuilder builder = loader.get(script, "app.id", "my_best_app");
-
-        // CUSTOM TEMPLATE (keep comments and blank lines)
-
-        loader.getReplacer().setTemplate(TEMPLATE);
-
-        builder = loader.get(script, "app.id", "my_best_app");
-
-        assertEquals("-- comment" + SystemProperties.LINE_SEPARATOR.getValue() + "select * from test where id = 'my_best_app'",
-                builder.toString());
-    }
-
-    /**
-     * Test scripts loader
-     * 
-     * @throws IOException
-     *             On error
-     */
-    @Test
-    public void testGetScripts() throws IOException {
-
-        // STANDARD TEMPLATE
-        StringBuilder content = this.scriptsLoader.get(EnumScripts.TEST);
-        assertNotNull(content);
-        assertEquals("select * from test where id = ''", content.toString());
-
-        content = this.scriptsLoader.get(EnumScripts.TEST_ONE_LINE, "app.id", "app_id");
-        assertNotNull(content);
-        assertEquals("select * from test where id = 'app_id' ", content.toString());
-
-        assertNull(this.scriptsLoader.get(null));
-        assertNull(this.scriptsLoader.get((ScriptsList<?>) null, null));
-        assertNull(this.scriptsLoader.get((ScriptsList<?>) null, null, null));
-
-        // SQL TEMPLATE
-        final Map<String, Object> replacements = new HashMap<>();
-        replacements.put("engine", true);
-        replacements.put("racing", "competition");
-
-        content = this.scriptsLoader.get(EnumScripts.BIKES, replacements);
-        assertNotNull(content);
-        StringBuilder expected = FileUtils.getFileContent(PATH + "bikes.expected.sql");
-        assertTrue(Assertor.that(content).isEqualIgnoreLineReturns(expected).isOK());
-
-        // JSON TEMPLATE
-        final ScriptsLoader loader = new ScriptsLoader();
-
-        assertNotNull(loader);
-
-        loader.setPath("my_scripts");
-        loader.getReplacer().setTemplate(ScriptsTemplate.TEMPLATE_JSON);
-
-        loader.init(EnumScripts.INDEX_AGGS);
-
-        StringBuilder builder = loader.get(EnumScripts.INDEX_AGGS, "apps", "my_app_id");
-        expected = FileUtils.getFileContent(PATH + "index.expected.elastic");
-
-        assertTrue(Assertor.that(builder).isEqualIgnoreLineReturns(expected).isOK());
-    }
-
-    /**
-     * Test scripts loader
-     */
-    @Test
-    public void test() {
-        String key = "app.id";
-        String replacement = "28";
-        StringBuilder builder = this.scriptsLoader.get(EnumScripts.TEST, key, replacement);
-        assertNotNull(builder);
-        assertEquals(-1, builder.indexOf(key));
-        assertTrue(builder.indexOf(replacement) > -1);
-        assertEquals(-1, builder.indexOf("{"));
-        assertEquals(-1, builder.indexOf("}"));
-    }
-
-    /**
-     * Test scripts loader
-     */
-    @Test
-    public void patientsSearchTest() {
-        final Map<String, String> replacements = new HashMap<>();
-
-        PatientSearch patientSearch = new PatientSearch();
-        patientSearch.setName("PAT");
-
-        Map<String, Boolean> orderBy = new HashMap<>();
-        orderBy.put("lastName", true);
-        orderBy.put("firstName", true);
-
-        this.defineReplacements(patientSearch, -1, -1, orderBy);
-
-        // replacements.put("count", Boolean.TRUE.toString());
-
-        LOGGER.info("Call scriptsLoader for patientSearch");
-
-        StringBuilder builder = FileUtils.convertToUnix(this.scriptsLoader.get(EnumScripts.PATIENTS_SEARCH, replacements));
-
-        LOGGER.info("scriptsLoader for patientSearch done");
-
-        assertNotNull(builder);
-        try {
-            StringBuilder expected = FileUtils
-                    .convertToUnix(FileUtils.getFileContent(PATH + "patientsSearch.expected.sql", StandardCharsets.UTF_8));
-
-            assertEquals(expected.length(), builder.length());
-            assertEquals(expected.toString(), builder.toString());
-        } catch (IOException e) {
-            fail("Errors occurred in ScriptsLoaderTest#patientsSearchTest()");
-        }
-    }
-
-    private Map<String, String> defineReplacements(final PatientSearch patientMultiSearch, final int firstResult, final int maxResults,
-            final Map<String, Boolean> orderByAUB) {
-        final Map<String, String> replacements = new HashMap<>();
-
-        if (firstResult > -1 && maxResults > -1) {
-            replacements.put("firstResult", String.valueOf(firstResult));
-            replacements.put("maxResults", String.valueOf(maxResults));
-        }
-
-        this.manageVacation(replacements, patientMultiSearch);
-        this.manageUnit(replacements, patientMultiSearch);
-        this.manageStatus(replacements, patientMultiSearch);
-        this.manageDoctor(replacements, patientMultiSearch);
-        this.manageRecordNumber(replacements, patientMultiSearch);
-        this.manageLastname(replacements, patientMultiSearch);
-        this.manageFirstname(replacements, patientMultiSearch);
-        this.manageBirthday(replacements, patientMultiSearch);
-        this.manageGender(replacements, patientMultiSearch);
-        this.manageAttendance(replacements, patientMultiSearch);
-
-        this.manageSort(replacements, orderByAUB);
-
-        return replacements;
-    }
-
-    private void manageVacation(final Map<String, String> replacements, final PatientSearch patientMultiSearch) {
-        if (Status.VACATION.equals(patientMultiSearch.getStatus())) {
-            replacements.put("vacation", String.valueOf(patientMultiSearch.getStatus()));
-        } else {
-            if (Status.ARCHIVE.equals(patientMultiSearch.getStatus())) {
-                replacements.put("archive", String.valueOf(patientMultiSearch.getStatus()));
-            }
-
-            if (patientMultiSearch.getSectorId() != null) {
-                replacements.put(PARAM_SECTOR, String.valueOf(patientMultiSearch.getSectorId()));
-            }
-        }
-    }
-
-    private void manageUnit(final Map<String, String> replacements, final PatientSearch patientMultiSearch) {
-        if (patientMultiSearch.getUnitId() != null && patientMultiSearch.getUnitId() != 0) {
-            replacements.put(PARAM_UNIT, String.valueOf(patientMultiSearch.getUnitId()));
-        }
-    }
-
-    private void manageDoctor(final Map<String, String> replacements, final PatientSearch patientMultiSearch) {
-        if (patientMultiSearch.getDoctorId() != null && patientMultiSearch.getDoctorId() != 0) {
-            replacements.put(PARAM_DOCTOR, String.valueOf(patientMultiSearch.getDoctorId()));
-        }
-    }
-
-    private void manageRecordNumber(final Map<String, String> replacements, final PatientSearch patientMultiSearch) {
-        if (patientMultiSearch.getRecordNumber() != null) {
-            replacements.put(PARAM_RECORD_NUMBER, String.valueOf(patientMultiSearch.getRecordNumber()));
-        }
-    }
-
-    private void manageLastname(final Map<String, String> replacements, final PatientSearch patientMultiSearch) {
-        if (StringUtils.isNotEmpty(patientMultiSearch.getName())) {
-            replacements.put(PARAM_NAME, String.valueOf(patientMultiSearch.getName()));
-        }
-    }
-
-    private void manageFirstname(final Map<String, String> replacements, final PatientSearch patientMultiSearch) {
-        if (StringUtils.isNotEmpty(patientMultiSearch.getFirstName())) {
-            replacements.put(PARAM_FIRSTNAME, String.valueOf(patientMultiSearch.getFirstName()));
-        }
-    }
-
-    private void manageBirthday(final Map<String, String> replacements, final PatientSearch patientMultiSearch) {
-        if (patientMultiSearch.getBirthDay() != null) {
-            replacements.put(PARAM_BIRTHDAY, String.valueOf(patientMultiSearch.getBirthDay()));
-        }
-    }
-
-    private void manageGender(final Map<String, String> replacements, final PatientSearch patientMultiSearch) {
-        if (patientMultiSearch.getGender() != null && patientMultiSearch.getGender() != -1) {
-            replacements.put(PARAM_GENDER, String.valueOf(patientMultiSearch.getGender()));
-        }
-    }
-
-    private void manageAttendance(final Map<String, String> replacements, final PatientSearch patientMultiSearch) {
-        if (patientMultiSearch.getAttendance() != null && !Attendance.ALL.equals(patientMultiSearch.getAttendance())) {
-            replacements.put(PARAM_ATTENDANCE, String.valueOf(patientMultiSearch.getAttendance()));
-        }
-    }
-
-    private void manageStatus(final Map<String, String> replacements, final PatientSearch patientMultiSearch) {
-        if (Health.NORMAL.equals(patientMultiSearch.getHealth())) {
-            replacements.put("statusNormal", Boolean.TRUE.toString());
-        } else if (Health.GOOD.equals(patientMultiSearch.getHealth())) {
-            replacements.put("statusGood", Boolean.TRUE.toString());
-        } else if (patientMultiSearch.getStatus() != null && !Distance.UNKNOWN.equals(patientMultiSearch.getDistance())) {
-            replacements.put(PARAM_STATUS, patientMultiSearch.getStatus().name());
-        }
-    }
-
-    private void manageSort(final Map<String, String> replacements, final Map<String, Boolean> orderBy) {
-        if (orderBy != null && orderBy.size() > 0) {
-
-            for (Entry<String, Boolean> order : orderBy.entrySet()) {
-                if (PATTERN_COLUMN.matcher(order.getKey()).matches()) {
-                    replacements.put("orderBy", order.getKey() + " " + this.getDirection(order.getValue()));
-                }
-            }
-        }
-    }
-
-    private String getDirection(final boolean direction) {
-        if (direction) {
-            return "ASC";
-        }
-        return "DESC";
-    }
-}
+/*
+ * #%L
+ * utils-scripts
+ * %%
+ * Copyright (C) 2016 - 2018 Gilles Landel
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package fr.landel.utils.scripts;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import fr.landel.utils.assertor.Assertor;
+import fr.landel.utils.commons.StringUtils;
+import fr.landel.utils.io.FileSystemUtils;
+import fr.landel.utils.io.FileUtils;
+import fr.landel.utils.io.SystemProperties;
+import fr.landel.utils.scripts.PatientSearch.Attendance;
+import fr.landel.utils.scripts.PatientSearch.Distance;
+import fr.landel.utils.scripts.PatientSearch.Health;
+import fr.landel.utils.scripts.PatientSearch.Status;
+
+/**
+ * Check scripts loader
+ *
+ * @since Dec 1, 2015
+ * @author Gilles
+ *
+ */
+public class ScriptsLoaderTest extends AbstractTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScriptsLoaderTest.class);
+
+    private static final String PARAM_STATUS = "status";
+    private static final String PARAM_ATTENDANCE = "attendance";
+    private static final String PARAM_SECTOR = "sectorId";
+    private static final String PARAM_DOCTOR = "doctorId";
+    private static final String PARAM_UNIT = "unitId";
+    private static final String PARAM_RECORD_NUMBER = "recordNumber";
+    private static final String PARAM_NAME = "name";
+    private static final String PARAM_FIRSTNAME = "firstName";
+    private static final String PARAM_BIRTHDAY = "birthday";
+    private static final String PARAM_GENDER = "gender";
+
+    /**
+     * Template for scripts
+     */
+    private static final ScriptsTemplate TEMPLATE = new AbstractScriptsTemplate() {
+        @Override
+        protected void init() {
+            this.setExpressionOpen(EXPRESSION_OPEN);
+            this.setExpressionClose(EXPRESSION_CLOSE);
+            this.setVariableOpen(EXPRESSION_OPEN);
+            this.setVariableClose(EXPRESSION_CLOSE);
+            this.setBlockOpen(BLOCK_OPEN);
+            this.setBlockClose(BLOCK_CLOSE);
+            this.setOperatorThen(OPERATOR_THEN);
+            this.setOperatorElse(OPERATOR_ELSE);
+            this.setOperatorAnd(OPERATOR_AND);
+            this.setOperatorOr(OPERATOR_OR);
+            this.setOperatorNot(OPERATOR_NOT);
+
+            this.setRemoveComments(Boolean.FALSE);
+            this.setRemoveBlankLines(Boolean.FALSE);
+
+            this.setOneLineCommentOperator(COMMENT_SQL);
+            this.setMultiLineCommentOperators(COMMENT_OPEN, COMMENT_CLOSE);
+
+            this.setChecker(null);
+        }
+    };
+
+    private static final Pattern PATTERN_COLUMN = Pattern.compile("\\w+");
+
+    private static final String PATH = "src/test/resources/my_scripts/";
+
+    private ScriptsLoader scriptsLoader;
+
+    /**
+     * initialize the loader with scripts list
+     * 
+     * @throws IOException
+     *             On failures
+     */
+    @Before
+    public void init() throws IOException {
+        this.scriptsLoader = new ScriptsLoader();
+
+        this.scriptsLoader.setPath("my_scripts");
+        this.scriptsLoader.init(EnumScripts.values());
+
+        assertNotNull(this.scriptsLoader.getReplacer());
+    }
+
+    /**
+     * Test single script loader
+     * 
+     * @throws IOException
+     *             On error
+     */
+    @Test
+    public void testSingleScript() throws IOException {
+        ScriptsLoader loader = new ScriptsLoader("my_scripts");
+        loader = new ScriptsLoader("my_scripts" + SystemProperties.FILE_SEPARATOR.getValue());
+
+        ScriptsList<?> script = loader.init("test.sql", StandardCharsets.UTF_8);
+        StringBuilder builder = loader.get(script, "app.id", "my_best_app");
+
+        assertEquals("select * from test where id = 'my_best_app'", builder.toString());
+        assertEquals(1, script.getValues().length);
+
+    }
+
+    /**
+     * Test single script loader in specific context
+     * 
+     * @throws IOException
+     *             On error
+     */
+    @Test
+    public void testSingleScriptSpecific() throws IOException {
+        ScriptsLoader loader = new ScriptsLoader("my_scripts");
+
+        // null script
+
+        ScriptsList<?> script2 = loader.init("", StandardCharsets.UTF_8);
+        assertNull(loader.get(script2));
+
+        // BLANK LINE \r
+
+        File dir = new File("target/my_scripts2");
+        assertTrue(dir.isDirectory() || FileSystemUtils.createDirectory(dir));
+        File file = new File(dir, "test.sql");
+        loader = new ScriptsLoader(dir.getPath());
+
+        FileUtils.writeFileContent(new StringBuilder("test {test}\r\rtoto"), file, StandardCharsets.UTF_8);
+        ScriptsList<?> script = loader.init(null, file.getName(), StandardCharsets.UTF_8);
+        StringBuilder builder = loader.get(script, "test", "my_best_app");
+        assertEquals("test my_best_app\rtoto", builder.toString());
+
+        // BLANK LINE \n
+
+        FileUtils.writeFileContent(new StringBuilder("test {test}\n\ntoto"), file, StandardCharsets.UTF_8);
+        script = loader.init(null, file.getName(), StandardCharsets.UTF_8);
+        builder = loader.get(script, "test", "my_best_app");
+        assertEquals("test my_best_app\ntoto", builder.toString());
+
+        // REMOVE COMMENT \r
+
+        FileUtils.writeFileContent(new StringBuilder("test {test}\r--test\rtoto"), file, StandardCharsets.UTF_8);
+        script = loader.init(null, file.getName(), StandardCharsets.UTF_8);
+        builder = loader.get(script, "test", "my_best_app");
+        assertEquals("test my_best_app\rtoto", builder.toString());
+
+        // REMOVE COMMENT \n
+
+        FileUtils.writeFileContent(new StringBuilder("test {test}\n--test\ntoto"), file, StandardCharsets.UTF_8);
+        script = loader.init(null, file.getName(), StandardCharsets.UTF_8);
+        builder = loader.get(script, "test", "my_best_app");
+        assertEquals("test my_best_app\ntoto", builder.toString());
+
+        // NULL VARIABLE
+
+        FileUtils.writeFileContent(new StringBuilder("test {test ??titi::toto}\n--test\ntoto"), file, StandardCharsets.UTF_8);
+        script = loader.init(null, file.getName(), StandardCharsets.UTF_8);
+        builder = loader.get(script, "test", null);
+        assertEquals("test titi\ntoto", builder.toString());
+
+        // NULL EXPRESSION
+
+        FileUtils.writeFileContent(new StringBuilder("test {? ?titi::toto}{??titi: :toto}{? ?titi: :toto}\n--test\ntoto"), file,
+                StandardCharsets.UTF_8);
+        script = loader.init(null, file.getName(), StandardCharsets.UTF_8);
+        builder = loader.get(script, "test", null);
+        assertEquals("test toto\ntoto", builder.toString());
+
+        // NULL FILE
+
+        script = loader.init("", StandardCharsets.UTF_8);
+        assertNull(loader.get(script, "test", null));
+    }
+
+    /**
+     * Test scripts compilation on loading
+     * 
+     * @throws IOException
+     *             On error
+     */
+    @Test
+    public void testCompiledScript() throws IOException {
+        File dir = new File("target/my_scripts2");
+        assertTrue(dir.isDirectory() || FileSystemUtils.createDirectory(dir));
+        File file = new File(dir, "test.sql");
+        ScriptsLoader loader = new ScriptsLoader(dir.getPath());
+
+        // same variable twice in a row
+        FileUtils.writeFileContent(new StringBuilder("test {test}{test} /* {comment} */{test ?? ok}"), file, StandardCharsets.UTF_8);
+        ScriptsList<?> script = loader.init(null, file.getName(), StandardCharsets.UTF_8);
+        assertEquals("test aa  ok", loader.get(script, "test", "a").toString());
+        assertEquals("test  ", loader.get(script).toString());
+
+        // invalid scripts are rejected on loading
+        FileUtils.writeFileContent(new StringBuilder("test {test"), file, StandardCharsets.UTF_8);
+        assertException(() -> loader.init(null, file.getName(), StandardCharsets.UTF_8), IllegalArgumentException.class,
+                "The count of { doesn't match the count of }, input: test {test");
+
+        FileUtils.writeFileContent(new StringBuilder("-- only a comment"), file, StandardCharsets.UTF_8);
+        assertException(() -> loader.init(null, file.getName(), StandardCharsets.UTF_8), IllegalArgumentException.class,
+                "Input cannot be empty or null");
+
+        // the invalid scripts don't prevent the other ones to be published
+        FileUtils.writeFileContent(new StringBuilder("select {a}"), new File(dir, "valid.sql"), StandardCharsets.UTF_8);
+        FileUtils.writeFileContent(new StringBuilder(), new File(dir, "empty.sql"), StandardCharsets.UTF_8);
+        FileUtils.writeFileContent(new StringBuilder("select {a"), new File(dir, "unbalanced.sql"), StandardCharsets.UTF_8);
+        final ScriptsList<?> valid = new SingleScriptsList("valid.sql", StandardCharsets.UTF_8);
+        final ScriptsList<?> empty = new SingleScriptsList("empty.sql", StandardCharsets.UTF_8);
+        final ScriptsList<?> comment = new SingleScriptsList(file.getName(), StandardCharsets.UTF_8);
+        final ScriptsList<?> unbalanced = new SingleScriptsList("unbalanced.sql", StandardCharsets.UTF_8);
+        try {
+            loader.init((ClassLoader) null, empty, valid, comment, unbalanced);
+            fail();
+        } catch (ScriptsInitException e) {
+            assertEquals(Arrays.asList(empty, comment, unbalanced), new ArrayList<>(e.getFailures().keySet()));
+            assertTrue(e.getFailures().get(unbalanced) instanceof IllegalArgumentException);
+            assertTrue(e.getMessage().startsWith("Cannot load 3 script(s): empty.sql"));
+        }
+        assertEquals("select 1", loader.get(valid, "a", 1).toString());
+        assertNull(loader.getCompiledScript(empty));
+    }
+
+    /**
+     * Test single script loader with script without comments and blank lines
+     * 
+     * @throws IOException
+     *             On error
+     */
+    @Test
+    public void testSingleScriptWithoutDataToRemove() throws IOException {
+        File dir = new File("target/my_scripts2");
+        assertTrue(dir.isDirectory() || FileSystemUtils.createDirectory(dir));
+        File file = new File(dir, "test.sql");
+        FileUtils.writeFileContent(new StringBuilder("test {test}"), file, StandardCharsets.UTF_8);
+
+        ScriptsLoader loader = new ScriptsLoader(dir.getPath());
+        ScriptsList<?> script = loader.init(null, file.getName(), StandardCharsets.UTF_8);
+        StringBuilder builder = loader.get(script, "test", "my_best_app");
+        assertEquals("test my_best_app", builder.toString());
+    }
+
+    /**
+     * Test single script loader with custom template that don't remove comments
+     * and blank lines
+     * 
+     * @throws IOException
+     *             On error
+     */
+    @Test
+    public void testSingleScriptKeepAll() throws IOException {
+        ScriptsLoader loader = new ScriptsLoader("my_scripts");
+        ScriptsList<?> script = loader.init("test.sql", StandardCharsets.UTF_8);
+        StringBuilder builder = loader.get(script, "app.id", "my_best_app");
+
+        // CUSTOM TEMPLATE (keep comments and blank lines)
+
+        loader.getReplacer().setTemplate(TEMPLATE);
+
+        builder = loader.get(script, "app.id", "my_best_app");
+
+        assertEquals("-- comment" + SystemProperties.LINE_SEPARATOR.getValue() + "select * from test where id = 'my_best_app'",
+                builder.toString());
+
+        // the published template follows the replacer (script compiled again)
+        loader.getReplacer().setTemplate(ScriptsTemplate.TEMPLATE_SQL);
+
+        assertEquals("select * from test where id = 'my_best_app'", loader.get(script, "app.id", "my_best_app").toString().trim());
+
+        // the scripts loaded from files are compiled again by the change, the
+        // files are not read on rendering
+        File dir = new File("target/my_scripts11");
+        assertTrue(dir.isDirectory() || FileSystemUtils.createDirectory(dir));
+        File file = new File(dir, "test.sql");
+        FileUtils.writeFileContent(new StringBuilder("select {a} -- comment"), file, StandardCharsets.UTF_8);
+        ScriptsLoader fileLoader = new ScriptsLoader(dir.getPath());
+        ScriptsList<?> fileScript = fileLoader.init(null, file.getName(), StandardCharsets.UTF_8);
+
+        fileLoader.getReplacer().setTemplate(TEMPLATE);
+        assertTrue(file.delete());
+        assertSame(TEMPLATE, fileLoader.getCompiledScript(fileScript).getTemplate());
+        assertEquals("select 1 -- comment", fileLoader.get(fileScript, "a", 1).toString());
+
+        // the file cannot be read anymore, loaded again on first use
+        fileLoader.getReplacer().setTemplate(ScriptsTemplate.TEMPLATE_SQL);
+        assertException(() -> fileLoader.get(fileScript, "a", 1), UncheckedIOException.class);
+        FileUtils.writeFileContent(new StringBuilder("select {a} -- comment"), file, StandardCharsets.UTF_8);
+        assertEquals("select 1 ", fileLoader.get(fileScript, "a", 1).toString());
+    }
+
+    /**
+     * Test scripts loader
+     * 
+     * @throws IOException
+     *             On error
+     */
+    @Test
+    public void testGetScripts() throws IOException {
+
+        // STANDARD TEMPLATE
+        StringBuilder content = this.scriptsLoader.get(EnumScripts.TEST);
+        assertNotNull(content);
+        assertEquals("select * from test where id = ''", content.toString());
+
+        content = this.scriptsLoader.get(EnumScripts.TEST_ONE_LINE, "app.id", "app_id");
+        assertNotNull(content);
+        assertEquals("select * from test where id = 'app_id' ", content.toString());
+
+        assertNull(this.scriptsLoader.get(null));
+        assertNull(this.scriptsLoader.get((ScriptsList<?>) null, null));
+        assertNull(this.scriptsLoader.get((ScriptsList<?>) null, null, null));
+
+        // SQL TEMPLATE
+        final Map<String, Object> replacements = new HashMap<>();
+        replacements.put("engine", true);
+        replacements.put("racing", "competition");
+
+        content = this.scriptsLoader.get(EnumScripts.BIKES, replacements);
+        assertNotNull(content);
+        StringBuilder expected = FileUtils.getFileContent(PATH + "bikes.expected.sql");
+        assertTrue(Assertor.that(content).isEqualIgnoreLineReturns(expected).isOK());
+
+        // JSON TEMPLATE
+        final ScriptsLoader loader = new ScriptsLoader();
+
+        assertNotNull(loader);
+
+        loader.setPath("my_scripts");
+        loader.getReplacer().setTemplate(ScriptsTemplate.TEMPLATE_JSON);
+
+        loader.init(EnumScripts.INDEX_AGGS);
+
+        StringBuilder builder = loader.get(EnumScripts.INDEX_AGGS, "apps", "my_app_id");
+        expected = FileUtils.getFileContent(PATH + "index.expected.elastic");
+
+        assertTrue(Assertor.that(builder).isEqualIgnoreLineReturns(expected).isOK());
+    }
+
+    /**
+     * Test scripts loader with slots and flags
+     * 
+     * @throws IOException
+     *             On error
+     */
+    @Test
+    public void testGetScriptsBySlots() throws IOException {
+        final StringBuilder expected = FileUtils.getFileContent(PATH + "bikes.expected.sql");
+
+        StringBuilder content = this.scriptsLoader.getByFlags(EnumScripts.BIKES, EnumSet.of(Bike.engine, Bike.racing));
+        assertTrue(Assertor.that(content).isEqualIgnoreLineReturns(expected).isOK());
+
+        final CompiledScript script = this.scriptsLoader.getCompiledScript(EnumScripts.BIKES);
+        assertEquals(3, script.getSlotCount());
+        assertEquals(-1, script.getSlot("unknown"));
+        assertEquals("touring", script.getVariable(script.getSlot("touring")));
+
+        final Object[] values = new Object[script.getSlotCount()];
+        final BitSet presence = new BitSet();
+        values[script.getSlot("racing")] = "competition";
+        presence.set(script.getSlot("engine"));
+        presence.set(script.getSlot("racing"));
+
+        content = this.scriptsLoader.getBySlots(EnumScripts.BIKES, values, presence);
+        assertTrue(Assertor.that(content).isEqualIgnoreLineReturns(expected).isOK());
+
+        // reused arrays, the same result as with a map
+        presence.clear(script.getSlot("engine"));
+        final Map<String, Object> replacements = new HashMap<>();
+        replacements.put("racing", "competition");
+        assertEquals(this.scriptsLoader.get(EnumScripts.BIKES, replacements).toString(),
+                this.scriptsLoader.getBySlots(EnumScripts.BIKES, values, presence).toString());
+
+        assertEquals(this.scriptsLoader.get(EnumScripts.BIKES).toString(),
+                this.scriptsLoader.getByFlags(EnumScripts.BIKES, EnumSet.noneOf(Bike.class)).toString());
+
+        values[script.getSlot("racing")] = "{racing}";
+        assertException(() -> this.scriptsLoader.getBySlots(EnumScripts.BIKES, values, presence), IllegalArgumentException.class);
+
+        assertNull(this.scriptsLoader.getBySlots(null, values, presence));
+        assertNull(this.scriptsLoader.getByFlags(null, EnumSet.of(Bike.engine)));
+        assertNull(this.scriptsLoader.getCompiledScript(null));
+    }
+
+    /**
+     * Test the cache of shapes (keyed by presence signature)
+     * 
+     * @throws IOException
+     *             On error
+     */
+    @Test
+    public void testShapeCache() throws IOException {
+        File dir = new File("target/my_scripts3");
+        assertTrue(dir.isDirectory() || FileSystemUtils.createDirectory(dir));
+        File file = new File(dir, "test.sql");
+        ScriptsLoader loader = new ScriptsLoader(dir.getPath());
+
+        FileUtils.writeFileContent(new StringBuilder("test {test}{test} {test ?? ok}"), file, StandardCharsets.UTF_8);
+        ScriptsList<?> script = loader.init(null, file.getName(), StandardCharsets.UTF_8);
+
+        final Map<String, Object> replacements = new HashMap<>();
+        replacements.put("test", "a");
+
+        assertEquals(256, loader.getShapeCacheSize());
+        assertEquals("test aa  ok", loader.get(script, replacements).toString());
+        assertEquals(0, loader.getShapeCacheHits());
+        assertEquals(1, loader.getShapeCacheMisses());
+
+        // same presence, other value
+        replacements.put("test", "b");
+        assertEquals("test bb  ok", loader.get(script, replacements).toString());
+        assertEquals(1, loader.getShapeCacheHits());
+        assertEquals(1, loader.getShapeCacheMisses());
+
+        // unknown keys don't change the shape
+        replacements.put("unknown", "c");
+        assertEquals("test bb  ok", loader.get(script, replacements).toString());
+        assertEquals(2, loader.getShapeCacheHits());
+
+        assertEquals("test  ", loader.get(script).toString());
+        assertEquals(2, loader.getShapeCacheHits());
+        assertEquals(2, loader.getShapeCacheMisses());
+
+        // the least recently used shape is removed
+        loader.setShapeCacheSize(1);
+        assertEquals("test bb  ok", loader.get(script, replacements).toString());
+        assertEquals("test  ", loader.get(script).toString());
+        assertEquals("test bb  ok", loader.get(script, replacements).toString());
+        assertEquals(2, loader.getShapeCacheHits());
+        assertEquals(5, loader.getShapeCacheMisses());
+
+        // disabled
+        loader.setShapeCacheSize(0);
+        assertEquals("test bb  ok", loader.get(script, replacements).toString());
+        assertEquals(2, loader.getShapeCacheHits());
+        assertEquals(5, loader.getShapeCacheMisses());
+
+        assertException(() -> loader.setShapeCacheSize(-1), IllegalArgumentException.class, "The shape cache size cannot be negative");
+    }
+
+    /**
+     * Test the removal of comments (comment operators in quoted texts are
+     * kept)
+     * 
+     * @throws IOException
+     *             On error
+     */
+    @Test
+    public void testRemoveComments() throws IOException {
+        File dir = new File("target/my_scripts4");
+        assertTrue(dir.isDirectory() || FileSystemUtils.createDirectory(dir));
+        File file = new File(dir, "test.sql");
+        ScriptsLoader loader = new ScriptsLoader(dir.getPath());
+
+        FileUtils.writeFileContent(new StringBuilder("select * -- all\n/* table\n-- */from test where name like '%--%' /* 'a' */\n"
+                + "and code = 'it''s -- /*' and url = \"http://host\" -- end 'b\n-- last"), file, StandardCharsets.UTF_8);
+        ScriptsList<?> script = loader.init(null, file.getName(), StandardCharsets.UTF_8);
+
+        assertEquals("select * \nfrom test where name like '%--%' \nand code = 'it''s -- /*' and url = \"http://host\" ",
+                loader.get(script).toString());
+
+        // JSON
+        loader.getReplacer().setTemplate(ScriptsTemplate.TEMPLATE_JSON);
+        FileUtils.writeFileContent(new StringBuilder("{\"url\": \"http://host/*\", // url\n\"text\": \"a \\\" // b\"}/* end"), file,
+                StandardCharsets.UTF_8);
+        script = loader.init(null, file.getName(), StandardCharsets.UTF_8);
+
+        assertEquals("{\"url\": \"http://host/*\", \n\"text\": \"a \\\" // b\"}", loader.get(script).toString());
+
+        // the quote and its escape are defined by the template: in SQL, the
+        // double quotes and the backslashes are not special
+        loader.getReplacer().setTemplate(ScriptsTemplate.TEMPLATE_SQL);
+        FileUtils.writeFileContent(
+                new StringBuilder("select \"col\\\" -- identifier\nfrom t -- \"unbalanced\n/* c */where a = 'x\\' -- y'"), file,
+                StandardCharsets.UTF_8);
+        script = loader.init(null, file.getName(), StandardCharsets.UTF_8);
+
+        assertEquals("select \"col\\\" \nfrom t \nwhere a = 'x\\' ", loader.get(script).toString());
+
+        // in JSON, the single quotes are not special
+        loader.getReplacer().setTemplate(ScriptsTemplate.TEMPLATE_JSON);
+        FileUtils.writeFileContent(new StringBuilder("{\"a\": \"b\\\\\", // c\n\"d\": \"e\\\"f // g\", \"h\": 'i // j'}"), file,
+                StandardCharsets.UTF_8);
+        script = loader.init(null, file.getName(), StandardCharsets.UTF_8);
+
+        assertEquals("{\"a\": \"b\\\\\", \n\"d\": \"e\\\"f // g\", \"h\": 'i ", loader.get(script).toString());
+
+        // without quote (custom template)
+        loader.getReplacer().setTemplate(new MyTemplate());
+        FileUtils.writeFileContent(new StringBuilder("select 'a # b' # c\nfrom t"), file, StandardCharsets.UTF_8);
+        script = loader.init(null, file.getName(), StandardCharsets.UTF_8);
+
+        assertEquals("select 'a \nfrom t", loader.get(script).toString());
+    }
+
+    /**
+     * Test the removal of blank lines (the separator of the output is the
+     * found one, the carriage returns are removed if both are found)
+     * 
+     * @throws IOException
+     *             On error
+     */
+    @Test
+    public void testRemoveBlankLines() throws IOException {
+        File dir = new File("target/my_scripts10");
+        assertTrue(dir.isDirectory() || FileSystemUtils.createDirectory(dir));
+        File file = new File(dir, "test.sql");
+        ScriptsLoader loader = new ScriptsLoader(dir.getPath());
+
+        final String[][] cases = {
+                // CRLF, whitespace-only lines between content and trailing
+                // separator removed
+                {"select *\r\n\r\n  \t\r\nfrom t -- comment\r\n\r\nwhere a = {a}\r\n", "select *\nfrom t \nwhere a = 1"},
+                // LF only
+                {"select *\n\n   \nfrom t\nwhere a = {a}\n\n", "select *\nfrom t\nwhere a = 1"},
+                // CR only
+                {"select *\r\r   \rfrom t\rwhere a = {a}\r", "select *\rfrom t\rwhere a = 1"},
+                // blank last line kept (with its separator)
+                {"select *\n\nfrom t\n  ", "select *\nfrom t\n  "},
+                // blank lines produced by the expressions
+                {"select *\n{b??  b\n}\n{c??c}\nfrom t", "select *\nfrom t"}};
+
+        for (String[] test : cases) {
+            FileUtils.writeFileContent(new StringBuilder(test[0]), file, StandardCharsets.UTF_8);
+            ScriptsList<?> script = loader.init(null, file.getName(), StandardCharsets.UTF_8);
+
+            assertEquals(test[1], loader.get(script, "a", 1).toString());
+        }
+    }
+
+    /**
+     * Test the removal of blank lines on a large output (linear, the
+     * quadratic removal would not finish in time)
+     * 
+     * @throws IOException
+     *             On error
+     */
+    @Test(timeout = 10_000)
+    public void testRemoveBlankLinesLarge() throws IOException {
+        File dir = new File("target/my_scripts10");
+        assertTrue(dir.isDirectory() || FileSystemUtils.createDirectory(dir));
+        File file = new File(dir, "large.sql");
+        ScriptsLoader loader = new ScriptsLoader(dir.getPath());
+
+        StringBuilder content = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 100_000; ++i) {
+            content.append("select {a}\r\n  \r\n\r\n");
+            expected.append("select 1\n");
+        }
+        expected.setLength(expected.length() - 1);
+
+        FileUtils.writeFileContent(content, file, StandardCharsets.UTF_8);
+        ScriptsList<?> script = loader.init(null, file.getName(), StandardCharsets.UTF_8);
+
+        assertEquals(expected.toString(), loader.get(script, "a", 1).toString());
+    }
+
+    /**
+     * Test the initialization while scripts are read by other threads
+     * 
+     * @throws Exception
+     *             On error
+     */
+    @Test
+    public void testConcurrentInit() throws Exception {
+        File dir = new File("target/my_scripts5");
+        assertTrue(dir.isDirectory() || FileSystemUtils.createDirectory(dir));
+        FileUtils.writeFileContent(new StringBuilder("select {a}"), new File(dir, "a.sql"), StandardCharsets.UTF_8);
+        FileUtils.writeFileContent(new StringBuilder("select {b}"), new File(dir, "b.sql"), StandardCharsets.UTF_8);
+
+        ScriptsLoader loader = new ScriptsLoader(dir.getPath());
+        ScriptsList<?> a = loader.init(null, "a.sql", StandardCharsets.UTF_8);
+        ScriptsList<?> b = new SingleScriptsList("b.sql", StandardCharsets.UTF_8);
+
+        // the valid scripts are published
+        final ScriptsList<?> missing = new SingleScriptsList("missing.sql", StandardCharsets.UTF_8);
+        assertException(() -> loader.init((ClassLoader) null, b, missing), ScriptsInitException.class);
+        assertNotNull(loader.getCompiledScript(b));
+        assertNull(loader.getCompiledScript(missing));
+
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final AtomicInteger errors = new AtomicInteger();
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int i = 0; i < 4; ++i) {
+            executor.execute(() -> {
+                while (running.get()) {
+                    if (!"select 1".equals(loader.get(a, "a", 1).toString())) {
+                        errors.incrementAndGet();
+                    }
+                }
+            });
+        }
+
+        for (int i = 0; i < 100; ++i) {
+            loader.init((ClassLoader) null, b);
+            assertEquals("select 2", loader.get(b, "b", 2).toString());
+        }
+
+        running.set(false);
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(0, errors.get());
+    }
+
+    /**
+     * Test the hot reload of scripts
+     * 
+     * @throws Exception
+     *             On error
+     */
+    @Test
+    public void testWatch() throws Exception {
+        File dir = new File("target/my_scripts6");
+        assertTrue(dir.isDirectory() || FileSystemUtils.createDirectory(dir));
+        File file = new File(dir, "test.sql");
+        FileUtils.writeFileContent(new StringBuilder("select {a}"), file, StandardCharsets.UTF_8);
+
+        ScriptsLoader loader = new ScriptsLoader("target/unknown");
+        assertException(() -> loader.watch(10, TimeUnit.MILLISECONDS), IllegalArgumentException.class,
+                "No script directory to watch, scripts have to be loaded from the file system");
+
+        loader.setPath(dir.getPath());
+        ScriptsList<?> script = loader.init(null, file.getName(), StandardCharsets.UTF_8);
+        assertException(() -> loader.watch(-1, TimeUnit.MILLISECONDS), IllegalArgumentException.class,
+                "The debounce delay cannot be negative");
+
+        try (ScriptsWatcher watcher = loader.watch(50, TimeUnit.MILLISECONDS)) {
+            assertEquals("select 1", loader.get(script, "a", 1).toString());
+
+            FileUtils.writeFileContent(new StringBuilder("select {a} from dual"), file, StandardCharsets.UTF_8);
+            for (int i = 0; i < 600 && watcher.getReloadCount() == 0; ++i) {
+                Thread.sleep(50);
+            }
+            assertEquals(1, watcher.getReloadCount());
+            assertEquals("select 1 from dual", loader.get(script, "a", 1).toString());
+
+            // invalid script, the previous version is kept
+            FileUtils.writeFileContent(new StringBuilder("select {a"), file, StandardCharsets.UTF_8);
+            for (int i = 0; i < 600 && watcher.getLastError() == null; ++i) {
+                Thread.sleep(50);
+            }
+            assertTrue(watcher.getLastError() instanceof IllegalArgumentException);
+            assertEquals(1, watcher.getReloadCount());
+            assertEquals("select 1 from dual", loader.get(script, "a", 1).toString());
+        }
+    }
+
+    /**
+     * Test the loading of small files (read) and large files (mapped),
+     * decoded by chunk
+     * 
+     * @throws IOException
+     *             On error
+     */
+    @Test
+    public void testLoadLargeFile() throws IOException {
+        File dir = new File("target/my_scripts7");
+        assertTrue(dir.isDirectory() || FileSystemUtils.createDirectory(dir));
+
+        ScriptsLoader loader = new ScriptsLoader(dir.getPath());
+        for (int lines : new int[] {10, 40000}) {
+            StringBuilder content = new StringBuilder();
+            StringBuilder expected = new StringBuilder();
+            for (int i = 0; i < lines; ++i) {
+                content.append("select '\u00e9\u20ac\ud834\udd1e' {a} -- comment\r\n");
+                expected.append("select '\u00e9\u20ac\ud834\udd1e' 1 \n");
+            }
+            expected.setLength(expected.length() - 1);
+
+            for (Charset charset : Arrays.asList(StandardCharsets.UTF_8, StandardCharsets.UTF_16)) {
+                File file = new File(dir, "large.sql");
+                FileUtils.writeFileContent(content, file, charset);
+                assertEquals(lines > 10, file.length() >= ScriptsSource.MAP_THRESHOLD);
+                ScriptsList<?> script = loader.init(null, file.getName(), charset);
+
+                assertEquals(expected.toString(), loader.get(script, "a", 1).toString());
+            }
+        }
+    }
+
+    /**
+     * Test the parallel initialization
+     * 
+     * @throws IOException
+     *             On error
+     */
+    @Test
+    public void testParallelInit() throws IOException {
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            ScriptsLoader loader = new ScriptsLoader("my_scripts");
+            loader.setExecutor(pool);
+            loader.init(EnumScripts.values());
+
+            for (EnumScripts script : EnumScripts.values()) {
+                assertEquals(this.scriptsLoader.get(script).toString(), loader.get(script).toString());
+            }
+
+            // all the failures are collected, the valid scripts are published
+            loader.setPath(PATH);
+            ScriptsList<?> valid = new SingleScriptsList("test.sql", StandardCharsets.UTF_8);
+            ScriptsList<?> missing1 = new SingleScriptsList("missing1.sql", StandardCharsets.UTF_8);
+            ScriptsList<?> missing2 = new SingleScriptsList("missing2.sql", StandardCharsets.UTF_8);
+            try {
+                loader.init((ClassLoader) null, valid, missing1, missing2);
+                fail();
+            } catch (ScriptsInitException e) {
+                assertEquals(2, e.getFailures().size());
+                assertTrue(e.getFailures().containsKey(missing1));
+                assertTrue(e.getFailures().containsKey(missing2));
+                assertEquals(2, e.getSuppressed().length);
+                assertTrue(e.getMessage().startsWith("Cannot load 2 script(s): missing1.sql"));
+            }
+            assertEquals(this.scriptsLoader.get(EnumScripts.TEST, "app.id", "my_app").toString(),
+                    loader.get(valid, "app.id", "my_app").toString());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Test the lazy loading
+     * 
+     * @throws Exception
+     *             On error
+     */
+    @Test
+    public void testLazyInit() throws Exception {
+        File dir = new File("target/my_scripts8");
+        assertTrue(dir.isDirectory() || FileSystemUtils.createDirectory(dir));
+        File file = new File(dir, "test.sql");
+        File missingFile = new File(dir, "missing.sql");
+        FileUtils.writeFileContent(new StringBuilder("select {a}"), file, StandardCharsets.UTF_8);
+        assertTrue(!missingFile.exists() || missingFile.delete());
+
+        ScriptsLoader loader = new ScriptsLoader(dir.getPath());
+        loader.setLazy(true);
+        ScriptsList<?> script = loader.init(null, file.getName(), StandardCharsets.UTF_8);
+        ScriptsList<?> missing = loader.init(null, "missing.sql", StandardCharsets.UTF_8);
+
+        assertEquals(2, loader.getUnloadedScripts().size());
+        assertTrue(loader.getLoadedScripts().isEmpty());
+
+        // loaded once by concurrent threads
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        final List<Future<CompiledScript>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; ++i) {
+            futures.add(executor.submit(() -> loader.getCompiledScript(script)));
+        }
+        for (Future<CompiledScript> future : futures) {
+            assertTrue(futures.get(0).get() == future.get());
+        }
+        executor.shutdown();
+
+        assertEquals("select 1", loader.get(script, "a", 1).toString());
+        assertEquals(Collections.singleton(script), loader.getLoadedScripts());
+        assertEquals(Collections.singleton(missing), loader.getUnloadedScripts());
+
+        // failures are thrown on first use, and the next call tries again
+        assertException(() -> loader.get(missing), UncheckedIOException.class);
+        assertEquals(Collections.singleton(missing), loader.getUnloadedScripts());
+
+        FileUtils.writeFileContent(new StringBuilder("select {b}"), missingFile, StandardCharsets.UTF_8);
+        assertEquals("select 2", loader.get(missing, "b", 2).toString());
+        assertTrue(loader.getUnloadedScripts().isEmpty());
+    }
+
+    /**
+     * Test the loading of the precompiled scripts
+     * 
+     * @throws IOException
+     *             On error
+     */
+    @Test
+    public void testArchive() throws IOException {
+        File dir = new File("target/my_scripts9");
+        assertTrue(dir.isDirectory() || FileSystemUtils.createDirectory(dir));
+        File file = new File(dir, "test.sql");
+        File archiveFile = new File(dir, ScriptsArchive.FILE_NAME);
+        File errorFile = new File(dir, "error.sql");
+        assertTrue(!errorFile.exists() || errorFile.delete());
+        FileUtils.writeFileContent(new StringBuilder("select * from t where {a??a = {a}::1 = 1} -- {comment}"), file,
+                StandardCharsets.UTF_8);
+
+        assertEquals(1, ScriptsArchive.write(dir.toPath(), archiveFile.toPath(), ScriptsTemplate.TEMPLATE_SQL, StandardCharsets.UTF_8));
+
+        final ScriptsArchive archive;
+        try (InputStream is = new FileInputStream(archiveFile)) {
+            archive = ScriptsArchive.read(is, ScriptsTemplate.TEMPLATE_SQL);
+        }
+        assertNotNull(archive);
+
+        // other template configuration, truncated or corrupted: no archive
+        final byte[] bytes = Files.readAllBytes(archiveFile.toPath());
+        assertNull(ScriptsArchive.read(new ByteArrayInputStream(bytes), ScriptsTemplate.TEMPLATE_JSON));
+        assertNull(ScriptsArchive.read(new ByteArrayInputStream(Arrays.copyOf(bytes, bytes.length - 1)), ScriptsTemplate.TEMPLATE_SQL));
+        byte[] corrupted = bytes.clone();
+        // length of the template fingerprint (after the magic and version)
+        corrupted[8] = 0x7F;
+        assertNull(ScriptsArchive.read(new ByteArrayInputStream(corrupted), ScriptsTemplate.TEMPLATE_SQL));
+
+        final long hash = ScriptsSource.hash(ScriptsSource.read(file.toPath(), StandardCharsets.UTF_8));
+        final CompiledScript compiled = archive.get(file.getName(), hash, ScriptsTemplate.TEMPLATE_SQL);
+        assertNotNull(compiled);
+        assertEquals(1, compiled.getSlotCount());
+        assertEquals("a", compiled.getVariable(0));
+
+        // corrupted script data (count of variables, at the start of the
+        // data): the script is not taken from the archive
+        final ByteArrayOutputStream scriptData = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(scriptData)) {
+            compiled.write(output);
+        }
+        corrupted = bytes.clone();
+        corrupted[bytes.length - scriptData.size()] = 0x7F;
+        assertNull(ScriptsArchive.read(new ByteArrayInputStream(corrupted), ScriptsTemplate.TEMPLATE_SQL).get(file.getName(), hash,
+                ScriptsTemplate.TEMPLATE_SQL));
+
+        // stale: source or template changed
+        assertNull(archive.get(file.getName(), hash + 1, ScriptsTemplate.TEMPLATE_SQL));
+        assertNull(archive.get(file.getName(), hash, ScriptsTemplate.TEMPLATE_JSON));
+        assertNull(archive.get("unknown.sql", hash, ScriptsTemplate.TEMPLATE_SQL));
+
+        ScriptsLoader loader = new ScriptsLoader(dir.getPath());
+        ScriptsList<?> script = loader.init(null, file.getName(), StandardCharsets.UTF_8);
+        assertEquals("select * from t where a = 1", loader.get(script, "a", 1).toString().trim());
+        assertEquals("select * from t where 1 = 1", loader.get(script).toString().trim());
+
+        // the modified source is compiled
+        FileUtils.writeFileContent(new StringBuilder("select {a}"), file, StandardCharsets.UTF_8);
+        script = loader.init(null, file.getName(), StandardCharsets.UTF_8);
+        assertEquals("select 1", loader.get(script, "a", 1).toString());
+
+        // all the errors are reported, the archive is not written
+        FileUtils.writeFileContent(new StringBuilder("select {a"), errorFile, StandardCharsets.UTF_8);
+        assertTrue(archiveFile.delete());
+        assertException(() -> ScriptsArchive.write(dir.toPath(), archiveFile.toPath(), ScriptsTemplate.TEMPLATE_SQL, StandardCharsets.UTF_8),
+                IllegalArgumentException.class, Pattern.compile("Invalid scripts:\\s+error\\.sql: .*"));
+        assertTrue(!archiveFile.exists());
+    }
+
+    /**
+     * Test the renderers generated at compile time (same result as the
+     * loader)
+     * 
+     * @throws IOException
+     *             On error
+     */
+    @Test
+    public void testGeneratedRenderers() throws IOException {
+        for (int i = 0; i < 8; ++i) {
+            final Map<String, Object> replacements = new HashMap<>();
+            final EnumScriptsBikesRenderer renderer = new EnumScriptsBikesRenderer();
+            if ((i & 1) != 0) {
+                replacements.put("engine", true);
+                renderer.engine(true);
+            }
+            if ((i & 2) != 0) {
+                replacements.put("racing", true);
+                renderer.racing(true);
+            }
+            if ((i & 4) != 0) {
+                replacements.put("touring", true);
+                renderer.touring(true);
+            }
+            assertEquals(this.scriptsLoader.get(EnumScripts.BIKES, replacements).toString(), renderer.render().toString());
+        }
+        assertEquals(this.scriptsLoader.get(EnumScripts.BIKES).toString(),
+                new EnumScriptsBikesRenderer().engine(true).engine(false).render().toString());
+
+        final Map<String, Object> replacements = new HashMap<>();
+        replacements.put("name", true);
+        replacements.put("vacation", true);
+        replacements.put("firstResult", 10);
+        replacements.put("maxResults", 20);
+        replacements.put("orderBy", "name ASC");
+        final StringBuilder patients = new EnumScriptsPatientsSearchRenderer().name(true).vacation(true).firstResult(10).maxResults(20)
+                .orderBy("name ASC").render();
+        assertEquals(this.scriptsLoader.get(EnumScripts.PATIENTS_SEARCH, replacements).toString(), patients.toString());
+        assertEquals(this.scriptsLoader.get(EnumScripts.PATIENTS_SEARCH).toString(),
+                new EnumScriptsPatientsSearchRenderer().render().toString());
+
+        assertException(() -> new EnumScriptsPatientsSearchRenderer().orderBy("name'"), IllegalArgumentException.class);
+
+        final ScriptsLoader loader = new ScriptsLoader("my_scripts", ScriptsTemplate.TEMPLATE_JSON);
+        loader.init(EnumScripts.INDEX_AGGS);
+        final EnumScriptsIndexAggsRenderer index = new EnumScriptsIndexAggsRenderer().apps("my_app_id").firstGroupByOs(true);
+        assertEquals(ScriptsTemplate.TEMPLATE_JSON, index.getTemplate());
+        final Map<String, Object> indexReplacements = new HashMap<>();
+        indexReplacements.put("apps", "my_app_id");
+        indexReplacements.put("first_group_by_os", true);
+        assertEquals(loader.get(EnumScripts.INDEX_AGGS, indexReplacements).toString(), index.render().toString());
+    }
+
+    /**
+     * Test the rendering by the classes generated at runtime (same result as
+     * the interpreter)
+     * 
+     * @throws IOException
+     *             On error
+     */
+    @Test
+    public void testCodeGeneration() throws IOException {
+        final ScriptsLoader loader = new ScriptsLoader("my_scripts");
+        loader.setCodeGeneration(true);
+        loader.init(EnumScripts.TEST, EnumScripts.BIKES, EnumScripts.PATIENTS_SEARCH);
+
+        // the tests are run with a JDK
+        assertTrue(ScriptsLoader.isCodeGenerationAvailable());
+        assertTrue(loader.getCompiledScript(EnumScripts.BIKES).isGenerated());
+        assertTrue(loader.getCompiledScript(EnumScripts.PATIENTS_SEARCH).isGenerated());
+        assertTrue(!this.scriptsLoader.getCompiledScript(EnumScripts.BIKES).isGenerated());
+
+        for (int i = 0; i < 8; ++i) {
+            final Map<String, Object> replacements = new HashMap<>();
+            if ((i & 1) != 0) {
+                replacements.put("engine", true);
+            }
+            if ((i & 2) != 0) {
+                replacements.put("racing", true);
+            }
+            if ((i & 4) != 0) {
+                replacements.put("touring", true);
+            }
+            assertEquals(this.scriptsLoader.get(EnumScripts.BIKES, replacements).toString(),
+                    loader.get(EnumScripts.BIKES, replacements).toString());
+        }
+
+        final Map<String, Object> replacements = new HashMap<>();
+        replacements.put("name", "PAT");
+        replacements.put("vacation", true);
+        replacements.put("orderBy", "name ASC");
+        assertEquals(this.scriptsLoader.get(EnumScripts.PATIENTS_SEARCH, replacements).toString(),
+                loader.get(EnumScripts.PATIENTS_SEARCH, replacements).toString());
+        assertEquals(this.scriptsLoader.getByFlags(EnumScripts.BIKES, EnumSet.of(Bike.racing)).toString(),
+                loader.getByFlags(EnumScripts.BIKES, EnumSet.of(Bike.racing)).toString());
+        assertEquals(this.scriptsLoader.get(EnumScripts.TEST, "app.id", 28).toString(),
+                loader.get(EnumScripts.TEST, "app.id", 28).toString());
+
+        // values are still checked
+        assertException(() -> loader.get(EnumScripts.PATIENTS_SEARCH, "name", "PAT'"), IllegalArgumentException.class);
+
+        final ScriptsLoader json = new ScriptsLoader("my_scripts", ScriptsTemplate.TEMPLATE_JSON);
+        json.setCodeGeneration(true);
+        json.init(EnumScripts.INDEX_AGGS);
+        assertTrue(json.getCompiledScript(EnumScripts.INDEX_AGGS).isGenerated());
+        final StringBuilder expected = FileUtils.getFileContent(PATH + "index.expected.elastic");
+        assertTrue(Assertor.that(json.get(EnumScripts.INDEX_AGGS, "apps", "my_app_id")).isEqualIgnoreLineReturns(expected).isOK());
+    }
+
+    /**
+     * Test the rendering into an appendable
+     * 
+     * @throws IOException
+     *             On error
+     */
+    @Test
+    public void testRender() throws IOException {
+        final Map<String, Object> replacements = new HashMap<>();
+        replacements.put("engine", true);
+        replacements.put("racing", "competition");
+        replacements.put("name", "PAT");
+
+        for (int size : new int[] {1, 0}) {
+            this.scriptsLoader.setShapeCacheSize(size);
+
+            for (EnumScripts script : EnumScripts.values()) {
+                final StringWriter writer = new StringWriter();
+                assertEquals(writer, this.scriptsLoader.render(script, replacements, writer));
+                assertEquals(this.scriptsLoader.get(script, replacements).toString(), writer.toString());
+            }
+        }
+
+        final CompiledScript script = this.scriptsLoader.getCompiledScript(EnumScripts.BIKES);
+        final BitSet presence = script.getPresence(EnumSet.of(Bike.engine));
+        assertEquals(this.scriptsLoader.getBySlots(EnumScripts.BIKES, null, presence).toString(),
+                this.scriptsLoader.renderBySlots(EnumScripts.BIKES, null, presence, new StringBuilder()).toString());
+
+        assertNull(this.scriptsLoader.render(null, replacements, new StringBuilder()));
+        assertNull(this.scriptsLoader.renderBySlots(null, null, presence, new StringBuilder()));
+
+        final Appendable failing = new Appendable() {
+            @Override
+            public Appendable append(final CharSequence csq, final int start, final int end) throws IOException {
+                throw new IOException("closed");
+            }
+
+            @Override
+            public Appendable append(final char c) throws IOException {
+                throw new IOException("closed");
+            }
+
+            @Override
+            public Appendable append(final CharSequence csq) throws IOException {
+                throw new IOException("closed");
+            }
+        };
+        assertException(() -> this.scriptsLoader.render(EnumScripts.TEST, replacements, failing), IOException.class, "closed");
+        this.scriptsLoader.setShapeCacheSize(1);
+        assertException(() -> this.scriptsLoader.render(EnumScripts.TEST, replacements, failing), IOException.class, "closed");
+    }
+
+    /**
+     * Test the rendering of streamed values
+     * 
+     * @throws IOException
+     *             On error
+     */
+    @Test
+    public void testRenderStreamedValues() throws IOException {
+        final String expected = this.scriptsLoader.get(EnumScripts.TEST, "app.id", "my_app").toString();
+
+        for (int size : new int[] {1, 0}) {
+            this.scriptsLoader.setShapeCacheSize(size);
+
+            assertEquals(expected, this.scriptsLoader.get(EnumScripts.TEST, "app.id", new StringReader("my_app")).toString());
+
+            final Map<String, Object> replacements = Collections.singletonMap("app.id", (Supplier<Reader>) () -> new StringReader("my_app"));
+            assertEquals(expected, this.scriptsLoader.render(EnumScripts.TEST, replacements, new StringWriter()).toString());
+        }
+
+        // the generated class is not used for streamed values
+        final ScriptsLoader json = new ScriptsLoader("my_scripts", ScriptsTemplate.TEMPLATE_JSON);
+        json.setCodeGeneration(true);
+        json.init(EnumScripts.INDEX_AGGS);
+        final StringBuilder index = FileUtils.getFileContent(PATH + "index.expected.elastic");
+        final StringBuilder rendered = json.get(EnumScripts.INDEX_AGGS, "apps", (Supplier<CharSequence>) () -> "my_app_id");
+        assertTrue(Assertor.that(rendered).isEqualIgnoreLineReturns(index).isOK());
+    }
+
+    /**
+     * Test the streamed values with the removal of blank lines (default
+     * template), the values are copied by chunks, without buffering the
+     * whole output
+     * 
+     * @throws IOException
+     *             On error
+     */
+    @Test
+    public void testRenderStreamedValuesWithoutBlankLines() throws IOException {
+        File dir = new File("target/my_scripts10");
+        assertTrue(dir.isDirectory() || FileSystemUtils.createDirectory(dir));
+        File file = new File(dir, "streamed.sql");
+        ScriptsLoader loader = new ScriptsLoader(dir.getPath());
+
+        FileUtils.writeFileContent(new StringBuilder("select *\r\nfrom t\r\n\r\n  \r\nwhere a = '{a}'\r\n"), file, StandardCharsets.UTF_8);
+        ScriptsList<?> script = loader.init(null, file.getName(), StandardCharsets.UTF_8);
+
+        final char[] chars = new char[10_000];
+        Arrays.fill(chars, 'x');
+        final String value = new String(chars);
+
+        // output length when the reader is read again after the first chunk
+        final StringWriter writer = new StringWriter();
+        final int[] written = {-1};
+        final Reader reader = new StringReader(value) {
+
+            private boolean read;
+
+            @Override
+            public int read(final char[] buffer, final int offset, final int length) throws IOException {
+                if (this.read && written[0] < 0) {
+                    written[0] = writer.getBuffer().length();
+                }
+                this.read = true;
+                return super.read(buffer, offset, length);
+            }
+        };
+
+        loader.render(script, Collections.singletonMap("a", reader), writer);
+        assertEquals(loader.get(script, "a", value).toString(), writer.toString());
+        assertTrue(written[0] > "select *\nfrom t\nwhere a = '".length());
+
+        // separator decided by the streamed value (none in the texts)
+        FileUtils.writeFileContent(new StringBuilder("select '{a}'"), file, StandardCharsets.UTF_8);
+        script = loader.init(null, file.getName(), StandardCharsets.UTF_8);
+        for (String text : Arrays.asList("x\r\n\r\n  \r\ny", "x\r\r  \ry", "x")) {
+            assertEquals(loader.get(script, "a", text).toString(),
+                    loader.render(script, Collections.singletonMap("a", new StringReader(text)), new StringWriter()).toString());
+        }
+    }
+
+    /**
+     * Test the lists rendered into an appendable with the removal of blank
+     * lines (default template), the values are formatted while written (the
+     * whole list is never joined)
+     * 
+     * @throws IOException
+     *             On error
+     */
+    @Test
+    public void testRenderListsWithoutBlankLines() throws IOException {
+        File dir = new File("target/my_scripts10");
+        assertTrue(dir.isDirectory() || FileSystemUtils.createDirectory(dir));
+        File file = new File(dir, "list.sql");
+        ScriptsLoader loader = new ScriptsLoader(dir.getPath());
+
+        final List<Long> ids = new ArrayList<>();
+        for (long id = 0; id < 50_000; ++id) {
+            ids.add(id);
+        }
+        final Map<String, Object> replacements = new HashMap<>();
+        replacements.put("ids", ids);
+        replacements.put("names", ScriptsCollection.of(Arrays.asList("a", "b")).withQuotes());
+
+        // the largest written part
+        final int[] largest = {0};
+        final StringBuilder rendered = new StringBuilder();
+        final Appendable output = new Appendable() {
+
+            @Override
+            public Appendable append(final CharSequence csq) {
+                return this.append(csq, 0, csq.length());
+            }
+
+            @Override
+            public Appendable append(final CharSequence csq, final int start, final int end) {
+                largest[0] = Math.max(largest[0], end - start);
+                rendered.append(csq, start, end);
+                return this;
+            }
+
+            @Override
+            public Appendable append(final char c) {
+                rendered.append(c);
+                return this;
+            }
+        };
+
+        for (String text : Arrays.asList("select * from t where id IN ({ids}) and name IN ({names})",
+                "select *\r\n\r\nfrom t\r\n  \r\nwhere id IN ({ids})\r\nand name IN ({names})\r\n")) {
+            FileUtils.writeFileContent(new StringBuilder(text), file, StandardCharsets.UTF_8);
+            ScriptsList<?> script = loader.init(null, file.getName(), StandardCharsets.UTF_8);
+
+            largest[0] = 0;
+            rendered.setLength(0);
+            loader.render(script, replacements, output);
+
+            final String expected = loader.get(script, replacements).toString();
+            assertTrue(expected.length() > 300_000);
+            assertEquals(expected, rendered.toString());
+            assertTrue(String.valueOf(largest[0]), largest[0] < 10_000);
+        }
+    }
+
+    /**
+     * Flags of the bikes script
+     */
+    private static enum Bike {
+        engine,
+        racing,
+        touring;
+    }
+
+    /**
+     * Test scripts loader
+     */
+    @Test
+    public void test() {
+        String key = "app.id";
+        String replacement = "28";
+        StringBuilder builder = this.scriptsLoader.get(EnumScripts.TEST, key, replacement);
+        assertNotNull(builder);
+        assertEquals(-1, builder.indexOf(key));
+        assertTrue(builder.indexOf(replacement) > -1);
+        assertEquals(-1, builder.indexOf("{"));
+        assertEquals(-1, builder.indexOf("}"));
+    }
+
+    /**
+     * Test scripts loader
+     */
+    @Test
+    public void patientsSearchTest() {
+        final Map<String, String> replacements = new HashMap<>();
+
+        PatientSearch patientSearch = new PatientSearch();
+        patientSearch.setName("PAT");
+
+        Map<String, Boolean> orderBy = new HashMap<>();
+        orderBy.put("lastName", true);
+        orderBy.put("firstName", true);
+
+        this.defineReplacements(patientSearch, -1, -1, orderBy);
+
+        // replacements.put("count", Boolean.TRUE.toString());
+
+        LOGGER.info("Call scriptsLoader for patientSearch");
+
+        StringBuilder builder = FileUtils.convertToUnix(this.scriptsLoader.get(EnumScripts.PATIENTS_SEARCH, replacements));
+
+        LOGGER.info("scriptsLoader for patientSearch done");
+
+        assertNotNull(builder);
+        try {
+            StringBuilder expected = FileUtils
+                    .convertToUnix(FileUtils.getFileContent(PATH + "patientsSearch.expected.sql", StandardCharsets.UTF_8));
+
+            assertEquals(expected.length(), builder.length());
+            assertEquals(expected.toString(), builder.toString());
+        } catch (IOException e) {
+            fail("Errors occurred in ScriptsLoaderTest#patientsSearchTest()");
+        }
+    }
+
+    private Map<String, String> defineReplacements(final PatientSearch patientMultiSearch, final int firstResult, final int maxResults,
+            final Map<String, Boolean> orderByAUB) {
+        final Map<String, String> replacements = new HashMap<>();
+
+        if (firstResult > -1 && maxResults > -1) {
+            replacements.put("firstResult", String.valueOf(firstResult));
+            replacements.put("maxResults", String.valueOf(maxResults));
+        }
+
+        this.manageVacation(replacements, patientMultiSearch);
+        this.manageUnit(replacements, patientMultiSearch);
+        this.manageStatus(replacements, patientMultiSearch);
+        this.manageDoctor(replacements, patientMultiSearch);
+        this.manageRecordNumber(replacements, patientMultiSearch);
+        this.manageLastname(replacements, patientMultiSearch);
+        this.manageFirstname(replacements, patientMultiSearch);
+        this.manageBirthday(replacements, patientMultiSearch);
+        this.manageGender(replacements, patientMultiSearch);
+        this.manageAttendance(replacements, patientMultiSearch);
+
+        this.manageSort(replacements, orderByAUB);
+
+        return replacements;
+    }
+
+    private void manageVacation(final Map<String, String> replacements, final PatientSearch patientMultiSearch) {
+        if (Status.VACATION.equals(patientMultiSearch.getStatus())) {
+            replacements.put("vacation", String.valueOf(patientMultiSearch.getStatus()));
+        } else {
+            if (Status.ARCHIVE.equals(patientMultiSearch.getStatus())) {
+                replacements.put("archive", String.valueOf(patientMultiSearch.getStatus()));
+            }
+
+            if (patientMultiSearch.getSectorId() != null) {
+                replacements.put(PARAM_SECTOR, String.valueOf(patientMultiSearch.getSectorId()));
+            }
+        }
+    }
+
+    private void manageUnit(final Map<String, String> replacements, final PatientSearch patientMultiSearch) {
+        if (patientMultiSearch.getUnitId() != null && patientMultiSearch.getUnitId() != 0) {
+            replacements.put(PARAM_UNIT, String.valueOf(patientMultiSearch.getUnitId()));
+        }
+    }
+
+    private void manageDoctor(final Map<String, String> replacements, final PatientSearch patientMultiSearch) {
+        if (patientMultiSearch.getDoctorId() != null && patientMultiSearch.getDoctorId() != 0) {
+            replacements.put(PARAM_DOCTOR, String.valueOf(patientMultiSearch.getDoctorId()));
+        }
+    }
+
+    private void manageRecordNumber(final Map<String, String> replacements, final PatientSearch patientMultiSearch) {
+        if (patientMultiSearch.getRecordNumber() != null) {
+            replacements.put(PARAM_RECORD_NUMBER, String.valueOf(patientMultiSearch.getRecordNumber()));
+        }
+    }
+
+    private void manageLastname(final Map<String, String> replacements, final PatientSearch patientMultiSearch) {
+        if (StringUtils.isNotEmpty(patientMultiSearch.getName())) {
+            replacements.put(PARAM_NAME, String.valueOf(patientMultiSearch.getName()));
+        }
+    }
+
+    private void manageFirstname(final Map<String, String> replacements, final PatientSearch patientMultiSearch) {
+        if (StringUtils.isNotEmpty(patientMultiSearch.getFirstName())) {
+            replacements.put(PARAM_FIRSTNAME, String.valueOf(patientMultiSearch.getFirstName()));
+        }
+    }
+
+    private void manageBirthday(final Map<String, String> replacements, final PatientSearch patientMultiSearch) {
+        if (patientMultiSearch.getBirthDay() != null) {
+            replacements.put(PARAM_BIRTHDAY, String.valueOf(patientMultiSearch.getBirthDay()));
+        }
+    }
+
+    private void manageGender(final Map<String, String> replacements, final PatientSearch patientMultiSearch) {
+        if (patientMultiSearch.getGender() != null && patientMultiSearch.getGender() != -1) {
+            replacements.put(PARAM_GENDER, String.valueOf(patientMultiSearch.getGender()));
+        }
+    }
+
+    private void manageAttendance(final Map<String, String> replacements, final PatientSearch patientMultiSearch) {
+        if (patientMultiSearch.getAttendance() != null && !Attendance.ALL.equals(patientMultiSearch.getAttendance())) {
+            replacements.put(PARAM_ATTENDANCE, String.valueOf(patientMultiSearch.getAttendance()));
+        }
+    }
+
+    private void manageStatus(final Map<String, String> replacements, final PatientSearch patientMultiSearch) {
+        if (Health.NORMAL.equals(patientMultiSearch.getHealth())) {
+            replacements.put("statusNormal", Boolean.TRUE.toString());
+        } else if (Health.GOOD.equals(patientMultiSearch.getHealth())) {
+            replacements.put("statusGood", Boolean.TRUE.toString());
+        } else if (patientMultiSearch.getStatus() != null && !Distance.UNKNOWN.equals(patientMultiSearch.getDistance())) {
+            replacements.put(PARAM_STATUS, patientMultiSearch.getStatus().name());
+        }
+    }
+
+    private void manageSort(final Map<String, String> replacements, final Map<String, Boolean> orderBy) {
+        if (orderBy != null && orderBy.size() > 0) {
+
+            for (Entry<String, Boolean> order : orderBy.entrySet()) {
+                if (PATTERN_COLUMN.matcher(order.getKey()).matches()) {
+                    replacements.put("orderBy", order.getKey() + " " + this.getDirection(order.getValue()));
+                }
+            }
+        }
+    }
+
+    private String getDirection(final boolean direction) {
+        if (direction) {
+            return "ASC";
+        }
+        return "DESC";
+    }
+
+    /**
+     * Test the binding mode (placeholders and bound values)
+     * 
+     * @throws IOException
+     *             On error
+     */
+    @Test
+    public void testGetStatement() throws IOException {
+        final File dir = new File("target/my_scripts_statement");
+        assertTrue(dir.isDirectory() || FileSystemUtils.createDirectory(dir));
+        final File file = new File(dir, "users.sql");
+        FileUtils.writeFileContent(new StringBuilder("select * from users where 1 = 1{name?? and name = {name}}{ids?? and id IN ({ids})}"),
+                file, StandardCharsets.UTF_8);
+
+        final ScriptsLoader loader = new ScriptsLoader(dir.getPath());
+        final ScriptsList<?> script = loader.init(null, file.getName(), StandardCharsets.UTF_8);
+
+        // the values are bound, not checked
+        final Map<String, Object> replacements = new HashMap<>();
+        replacements.put("name", "o'neil");
+        ScriptsStatement statement = loader.getStatement(script, replacements);
+        assertEquals("select * from users where 1 = 1 and name = ?", statement.getText());
+        assertEquals(Arrays.asList("o'neil"), statement.getValues());
+        assertEquals(Arrays.asList("name"), statement.getNames());
+
+        // the text is built once per shape
+        replacements.put("name", "smith");
+        final ScriptsStatement statement2 = loader.getStatement(script, replacements);
+        assertSame(statement.getText(), statement2.getText());
+        assertEquals(Arrays.asList("smith"), statement2.getValues());
+
+        // the collections are expanded
+        replacements.put("ids", new int[] {1, 2, 3});
+        statement = loader.getStatement(script, replacements);
+        assertEquals("select * from users where 1 = 1 and name = ? and id IN (?, ?, ?)", statement.getText());
+        assertEquals(Arrays.asList("smith", 1, 2, 3), statement.getValues());
+        assertEquals(Arrays.asList("name", "ids", "ids", "ids"), statement.getNames());
+
+        replacements.put("ids", ScriptsCollection.of(Arrays.asList(1L, 2L, 3L)).withGroups(2, ") OR id IN ("));
+        statement = loader.getStatement(script, replacements);
+        assertEquals("select * from users where 1 = 1 and name = ? and id IN (?, ?) OR id IN (?)", statement.getText());
+        assertEquals(Arrays.asList("smith", 1L, 2L, 3L), statement.getValues());
+
+        // named parameters
+        replacements.put("ids", Arrays.asList(1, 2));
+        statement = loader.getStatement(script, replacements, true);
+        assertEquals("select * from users where 1 = 1 and name = :name and id IN (:ids)", statement.getText());
+        assertEquals(Arrays.asList("smith", Arrays.asList(1, 2)), statement.getValues());
+
+        // by slots, without shape cache
+        loader.setShapeCacheSize(0);
+        final CompiledScript compiled = loader.getCompiledScript(script);
+        final Object[] values = new Object[compiled.getSlotCount()];
+        values[compiled.getSlot("name")] = null;
+        final BitSet presence = new BitSet();
+        presence.set(compiled.getSlot("name"));
+        statement = loader.getStatementBySlots(script, values, presence);
+        assertEquals("select * from users where 1 = 1 and name = ?", statement.toString());
+        assertEquals(Collections.singletonList(null), statement.getValues());
+
+        assertException(() -> loader.getStatement(script, Collections.singletonMap("{name}", "smith")), IllegalArgumentException.class,
+                "Replacement key cannot contains: {");
+        assertNull(loader.getStatement(EnumScripts.TEST, replacements));
+
+        // a variable in a quoted text is a literal, not a parameter (test.sql:
+        // where id = '{app.id}')
+        assertException(() -> this.scriptsLoader.getStatement(EnumScripts.TEST, Collections.singletonMap("app.id", "my_app")),
+                IllegalArgumentException.class, "The variable 'app.id' is in a quoted text, it cannot be bound");
+        assertEquals("select * from test where id = 'my_app'", this.scriptsLoader.get(EnumScripts.TEST, "app.id", "my_app").toString());
+
+        FileUtils.writeFileContent(new StringBuilder("select * from users where code = 'a''{b}' and name = {name}"), file,
+                StandardCharsets.UTF_8);
+        final ScriptsList<?> quoted = loader.init(null, file.getName(), StandardCharsets.UTF_8);
+        assertException(() -> loader.getStatement(quoted, Collections.singletonMap("b", "x")), IllegalArgumentException.class,
+                "The variable 'b' is in a quoted text, it cannot be bound");
+
+        // not in the quoted texts
+        FileUtils.writeFileContent(new StringBuilder("select * from users where code = 'it''s' and name = {name} and t = ''"), file,
+                StandardCharsets.UTF_8);
+        final ScriptsList<?> unquoted = loader.init(null, file.getName(), StandardCharsets.UTF_8);
+        assertEquals("select * from users where code = 'it''s' and name = ? and t = ''",
+                loader.getStatement(unquoted, replacements).getText());
+    }
+
+    /**
+     * Test the fingerprints of the shapes
+     * 
+     * @throws IOException
+     *             On error
+     */
+    @Test
+    public void testFingerprint() throws IOException {
+        final String content = "select * from t where {a??a = {a}::1 = 1}{b?? and b IN ({b})}";
+        final CompiledScript compiled = new ScriptsCompiler(ScriptsTemplate.TEMPLATE_SQL).compile(new StringBuilder(content));
+
+        // stable for the same content (compiled again or read from archive)
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            compiled.write(output);
+        }
+        final CompiledScript read;
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            read = CompiledScript.read(input, ScriptsTemplate.TEMPLATE_SQL);
+        }
+        assertEquals(compiled.getFingerprint(), new ScriptsCompiler(ScriptsTemplate.TEMPLATE_SQL).compile(new StringBuilder(content))
+                .getFingerprint());
+        assertEquals(compiled.getFingerprint(), read.getFingerprint());
+        assertNotEquals(compiled.getFingerprint(),
+                new ScriptsCompiler(ScriptsTemplate.TEMPLATE_SQL).compile(new StringBuilder(content + " ")).getFingerprint());
+        assertNotEquals(compiled.getFingerprint(),
+                new ScriptsCompiler(ScriptsTemplate.TEMPLATE_JSON).compile(new StringBuilder(content)).getFingerprint());
+
+        // only the presence changes the shape
+        final BitSet presence = new BitSet();
+        final long empty = compiled.getFingerprint(presence);
+        presence.set(compiled.getSlot("a"));
+        final long withA = compiled.getFingerprint(presence);
+        assertNotEquals(empty, withA);
+        presence.set(compiled.getSlotCount() + 1);
+        assertEquals(withA, compiled.getFingerprint(presence));
+
+        final File dir = new File("target/my_scripts_fingerprint");
+        assertTrue(dir.isDirectory() || FileSystemUtils.createDirectory(dir));
+        final File file = new File(dir, "test.sql");
+        FileUtils.writeFileContent(new StringBuilder(content), file, StandardCharsets.UTF_8);
+        final ScriptsLoader loader = new ScriptsLoader(dir.getPath());
+        final ScriptsList<?> script = loader.init(null, file.getName(), StandardCharsets.UTF_8);
+
+        final Map<String, Object> replacements = new HashMap<>();
+        replacements.put("a", 1);
+        replacements.put("unknown", 2);
+        assertEquals(loader.getFingerprint(script, replacements), loader.getFingerprint(script, Collections.singletonMap("a", 3)));
+        assertEquals(loader.getCompiledScript(script).getFingerprint(presence), loader.getFingerprint(script, replacements));
+        assertNotEquals(loader.getFingerprint(script, replacements), loader.getFingerprint(script, Collections.emptyMap()));
+        assertEquals(0, loader.getFingerprint(EnumScripts.TEST, replacements));
+
+        // computed while rendering
+        final ScriptsRendered<StringBuilder> rendered = loader.getRendered(script, replacements);
+        assertEquals(loader.get(script, replacements).toString(), rendered.getOutput().toString());
+        assertEquals(loader.getFingerprint(script, replacements), rendered.getFingerprint());
+        final Object[] values = new Object[loader.getCompiledScript(script).getSlotCount()];
+        values[loader.getCompiledScript(script).getSlot("a")] = 1;
+        assertEquals(rendered.getFingerprint(), loader.getRenderedBySlots(script, values, presence).getFingerprint());
+        final ScriptsRendered<StringWriter> written = loader.renderWithFingerprint(script, replacements, new StringWriter());
+        assertEquals(rendered.toString(), written.toString());
+        assertEquals(rendered.getFingerprint(), written.getFingerprint());
+        assertNotEquals(rendered.getFingerprint(), loader.getRendered(script, Collections.emptyMap()).getFingerprint());
+        assertNull(loader.getRendered(EnumScripts.TEST, replacements));
+
+        // the statements with the same text have the same fingerprint
+        replacements.put("b", Arrays.asList(1, 2));
+        final long statement = loader.getStatement(script, replacements).getFingerprint();
+        replacements.put("b", Arrays.asList(3, 4));
+        assertEquals(statement, loader.getStatement(script, replacements).getFingerprint());
+        replacements.put("b", Arrays.asList(3, 4, 5));
+        assertNotEquals(statement, loader.getStatement(script, replacements).getFingerprint());
+        replacements.put("b", ScriptsCollection.of(Arrays.asList(3, 4)).withSeparator(","));
+        assertNotEquals(statement, loader.getStatement(script, replacements).getFingerprint());
+        assertNotEquals(statement, loader.getStatement(script, replacements, true).getFingerprint());
+    }
+}
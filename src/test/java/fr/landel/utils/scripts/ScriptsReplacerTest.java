@@ -1,273 +1,719 @@
-/*
- * #%L
- * utils-scripts
- * %%
- * Copyright (C) 2016 - 2018 Gilles Landel
- * %%
- * Licensed under the Apache License, Version 2.0 (the "License");
- * you may not use this file except in compliance with the License.
- * You may obtain a copy of the License at
- * 
- *      http://www.apache.org/licenses/LICENSE-2.0
- * 
- * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS,
- * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- * See the License for the specific language governing permissions and
- * limitations under the License.
- * #L%
- */
-package fr.landel.utils.scripts;
-
-import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertNotNull;
-import static org.junit.Assert.fail;
-
-import java.io.IOException;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.LinkedHashMap;
-import java.util.Map;
-import java.util.Map.Entry;
-
-import org.junit.Test;
-
-/**
- * Check scripts replacer
- *
- * @since Dec 1, 2015
- * @author Gilles
- *
- */
-public class ScriptsReplacerTest extends AbstractTest {
-
-    /**
-     * Test replacer
-     */
-    @Test
-    public void replaceTest() {
-        final Map<String, String> replacements = new HashMap<>();
-        final ScriptsReplacer replacer = new ScriptsReplacer();
-
-        replacements.put("var.iable", "value");
-        replacements.put("var1", "test");
-        replacements.put("var2", "d''ata");
-        replacements.put("var3", "super");
-        replacements.put("var4", "toto");
-
-        final Map<String, String> inputs = new LinkedHashMap<>();
-
-        // simple
-        inputs.put("{var.iable}", "value");
-        inputs.put("   {var.iable}", "   value");
-        inputs.put("   {var.iable}  ", "   value  ");
-        inputs.put("   { var.iable  }", "   value");
-        inputs.put("   { var.iable  }  {var2}", "   value  d''ata");
-
-        // condition
-        inputs.put("{var.iable??var.iable}", "var.iable");
-        inputs.put("{var.iable??var.iable::default}", "var.iable");
-        inputs.put(" {var.iable??ok}  ", " ok  ");
-        inputs.put("{var.iable  ??  ok ::  ko }", "  ok ");
-        inputs.put("{var.iable::default}", "value");
-        inputs.put("{  var.iable  ??  ok ::  ko }", "  ok ");
-        inputs.put("{var.iable??{var.iable}}", "value");
-        inputs.put("{var.iable??{var.iable::ko}", "{var.iable??value");
-        inputs.put("{var.iable??var.iable}}", "var.iable}");
-        inputs.put("{var.iable?? ok='{var.iable}{var2}' ::default}", " ok='valued''ata' ");
-        inputs.put("{var.iable&&var2::default}", "valued''ata");
-        inputs.put("{var.iable&&var2?? ok='{var.iable}{var2}' ::default}", " ok='valued''ata' ");
-        inputs.put("{var.iable&&!var2?? ok='{var.iable}{var2}' ::default}", "default");
-        inputs.put("{var.iable&&!var2}", "");
-        inputs.put("{var.iable&&!var2::default}", "default");
-        inputs.put("{var.iable&& ! var2::default}", "default");
-        inputs.put("{var.iable||!var2::default}", "value");
-        inputs.put("{!var.iable||var2::default}", "d''ata");
-        inputs.put("{var.iable&&(var2||unknown)&&(var3||unknown)::default}", "d''atasupervalue");
-
-        // condition + variable inconnu
-        inputs.put("{unknown}", "");
-        inputs.put("{unknown::default}", "default");
-        inputs.put("{!unknown::default}", "");
-        inputs.put("{!unknown??value::default}", "value");
-        inputs.put("{var.iable?? ok='{var.iable}{var2}{unknown}' ::default}", " ok='valued''ata' ");
-        inputs.put("{unknown?? ok='{var.iable}{var2}'}", "");
-        inputs.put("{unknown?? ok='{var.iable}{var2}' ::default}", "default");
-        inputs.put("{!unknown?? ok='{var.iable}{var2}' ::default}", " ok='valued''ata' ");
-        inputs.put("{var.iable&&unknown?? ok='{var.iable}{var2}' ::default}", "default");
-        inputs.put("{var.iable&&!unknown?? ok='{var.iable}{var2}' ::default}", " ok='valued''ata' ");
-        inputs.put("{var.iable||!unknown?? ok='{var.iable}{var2}' ::default}", " ok='valued''ata' ");
-        inputs.put("{var.iable||unknown?? ok='{var.iable}{var2}' ::default}", " ok='valued''ata' ");
-        inputs.put("{!var.iable||!unknown?? ok='{var.iable}{var2}' ::default}", " ok='valued''ata' ");
-        inputs.put("{!var.iable||unknown?? ok='{var.iable}{var2}' ::default}", "default");
-        inputs.put("{!var.iable||(unknown&&var3||(var2&&!unknown))?? ok='{var.iable}{var2}' ::default}", " ok='valued''ata' ");
-        inputs.put("{!var.iable||(unknown&&var3||(var2&&unknown))?? ok='{var.iable}{var2}' ::default}", "default");
-
-        inputs.put("{(var1&&var2)||(var3&&var4)??{var3} {var4}::default}", "super toto");
-        inputs.put("{(var1&&var2)||(var3&&!var4)??{var3} {var4}::default}", "super toto");
-        inputs.put("{(var1&&!var2)||(var3&&!var4)??{var3} {var4}::default}", "default");
-
-        inputs.put("{var.iable&&!unknown??{var.iable&&!unknown?? ok='{var.iable}{var2}' ::default}::default}", " ok='valued''ata' ");
-        inputs.put("{var.iable&&unknown??{var3}::{var.iable&&var3??{var4}::default}}", "toto");
-        inputs.put("{var.iable&&!unknown??{var.iable&&unknown?? ok='{var.iable}{var2}' ::default}{var2}::default}", "defaultd''ata");
-        inputs.put("{var.iable&&!unknown??\r\n{var.iable&&unknown?? \r\nok='{var.iable}{var2}' ::default}{var2}::default}",
-                "\r\ndefaultd''ata");
-
-        int inputWithoutExceptions = inputs.size();
-
-        // exceptions
-        inputs.put("   { var.iable", "   { var.iable");
-        inputs.put("   { var.iable ", "   { var.iable ");
-
-        int i = 0;
-        for (Entry<String, String> input : inputs.entrySet()) {
-            final StringBuilder sb = new StringBuilder(input.getKey());
-
-            if (i < inputWithoutExceptions) {
-                replacer.replace(sb, replacements);
-
-                assertEquals("input: " + input.getKey(), input.getValue(), sb.toString());
-            } else if (i == 0) {
-                assertException(() -> replacer.replace(sb, replacements), IllegalArgumentException.class,
-                        "The count of { doesn't match the count of }, input:    { var.iable");
-            } else if (i == 1) {
-                assertException(() -> replacer.replace(sb, replacements), IllegalArgumentException.class,
-                        "The count of { doesn't match the count of }, input:    { var.iable ");
-            }
-
-            i++;
-        }
-    }
-
-    /**
-     * Test replacer 2
-     */
-    @Test
-    public void replaceTest2() {
-        StringBuilder sb;
-        final Map<String, String> replacements = new HashMap<>();
-        final ScriptsReplacer replacer = new ScriptsReplacer();
-        final Map<String, String> inputs = new LinkedHashMap<>();
-
-        replacements.put("var2", "dat'a");
-        inputs.put("{var.iable}", "value");
-
-        try {
-            for (Entry<String, String> input : inputs.entrySet()) {
-                sb = new StringBuilder(input.getKey());
-
-                replacer.replace(sb, replacements);
-
-                fail("Has to throw exception: " + sb.toString());
-            }
-        } catch (IllegalArgumentException e) {
-            assertEquals("Replacement value has to contain only pairs of: '", e.getMessage());
-        }
-    }
-
-    /**
-     * Test replacer 3
-     */
-    @Test
-    public void replaceTest3() {
-        StringBuilder sb;
-        final Map<String, String> replacements = new HashMap<>();
-        final ScriptsReplacer replacer = new ScriptsReplacer();
-        final Map<String, String> inputs = new LinkedHashMap<>();
-
-        replacements.put("var2", "'dat'a");
-        inputs.put("{var.iable}", "value");
-
-        try {
-            for (Entry<String, String> input : inputs.entrySet()) {
-                sb = new StringBuilder(input.getKey());
-
-                replacer.replace(sb, replacements);
-
-                fail("Has to throw exception: " + sb.toString());
-            }
-        } catch (IllegalArgumentException e) {
-            assertEquals("Replacement value has to contain only group of pairs of: '", e.getMessage());
-        }
-    }
-
-    /**
-     * Test replacer 4
-     */
-    @Test
-    public void replaceTest4() {
-        StringBuilder sb;
-        final Map<String, String> replacements = new HashMap<>();
-        final ScriptsReplacer replacer = new ScriptsReplacer();
-
-        replacer.getTemplate().isRemoveBlankLines();
-
-        final Map<String, String> inputs = new LinkedHashMap<>();
-
-        replacements.put("var2", "'dat'a");
-        inputs.put("{var.iable}", "value");
-
-        try {
-            for (Entry<String, String> input : inputs.entrySet()) {
-                sb = new StringBuilder(input.getKey());
-
-                replacer.replace(sb, replacements);
-
-                fail("Has to throw exception: " + sb.toString());
-            }
-        } catch (IllegalArgumentException e) {
-            assertEquals("Replacement value has to contain only group of pairs of: '", e.getMessage());
-        }
-    }
-
-    /**
-     * Test new template
-     * 
-     * @throws IOException
-     *             On loading error
-     * 
-     */
-    @Test
-    public void testTemplate() throws IOException {
-        final ScriptsLoader loader = new ScriptsLoader();
-
-        assertNotNull(loader);
-
-        loader.setPath("my_scripts");
-        loader.getReplacer().setTemplate(new MyTemplate());
-
-        loader.init(EnumScripts2.values());
-
-        final Map<String, String> replacements = new HashMap<>();
-
-        replacements.put("value1", "v1");
-        // replacements.put("value2", "v2");
-        replacements.put("value3", "v3");
-
-        StringBuilder content = loader.get(EnumScripts2.TEST_UNIX, replacements);
-        assertEquals("\t12", content.toString());
-
-        replacements.clear();
-        replacements.put("value1", "v1");
-        content = loader.get(EnumScripts2.TEST_MAC, replacements);
-        assertEquals("\tv1", content.toString());
-
-        replacements.put("value3", "v=3");
-        assertException(() -> {
-            loader.get(EnumScripts2.TEST_UNIX, replacements);
-            fail();
-        }, IllegalArgumentException.class, "the script cannot contains the '=' character");
-
-        ScriptsReplacer replacer = new ScriptsReplacer();
-
-        StringBuilder in = new StringBuilder("{ a ??{a}::%s}");
-        replacer.replace(in, Collections.singletonMap("a", "b"));
-        assertEquals("b", in.toString());
-
-        in = new StringBuilder("{a??{a}::%s}");
-        replacer.replace(in, Collections.emptyMap());
-        assertEquals("%s", in.toString());
-
-        assertEquals("b", replacer.replace("{a??{a}::%s}", Collections.singletonMap("a", "b")));
-    }
-}
+/*
+ * #%L
+ * utils-scripts
+ * %%
+ * Copyright (C) 2016 - 2018 Gilles Landel
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package fr.landel.utils.scripts;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.function.Supplier;
+
+import org.junit.Test;
+
+import fr.landel.utils.commons.StringUtils;
+
+/**
+ * Check scripts replacer
+ *
+ * @since Dec 1, 2015
+ * @author Gilles
+ *
+ */
+public class ScriptsReplacerTest extends AbstractTest {
+
+    /**
+     * Test replacer
+     */
+    @Test
+    public void replaceTest() {
+        final Map<String, String> replacements = new HashMap<>();
+        final ScriptsReplacer replacer = new ScriptsReplacer();
+
+        replacements.put("var.iable", "value");
+        replacements.put("var1", "test");
+        replacements.put("var2", "d''ata");
+        replacements.put("var3", "super");
+        replacements.put("var4", "toto");
+
+        final Map<String, String> inputs = new LinkedHashMap<>();
+
+        // simple
+        inputs.put("{var.iable}", "value");
+        inputs.put("   {var.iable}", "   value");
+        inputs.put("   {var.iable}  ", "   value  ");
+        inputs.put("   { var.iable  }", "   value");
+        inputs.put("   { var.iable  }  {var2}", "   value  d''ata");
+
+        // condition
+        inputs.put("{var.iable??var.iable}", "var.iable");
+        inputs.put("{var.iable??var.iable::default}", "var.iable");
+        inputs.put(" {var.iable??ok}  ", " ok  ");
+        inputs.put("{var.iable  ??  ok ::  ko }", "  ok ");
+        inputs.put("{var.iable::default}", "value");
+        inputs.put("{  var.iable  ??  ok ::  ko }", "  ok ");
+        inputs.put("{var.iable??{var.iable}}", "value");
+        inputs.put("{var.iable??{var.iable::ko}", "{var.iable??value");
+        inputs.put("{var.iable??var.iable}}", "var.iable}");
+        inputs.put("{var.iable?? ok='{var.iable}{var2}' ::default}", " ok='valued''ata' ");
+        inputs.put("{var.iable&&var2::default}", "valued''ata");
+        inputs.put("{var.iable&&var2?? ok='{var.iable}{var2}' ::default}", " ok='valued''ata' ");
+        inputs.put("{var.iable&&!var2?? ok='{var.iable}{var2}' ::default}", "default");
+        inputs.put("{var.iable&&!var2}", "");
+        inputs.put("{var.iable&&!var2::default}", "default");
+        inputs.put("{var.iable&& ! var2::default}", "default");
+        inputs.put("{var.iable||!var2::default}", "value");
+        inputs.put("{!var.iable||var2::default}", "d''ata");
+        inputs.put("{var.iable&&(var2||unknown)&&(var3||unknown)::default}", "d''atasupervalue");
+
+        // condition + variable inconnu
+        inputs.put("{unknown}", "");
+        inputs.put("{unknown::default}", "default");
+        inputs.put("{!unknown::default}", "");
+        inputs.put("{!unknown??value::default}", "value");
+        inputs.put("{var.iable?? ok='{var.iable}{var2}{unknown}' ::default}", " ok='valued''ata' ");
+        inputs.put("{unknown?? ok='{var.iable}{var2}'}", "");
+        inputs.put("{unknown?? ok='{var.iable}{var2}' ::default}", "default");
+        inputs.put("{!unknown?? ok='{var.iable}{var2}' ::default}", " ok='valued''ata' ");
+        inputs.put("{var.iable&&unknown?? ok='{var.iable}{var2}' ::default}", "default");
+        inputs.put("{var.iable&&!unknown?? ok='{var.iable}{var2}' ::default}", " ok='valued''ata' ");
+        inputs.put("{var.iable||!unknown?? ok='{var.iable}{var2}' ::default}", " ok='valued''ata' ");
+        inputs.put("{var.iable||unknown?? ok='{var.iable}{var2}' ::default}", " ok='valued''ata' ");
+        inputs.put("{!var.iable||!unknown?? ok='{var.iable}{var2}' ::default}", " ok='valued''ata' ");
+        inputs.put("{!var.iable||unknown?? ok='{var.iable}{var2}' ::default}", "default");
+        inputs.put("{!var.iable||(unknown&&var3||(var2&&!unknown))?? ok='{var.iable}{var2}' ::default}", " ok='valued''ata' ");
+        inputs.put("{!var.iable||(unknown&&var3||(var2&&unknown))?? ok='{var.iable}{var2}' ::default}", "default");
+
+        inputs.put("{(var1&&var2)||(var3&&var4)??{var3} {var4}::default}", "super toto");
+        inputs.put("{(var1&&var2)||(var3&&!var4)??{var3} {var4}::default}", "super toto");
+        inputs.put("{(var1&&!var2)||(var3&&!var4)??{var3} {var4}::default}", "default");
+
+        inputs.put("{var.iable&&!unknown??{var.iable&&!unknown?? ok='{var.iable}{var2}' ::default}::default}", " ok='valued''ata' ");
+        inputs.put("{var.iable&&unknown??{var3}::{var.iable&&var3??{var4}::default}}", "toto");
+        inputs.put("{var.iable&&!unknown??{var.iable&&unknown?? ok='{var.iable}{var2}' ::default}{var2}::default}", "defaultd''ata");
+        inputs.put("{var.iable&&!unknown??\r\n{var.iable&&unknown?? \r\nok='{var.iable}{var2}' ::default}{var2}::default}",
+                "\r\ndefaultd''ata");
+
+        int inputWithoutExceptions = inputs.size();
+
+        // exceptions
+        inputs.put("   { var.iable", "   { var.iable");
+        inputs.put("   { var.iable ", "   { var.iable ");
+
+        int i = 0;
+        for (Entry<String, String> input : inputs.entrySet()) {
+            final StringBuilder sb = new StringBuilder(input.getKey());
+
+            if (i < inputWithoutExceptions) {
+                replacer.replace(sb, replacements);
+
+                assertEquals("input: " + input.getKey(), input.getValue(), sb.toString());
+            } else if (i == 0) {
+                assertException(() -> replacer.replace(sb, replacements), IllegalArgumentException.class,
+                        "The count of { doesn't match the count of }, input:    { var.iable");
+            } else if (i == 1) {
+                assertException(() -> replacer.replace(sb, replacements), IllegalArgumentException.class,
+                        "The count of { doesn't match the count of }, input:    { var.iable ");
+            }
+
+            i++;
+        }
+    }
+
+    /**
+     * Test replacer 2
+     */
+    @Test
+    public void replaceTest2() {
+        StringBuilder sb;
+        final Map<String, String> replacements = new HashMap<>();
+        final ScriptsReplacer replacer = new ScriptsReplacer();
+        final Map<String, String> inputs = new LinkedHashMap<>();
+
+        replacements.put("var2", "dat'a");
+        inputs.put("{var.iable}", "value");
+
+        try {
+            for (Entry<String, String> input : inputs.entrySet()) {
+                sb = new StringBuilder(input.getKey());
+
+                replacer.replace(sb, replacements);
+
+                fail("Has to throw exception: " + sb.toString());
+            }
+        } catch (IllegalArgumentException e) {
+            assertEquals("Replacement value has to contain only pairs of: '", e.getMessage());
+        }
+    }
+
+    /**
+     * Test replacer 3
+     */
+    @Test
+    public void replaceTest3() {
+        StringBuilder sb;
+        final Map<String, String> replacements = new HashMap<>();
+        final ScriptsReplacer replacer = new ScriptsReplacer();
+        final Map<String, String> inputs = new LinkedHashMap<>();
+
+        replacements.put("var2", "'dat'a");
+        inputs.put("{var.iable}", "value");
+
+        try {
+            for (Entry<String, String> input : inputs.entrySet()) {
+                sb = new StringBuilder(input.getKey());
+
+                replacer.replace(sb, replacements);
+
+                fail("Has to throw exception: " + sb.toString());
+            }
+        } catch (IllegalArgumentException e) {
+            assertEquals("Replacement value has to contain only group of pairs of: '", e.getMessage());
+        }
+    }
+
+    /**
+     * Test replacer 4
+     */
+    @Test
+    public void replaceTest4() {
+        StringBuilder sb;
+        final Map<String, String> replacements = new HashMap<>();
+        final ScriptsReplacer replacer = new ScriptsReplacer();
+
+        replacer.getTemplate().isRemoveBlankLines();
+
+        final Map<String, String> inputs = new LinkedHashMap<>();
+
+        replacements.put("var2", "'dat'a");
+        inputs.put("{var.iable}", "value");
+
+        try {
+            for (Entry<String, String> input : inputs.entrySet()) {
+                sb = new StringBuilder(input.getKey());
+
+                replacer.replace(sb, replacements);
+
+                fail("Has to throw exception: " + sb.toString());
+            }
+        } catch (IllegalArgumentException e) {
+            assertEquals("Replacement value has to contain only group of pairs of: '", e.getMessage());
+        }
+    }
+
+    /**
+     * Test replacer with a lot of unused keys (variables are replaced in one
+     * pass)
+     */
+    @Test
+    public void replaceTest5() {
+        final Map<String, String> replacements = new HashMap<>();
+        final ScriptsReplacer replacer = new ScriptsReplacer();
+
+        for (int i = 0; i < 200; ++i) {
+            replacements.put("var" + i, "v" + i);
+        }
+
+        assertEquals("v1v1 v199, , v0 ok", replacer.replace("{var1}{ var1 } {var199}, {unknown}, {var0} {var0??ok}", replacements));
+        assertEquals("{var0 ok", replacer.replace("{var0 {var0??ok}", replacements));
+    }
+
+    /**
+     * Test replacer with thousands of conditions and deep nesting
+     */
+    @Test
+    public void replaceTest6() {
+        final Map<String, String> replacements = new HashMap<>();
+        final ScriptsReplacer replacer = new ScriptsReplacer();
+
+        replacements.put("a", "va");
+
+        final int count = 5_000;
+        final StringBuilder input = new StringBuilder();
+        final StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < count; ++i) {
+            input.append("{a??x{a}::y}{b??x::y}");
+            expected.append("xvay");
+        }
+        assertEquals(expected.toString(), replacer.replace(input.toString(), replacements));
+
+        final int depth = 1_000;
+        input.setLength(0);
+        expected.setLength(0);
+        for (int i = 0; i < depth; ++i) {
+            input.append("{a?? (");
+            expected.append(" (");
+        }
+        input.append("{b::{a}}");
+        expected.append("va");
+        for (int i = 0; i < depth; ++i) {
+            input.append(")}");
+            expected.append(')');
+        }
+        assertEquals(expected.toString(), replacer.replace(input.toString(), replacements));
+
+        // JSON template, the same tags for variables and expressions
+        replacer.setTemplate(ScriptsTemplate.TEMPLATE_JSON);
+        input.setLength(0);
+        expected.setLength(0);
+        for (int i = 0; i < depth; ++i) {
+            input.append("<a??{\"k\":[");
+            expected.append("{\"k\":[");
+        }
+        input.append("<b::\"<a>\">");
+        expected.append("\"va\"");
+        for (int i = 0; i < depth; ++i) {
+            input.append("]}>");
+            expected.append("]}");
+        }
+        assertEquals(expected.toString(), replacer.replace(input.toString(), replacements));
+    }
+
+    /**
+     * Test legacy expressions (from left to right without precedence, by
+     * default), and expressions with the operators precedence and blocks
+     */
+    @Test
+    public void replaceTest7() {
+        final Map<String, String> replacements = new HashMap<>();
+        final ScriptsReplacer replacer = new ScriptsReplacer();
+
+        replacements.put("racing", "competition");
+        replacements.put("a", "va");
+
+        assertTrue(replacer.getTemplate().isLegacyExpressions());
+
+        final Map<String, String> inputs = new LinkedHashMap<>();
+        inputs.put("{engine && (racing || touring)??motorcycle::bike}", "motorcycle");
+        inputs.put("{!engine && racing??racing bike::other}", "racing bike");
+        inputs.put("{a || b && c??ok::ko}", "ko");
+        inputs.put("{c && (a)??ko::ok}", "ko");
+        inputs.put("{a && racing::ko}", "vacompetition");
+        // negated block, interpreted
+        inputs.put("{!(a)??ko::ok}", "ko");
+
+        for (Entry<String, String> input : inputs.entrySet()) {
+            assertEquals(input.getKey(), input.getValue(), replacer.replace(input.getKey(), replacements));
+        }
+
+        replacer.setTemplate(new AbstractScriptsTemplate() {
+            @Override
+            protected void init() {
+                this.setExpressionOpen(EXPRESSION_OPEN);
+                this.setExpressionClose(EXPRESSION_CLOSE);
+                this.setVariableOpen(EXPRESSION_OPEN);
+                this.setVariableClose(EXPRESSION_CLOSE);
+                this.setBlockOpen(BLOCK_OPEN);
+                this.setBlockClose(BLOCK_CLOSE);
+                this.setOperatorThen(OPERATOR_THEN);
+                this.setOperatorElse(OPERATOR_ELSE);
+                this.setOperatorAnd(OPERATOR_AND);
+                this.setOperatorOr(OPERATOR_OR);
+                this.setOperatorNot(OPERATOR_NOT);
+                this.setLegacyExpressions(false);
+            }
+        });
+
+        inputs.clear();
+        inputs.put("{engine && (racing || touring)??motorcycle::bike}", "bike");
+        inputs.put("{!engine && racing??racing bike::other}", "racing bike");
+        inputs.put("{a || b && c??ok::ko}", "ok");
+        inputs.put("{b && c || a??ok::ko}", "ok");
+        inputs.put("{!(a || b)??ko::ok}", "ok");
+        inputs.put("{!b && !(c && a)??ok::ko}", "ok");
+        inputs.put("{(a && (b || (racing && !c)))??ok::ko}", "ok");
+        inputs.put("{c && (a)??ko::ok}", "ok");
+        inputs.put("{a && racing::ko}", "vacompetition");
+        inputs.put("{(a || b) && !c::ko}", "va");
+
+        for (Entry<String, String> input : inputs.entrySet()) {
+            assertEquals(input.getKey(), input.getValue(), replacer.replace(input.getKey(), replacements));
+        }
+    }
+
+    /**
+     * Test new template
+     * 
+     * @throws IOException
+     *             On loading error
+     * 
+     */
+    @Test
+    public void testTemplate() throws IOException {
+        final ScriptsLoader loader = new ScriptsLoader();
+
+        assertNotNull(loader);
+
+        loader.setPath("my_scripts");
+        loader.getReplacer().setTemplate(new MyTemplate());
+
+        loader.init(EnumScripts2.values());
+
+        final Map<String, String> replacements = new HashMap<>();
+
+        replacements.put("value1", "v1");
+        // replacements.put("value2", "v2");
+        replacements.put("value3", "v3");
+
+        StringBuilder content = loader.get(EnumScripts2.TEST_UNIX, replacements);
+        assertEquals("\t12", content.toString());
+
+        replacements.clear();
+        replacements.put("value1", "v1");
+        content = loader.get(EnumScripts2.TEST_MAC, replacements);
+        assertEquals("\tv1", content.toString());
+
+        replacements.put("value3", "v=3");
+        assertException(() -> {
+            loader.get(EnumScripts2.TEST_UNIX, replacements);
+            fail();
+        }, IllegalArgumentException.class, "the script cannot contains the '=' character");
+
+        ScriptsReplacer replacer = new ScriptsReplacer();
+
+        StringBuilder in = new StringBuilder("{ a ??{a}::%s}");
+        replacer.replace(in, Collections.singletonMap("a", "b"));
+        assertEquals("b", in.toString());
+
+        in = new StringBuilder("{a??{a}::%s}");
+        replacer.replace(in, Collections.emptyMap());
+        assertEquals("%s", in.toString());
+
+        assertEquals("b", replacer.replace("{a??{a}::%s}", Collections.singletonMap("a", "b")));
+    }
+
+    /**
+     * Test the check of the replacement keys and values (template tokens)
+     */
+    @Test
+    public void testCheckReplacements() {
+        final ScriptsReplacer replacer = new ScriptsReplacer();
+        final String script = "{a??{a}::{b}}";
+
+        assertEquals("d''ata", replacer.replace(script, Collections.singletonMap("a", "d''ata")));
+        assertEquals("a:b?c", replacer.replace(script, Collections.singletonMap("b", "a:b?c")));
+
+        assertException(() -> replacer.replace(script, Collections.singletonMap("a{", "v")), IllegalArgumentException.class,
+                "Replacement key cannot contains: {");
+        assertException(() -> replacer.replace(script, Collections.singletonMap("a}", "v")), IllegalArgumentException.class,
+                "Replacement key cannot contains: }");
+        assertException(() -> replacer.replace(script, Collections.singletonMap("a??b", "v")), IllegalArgumentException.class,
+                "Replacement key cannot contains: ??");
+        assertException(() -> replacer.replace(script, Collections.singletonMap("a::b", "v")), IllegalArgumentException.class,
+                "Replacement key cannot contains: ::");
+        assertException(() -> replacer.replace(script, Collections.singletonMap(null, "v")), IllegalArgumentException.class,
+                "Replacement key cannot be null");
+
+        assertException(() -> replacer.replace(script, Collections.singletonMap("a", "v}")), IllegalArgumentException.class,
+                "Replacement value cannot contains: ");
+        assertException(() -> replacer.replace(script, Collections.singletonMap("a", "v::")), IllegalArgumentException.class,
+                "Replacement value cannot contains: ");
+        assertException(() -> replacer.replace(script, Collections.singletonMap("a", "v'")), IllegalArgumentException.class,
+                "Replacement value has to contain only pairs of: '");
+
+        replacer.setTemplate(ScriptsTemplate.TEMPLATE_JSON);
+        assertEquals("v{", replacer.replace("<a>{", Collections.singletonMap("a", "v")));
+        assertException(() -> replacer.replace("<a>", Collections.singletonMap("a", "{}")), IllegalArgumentException.class,
+                "Replacement value hasn't to contain braces");
+        assertException(() -> replacer.replace("<a>", Collections.singletonMap("a<", "v")), IllegalArgumentException.class,
+                "Replacement key cannot contains: <");
+
+        replacer.setTemplate(new MyTemplate());
+        assertEquals("£", replacer.replace("$a£££", Collections.singletonMap("a", "£")));
+        assertEquals("", replacer.replace("$a£££", Collections.singletonMap("a££", "v")));
+        assertException(() -> replacer.replace("$a£££", Collections.singletonMap("a£££", "v")), IllegalArgumentException.class,
+                "Replacement key cannot contains: £££");
+        assertException(() -> replacer.replace("$a£££", Collections.singletonMap("a", "ELSE")), IllegalArgumentException.class,
+                "Replacement value cannot contains: ");
+    }
+
+    /**
+     * Test the value checkers of the predefined templates
+     */
+    @Test
+    public void testCheckers() {
+        final ScriptsChecker sql = ScriptsTemplate.TEMPLATE_SQL.getValueChecker();
+        assertEquals(ScriptsChecker.SQL, sql);
+
+        sql.check("");
+        sql.check("d''ata");
+        sql.check(new StringBuilder("''''d''ata''"));
+        assertException(() -> sql.check("d'ata"), IllegalArgumentException.class, "Replacement value has to contain only pairs of: '");
+        assertException(() -> sql.check("'''"), IllegalArgumentException.class, "Replacement value has to contain only pairs of: '");
+        assertException(() -> sql.check("'d'ata"), IllegalArgumentException.class,
+                "Replacement value has to contain only group of pairs of: '");
+        assertException(() -> sql.check("'''d'"), IllegalArgumentException.class,
+                "Replacement value has to contain only group of pairs of: '");
+        assertException(() -> ScriptsTemplate.CHECKER_SQL.acceptThrows("d'ata"), IllegalArgumentException.class,
+                "Replacement value has to contain only pairs of: '");
+
+        final ScriptsChecker json = ScriptsTemplate.TEMPLATE_JSON.getValueChecker();
+        assertEquals(ScriptsChecker.JSON, json);
+
+        json.check("");
+        json.check(new StringBuilder("[\"data\"]"));
+        assertException(() -> json.check("{"), IllegalArgumentException.class, "Replacement value hasn't to contain braces");
+        assertException(() -> json.check("data}"), IllegalArgumentException.class, "Replacement value hasn't to contain braces");
+        assertException(() -> ScriptsTemplate.TEMPLATE_JSON.getChecker().acceptThrows("{}"), IllegalArgumentException.class,
+                "Replacement value hasn't to contain braces");
+
+        final ScriptsChecker custom = new MyTemplate().getValueChecker();
+        custom.check(new StringBuilder("data"));
+        assertException(() -> custom.check(new StringBuilder("a=b")), IllegalArgumentException.class,
+                "the script cannot contains the '=' character");
+    }
+
+    /**
+     * Test the check of the values: the rendered values are formatted once
+     * (checked while formatted), the others are checked too
+     */
+    @Test
+    public void testCheckedOnce() {
+        final ScriptsReplacer replacer = new ScriptsReplacer();
+
+        final int[] formatted = {0};
+        final Object value = new Object() {
+
+            @Override
+            public String toString() {
+                ++formatted[0];
+                return "v";
+            }
+        };
+        assertEquals("select v", replacer.replace("select {a}", Collections.singletonMap("a", value)));
+        assertEquals(1, formatted[0]);
+
+        // not taken branch, only used in condition or not used
+        final Map<String, Object> replacements = new HashMap<>();
+        replacements.put("a", "d'ata");
+        assertException(() -> replacer.replace("select {b??{a}}", replacements), IllegalArgumentException.class,
+                "Replacement value has to contain only pairs of: '");
+        assertException(() -> replacer.replace("select {a??1}", replacements), IllegalArgumentException.class,
+                "Replacement value has to contain only pairs of: '");
+        assertException(() -> replacer.replace("select 1", replacements), IllegalArgumentException.class,
+                "Replacement value has to contain only pairs of: '");
+
+        // the input is unchanged on failure (rendered or not rendered value)
+        final StringBuilder sb = new StringBuilder("select {a} from t");
+        assertException(() -> replacer.replace(sb, replacements), IllegalArgumentException.class,
+                "Replacement value has to contain only pairs of: '");
+        assertEquals("select {a} from t", sb.toString());
+
+        sb.setLength(0);
+        sb.append("select {b??{a}} from t");
+        assertException(() -> replacer.replace(sb, replacements), IllegalArgumentException.class,
+                "Replacement value has to contain only pairs of: '");
+        assertEquals("select {b??{a}} from t", sb.toString());
+    }
+
+    /**
+     * Test the value checker of the templates (checked as character sequence,
+     * synchronized with the checker)
+     */
+    @Test
+    public void testValueChecker() {
+        final List<CharSequence> checked = new ArrayList<>();
+        final MyTemplate template = new MyTemplate();
+        template.setValueChecker((value) -> {
+            checked.add(value);
+            if (value.length() > 3) {
+                throw new IllegalArgumentException("too long");
+            }
+        });
+
+        final StringBuilder value = new StringBuilder("abc");
+        template.getValueChecker().check(value);
+        assertSame(value, checked.get(0));
+
+        // the checker delegates to the value checker
+        template.getChecker().acceptThrows("def");
+        assertEquals("def", checked.get(1).toString());
+        assertException(() -> template.getChecker().acceptThrows("abcd"), IllegalArgumentException.class, "too long");
+
+        final ScriptsReplacer replacer = new ScriptsReplacer();
+        replacer.setTemplate(template);
+        assertEquals("v = abc", replacer.replace("v = $a£££", Collections.singletonMap("a", "abc")));
+        assertException(() -> replacer.replace("v = $a£££", Collections.singletonMap("a", "abcd")), IllegalArgumentException.class,
+                "too long");
+
+        template.setValueChecker(null);
+        assertNull(template.getValueChecker());
+        assertNull(template.getChecker());
+    }
+
+    /**
+     * Test the value formatters
+     */
+    @Test
+    public void testFormatters() {
+        final ScriptsReplacer replacer = new ScriptsReplacer();
+        assertEquals(ScriptsFormatters.DEFAULT, replacer.getFormatters());
+
+        final String script = "{a} {b} {c} {d} {e} {f}";
+        final Map<String, Object> replacements = new HashMap<>();
+        replacements.put("a", 12);
+        replacements.put("b", -5L);
+        replacements.put("c", 1.5d);
+        replacements.put("d", new BigDecimal("1.50"));
+        replacements.put("e", true);
+        replacements.put("f", new StringBuilder("text"));
+        assertEquals("12 -5 1.5 1.50 true text", replacer.replace(script, replacements));
+
+        replacements.clear();
+        replacements.put("a", PatientSearch.Status.VACATION);
+        replacements.put("b", LocalDate.of(2016, 12, 21));
+        replacements.put("c", LocalDateTime.of(2016, 12, 21, 10, 15, 30));
+        replacements.put("d", LocalTime.of(10, 15));
+        replacements.put("e", Instant.ofEpochSecond(0));
+        replacements.put("f", null);
+        assertEquals("VACATION 2016-12-21 2016-12-21T10:15:30 10:15:00 1970-01-01T00:00:00Z null", replacer.replace(script, replacements));
+
+        final Date date = new Date(1482315330000L);
+        final String expectedDate = DateTimeFormatter.ISO_LOCAL_DATE_TIME
+                .format(LocalDateTime.ofInstant(Instant.ofEpochMilli(date.getTime()), ZoneId.systemDefault()));
+        assertEquals(expectedDate, replacer.replace("{a}", Collections.singletonMap("a", date)));
+
+        // the formatter of the nearest type is used, the formatted values are
+        // checked
+        replacer.setFormatters(ScriptsFormatters.DEFAULT.with(LocalDate.class, (value, output) -> output.append(value.getYear()))
+                .with(Number.class, (value, output) -> output.append('{').append(value).append('}')));
+        assertEquals("d = 2016", replacer.replace("d = {a}", Collections.singletonMap("a", LocalDate.of(2016, 12, 21))));
+        assertException(() -> replacer.replace("{a}", Collections.singletonMap("a", 12)), IllegalArgumentException.class,
+                "Replacement value cannot contains: ");
+
+        assertException(() -> replacer.setFormatters(null), IllegalArgumentException.class, "The formatters cannot be null");
+        assertException(() -> ScriptsFormatters.DEFAULT.with(Integer.class, null), IllegalArgumentException.class,
+                "The formatter cannot be null");
+    }
+
+    /**
+     * Test the streamed values (readers and suppliers)
+     * 
+     * @throws IOException
+     *             On reading error
+     */
+    @Test
+    public void testStreamedValues() throws IOException {
+        final ScriptsReplacer replacer = new ScriptsReplacer();
+        final String padding = StringUtils.repeat('x', 4095);
+
+        // the checks are done across the chunks (4096 characters)
+        final String valid = padding + "''" + padding + "'''' end";
+        assertEquals("a = " + valid, replacer.replace("a = {a}", Collections.singletonMap("a", new StringReader(valid))));
+        assertException(() -> replacer.replace("{a}", Collections.singletonMap("a", new StringReader(padding + "??"))),
+                IllegalArgumentException.class, "Replacement value cannot contains: ");
+        assertException(() -> replacer.replace("{a}", Collections.singletonMap("a", new StringReader(padding + "'x'"))),
+                IllegalArgumentException.class, "Replacement value has to contain only group of pairs of: '");
+        assertException(() -> replacer.replace("{a}", Collections.singletonMap("a", new StringReader(padding + "'"))),
+                IllegalArgumentException.class, "Replacement value has to contain only pairs of: '");
+
+        // a supplier is called on each rendering, a reader can only be read
+        // once
+        final Map<String, Object> replacements = new HashMap<>();
+        replacements.put("a", (Supplier<Reader>) () -> new StringReader("text"));
+        replacements.put("b", (Supplier<Object>) () -> 12);
+        replacements.put("c", (Supplier<CharSequence>) () -> new StringBuilder("chars"));
+        assertEquals("text text 12 chars", replacer.replace("{a} {a} {b} {c}", replacements));
+
+        assertException(() -> replacer.replace("{a} {a}", Collections.singletonMap("a", new StringReader("text"))),
+                IllegalArgumentException.class, "The reader of the variable 'a' can only be rendered once (use a supplier)");
+
+        // the unused readers are not read
+        final Reader unused = new StringReader("unused");
+        replacements.put("d", unused);
+        assertEquals("12", replacer.replace("{b}", replacements));
+        assertEquals('u', unused.read());
+
+        // the JSON checker is run on each chunk
+        replacer.setTemplate(ScriptsTemplate.TEMPLATE_JSON);
+        assertException(() -> replacer.replace("<a>", Collections.singletonMap("a", new StringReader(padding + "{}"))),
+                IllegalArgumentException.class, "Replacement value hasn't to contain braces");
+    }
+
+    /**
+     * Test the expanded collections and arrays
+     */
+    @Test
+    public void testCollections() {
+        final ScriptsReplacer replacer = new ScriptsReplacer();
+        final String script = "id IN ({ids})";
+
+        assertEquals("id IN (1, 2, 3)", replacer.replace(script, Collections.singletonMap("ids", Arrays.asList(1, 2, 3))));
+        assertEquals("id IN (4, 5)", replacer.replace(script, Collections.singletonMap("ids", new long[] {4, 5})));
+        assertEquals("id IN (1.5, true)", replacer.replace(script, Collections.singletonMap("ids", new Object[] {1.5d, true})));
+        assertEquals("id IN ()", replacer.replace(script, Collections.singletonMap("ids", new int[0])));
+
+        // quoted and escaped elements
+        final List<String> names = Arrays.asList("a", "o'neil", null);
+        assertEquals("id IN ('a', 'o''neil', null)",
+                replacer.replace(script, Collections.singletonMap("ids", ScriptsCollection.of(names).withQuotes())));
+        assertEquals("id IN (\"a\";\"o'neil\";null)", replacer.replace(script,
+                Collections.singletonMap("ids", ScriptsCollection.of(names).withQuotes('"', '\\').withSeparator(";"))));
+        assertEquals("id IN ('a\\'b\\\\')", replacer.replace(script,
+                Collections.singletonMap("ids", ScriptsCollection.ofArray(new String[] {"a'b\\"}).withQuotes('\'', '\\'))));
+
+        // groups
+        final int[] ids = new int[2500];
+        for (int i = 0; i < ids.length; ++i) {
+            ids[i] = i;
+        }
+        final String grouped = replacer.replace("{ids??id IN ({ids})}",
+                Collections.singletonMap("ids", ScriptsCollection.ofArray(ids).withGroups(1000, ") OR id IN (")));
+        assertEquals(2, StringUtils.countMatches(grouped, ") OR id IN ("));
+        assertTrue(grouped.startsWith("id IN (0, 1, "));
+        assertTrue(grouped.contains(", 999) OR id IN (1000, "));
+        assertTrue(grouped.endsWith(", 2499)"));
+
+        // the elements are checked
+        assertException(() -> replacer.replace(script, Collections.singletonMap("ids", Arrays.asList("a", "o'neil"))),
+                IllegalArgumentException.class, "Replacement value has to contain only pairs of: '");
+        final ScriptsCollection braces = ScriptsCollection.of(Arrays.asList("{a}")).withQuotes();
+        assertException(() -> replacer.replace(script, Collections.singletonMap("ids", braces)), IllegalArgumentException.class,
+                "Replacement value cannot contains: ");
+        assertException(() -> replacer.replace("select 1", Collections.singletonMap("ids", Arrays.asList("a", "o'neil"))),
+                IllegalArgumentException.class, "Replacement value has to contain only pairs of: '");
+
+        assertException(() -> ScriptsCollection.ofArray("a"), IllegalArgumentException.class, "The value is not an array");
+        assertException(() -> ScriptsCollection.of((List<?>) null), IllegalArgumentException.class, "The collection cannot be null");
+        assertException(() -> ScriptsCollection.ofArray(ids).withGroups(0, ""), IllegalArgumentException.class,
+                "The size of the groups has to be greater than 0");
+    }
+}
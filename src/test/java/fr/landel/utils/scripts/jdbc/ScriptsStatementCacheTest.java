@@ -0,0 +1,214 @@
+/*
+ * #%L
+ * utils-scripts
+ * %%
+ * Copyright (C) 2016 - 2018 Gilles Landel
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package fr.landel.utils.scripts.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+import fr.landel.utils.io.FileSystemUtils;
+import fr.landel.utils.io.FileUtils;
+import fr.landel.utils.scripts.AbstractTest;
+import fr.landel.utils.scripts.ScriptsList;
+import fr.landel.utils.scripts.ScriptsLoader;
+import fr.landel.utils.scripts.SingleScriptsList;
+
+/**
+ * Check the cache of prepared statements (against an in-memory stand-in of
+ * JDBC connection)
+ *
+ * @since Oct 17, 2026
+ * @author Gilles
+ *
+ */
+public class ScriptsStatementCacheTest extends AbstractTest {
+
+    /**
+     * Test the cache of prepared statements
+     * 
+     * @throws IOException
+     *             On loading error
+     * @throws SQLException
+     *             On JDBC error
+     */
+    @Test
+    public void testPrepare() throws IOException, SQLException {
+        final File dir = new File("target/my_scripts_jdbc");
+        assertTrue(dir.isDirectory() || FileSystemUtils.createDirectory(dir));
+        final File file = new File(dir, "users.sql");
+        FileUtils.writeFileContent(new StringBuilder("select * from users where 1 = 1{name?? and name = {name}}{ids?? and id IN ({ids})}"),
+                file, StandardCharsets.UTF_8);
+
+        final ScriptsLoader loader = new ScriptsLoader(dir.getPath());
+        final ScriptsList<?> script = loader.init(null, file.getName(), StandardCharsets.UTF_8);
+
+        final StandInConnection connection = new StandInConnection();
+        final ScriptsStatementCache cache = new ScriptsStatementCache(loader, connection.get(), 2);
+
+        final Map<String, Object> replacements = new HashMap<>();
+        replacements.put("name", "o'neil");
+        final PreparedStatement statement = cache.prepare(script, replacements);
+        assertEquals(Collections.singletonList("select * from users where 1 = 1 and name = ?"), connection.getPrepared());
+        assertEquals(Collections.singletonMap(1, "o'neil"), connection.getParameters(statement));
+
+        // same shape: not prepared again, the values are bound again
+        replacements.put("name", new StringBuilder("smith"));
+        assertSame(statement, cache.prepare(script, replacements));
+        assertEquals(1, connection.getPrepared().size());
+        assertEquals(Collections.singletonMap(1, "smith"), connection.getParameters(statement));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+
+        // other shapes, the least recently used is closed
+        replacements.put("ids", Arrays.asList(1, 2));
+        final PreparedStatement statementIds = cache.prepare(script, replacements);
+        final Map<Integer, Object> expected = new TreeMap<>();
+        expected.put(1, "smith");
+        expected.put(2, 1);
+        expected.put(3, 2);
+        assertEquals(expected, connection.getParameters(statementIds));
+        assertSame(statement, cache.prepare(script, Collections.singletonMap("name", "doe")));
+
+        final PreparedStatement statementEmpty = cache.prepare(script, Collections.emptyMap());
+        assertEquals(Arrays.asList("select * from users where 1 = 1 and name = ?",
+                "select * from users where 1 = 1 and name = ? and id IN (?, ?)", "select * from users where 1 = 1"),
+                connection.getPrepared());
+        assertTrue(statementIds.isClosed());
+        assertFalse(statement.isClosed());
+        assertEquals(2, cache.getCount());
+
+        // a statement closed by the caller is prepared again
+        statement.close();
+        final PreparedStatement statement2 = cache.prepare(script, Collections.singletonMap("name", "doe"));
+        assertNotSame(statement, statement2);
+        assertFalse(statement2.isClosed());
+
+        // conversions
+        final Date date = new Date(1482315330000L);
+        cache.prepare(script, Collections.singletonMap("name", Enum.valueOf(Thread.State.class, "NEW")));
+        assertEquals("NEW", connection.getParameters(statement2).get(1));
+        cache.prepare(script, Collections.singletonMap("name", date));
+        assertEquals(new Timestamp(date.getTime()), connection.getParameters(statement2).get(1));
+        cache.prepare(script, Collections.singletonMap("name", null));
+        assertTrue(connection.getParameters(statement2).containsKey(1));
+        assertNull(connection.getParameters(statement2).get(1));
+        final StringReader reader = new StringReader("smith");
+        cache.prepare(script, Collections.singletonMap("name", reader));
+        assertSame(reader, connection.getParameters(statement2).get(1));
+
+        cache.close();
+        assertTrue(statement2.isClosed());
+        assertTrue(statementEmpty.isClosed());
+        assertEquals(0, cache.getCount());
+
+        assertException(() -> cache.prepare(script, Collections.singletonMap("{name}", "doe")), IllegalArgumentException.class,
+                "Replacement key cannot contains: {");
+        assertException(() -> new ScriptsStatementCache(loader, null), IllegalArgumentException.class, "The connection cannot be null");
+        assertException(() -> new ScriptsStatementCache(loader, connection.get(), 0), IllegalArgumentException.class,
+                "The size of the statement cache has to be greater than 0");
+        assertException(() -> cache.prepare(new SingleScriptsList("unknown.sql", StandardCharsets.UTF_8), Collections.emptyMap()),
+                IllegalArgumentException.class, "The script is not loaded: unknown.sql");
+    }
+
+    /**
+     * In-memory stand-in of JDBC connection: records the prepared texts and
+     * the bound parameters
+     */
+    private static final class StandInConnection {
+
+        private final List<String> prepared = new ArrayList<>();
+        private final Map<PreparedStatement, Map<Integer, Object>> parameters = new HashMap<>();
+        private final Connection connection;
+
+        StandInConnection() {
+            this.connection = (Connection) Proxy.newProxyInstance(this.getClass().getClassLoader(), new Class<?>[] {Connection.class},
+                    (proxy, method, args) -> {
+                        if ("prepareStatement".equals(method.getName()) && args.length == 1) {
+                            this.prepared.add((String) args[0]);
+                            return this.prepare();
+                        }
+                        throw new UnsupportedOperationException(method.getName());
+                    });
+        }
+
+        private PreparedStatement prepare() {
+            final Map<Integer, Object> values = new TreeMap<>();
+            final boolean[] closed = {false};
+            final PreparedStatement statement = (PreparedStatement) Proxy.newProxyInstance(this.getClass().getClassLoader(),
+                    new Class<?>[] {PreparedStatement.class}, (proxy, method, args) -> {
+                        final String name = method.getName();
+                        if (name.startsWith("set") && args.length == 2) {
+                            values.put((Integer) args[0], "setNull".equals(name) ? null : args[1]);
+                            return null;
+                        } else if ("clearParameters".equals(name)) {
+                            values.clear();
+                            return null;
+                        } else if ("close".equals(name)) {
+                            closed[0] = true;
+                            return null;
+                        } else if ("isClosed".equals(name)) {
+                            return closed[0];
+                        } else if ("hashCode".equals(name)) {
+                            return System.identityHashCode(proxy);
+                        } else if ("equals".equals(name)) {
+                            return proxy == args[0];
+                        }
+                        throw new UnsupportedOperationException(name);
+                    });
+            this.parameters.put(statement, values);
+            return statement;
+        }
+
+        Connection get() {
+            return this.connection;
+        }
+
+        List<String> getPrepared() {
+            return this.prepared;
+        }
+
+        Map<Integer, Object> getParameters(final PreparedStatement statement) {
+            return this.parameters.get(statement);
+        }
+    }
+}